@@ -171,6 +171,12 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
     private TimeTracker timeTracker;
     private final PlannerConfiguration<T> configuration;
 
+    /**
+     * It's kept while the critical path is shown, so it's calculated
+     * incrementally when the diagram changes
+     */
+    private CriticalPathCalculator<Task, Dependency> criticalPathCalculator;
+
     public FunctionalityExposedForExtensions(Planner planner,
             PlannerConfiguration<T> configuration,
             GanttZKDiagramGraph diagramGraph) {
@@ -398,12 +404,18 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
         diagramGraph.enforceRestrictions(associatedTask);
     }
 
+    private CriticalPathCalculator<Task, Dependency> getCriticalPathCalculator() {
+        if (criticalPathCalculator == null) {
+            criticalPathCalculator = CriticalPathCalculator
+                    .createIncremental(configuration
+                            .isDependenciesConstraintsHavePriority());
+        }
+        return criticalPathCalculator;
+    }
+
     @Override
     public void showCriticalPath() {
-        CriticalPathCalculator<Task, Dependency> criticalPathCalculator = CriticalPathCalculator
-                .create(configuration.isDependenciesConstraintsHavePriority());
-
-        List<Task> criticalPath = criticalPathCalculator
+        List<Task> criticalPath = getCriticalPathCalculator()
                 .calculateCriticalPath(diagramGraph);
         for (Task task : diagramGraph.getTasks()) {
             task.setInCriticalPath(isInCriticalPath(criticalPath, task));
@@ -422,10 +434,8 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
     @Override
     public List<T> getCriticalPath() {
         List<T> result = new ArrayList<T>();
-        CriticalPathCalculator<Task, Dependency> criticalPathCalculator = CriticalPathCalculator
-                .create(configuration.isDependenciesConstraintsHavePriority());
-        for (Task each : criticalPathCalculator
-                .calculateCriticalPath(diagramGraph)) {
+        for (Task each : getCriticalPathCalculator().calculateCriticalPath(
+                diagramGraph)) {
             result.add(mapper.findAssociatedDomainObject(each));
         }
         return result;
@@ -433,6 +443,7 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
 
     @Override
     public void hideCriticalPath() {
+        criticalPathCalculator = null;
         for (Task task : diagramGraph.getTasks()) {
             task.setInCriticalPath(false);
         }
@@ -24,9 +24,9 @@ package org.zkoss.ganttz.data;
 import static java.util.Arrays.asList;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -283,6 +283,11 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
 
     private final TopologicalSorter topologicalSorter;
 
+    /**
+     * It's increased each time a task or a dependency is added or removed
+     */
+    private long structureVersion = 0;
+
     private List<V> topLevelTasks = new ArrayList<V>();
 
     private Map<V, V> fromChildToParent = new HashMap<V, V>();
@@ -425,105 +430,198 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
     }
 
-    class TopologicalSorter {
+    /**
+     * <p>
+     * Snapshot of the {@link TaskPoint task points} reachable from the tasks
+     * without visible incoming dependencies. Each task point gets an int index
+     * and its successors and depth are kept in arrays indexed by it, so a
+     * propagation doesn't need to go through the graph or the adapter again to
+     * know what comes next.
+     * </p>
+     * <p>
+     * The depth is the length of the longest path from the initial task
+     * points, so sorting by it gives a topological order. It's
+     * {@link #NO_DEPTH} for the task points discovered after the snapshot was
+     * done or not reachable from the initial ones.
+     * </p>
+     */
+    private class TaskPointsIndex {
 
-        private Map<TaskPoint, Integer> taskPointsByDepthCached = null;
+        private static final int NO_DEPTH = -1;
 
-        private Map<TaskPoint, Integer> taskPointsByDepth() {
-            if (taskPointsByDepthCached != null) {
-                return taskPointsByDepthCached;
-            }
+        private static final int INITIAL_CAPACITY = 64;
 
-            Map<TaskPoint, Integer> result = new HashMap<TaskPoint, Integer>();
-            Map<TaskPoint, Set<TaskPoint>> visitedBy = new HashMap<TaskPoint, Set<TaskPoint>>();
+        private final Map<TaskPoint, Integer> indexes = new HashMap<TaskPoint, Integer>();
 
-            Queue<TaskPoint> withoutIncoming = getInitial(withoutVisibleIncomingDependencies(getTopLevelTasks()));
-            for (TaskPoint each : withoutIncoming) {
-                initializeIfNeededForKey(result, each, 0);
-            }
+        private final List<TaskPoint> taskPoints = new ArrayList<TaskPoint>();
+
+        private int[][] successors = new int[INITIAL_CAPACITY][];
+
+        private int[] depths = new int[INITIAL_CAPACITY];
 
-            while (!withoutIncoming.isEmpty()) {
-                TaskPoint current = withoutIncoming.poll();
-                for (TaskPoint each : current.getImmediateSuccessors()) {
-                    initializeIfNeededForKey(visitedBy, each,
-                            new HashSet<TaskPoint>());
-                    Set<TaskPoint> visitors = visitedBy.get(each);
-                    visitors.add(current);
-                    Set<TaskPoint> predecessorsRequired = each
-                            .getImmediatePredecessors();
-                    if (visitors.containsAll(predecessorsRequired)) {
-                        initializeIfNeededForKey(result, each,
-                                result.get(current) + 1);
-                        withoutIncoming.offer(each);
+        private int[] pendingPredecessors = new int[INITIAL_CAPACITY];
+
+        private int maxDepth = 0;
+
+        TaskPointsIndex(List<V> initialTasks) {
+            int[] ready = new int[INITIAL_CAPACITY];
+            int head = 0;
+            int tail = 0;
+            for (V each : initialTasks) {
+                int index = indexOf(allPointsPotentiallyModified(each));
+                if (depths[index] == NO_DEPTH) {
+                    depths[index] = 0;
+                    ready = ensureCapacity(ready, tail + 1);
+                    ready[tail++] = index;
+                }
+            }
+            while (head < tail) {
+                int current = ready[head++];
+                if (successors[current] != null) {
+                    continue;
+                }
+                TaskPoint currentPoint = taskPoints.get(current);
+                for (int each : getSuccessors(current)) {
+                    if (taskPoints.get(each).getImmediatePredecessors()
+                            .contains(currentPoint)) {
+                        pendingPredecessors[each]--;
+                    }
+                    if (pendingPredecessors[each] == 0) {
+                        if (depths[each] == NO_DEPTH) {
+                            depths[each] = depths[current] + 1;
+                            maxDepth = Math.max(maxDepth, depths[each]);
+                        }
+                        ready = ensureCapacity(ready, tail + 1);
+                        ready[tail++] = each;
                     }
                 }
             }
-            return taskPointsByDepthCached = Collections
-                    .unmodifiableMap(result);
         }
 
-        private <K, T> void initializeIfNeededForKey(Map<K, T> map, K key,
-                T initialValue) {
-            if (!map.containsKey(key)) {
-                map.put(key, initialValue);
+        /**
+         * @return the index of the task point, adding it to the snapshot if
+         *         it wasn't known
+         */
+        int indexOf(TaskPoint taskPoint) {
+            Integer result = indexes.get(taskPoint);
+            if (result != null) {
+                return result;
             }
+            int index = taskPoints.size();
+            taskPoints.add(taskPoint);
+            indexes.put(taskPoint, index);
+            int capacity = index + 1;
+            depths = ensureCapacity(depths, capacity);
+            pendingPredecessors = ensureCapacity(pendingPredecessors, capacity);
+            if (successors.length < capacity) {
+                successors = Arrays.copyOf(successors,
+                        Math.max(capacity, successors.length * 2));
+            }
+            depths[index] = NO_DEPTH;
+            pendingPredecessors[index] = taskPoint.getImmediatePredecessors()
+                    .size();
+            return index;
         }
 
-        private LinkedList<TaskPoint> getInitial(List<V> initial) {
-            LinkedList<TaskPoint> result = new LinkedList<TaskPoint>();
-            for (V each : initial) {
-                result.add(allPointsPotentiallyModified(each));
-            }
-            return result;
+        int size() {
+            return taskPoints.size();
         }
 
-        public void recalculationNeeded() {
-            taskPointsByDepthCached = null;
+        TaskPoint getTaskPoint(int index) {
+            return taskPoints.get(index);
         }
 
-        public List<Recalculation> sort(
-                Collection<? extends Recalculation> recalculationsToBeSorted) {
+        int[] getSuccessors(int index) {
+            if (successors[index] == null) {
+                Set<TaskPoint> immediate = taskPoints.get(index)
+                        .getImmediateSuccessors();
+                int[] result = new int[immediate.size()];
+                int i = 0;
+                for (TaskPoint each : immediate) {
+                    result[i++] = indexOf(each);
+                }
+                successors[index] = result;
+            }
+            return successors[index];
+        }
 
-            List<Recalculation> result = new ArrayList<Recalculation>(
-                    recalculationsToBeSorted);
-            final Map<TaskPoint, Integer> taskPointsByDepth = taskPointsByDepth();
-            Collections.sort(result, new Comparator<Recalculation>() {
+        int getDepth(TaskPoint taskPoint) {
+            Integer index = indexes.get(taskPoint);
+            return index != null ? depths[index] : NO_DEPTH;
+        }
 
-                @Override
-                public int compare(Recalculation o1, Recalculation o2) {
-                    int o1Depth = onNullDefault(
-                            taskPointsByDepth.get(o1.taskPoint),
-                            Integer.MAX_VALUE, "no depth value for "
-                                    + o1.taskPoint);
-                    int o2Depth = onNullDefault(
-                            taskPointsByDepth.get(o2.taskPoint),
-                            Integer.MAX_VALUE, "no depth value for "
-                                    + o2.taskPoint);
-                    int result = o1Depth - o2Depth;
-                    if (result == 0) {
-                        return asInt(o1.parentRecalculation)
-                                - asInt(o2.parentRecalculation);
-                    }
-                    return result;
-                }
+        int getMaxDepth() {
+            return maxDepth;
+        }
 
-                private int asInt(boolean b) {
-                    return b ? 1 : 0;
-                }
-            });
-            return result;
+    }
+
+    private static int[] ensureCapacity(int[] array, int required) {
+        if (array.length >= required) {
+            return array;
         }
+        return Arrays.copyOf(array, Math.max(required, array.length * 2));
     }
 
-    private static <T> T onNullDefault(T value, T defaultValue,
-            String warnMessage) {
-        if (value == null) {
-            if (warnMessage != null) {
-                LOG.warn(warnMessage);
+    class TopologicalSorter {
+
+        private TaskPointsIndex indexCached = null;
+
+        TaskPointsIndex getIndex() {
+            if (indexCached == null) {
+                indexCached = new TaskPointsIndex(
+                        withoutVisibleIncomingDependencies(getTopLevelTasks()));
+            }
+            return indexCached;
+        }
+
+        public void recalculationNeeded() {
+            indexCached = null;
+            structureVersion++;
+        }
+
+        /**
+         * Sorts the recalculations by the depth of their task points and puts
+         * the parent recalculations after the other ones of the same depth.
+         * The ones without depth go at the end. It's a counting sort, so it's
+         * linear and stable.
+         */
+        public List<Recalculation> sort(
+                Collection<? extends Recalculation> recalculationsToBeSorted) {
+            TaskPointsIndex index = getIndex();
+            int unknownDepthKey = 2 * (index.getMaxDepth() + 1);
+            int[] keys = new int[recalculationsToBeSorted.size()];
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int i = 0;
+            for (Recalculation each : recalculationsToBeSorted) {
+                int depth = index.getDepth(each.taskPoint);
+                if (depth == TaskPointsIndex.NO_DEPTH) {
+                    LOG.warn("no depth value for " + each.taskPoint);
+                }
+                int key = (depth == TaskPointsIndex.NO_DEPTH ? unknownDepthKey
+                        : 2 * depth) + (each.parentRecalculation ? 1 : 0);
+                keys[i++] = key;
+                min = Math.min(min, key);
+                max = Math.max(max, key);
+            }
+            if (keys.length == 0) {
+                return new ArrayList<Recalculation>();
+            }
+            int[] positions = new int[max - min + 2];
+            for (int each : keys) {
+                positions[each - min + 1]++;
             }
-            return defaultValue;
+            for (int j = 1; j < positions.length; j++) {
+                positions[j] += positions[j - 1];
+            }
+            Recalculation[] result = newRecalculationsArray(keys.length);
+            i = 0;
+            for (Recalculation each : recalculationsToBeSorted) {
+                result[positions[keys[i++] - min]++] = each;
+            }
+            return new ArrayList<Recalculation>(asList(result));
         }
-        return value;
     }
 
     public void addTask(V original) {
@@ -918,11 +1016,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
 
         void enforceRestrictionsOn(Collection<? extends V> tasks) {
-            List<Recalculation> allRecalculations = new ArrayList<Recalculation>();
-            for (V each : tasks) {
-                allRecalculations.addAll(getRecalculationsNeededFrom(each));
-            }
-            enforceRestrictionsOn(allRecalculations, tasks);
+            enforceRestrictionsOn(getRecalculationsNeededFrom(tasks), tasks);
         }
 
         void enforceRestrictionsOn(V task) {
@@ -1145,50 +1239,78 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
     }
 
     List<Recalculation> getRecalculationsNeededFrom(V task) {
+        return getRecalculationsNeededFrom(Collections.singletonList(task));
+    }
+
+    /**
+     * Gets the {@link Recalculation recalculations} needed after the
+     * modification of all the provided tasks at once. The recalculations
+     * reachable from several of them are only done once.
+     */
+    List<Recalculation> getRecalculationsNeededFrom(
+            Collection<? extends V> tasks) {
+        TaskPointsIndex index = topologicalSorter.getIndex();
         List<Recalculation> result = new ArrayList<Recalculation>();
         Set<Recalculation> parentRecalculationsAlreadyDone = new HashSet<Recalculation>();
-        Recalculation first = recalculationFor(allPointsPotentiallyModified(task));
-        first.couldHaveBeenModifiedBeforehand();
-
-        result.addAll(getParentsRecalculations(parentRecalculationsAlreadyDone,
-                first.taskPoint));
-        result.add(first);
-
-        Queue<Recalculation> pendingOfVisit = new LinkedList<Recalculation>();
-        pendingOfVisit.offer(first);
+        Recalculation[] alreadyVisited = newRecalculationsArray(index.size());
+        int[] pendingOfVisit = new int[Math.max(1, tasks.size())];
+        int head = 0;
+        int tail = 0;
 
-        Map<Recalculation, Recalculation> alreadyVisited = new HashMap<Recalculation, Recalculation>();
-        alreadyVisited.put(first, first);
-
-        while (!pendingOfVisit.isEmpty()) {
-            Recalculation current = pendingOfVisit.poll();
-            for (TaskPoint each : current.taskPoint.getImmediateSuccessors()) {
-                if (each.isImmediatelyDerivedFrom(current.taskPoint)) {
+        for (V each : tasks) {
+            int first = index.indexOf(allPointsPotentiallyModified(each));
+            alreadyVisited = ensureCapacity(alreadyVisited, index.size());
+            if (alreadyVisited[first] != null) {
+                alreadyVisited[first].couldHaveBeenModifiedBeforehand();
+                continue;
+            }
+            Recalculation recalculation = recalculationFor(index
+                    .getTaskPoint(first));
+            recalculation.couldHaveBeenModifiedBeforehand();
+            result.addAll(getParentsRecalculations(
+                    parentRecalculationsAlreadyDone, recalculation.taskPoint));
+            result.add(recalculation);
+            alreadyVisited[first] = recalculation;
+            pendingOfVisit = ensureCapacity(pendingOfVisit, tail + 1);
+            pendingOfVisit[tail++] = first;
+        }
+
+        while (head < tail) {
+            int currentIndex = pendingOfVisit[head++];
+            Recalculation current = alreadyVisited[currentIndex];
+            int[] successors = index.getSuccessors(currentIndex);
+            alreadyVisited = ensureCapacity(alreadyVisited, index.size());
+            for (int each : successors) {
+                TaskPoint taskPoint = index.getTaskPoint(each);
+                if (taskPoint.isImmediatelyDerivedFrom(current.taskPoint)) {
                     continue;
                 }
-                Recalculation recalculationToAdd = getRecalcualtionToAdd(each,
-                        alreadyVisited);
-                recalculationToAdd.comesFromPredecessor(current);
-                if (!alreadyVisited.containsKey(recalculationToAdd)) {
+                Recalculation recalculationToAdd = alreadyVisited[each];
+                if (recalculationToAdd == null) {
+                    recalculationToAdd = recalculationFor(taskPoint);
                     result.addAll(getParentsRecalculations(
-                            parentRecalculationsAlreadyDone, each));
+                            parentRecalculationsAlreadyDone, taskPoint));
                     result.add(recalculationToAdd);
-                    pendingOfVisit.offer(recalculationToAdd);
-                    alreadyVisited.put(recalculationToAdd, recalculationToAdd);
+                    alreadyVisited[each] = recalculationToAdd;
+                    pendingOfVisit = ensureCapacity(pendingOfVisit, tail + 1);
+                    pendingOfVisit[tail++] = each;
                 }
+                recalculationToAdd.comesFromPredecessor(current);
             }
         }
         return topologicalSorter.sort(result);
     }
 
-    private Recalculation getRecalcualtionToAdd(TaskPoint taskPoint,
-            Map<Recalculation, Recalculation> alreadyVisited) {
-        Recalculation result = recalculationFor(taskPoint);
-        if (alreadyVisited.containsKey(result)) {
-            return alreadyVisited.get(result);
-        } else {
-            return result;
+    @SuppressWarnings("unchecked")
+    private Recalculation[] newRecalculationsArray(int size) {
+        return new GanttDiagramGraph.Recalculation[size];
+    }
+
+    private Recalculation[] ensureCapacity(Recalculation[] array, int required) {
+        if (array.length >= required) {
+            return array;
         }
+        return Arrays.copyOf(array, Math.max(required, array.length * 2));
     }
 
     private List<Recalculation> getParentsRecalculations(
@@ -1251,7 +1373,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
 
         private final TaskPoint taskPoint;
 
-        private Set<Recalculation> recalculationsCouldAffectThis = new HashSet<Recalculation>();
+        private List<Recalculation> recalculationsCouldAffectThis = new ArrayList<Recalculation>();
 
         private boolean recalculationCalled = false;
 
@@ -1281,7 +1403,8 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
 
         private boolean haveToDoCalculation() {
-            return recalculationsCouldAffectThis.isEmpty()
+            return couldHaveBeenModifiedBeforehand
+                    || recalculationsCouldAffectThis.isEmpty()
                     || predecessorsHaveBeenModified();
         }
 
@@ -2012,6 +2135,14 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         enforcer.taskPositionModified(task);
     }
 
+    /**
+     * Enforces the restrictions after modifying several tasks at once. The
+     * tasks affected by more than one of them are only recalculated once.
+     */
+    public void enforceRestrictions(Collection<? extends V> tasks) {
+        enforcer.enforceRestrictionsOn(tasks);
+    }
+
     public DeferedNotifier manualNotificationOn(IAction action) {
         return enforcer.manualNotification(action);
     }
@@ -2404,6 +2535,11 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         return adapter.getEndDateFor(task);
     }
 
+    @Override
+    public long getStructureVersion() {
+        return structureVersion;
+    }
+
     @Override
     public List<Constraint<GanttDate>> getStartConstraintsFor(V task) {
         return adapter.getStartConstraintsFor(task);
@@ -24,6 +24,8 @@ import java.util.Arrays;
 import java.util.Collections;
 
 import org.apache.commons.lang.Validate;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
 
 /**
  * @author Óscar González Fernández
@@ -112,4 +114,28 @@ public class ConstraintOnComparableValues<T extends Comparable<T>> extends
         }
     }
 
+    /**
+     * Two constraints are equal if they compare with the same value in the
+     * same way, so a constraint created again can be recognized
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ConstraintOnComparableValues<?> other = (ConstraintOnComparableValues<?>) obj;
+        return new EqualsBuilder()
+                .append(comparisonType, other.comparisonType)
+                .append(comparisonValue, other.comparisonValue).isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder().append(comparisonType)
+                .append(comparisonValue).toHashCode();
+    }
+
 }
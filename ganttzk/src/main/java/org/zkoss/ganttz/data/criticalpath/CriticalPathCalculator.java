@@ -25,8 +25,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,7 +42,19 @@ import org.zkoss.ganttz.data.IDependency;
 import org.zkoss.ganttz.data.constraint.Constraint;
 
 /**
- * Class that calculates the critical path of a Gantt diagram graph.
+ * Class that calculates the critical path of a Gantt diagram graph.<br />
+ *
+ * The earliest values are calculated in a forward pass from the beginning of
+ * the project and the latest ones in a backward pass from the end of the
+ * project. A task is processed once all the tasks it depends on have been
+ * processed. The passes are iterative, so long chains of dependencies don't
+ * exhaust the stack.<br />
+ *
+ * An incremental calculator keeps the nodes between calculations while the
+ * {@link ICriticalPathCalculable#getStructureVersion() structure} of the graph
+ * doesn't change. Then it only reads the dates and the constraints of the
+ * tasks, and calculates the values again for the tasks whose dates or
+ * constraints have changed and the ones that depend on them.
  *
  * @author Manuel Rego Casasnovas <mrego@igalia.com>
  */
@@ -47,49 +62,139 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
 
     private final boolean dependenciesConstraintsHavePriority;
 
+    private final boolean incremental;
+
     public static <T, D extends IDependency<T>> CriticalPathCalculator<T, D> create(
             boolean dependenciesConstraintsHavePriority) {
         return new CriticalPathCalculator<T, D>(
-                dependenciesConstraintsHavePriority);
+                dependenciesConstraintsHavePriority, false);
     }
 
-    private CriticalPathCalculator(boolean dependenciesConstraintsHavePriority) {
+    /**
+     * Creates a calculator that keeps its state between calculations. The
+     * nodes are only created again when the structure of the graph changes.
+     */
+    public static <T, D extends IDependency<T>> CriticalPathCalculator<T, D> createIncremental(
+            boolean dependenciesConstraintsHavePriority) {
+        return new CriticalPathCalculator<T, D>(
+                dependenciesConstraintsHavePriority, true);
+    }
+
+    private CriticalPathCalculator(boolean dependenciesConstraintsHavePriority,
+            boolean incremental) {
         this.dependenciesConstraintsHavePriority = dependenciesConstraintsHavePriority;
+        this.incremental = incremental;
+    }
+
+    /**
+     * The constraints of a task as they were read, so it can be known if
+     * they have changed
+     */
+    private static class TaskConstraints {
+
+        private final List<Constraint<GanttDate>> startConstraints;
+
+        private final List<Constraint<GanttDate>> endConstraints;
+
+        private final Constraint<GanttDate> coalesced;
+
+        TaskConstraints(List<Constraint<GanttDate>> startConstraints,
+                List<Constraint<GanttDate>> endConstraints) {
+            this.startConstraints = startConstraints;
+            this.endConstraints = endConstraints;
+            this.coalesced = coalesce(startConstraints, endConstraints);
+        }
+
+        private static Constraint<GanttDate> coalesce(
+                List<Constraint<GanttDate>> startConstraints,
+                List<Constraint<GanttDate>> endConstraints) {
+            if ((startConstraints == null || startConstraints.isEmpty())
+                    && (endConstraints == null || endConstraints.isEmpty())) {
+                return null;
+            }
+            if (startConstraints == null || startConstraints.isEmpty()) {
+                return Constraint.coalesce(endConstraints);
+            }
+            if (endConstraints == null || endConstraints.isEmpty()) {
+                return Constraint.coalesce(startConstraints);
+            }
+            List<Constraint<GanttDate>> all = new ArrayList<Constraint<GanttDate>>(
+                    startConstraints);
+            all.addAll(endConstraints);
+            return Constraint.coalesce(all);
+        }
+
+        boolean hasTheSameValues(List<Constraint<GanttDate>> startConstraints,
+                List<Constraint<GanttDate>> endConstraints) {
+            return equal(this.startConstraints, startConstraints)
+                    && equal(this.endConstraints, endConstraints);
+        }
+
+        private static boolean equal(List<Constraint<GanttDate>> a,
+                List<Constraint<GanttDate>> b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
     }
 
     private ICriticalPathCalculable<T> graph;
 
+    private long structureVersion;
+
     private LocalDate initDate;
 
     private Map<T, Node<T, D>> nodes;
 
+    private List<T> containers;
+
     private InitialNode<T, D> bop;
     private LastNode<T, D> eop;
 
     private Map<T, Map<T, DependencyType>> dependencies;
 
-    private class VisitorTracker {
+    private Map<T, Map<T, DependencyType>> dependencyTypes;
 
-        private Map<T, Set<T>> visitorsOn = new HashMap<T, Set<T>>();
+    private Map<T, TaskConstraints> constraints = new HashMap<T, TaskConstraints>();
 
-        void visit(T visited, T visitor) {
-            if (!visitorsOn.containsKey(visited)) {
-                visitorsOn.put(visited, new HashSet<T>());
-            }
-            visitorsOn.get(visited).add(visitor);
-        }
+    /**
+     * If the incoming and outgoing tasks of every node match, each node is
+     * processed just once and the processing order can be reused
+     */
+    private boolean consistent;
 
-        boolean hasBeenVisitedByAll(T current,
-                Collection<? extends T> collection) {
-            return visitorsOn.containsKey(current)
-                    && visitorsOn.get(current).containsAll(collection);
-        }
+    /**
+     * The tasks whose earliest finish can be the earliest start of the end of
+     * the project
+     */
+    private Set<T> endOfProjectCandidates;
 
-    }
+    /**
+     * The position of each task in the order it was processed
+     */
+    private Map<T, Integer> forwardOrder;
+
+    private Map<T, Integer> backwardOrder;
+
+    private Set<T> criticalPath;
 
     public List<T> calculateCriticalPath(ICriticalPathCalculable<T> graph) {
-        this.graph = graph;
+        if (incremental && canReuseNodesFor(graph)) {
+            recalculate();
+        } else {
+            this.graph = graph;
+            structureVersion = graph.getStructureVersion();
+            createNodes();
+            calculateFromScratch();
+        }
+        return new ArrayList<T>(criticalPath);
+    }
+
+    private boolean canReuseNodesFor(ICriticalPathCalculable<T> graph) {
+        return this.graph == graph && nodes != null && consistent
+                && structureVersion == graph.getStructureVersion();
+    }
 
+    private void createNodes() {
         dependencies = new HashMap<T, Map<T, DependencyType>>();
 
         initDate = calculateInitDate();
@@ -98,13 +203,31 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         eop = createEndOfProjectNode();
 
         nodes = createGraphNodes();
+        containers = getContainers();
+        dependencyTypes = calculateDependencyTypes();
+        endOfProjectCandidates = calculateEndOfProjectCandidates();
+
+        constraints = new HashMap<T, TaskConstraints>();
+        consistent = isConsistent();
+    }
+
+    private void calculateFromScratch() {
+        for (Node<T, D> each : nodes.values()) {
+            each.resetEarliestValues();
+            each.resetLatestValues();
+        }
+        eop.resetEarliestValues();
+        eop.resetLatestValues();
 
-        forward(bop, null, new VisitorTracker());
+        forward();
         eop.updateLatestValues();
 
-        backward(eop, null, new VisitorTracker());
+        backward();
 
-        return getTasksOnCriticalPath();
+        criticalPath = new HashSet<T>();
+        for (Node<T, D> each : nodes.values()) {
+            updateCriticalPath(each);
+        }
     }
 
     private LocalDate calculateInitDate() {
@@ -227,6 +350,16 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return result;
     }
 
+    private List<T> getContainers() {
+        List<T> result = new ArrayList<T>();
+        for (T each : graph.getTasks()) {
+            if (graph.isContainer(each)) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
     private void addDepedenciesAndRelatedTasks(Map<T, Node<T, D>> graph,
             Collection<T> origins,
             Collection<T> destinations, DependencyType type) {
@@ -291,57 +424,141 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return DependencyType.END_START;
     }
 
-    private void forward(Node<T, D> currentNode, T previousTask,
-            VisitorTracker visitorTracker) {
-        T currentTask = currentNode.getTask();
-        int earliestStart = currentNode.getEarliestStart();
-        int earliestFinish = currentNode.getEarliestFinish();
+    private Map<T, Map<T, DependencyType>> calculateDependencyTypes() {
+        Map<T, Map<T, DependencyType>> result = new HashMap<T, Map<T, DependencyType>>();
+        for (Node<T, D> each : nodes.values()) {
+            Map<T, DependencyType> types = new HashMap<T, DependencyType>();
+            for (T next : each.getNextTasks()) {
+                types.put(next, getDependencyTypeEndStartByDefault(
+                        each.getTask(), next));
+            }
+            result.put(each.getTask(), types);
+        }
+        return result;
+    }
 
-        Set<T> nextTasks = currentNode.getNextTasks();
-        if (nextTasks.isEmpty()) {
-            eop.setEarliestStart(earliestFinish);
-        } else {
-            int countStartStart = 0;
-
-            for (T task : nextTasks) {
-                visitorTracker.visit(task, currentTask);
-                if (graph.isContainer(currentTask)) {
-                    if (graph.contains(currentTask, previousTask)) {
-                        if (graph.contains(currentTask, task)) {
-                            continue;
-                        }
-                    }
+    private DependencyType getDependencyType(T from, T to) {
+        if ((from == null) || (to == null)) {
+            return DependencyType.END_START;
+        }
+        DependencyType result = dependencyTypes.get(from).get(to);
+        return result != null ? result : DependencyType.END_START;
+    }
+
+    private Set<T> calculateEndOfProjectCandidates() {
+        Set<T> result = new HashSet<T>();
+        for (Node<T, D> each : nodes.values()) {
+            if (onlyStartStartDependenciesFrom(each)) {
+                result.add(each.getTask());
+            }
+        }
+        return result;
+    }
+
+    private boolean onlyStartStartDependenciesFrom(Node<T, D> node) {
+        for (T each : node.getNextTasks()) {
+            if (getDependencyType(node.getTask(), each) != DependencyType.START_START) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isConsistent() {
+        for (Node<T, D> each : nodes.values()) {
+            for (T next : each.getNextTasks()) {
+                Node<T, D> node = nodes.get(next);
+                if (node == null
+                        || !node.getPreviousTasks().contains(each.getTask())) {
+                    return false;
+                }
+            }
+            for (T previous : each.getPreviousTasks()) {
+                Node<T, D> node = nodes.get(previous);
+                if (node == null
+                        || !node.getNextTasks().contains(each.getTask())) {
+                    return false;
                 }
+            }
+        }
+        return nodes.keySet().containsAll(bop.getNextTasks())
+                && nodes.keySet().containsAll(eop.getPreviousTasks());
+    }
 
+    /**
+     * A node is processed when it has been reached from all the tasks it
+     * depends on. If it receives new values after being processed, which can
+     * only happen if the graph isn't {@link #consistent}, it's processed
+     * again.
+     */
+    private void forward() {
+        forwardOrder = new LinkedHashMap<T, Integer>();
+        Map<T, Integer> pendingPrevious = new HashMap<T, Integer>();
+        Set<T> queued = new HashSet<T>();
+        LinkedList<Node<T, D>> queue = new LinkedList<Node<T, D>>();
+        queue.add(bop);
+
+        while (!queue.isEmpty()) {
+            Node<T, D> current = queue.removeFirst();
+            T currentTask = current.getTask();
+            queued.remove(currentTask);
+            boolean firstTime = (current == bop)
+                    || addInOrder(forwardOrder, currentTask);
+            updateEndOfProjectEarliestStart(current);
+
+            for (T task : current.getNextTasks()) {
                 Node<T, D> node = nodes.get(task);
-                DependencyType dependencyType = getDependencyTypeEndStartByDefault(
-                        currentTask, task);
-                Constraint<GanttDate> constraint = getDateConstraints(task);
-
-                switch (dependencyType) {
-                case START_START:
-                    setEarliestStart(node, earliestStart, constraint);
-                    countStartStart++;
-                    break;
-                case END_END:
-                    setEarliestStart(node, earliestFinish - node.getDuration(),
-                            constraint);
-                    break;
-                case END_START:
-                default:
-                    setEarliestStart(node, earliestFinish, constraint);
-                    break;
+                int previousEarliestStart = node.getEarliestStart();
+                setEarliestStart(node, earliestStartBy(current, node),
+                        getConstraintFor(task));
+
+                int pending = pendingPreviousFor(pendingPrevious, node);
+                if (firstTime && currentTask != null
+                        && node.getPreviousTasks().contains(currentTask)) {
+                    pending--;
+                    pendingPrevious.put(task, pending);
                 }
-
-                if (visitorTracker.hasBeenVisitedByAll(task,
-                        node.getPreviousTasks())) {
-                    forward(node, currentTask, visitorTracker);
+                if (pending > 0 || queued.contains(task)) {
+                    continue;
+                }
+                if (!forwardOrder.containsKey(task)
+                        || node.getEarliestStart() > previousEarliestStart) {
+                    queued.add(task);
+                    queue.add(node);
                 }
             }
+        }
+    }
 
-            if (nextTasks.size() == countStartStart) {
-                eop.setEarliestStart(earliestFinish);
-            }
+    private static <T> boolean addInOrder(Map<T, Integer> order, T task) {
+        if (order.containsKey(task)) {
+            return false;
+        }
+        order.put(task, order.size());
+        return true;
+    }
+
+    private int pendingPreviousFor(Map<T, Integer> pendingPrevious,
+            Node<T, D> node) {
+        Integer result = pendingPrevious.get(node.getTask());
+        return result != null ? result : node.getPreviousTasks().size();
+    }
+
+    private int earliestStartBy(Node<T, D> previous, Node<T, D> node) {
+        switch (getDependencyType(previous.getTask(), node.getTask())) {
+        case START_START:
+            return previous.getEarliestStart();
+        case END_END:
+            return previous.getEarliestFinish() - node.getDuration();
+        case END_START:
+        default:
+            return previous.getEarliestFinish();
+        }
+    }
+
+    private void updateEndOfProjectEarliestStart(Node<T, D> node) {
+        if (node == bop || endOfProjectCandidates.contains(node.getTask())) {
+            eop.setEarliestStart(node.getEarliestFinish());
         }
     }
 
@@ -358,80 +575,101 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         node.setEarliestStart(earliestStart);
     }
 
-    private Constraint<GanttDate> getDateConstraints(T task) {
+    private Constraint<GanttDate> getConstraintFor(T task) {
         if (dependenciesConstraintsHavePriority || task == null) {
             return null;
         }
+        TaskConstraints result = constraints.get(task);
+        if (result == null) {
+            result = new TaskConstraints(graph.getStartConstraintsFor(task),
+                    graph.getEndConstraintsFor(task));
+            constraints.put(task, result);
+        }
+        return result.coalesced;
+    }
 
+    /**
+     * It reads the constraints of the task again. If they have different
+     * values than the previous ones, they replace them.
+     *
+     * @return if the constraints have changed
+     */
+    private boolean updateConstraintsFor(T task) {
+        if (dependenciesConstraintsHavePriority) {
+            return false;
+        }
         List<Constraint<GanttDate>> startConstraints = graph
                 .getStartConstraintsFor(task);
         List<Constraint<GanttDate>> endConstraints = graph
                 .getEndConstraintsFor(task);
-        if ((startConstraints == null || startConstraints.isEmpty())
-                && (endConstraints == null || endConstraints.isEmpty())) {
-            return null;
-        }
-        if (startConstraints == null || startConstraints.isEmpty()) {
-            return Constraint.coalesce(endConstraints);
+        TaskConstraints previous = constraints.get(task);
+        if (previous != null
+                && previous.hasTheSameValues(startConstraints, endConstraints)) {
+            return false;
         }
-        if (endConstraints == null || endConstraints.isEmpty()) {
-            return Constraint.coalesce(startConstraints);
-        }
-        startConstraints.addAll(endConstraints);
-        return Constraint.coalesce(startConstraints);
+        constraints.put(task, new TaskConstraints(startConstraints,
+                endConstraints));
+        return previous != null;
     }
 
-    private void backward(Node<T, D> currentNode, T nextTask,
-            VisitorTracker visitorTracker) {
-        T currentTask = currentNode.getTask();
-        int latestStart = currentNode.getLatestStart();
-        int latestFinish = currentNode.getLatestFinish();
-
-        Set<T> previousTasks = currentNode.getPreviousTasks();
-        if (previousTasks.isEmpty()) {
-            bop.setLatestFinish(latestStart);
-        } else {
-            int countEndEnd = 0;
-
-            for (T task : previousTasks) {
-                visitorTracker.visit(task, currentTask);
-                if (graph.isContainer(currentTask)) {
-                    if (graph.contains(currentTask, nextTask)) {
-                        if (graph.contains(currentTask, task)) {
-                            continue;
-                        }
-                    }
-                }
-
+    /**
+     * Symmetric to {@link #forward()}, a node is processed when it has been
+     * reached from all the tasks that depend on it.
+     */
+    private void backward() {
+        backwardOrder = new LinkedHashMap<T, Integer>();
+        Map<T, Integer> pendingNext = new HashMap<T, Integer>();
+        Set<T> queued = new HashSet<T>();
+        LinkedList<Node<T, D>> queue = new LinkedList<Node<T, D>>();
+        queue.add(eop);
+
+        while (!queue.isEmpty()) {
+            Node<T, D> current = queue.removeFirst();
+            T currentTask = current.getTask();
+            queued.remove(currentTask);
+            boolean firstTime = (current == eop)
+                    || addInOrder(backwardOrder, currentTask);
+
+            for (T task : current.getPreviousTasks()) {
                 Node<T, D> node = nodes.get(task);
-                DependencyType dependencyType = getDependencyTypeEndStartByDefault(
-                        task, currentTask);
-                Constraint<GanttDate> constraint = getDateConstraints(task);
-
-                switch (dependencyType) {
-                case START_START:
-                    setLatestFinish(node, latestStart + node.getDuration(),
-                            constraint);
-                    break;
-                case END_END:
-                    setLatestFinish(node, latestFinish, constraint);
-                    countEndEnd++;
-                    break;
-                case END_START:
-                default:
-                    setLatestFinish(node, latestStart, constraint);
-                    break;
+                Integer previousLatestFinish = node.isLatestFinishCalculated() ? node
+                        .getLatestFinish() : null;
+                setLatestFinish(node, latestFinishBy(current, node),
+                        getConstraintFor(task));
+
+                int pending = pendingNextFor(pendingNext, node);
+                if (firstTime && currentTask != null
+                        && node.getNextTasks().contains(currentTask)) {
+                    pending--;
+                    pendingNext.put(task, pending);
                 }
-
-                if (visitorTracker.hasBeenVisitedByAll(task,
-                        node.getNextTasks())) {
-                    backward(node, currentTask, visitorTracker);
+                if (pending > 0 || queued.contains(task)) {
+                    continue;
+                }
+                if (!backwardOrder.containsKey(task)
+                        || previousLatestFinish == null
+                        || node.getLatestFinish() < previousLatestFinish) {
+                    queued.add(task);
+                    queue.add(node);
                 }
             }
+        }
+    }
 
-            if (previousTasks.size() == countEndEnd) {
-                bop.setLatestFinish(latestStart);
-            }
+    private int pendingNextFor(Map<T, Integer> pendingNext, Node<T, D> node) {
+        Integer result = pendingNext.get(node.getTask());
+        return result != null ? result : node.getNextTasks().size();
+    }
+
+    private int latestFinishBy(Node<T, D> next, Node<T, D> node) {
+        switch (getDependencyType(node.getTask(), next.getTask())) {
+        case START_START:
+            return next.getLatestStart() + node.getDuration();
+        case END_END:
+            return next.getLatestFinish();
+        case END_START:
+        default:
+            return next.getLatestStart();
         }
     }
 
@@ -449,16 +687,200 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         node.setLatestFinish(latestFinish);
     }
 
-    private List<T> getTasksOnCriticalPath() {
-        List<T> result = new ArrayList<T>();
+    /**
+     * The affected tasks are calculated again in the order they were
+     * processed, taking the values from the tasks they depend on. The values
+     * of the rest of tasks are kept. If the beginning or the end of the
+     * project change all the values or all the latest ones, respectively,
+     * are calculated again.
+     */
+    private void recalculate() {
+        LocalDate previousInitDate = initDate;
+        Set<T> modified = updateNodesAndFindModified();
+        if (!equal(initDate, previousInitDate)) {
+            calculateFromScratch();
+            return;
+        }
+        if (modified.isEmpty()) {
+            return;
+        }
+
+        Set<T> downstream = closure(modified, true);
+        List<T> downstreamInOrder = inProcessingOrder(downstream, forwardOrder);
+        for (T each : downstreamInOrder) {
+            nodes.get(each).resetEarliestValues();
+        }
+        for (T each : downstreamInOrder) {
+            recalculateEarliestStart(nodes.get(each));
+        }
 
-        for (Node<T, D> node : nodes.values()) {
-            if (node.getLatestStart() == node.getEarliestStart()) {
-                result.add(node.getTask());
+        if (recalculateEndOfProject(downstream)) {
+            for (Node<T, D> each : nodes.values()) {
+                each.resetLatestValues();
+            }
+            eop.resetLatestValues();
+            eop.updateLatestValues();
+            backward();
+            for (Node<T, D> each : nodes.values()) {
+                updateCriticalPath(each);
             }
+            return;
+        }
+
+        Set<T> upstream = closure(modified, false);
+        List<T> upstreamInOrder = inProcessingOrder(upstream, backwardOrder);
+        for (T each : upstreamInOrder) {
+            nodes.get(each).resetLatestValues();
         }
+        for (T each : upstreamInOrder) {
+            recalculateLatestFinish(nodes.get(each));
+        }
+
+        for (T each : downstream) {
+            updateCriticalPath(nodes.get(each));
+        }
+        for (T each : upstream) {
+            updateCriticalPath(nodes.get(each));
+        }
+    }
 
+    /**
+     * It reads the dates and the constraints of the tasks, and the beginning
+     * of the project
+     *
+     * @return the tasks whose dates or constraints have changed
+     */
+    private Set<T> updateNodesAndFindModified() {
+        Set<T> result = new HashSet<T>();
+        LocalDate minStart = null;
+        for (Node<T, D> each : nodes.values()) {
+            T task = each.getTask();
+            GanttDate start = graph.getStartDate(task);
+            minStart = min(minStart, start);
+            boolean datesChanged = each.updateDates(start,
+                    graph.getEndDateFor(task));
+            boolean constraintsChanged = updateConstraintsFor(task);
+            if (datesChanged || constraintsChanged) {
+                result.add(task);
+            }
+        }
+        for (T each : containers) {
+            minStart = min(minStart, graph.getStartDate(each));
+        }
+        initDate = minStart;
         return result;
     }
 
+    private static LocalDate min(LocalDate current, GanttDate date) {
+        LocalDate value = LocalDate.fromDateFields(date.toDayRoundedDate());
+        return current == null || value.isBefore(current) ? value : current;
+    }
+
+    private static boolean equal(LocalDate a, LocalDate b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * @return if the earliest start of the end of the project has changed
+     */
+    private boolean recalculateEndOfProject(Set<T> changed) {
+        boolean someCandidate = false;
+        for (T each : changed) {
+            if (endOfProjectCandidates.contains(each)) {
+                someCandidate = true;
+                break;
+            }
+        }
+        if (!someCandidate) {
+            return false;
+        }
+        int previousEarliestStart = eop.getEarliestStart();
+        eop.resetEarliestValues();
+        for (T each : endOfProjectCandidates) {
+            if (forwardOrder.containsKey(each)) {
+                eop.setEarliestStart(nodes.get(each).getEarliestFinish());
+            }
+        }
+        return eop.getEarliestStart() != previousEarliestStart;
+    }
+
+    private Set<T> closure(Set<T> tasks, boolean downstream) {
+        Set<T> result = new HashSet<T>(tasks);
+        LinkedList<T> pending = new LinkedList<T>(tasks);
+        while (!pending.isEmpty()) {
+            Node<T, D> node = nodes.get(pending.removeFirst());
+            for (T each : downstream ? node.getNextTasks() : node
+                    .getPreviousTasks()) {
+                if (result.add(each)) {
+                    pending.add(each);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the affected tasks in the order they were processed, followed
+     *         by the ones that weren't processed
+     */
+    private List<T> inProcessingOrder(Set<T> affected,
+            final Map<T, Integer> processingOrder) {
+        List<T> result = new ArrayList<T>();
+        List<T> notProcessed = new ArrayList<T>();
+        for (T each : affected) {
+            if (processingOrder.containsKey(each)) {
+                result.add(each);
+            } else {
+                notProcessed.add(each);
+            }
+        }
+        Collections.sort(result, new Comparator<T>() {
+
+            @Override
+            public int compare(T o1, T o2) {
+                return processingOrder.get(o1).compareTo(
+                        processingOrder.get(o2));
+            }
+        });
+        result.addAll(notProcessed);
+        return result;
+    }
+
+    private void recalculateEarliestStart(Node<T, D> node) {
+        T task = node.getTask();
+        Constraint<GanttDate> constraint = getConstraintFor(task);
+        if (bop.getNextTasks().contains(task)) {
+            setEarliestStart(node, earliestStartBy(bop, node), constraint);
+        }
+        for (T each : node.getPreviousTasks()) {
+            if (forwardOrder.containsKey(each)) {
+                setEarliestStart(node, earliestStartBy(nodes.get(each), node),
+                        constraint);
+            }
+        }
+    }
+
+    private void recalculateLatestFinish(Node<T, D> node) {
+        T task = node.getTask();
+        Constraint<GanttDate> constraint = getConstraintFor(task);
+        if (eop.getPreviousTasks().contains(task)) {
+            setLatestFinish(node, latestFinishBy(eop, node), constraint);
+        }
+        for (T each : node.getNextTasks()) {
+            if (backwardOrder.containsKey(each)) {
+                setLatestFinish(node, latestFinishBy(nodes.get(each), node),
+                        constraint);
+            }
+        }
+    }
+
+    private void updateCriticalPath(Node<T, D> node) {
+        if (node.isLatestFinishCalculated()
+                && node.getLatestStart() == node.getEarliestStart()) {
+            criticalPath.add(node.getTask());
+        } else {
+            criticalPath.remove(node.getTask());
+        }
+    }
+
 }
@@ -68,4 +68,11 @@ public interface ICriticalPathCalculable<T> {
 
     List<T> getChildren(T task);
 
+    /**
+     * It must change every time a task or a dependency is added or removed.
+     * An incremental {@link CriticalPathCalculator} keeps the structure of
+     * the graph while it doesn't change.
+     */
+    long getStructureVersion();
+
 }
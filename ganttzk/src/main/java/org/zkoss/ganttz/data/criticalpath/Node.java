@@ -55,15 +55,10 @@ public class Node<T, D extends IDependency<T>> {
             Set<? extends T> nextTasks, GanttDate startDate, GanttDate endDate) {
         this.task = task;
 
-        if (startDate != null) {
-            this.beginDate = new LocalDate(startDate.toDayRoundedDate());
-        }
-        if (endDate != null) {
-            this.endDate = new LocalDate(endDate.toDayRoundedDate());
-        }
+        this.beginDate = toLocalDate(startDate);
+        this.endDate = toLocalDate(endDate);
 
-        this.earliestStart = 0;
-        this.earliestFinish = getDuration();
+        resetEarliestValues();
 
         if (previousTasks != null) {
             this.previousTasks = new HashSet<T>(previousTasks);
@@ -123,6 +118,55 @@ public class Node<T, D extends IDependency<T>> {
         return latestFinish;
     }
 
+    public boolean isLatestFinishCalculated() {
+        return latestFinish != null;
+    }
+
+    private static LocalDate toLocalDate(GanttDate date) {
+        return date != null ? new LocalDate(date.toDayRoundedDate()) : null;
+    }
+
+    /**
+     * It changes the dates of the task. The calculated values aren't
+     * modified.
+     *
+     * @return if the dates are different from the previous ones
+     */
+    public boolean updateDates(GanttDate startDate, GanttDate endDate) {
+        LocalDate newBeginDate = toLocalDate(startDate);
+        LocalDate newEndDate = toLocalDate(endDate);
+        if (equal(this.beginDate, newBeginDate)
+                && equal(this.endDate, newEndDate)) {
+            return false;
+        }
+        this.beginDate = newBeginDate;
+        this.endDate = newEndDate;
+        return true;
+    }
+
+    /**
+     * The earliest values are only increased by
+     * {@link #setEarliestStart(int)}, so they must be reset before calculating
+     * them again
+     */
+    public void resetEarliestValues() {
+        this.earliestStart = 0;
+        this.earliestFinish = getDuration();
+    }
+
+    /**
+     * The latest values are only decreased by {@link #setLatestFinish(int)},
+     * so they must be reset before calculating them again
+     */
+    public void resetLatestValues() {
+        this.latestStart = null;
+        this.latestFinish = null;
+    }
+
+    private static boolean equal(LocalDate a, LocalDate b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     public int getDuration() {
         if (task == null) {
             return 0;
@@ -0,0 +1,187 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz.data;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.zkoss.ganttz.data.GanttDiagramGraph.GanttZKDiagramGraph;
+import org.zkoss.ganttz.data.ITaskFundamentalProperties.IModifications;
+import org.zkoss.ganttz.data.ITaskFundamentalProperties.IUpdatablePosition;
+import org.zkoss.ganttz.data.constraint.Constraint;
+
+/**
+ * Measures how long {@link GanttDiagramGraph} takes to propagate the move of
+ * the root task of a big project, checking that the result is right.
+ */
+public class GanttDiagramGraphBenchmarkTest {
+
+    private static final Log LOG = LogFactory
+            .getLog(GanttDiagramGraphBenchmarkTest.class);
+
+    private static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+    private static final int TASKS = 2000;
+
+    private static final int MOVES = 5;
+
+    private GanttZKDiagramGraph graph;
+
+    private List<Task> tasks;
+
+    private Map<Task, DefaultFundamentalProperties> propertiesOf = new HashMap<Task, DefaultFundamentalProperties>();
+
+    /**
+     * Each task depends on the two previous ones, so there are almost two
+     * dependencies per task and moving the first task moves all of them.
+     */
+    private void givenProjectWithTasks(int number) {
+        graph = GanttDiagramGraph.create(false,
+                Collections.<Constraint<GanttDate>> emptyList(),
+                Collections.<Constraint<GanttDate>> emptyList(), true);
+        tasks = new ArrayList<Task>();
+        for (int i = 0; i < number; i++) {
+            tasks.add(createTask("task" + i));
+        }
+        graph.addTopLevel(tasks);
+        for (int i = 1; i < number; i++) {
+            graph.addWithoutEnforcingConstraints(endStart(tasks.get(i - 1),
+                    tasks.get(i)));
+            if (i > 1) {
+                graph.addWithoutEnforcingConstraints(endStart(
+                        tasks.get(i - 2), tasks.get(i)));
+            }
+        }
+        graph.enforceAllRestrictions();
+    }
+
+    private Task createTask(String name) {
+        Date start = START.toDateTimeAtStartOfDay().toDate();
+        DefaultFundamentalProperties properties = new DefaultFundamentalProperties(
+                name, start, ONE_DAY, "", start, start, start,
+                BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        Task result = new TaskLeaf(properties);
+        propertiesOf.put(result, properties);
+        return result;
+    }
+
+    private Dependency endStart(Task source, Task destination) {
+        return new Dependency(source, destination, DependencyType.END_START);
+    }
+
+    private void moveTo(Task task, LocalDate date) {
+        task.doPositionModifications(moveModification(date));
+    }
+
+    private IModifications moveModification(final LocalDate date) {
+        return new IModifications() {
+
+            @Override
+            public void doIt(IUpdatablePosition position) {
+                position.moveTo(GanttDate.createFrom(date));
+            }
+        };
+    }
+
+    private void moveWithoutEnforcing(Task task, LocalDate date) {
+        propertiesOf.get(task).doPositionModifications(
+                moveModification(date));
+    }
+
+    private LocalDate startOf(Task task) {
+        return task.getBeginDate().toLocalDate();
+    }
+
+    private Task first() {
+        return tasks.get(0);
+    }
+
+    private Task last() {
+        return tasks.get(tasks.size() - 1);
+    }
+
+    @Test
+    public void theDependenciesAreEnforcedInitially() {
+        givenProjectWithTasks(10);
+        for (int i = 0; i < tasks.size(); i++) {
+            assertThat(startOf(tasks.get(i)), equalTo(START.plusDays(i)));
+        }
+    }
+
+    @Test
+    public void movingTheRootTaskMovesAllTheOthers() {
+        givenProjectWithTasks(10);
+        moveTo(first(), START.plusDays(5));
+        for (int i = 0; i < tasks.size(); i++) {
+            assertThat(startOf(tasks.get(i)), equalTo(START.plusDays(5 + i)));
+        }
+    }
+
+    @Test
+    public void aTaskMovedLaterGoesBackToItsEarliestStart() {
+        givenProjectWithTasks(10);
+        moveTo(tasks.get(5), START.plusDays(8));
+        for (int i = 0; i < tasks.size(); i++) {
+            assertThat(startOf(tasks.get(i)), equalTo(START.plusDays(i)));
+        }
+    }
+
+    @Test
+    public void severalTasksModifiedAtOnceCanBeEnforcedTogether() {
+        givenProjectWithTasks(10);
+        moveWithoutEnforcing(first(), START.plusDays(2));
+        moveWithoutEnforcing(tasks.get(5), START.plusDays(20));
+        graph.enforceRestrictions(asList(first(), tasks.get(5)));
+        for (int i = 0; i < tasks.size(); i++) {
+            assertThat(startOf(tasks.get(i)), equalTo(START.plusDays(2 + i)));
+        }
+    }
+
+    @Test
+    public void movingTheRootOfABigProject() {
+        long start = System.currentTimeMillis();
+        givenProjectWithTasks(TASKS);
+        long created = System.currentTimeMillis();
+        for (int i = 1; i <= MOVES; i++) {
+            moveTo(first(), START.plusDays(i));
+            assertThat(startOf(last()), equalTo(START.plusDays(i + TASKS - 1)));
+        }
+        long end = System.currentTimeMillis();
+        LOG.info(String.format(
+                "%d tasks: created in %d ms, root moved %d times in %d ms",
+                TASKS, created - start, MOVES, end - created));
+    }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz.data.criticalpath;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.zkoss.ganttz.data.GanttDate;
+import org.zkoss.ganttz.data.IDependency;
+import org.zkoss.ganttz.data.constraint.Constraint;
+import org.zkoss.ganttz.data.constraint.ConstraintOnComparableValues;
+
+/**
+ * Tests for the incremental mode of {@link CriticalPathCalculator}.
+ */
+public class IncrementalCriticalPathCalculatorTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    /**
+     * A graph of tasks identified by their names and joined by end-start
+     * dependencies. Defining an existing task again changes its dates. It
+     * counts how many times the dates of each task are read.
+     */
+    private static class ExampleGraph implements
+            ICriticalPathCalculable<String> {
+
+        private final Map<String, LocalDate[]> dates = new LinkedHashMap<String, LocalDate[]>();
+
+        private final Map<String, Set<String>> outgoing = new LinkedHashMap<String, Set<String>>();
+
+        private final Map<String, Set<String>> incoming = new LinkedHashMap<String, Set<String>>();
+
+        private final Map<String, LocalDate> finishNotLaterThan = new HashMap<String, LocalDate>();
+
+        private long structureVersion = 0;
+
+        private int outgoingTasksReads = 0;
+
+        ExampleGraph task(String name, int startDay, int durationDays) {
+            LocalDate start = START.plusDays(startDay);
+            dates.put(name, new LocalDate[] { start,
+                    start.plusDays(durationDays) });
+            if (!outgoing.containsKey(name)) {
+                outgoing.put(name, new HashSet<String>());
+                incoming.put(name, new HashSet<String>());
+                structureVersion++;
+            }
+            return this;
+        }
+
+        ExampleGraph dependency(String origin, String destination) {
+            outgoing.get(origin).add(destination);
+            incoming.get(destination).add(origin);
+            structureVersion++;
+            return this;
+        }
+
+        ExampleGraph finishNotLaterThan(String name, int day) {
+            finishNotLaterThan.put(name, START.plusDays(day));
+            return this;
+        }
+
+        @Override
+        public List<String> getInitialTasks() {
+            List<String> result = new ArrayList<String>();
+            for (String each : dates.keySet()) {
+                if (incoming.get(each).isEmpty()) {
+                    result.add(each);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public List<String> getLatestTasks() {
+            List<String> result = new ArrayList<String>();
+            for (String each : dates.keySet()) {
+                if (outgoing.get(each).isEmpty()) {
+                    result.add(each);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean hasVisibleIncomingDependencies(String task) {
+            return !incoming.get(task).isEmpty();
+        }
+
+        @Override
+        public boolean hasVisibleOutcomingDependencies(String task) {
+            return !outgoing.get(task).isEmpty();
+        }
+
+        @Override
+        public Set<String> getIncomingTasksFor(String task) {
+            return new HashSet<String>(incoming.get(task));
+        }
+
+        @Override
+        public Set<String> getOutgoingTasksFor(String task) {
+            outgoingTasksReads++;
+            return new HashSet<String>(outgoing.get(task));
+        }
+
+        @Override
+        public IDependency<String> getDependencyFrom(String from, String to) {
+            return null;
+        }
+
+        @Override
+        public List<String> getTasks() {
+            return new ArrayList<String>(dates.keySet());
+        }
+
+        @Override
+        public boolean isContainer(String task) {
+            return false;
+        }
+
+        @Override
+        public boolean contains(String container, String task) {
+            return false;
+        }
+
+        @Override
+        public GanttDate getStartDate(String task) {
+            return GanttDate.createFrom(dates.get(task)[0]);
+        }
+
+        @Override
+        public GanttDate getEndDateFor(String task) {
+            return GanttDate.createFrom(dates.get(task)[1]);
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getStartConstraintsFor(String task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getEndConstraintsFor(String task) {
+            LocalDate day = finishNotLaterThan.get(task);
+            if (day == null) {
+                return Collections.emptyList();
+            }
+            GanttDate date = GanttDate.createFrom(day);
+            return Collections.singletonList(ConstraintOnComparableValues
+                    .lessOrEqualThan(date));
+        }
+
+        @Override
+        public List<String> getChildren(String task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public long getStructureVersion() {
+            return structureVersion;
+        }
+
+    }
+
+    private static CriticalPathCalculator<String, IDependency<String>> incrementalCalculator() {
+        return CriticalPathCalculator.createIncremental(false);
+    }
+
+    private static Set<String> criticalPath(
+            CriticalPathCalculator<String, IDependency<String>> calculator,
+            ExampleGraph graph) {
+        return new HashSet<String>(calculator.calculateCriticalPath(graph));
+    }
+
+    private static Set<String> fromScratch(ExampleGraph graph) {
+        CriticalPathCalculator<String, IDependency<String>> calculator = CriticalPathCalculator
+                .create(false);
+        return criticalPath(calculator, graph);
+    }
+
+    private static Set<String> tasks(String... names) {
+        Set<String> result = new HashSet<String>();
+        Collections.addAll(result, names);
+        return result;
+    }
+
+    /**
+     * <pre>
+     * #### A ####
+     *            \
+     *             #### C ####
+     *            /
+     * ## B ##
+     * </pre>
+     */
+    private static ExampleGraph joinExample() {
+        return new ExampleGraph().task("A", 0, 5).task("B", 0, 3)
+                .task("C", 5, 2).dependency("A", "C").dependency("B", "C");
+    }
+
+    @Test
+    public void theLongestBranchIsUpdatedWhenADurationChanges() {
+        ExampleGraph graph = joinExample();
+        CriticalPathCalculator<String, IDependency<String>> calculator = incrementalCalculator();
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("A", "C")));
+
+        graph.task("B", 0, 10).task("C", 10, 2);
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("B", "C")));
+        assertThat(criticalPath(calculator, graph), equalTo(fromScratch(graph)));
+    }
+
+    @Test
+    public void aChangeNotMovingTheEndOfTheProjectOnlyAffectsItsBranch() {
+        ExampleGraph graph = joinExample().task("D", 0, 7);
+        CriticalPathCalculator<String, IDependency<String>> calculator = incrementalCalculator();
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("A", "C",
+                "D")));
+
+        graph.task("B", 0, 5);
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("A", "B",
+                "C", "D")));
+        assertThat(criticalPath(calculator, graph), equalTo(fromScratch(graph)));
+    }
+
+    @Test
+    public void newDependenciesAreTakenIntoAccount() {
+        ExampleGraph graph = joinExample().task("D", 0, 4);
+        CriticalPathCalculator<String, IDependency<String>> calculator = incrementalCalculator();
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("A", "C")));
+
+        graph.task("D", 7, 4).dependency("C", "D");
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("A", "C",
+                "D")));
+        assertThat(criticalPath(calculator, graph), equalTo(fromScratch(graph)));
+    }
+
+    @Test
+    public void theNodesAreKeptWhileTheStructureDoesNotChange() {
+        ExampleGraph graph = joinExample();
+        CriticalPathCalculator<String, IDependency<String>> calculator = incrementalCalculator();
+        criticalPath(calculator, graph);
+        int reads = graph.outgoingTasksReads;
+
+        graph.task("B", 0, 10).task("C", 10, 2);
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("B", "C")));
+        assertThat(graph.outgoingTasksReads, equalTo(reads));
+
+        graph.task("D", 0, 1);
+        criticalPath(calculator, graph);
+        assertThat(graph.outgoingTasksReads > reads, equalTo(true));
+    }
+
+    /**
+     * <pre>
+     * #### A ####
+     *            \
+     *             #### C ####
+     *
+     * ## B ##
+     * </pre>
+     */
+    @Test
+    public void aConstraintChangedWithoutMovingTheTaskIsTakenIntoAccount() {
+        ExampleGraph graph = new ExampleGraph().task("A", 0, 5)
+                .task("B", 0, 3).task("C", 5, 2).dependency("A", "C");
+        CriticalPathCalculator<String, IDependency<String>> calculator = incrementalCalculator();
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("A", "C")));
+
+        graph.finishNotLaterThan("B", 0);
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("A", "B",
+                "C")));
+        assertThat(criticalPath(calculator, graph), equalTo(fromScratch(graph)));
+
+        graph.finishNotLaterThan("B", 7);
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("A", "C")));
+        assertThat(criticalPath(calculator, graph), equalTo(fromScratch(graph)));
+    }
+
+    @Test
+    public void aLongChainOfDependenciesDoesNotExhaustTheStack() {
+        ExampleGraph graph = new ExampleGraph();
+        int length = 20000;
+        for (int i = 0; i < length; i++) {
+            graph.task("T" + i, i, 1);
+            if (i > 0) {
+                graph.dependency("T" + (i - 1), "T" + i);
+            }
+        }
+        graph.task("Short", 0, 1);
+
+        CriticalPathCalculator<String, IDependency<String>> calculator = incrementalCalculator();
+        Set<String> criticalPath = criticalPath(calculator, graph);
+        assertThat(criticalPath.size(), equalTo(length));
+
+        graph.task("Short", 0, length + 1);
+        assertThat(criticalPath(calculator, graph), equalTo(tasks("Short")));
+    }
+
+}
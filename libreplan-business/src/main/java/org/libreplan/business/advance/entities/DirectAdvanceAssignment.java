@@ -117,13 +117,16 @@ public class DirectAdvanceAssignment extends AdvanceAssignment {
             return null;
         }
 
-        for (AdvanceMeasurement advanceMeasurement : advanceMeasurements) {
-            if (advanceMeasurement.getDate().compareTo(date) <= 0) {
-                return advanceMeasurement;
-            }
-        }
+        // the measurements are sorted from the newest to the oldest
+        SortedSet<AdvanceMeasurement> atDateOrPrevious = advanceMeasurements
+                .tailSet(probeAt(date));
+        return atDateOrPrevious.isEmpty() ? null : atDateOrPrevious.first();
+    }
 
-        return null;
+    private static AdvanceMeasurement probeAt(LocalDate date) {
+        AdvanceMeasurement result = new AdvanceMeasurement();
+        result.setDate(date);
+        return result;
     }
 
     public BigDecimal getAdvancePercentage() {
@@ -179,16 +182,10 @@ public class DirectAdvanceAssignment extends AdvanceAssignment {
     }
 
     public AdvanceMeasurement getAdvanceMeasurementAtExactDate(LocalDate date) {
-        if (advanceMeasurements.isEmpty()) {
-            return null;
+        AdvanceMeasurement result = getAdvanceMeasurementAtDateOrPrevious(date);
+        if (result != null && result.getDate().equals(date)) {
+            return result;
         }
-
-        for (AdvanceMeasurement advanceMeasurement : advanceMeasurements) {
-            if (advanceMeasurement.getDate().equals(date)) {
-                return advanceMeasurement;
-            }
-        }
-
         return null;
     }
 
@@ -44,8 +44,6 @@ import org.libreplan.business.common.entities.EntitySequence;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.resources.entities.VirtualWorker;
 import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
-import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.libreplan.business.workingday.ResourcesPerDay;
 
@@ -59,7 +57,7 @@ import org.libreplan.business.workingday.ResourcesPerDay;
 public class BaseCalendar extends IntegrationEntity implements ICalendar,
         IHumanIdentifiable, Comparable<BaseCalendar> {
 
-    private static final Capacity DEFAULT_VALUE = Capacity.zero()
+    static final Capacity DEFAULT_VALUE = Capacity.zero()
             .overAssignableWithoutLimit();
 
     public static BaseCalendar create() {
@@ -106,6 +104,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
         if ((calendarDataVersions != null) && (!calendarDataVersions.isEmpty())) {
             baseCalendar.calendarDataVersions = calendarDataVersions;
+            baseCalendar.capacityModified();
         }
 
         if (parent != null) {
@@ -141,6 +140,20 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     private Integer lastSequenceCode = 0;
 
+    /**
+     * It's volatile because the calendars are shared by the threads of the
+     * snapshots, so the index built by one of them must be seen complete by
+     * the others. If two threads build it at the same time, both indexes are
+     * equivalent and any of them can be kept.
+     */
+    private volatile CalendarCapacityIndex capacityIndex;
+
+    /**
+     * Number of modifications of the information used to build the
+     * {@link CalendarCapacityIndex}. This field is transient
+     */
+    private volatile long capacityModifications = 0;
+
     /**
      * Constructor for hibernate. Do not use!
      */
@@ -245,6 +258,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         }
 
         exceptions.add(day);
+        capacityModified();
     }
 
     public void removeExceptionDay(LocalDate date)
@@ -256,6 +270,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         }
 
         exceptions.remove(day);
+        capacityModified();
     }
 
     public void updateExceptionDay(LocalDate date, Capacity capacity,
@@ -277,13 +292,34 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     }
 
     public CalendarException getExceptionDay(LocalDate date) {
-        for (CalendarException exceptionDay : getExceptions(date)) {
-            if (exceptionDay.getDate().equals(date)) {
-                return exceptionDay;
-            }
-        }
+        return getCapacityIndex().getExceptionAt(date);
+    }
 
-        return null;
+    /**
+     * It must be called whenever this calendar, its versions, its exceptions
+     * or its availabilities change, so the {@link CalendarCapacityIndex
+     * indexes} that use it are built again
+     */
+    void capacityModified() {
+        capacityModifications++;
+    }
+
+    long getCapacityModifications() {
+        return capacityModifications;
+    }
+
+    /**
+     * Returns the {@link CalendarCapacityIndex} of this calendar, building it
+     * again if this calendar or any of its ancestors has been modified since
+     * the last time it was built.
+     */
+    public CalendarCapacityIndex getCapacityIndex() {
+        CalendarCapacityIndex result = capacityIndex;
+        if (result == null || !result.isUpToDate()) {
+            result = CalendarCapacityIndex.build(this);
+            capacityIndex = result;
+        }
+        return result;
     }
 
     public EffortDuration getCapacityOn(PartialDay date) {
@@ -297,19 +333,17 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         return multiplyByCalendarUnits(findCapacityAt(day));
     }
 
-    private Capacity findCapacityAt(LocalDate date) {
-        if (!isActive(date)) {
-            return Capacity.zero();
-        }
-        CalendarException exceptionDay = getExceptionDay(date);
-        if (exceptionDay != null) {
-            return exceptionDay.getCapacity();
-        }
-        return getCapacityConsideringCalendarDatasOn(date, getDayFrom(date));
+    @Override
+    public DailyCapacities getCapacitiesBetween(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        DailyCapacities result = DailyCapacities.create(startInclusive,
+                endExclusive);
+        getCapacityIndex().fill(result, getCalendarUnits());
+        return result;
     }
 
-    private Days getDayFrom(LocalDate date) {
-        return Days.values()[date.getDayOfWeek() - 1];
+    private Capacity findCapacityAt(LocalDate date) {
+        return getCapacityIndex().getCapacityAt(date);
     }
 
     public Capacity getCapacityConsideringCalendarDatasOn(LocalDate date, Days day) {
@@ -344,18 +378,13 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
      */
     public EffortDuration getWorkableDuration(LocalDate init,
             LocalDate endInclusive) {
-        Iterable<PartialDay> daysBetween = IntraDayDate.startOfDay(init)
-                .daysUntil(
-                        IntraDayDate.startOfDay(endInclusive).nextDayAtStart());
-
-        return EffortDuration.sum(daysBetween, new IEffortFrom<PartialDay>() {
-
-            @Override
-            public EffortDuration from(PartialDay each) {
-                return getCapacityOn(each);
-            }
-
-        });
+        if (init.compareTo(endInclusive) > 0) {
+            return EffortDuration.zero();
+        }
+        long seconds = getCapacityIndex().getStandardSecondsBetween(init,
+                endInclusive.plusDays(1));
+        return CalendarCapacityIndex.toEffortDuration(seconds
+                * getCalendarUnits());
     }
 
     /**
@@ -402,6 +431,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     public CalendarData createNewVersionInsideIntersection(LocalDate startDate,
             LocalDate expiringDate) {
+        capacityModified();
         for (CalendarData nextVersion : calendarDataVersions) {
             if ((nextVersion.getExpiringDate() == null)
                     || (expiringDate.compareTo(nextVersion.getExpiringDate()) <= 0)) {
@@ -476,6 +506,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     public CalendarData createLastVersion(LocalDate startDate)
             throws IllegalArgumentException {
+        capacityModified();
         CalendarData calendarData = getCalendarDataBeforeTheLastIfAny();
         if ((calendarData.getExpiringDate() != null)
                 && (startDate.compareTo(calendarData.getExpiringDate()) <= 0)) {
@@ -494,6 +525,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     public CalendarData createFirstVersion(LocalDate expiringDate)
             throws IllegalArgumentException {
+        capacityModified();
         CalendarData firstVersion = getFirstCalendarData();
         if ((firstVersion.getExpiringDate() != null)
                 && (expiringDate.compareTo(firstVersion.getExpiringDate()) >= 0)) {
@@ -555,6 +587,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     }
 
     public void addNewVersion(CalendarData version){
+        capacityModified();
         if (version.getExpiringDate() == null) {
             if (getLastCalendarData().getExpiringDate() == null) {
                 throw new IllegalArgumentException(
@@ -794,6 +827,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     public void removeCalendarData(CalendarData calendarData)
             throws IllegalArgumentException {
+        capacityModified();
         if (this.getCalendarDataVersions().size() <= 1) {
             throw new IllegalArgumentException(
                     "You can not remove the last calendar data");
@@ -835,6 +869,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     public void addNewCalendarAvailability(
             CalendarAvailability calendarAvailability)
             throws IllegalArgumentException {
+        capacityModified();
         if (this instanceof ResourceCalendar) {
             if (!calendarAvailabilities.isEmpty()) {
                 CalendarAvailability lastCalendarAvailability = getLastCalendarAvailability();
@@ -863,19 +898,12 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     public void removeCalendarAvailability(
             CalendarAvailability calendarAvailability)
             throws IllegalArgumentException {
+        capacityModified();
         calendarAvailabilities.remove(calendarAvailability);
     }
 
     public boolean isActive(LocalDate date) {
-        if (getCalendarAvailabilities().isEmpty()) {
-            return true;
-        }
-        for (CalendarAvailability calendarAvailability : getCalendarAvailabilities()) {
-            if (calendarAvailability.isActive(date)) {
-                return true;
-            }
-        }
-        return false;
+        return getCapacityIndex().isActive(date);
     }
 
     public boolean isActiveBetween(LocalDate startDate, LocalDate endDate) {
@@ -968,19 +996,57 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         return duration.atNearestMinute();
     }
 
+    /**
+     * The same as {@link #asDurationOn(PartialDay, ResourcesPerDay)} for each
+     * day, but the capacities are retrieved from the
+     * {@link #getCapacitiesBetween(LocalDate, LocalDate) index} for the whole
+     * interval. They're multiplied by the calendar units, so the standard
+     * effort of one unit is obtained dividing by them.
+     */
+    @Override
+    public int[] asDurationsBetween(LocalDate startInclusive,
+            LocalDate endExclusive, ResourcesPerDay amount) {
+        DailyCapacities capacities = getCapacitiesBetween(startInclusive,
+                endExclusive);
+        int units = getCalendarUnits();
+        int[] result = new int[capacities.size()];
+        for (int i = 0; i < result.length; i++) {
+            int standard = capacities.getStandardSeconds(i);
+            if (standard == 0) {
+                // no duration is requested if there is no standard effort
+                continue;
+            }
+            EffortDuration requested = amount
+                    .asDurationGivenWorkingDayOf(EffortDuration
+                            .seconds(standard / units));
+            EffortDuration duration = capacities.isOverAssignableWithoutLimit(i) ? requested
+                    : EffortDuration.min(requested, EffortDuration
+                            .seconds(standard + capacities.getExtraSeconds(i)));
+            result[i] = duration.atNearestMinute().getSeconds();
+        }
+        return result;
+    }
+
     /**
      * <p>
      * Calendar units are the number of units this calendar is applied to. For
      * example a {@link VirtualWorker} composed of ten workers would multiply
      * the capacity by ten.
      * </p>
-     * <p>
-     * This method is intended to be overridden
-     * </p>
-     *
      */
     protected Capacity multiplyByCalendarUnits(Capacity capacity) {
-        return capacity;
+        int units = getCalendarUnits();
+        return units == 1 ? capacity : capacity.multiplyBy(units);
+    }
+
+    /**
+     * The number of units this calendar is applied to. This method is intended
+     * to be overridden
+     *
+     * @see #multiplyByCalendarUnits(Capacity)
+     */
+    protected int getCalendarUnits() {
+        return 1;
     }
 
     @Override
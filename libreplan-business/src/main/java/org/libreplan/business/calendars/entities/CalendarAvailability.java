@@ -58,6 +58,12 @@ public class CalendarAvailability extends IntegrationEntity {
 
     private LocalDate endDate;
 
+    /**
+     * The calendar whose {@link CalendarCapacityIndex} was built using this
+     * availability. This field is transient
+     */
+    private BaseCalendar indexedBy;
+
     public static final Comparator<CalendarAvailability> BY_START_DATE_COMPARATOR = new Comparator<CalendarAvailability>() {
 
         @Override
@@ -94,6 +100,7 @@ public class CalendarAvailability extends IntegrationEntity {
             }
         }
         this.startDate = startDate;
+        capacityModified();
     }
 
     public LocalDate getEndDate() {
@@ -108,6 +115,7 @@ public class CalendarAvailability extends IntegrationEntity {
             }
         }
         this.endDate = endDate;
+        capacityModified();
     }
 
     public boolean isActive(LocalDate date) {
@@ -163,4 +171,14 @@ public class CalendarAvailability extends IntegrationEntity {
         return filterPeriod.overlaps(activationPeriod);
     }
 
+    void usedInCapacityIndexOf(BaseCalendar calendar) {
+        this.indexedBy = calendar;
+    }
+
+    private void capacityModified() {
+        if (indexedBy != null) {
+            indexedBy.capacityModified();
+        }
+    }
+
 }
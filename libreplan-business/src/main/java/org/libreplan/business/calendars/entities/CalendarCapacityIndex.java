@@ -0,0 +1,519 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.calendars.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.CalendarData.Days;
+import org.libreplan.business.workingday.DayNumbers;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * <p>
+ * Precomputed view of the capacities of a {@link BaseCalendar}. It merges the
+ * {@link CalendarData} versions of the calendar and its ancestors, the
+ * {@link CalendarAvailability} ranges and the effective
+ * {@link CalendarException exceptions} into sorted arrays, so the capacity of a
+ * day is found with binary searches and the capacity of a range of days is
+ * calculated without visiting each day.
+ * </p>
+ * <p>
+ * The index is built lazily by {@link BaseCalendar#getCapacityIndex()}. It
+ * records the number of modifications of each calendar used to build it, so
+ * it's built again when the calendar or any of its ancestors is modified, but
+ * not when other calendars are.
+ * </p>
+ */
+public class CalendarCapacityIndex {
+
+    private static final int DAYS_PER_WEEK = 7;
+
+    static CalendarCapacityIndex build(BaseCalendar calendar) {
+        return new CalendarCapacityIndex(calendar);
+    }
+
+    /**
+     * @return the day of the week of the day number, zero being Monday
+     */
+    static int dayOfWeek(int dayNumber) {
+        // 1970-01-01 was a Thursday
+        int result = (dayNumber + 3) % DAYS_PER_WEEK;
+        return result < 0 ? result + DAYS_PER_WEEK : result;
+    }
+
+    private static final Comparator<int[]> BY_START = new Comparator<int[]>() {
+
+        @Override
+        public int compare(int[] o1, int[] o2) {
+            return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+        }
+    };
+
+    private final List<BaseCalendar> calendarsUsed = new ArrayList<BaseCalendar>();
+
+    private final List<Long> versionsUsed = new ArrayList<Long>();
+
+    private final List<Long> modificationsUsed = new ArrayList<Long>();
+
+    private int[] segmentStarts;
+
+    private Capacity[][] segmentCapacities;
+
+    private int[][] segmentSeconds;
+
+    private int[][] segmentExtraSeconds;
+
+    private long[] segmentWeekSeconds;
+
+    private int[] exceptionDays;
+
+    private CalendarException[] exceptions;
+
+    private Map<Integer, CalendarException> inheritableExceptions;
+
+    private int[] availabilityStarts;
+
+    private int[] availabilityEnds;
+
+    private CalendarCapacityIndex(BaseCalendar calendar) {
+        register(calendar);
+        List<CalendarData> versions = calendar.getCalendarDataVersions();
+        for (CalendarData each : versions) {
+            each.usedInCapacityIndexOf(calendar);
+        }
+        for (CalendarException each : calendar.getOwnExceptions()) {
+            each.usedInCapacityIndexOf(calendar);
+        }
+        for (CalendarAvailability each : calendar.getCalendarAvailabilities()) {
+            each.usedInCapacityIndexOf(calendar);
+        }
+        buildSegments(versions);
+        buildExceptions(calendar, versions);
+        buildAvailabilities(calendar.getCalendarAvailabilities());
+    }
+
+    private void register(BaseCalendar calendar) {
+        calendarsUsed.add(calendar);
+        versionsUsed.add(calendar.getVersion());
+        modificationsUsed.add(calendar.getCapacityModifications());
+    }
+
+    private void registerAll(CalendarCapacityIndex parentIndex) {
+        for (int i = 0; i < parentIndex.calendarsUsed.size(); i++) {
+            calendarsUsed.add(parentIndex.calendarsUsed.get(i));
+            versionsUsed.add(parentIndex.versionsUsed.get(i));
+            modificationsUsed.add(parentIndex.modificationsUsed.get(i));
+        }
+    }
+
+    /**
+     * @return <code>true</code> if none of the calendars used to build this
+     *         index has been modified since then
+     */
+    public boolean isUpToDate() {
+        for (int i = 0; i < calendarsUsed.size(); i++) {
+            BaseCalendar each = calendarsUsed.get(i);
+            if (each.getCapacityModifications() != modificationsUsed.get(i)
+                    || !ObjectUtils.equals(each.getVersion(),
+                            versionsUsed.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void buildSegments(List<CalendarData> versions) {
+        List<Integer> starts = new ArrayList<Integer>();
+        List<Capacity[]> capacities = new ArrayList<Capacity[]>();
+        int from = Integer.MIN_VALUE;
+        for (CalendarData each : versions) {
+            int to = each.getExpiringDate() == null ? Integer.MAX_VALUE
+                    : DayNumbers.toDayNumber(each.getExpiringDate());
+            if (from < to) {
+                addSegmentsFor(each, from, to, starts, capacities);
+            }
+            from = to;
+            if (each.getExpiringDate() == null) {
+                break;
+            }
+        }
+        segmentStarts = toIntArray(starts);
+        segmentCapacities = capacities.toArray(new Capacity[0][]);
+        segmentSeconds = new int[segmentCapacities.length][];
+        segmentExtraSeconds = new int[segmentCapacities.length][];
+        segmentWeekSeconds = new long[segmentCapacities.length];
+        for (int i = 0; i < segmentCapacities.length; i++) {
+            segmentSeconds[i] = new int[DAYS_PER_WEEK];
+            segmentExtraSeconds[i] = new int[DAYS_PER_WEEK];
+            for (int j = 0; j < DAYS_PER_WEEK; j++) {
+                Capacity capacity = segmentCapacities[i][j];
+                segmentSeconds[i][j] = capacity.getStandardEffort()
+                        .getSeconds();
+                segmentExtraSeconds[i][j] = extraSecondsOf(capacity);
+                segmentWeekSeconds[i] += segmentSeconds[i][j];
+            }
+        }
+    }
+
+    private void addSegmentsFor(CalendarData version, int from, int to,
+            List<Integer> starts, List<Capacity[]> capacities) {
+        BaseCalendar parent = version.getParent();
+        if (parent == null || !hasDefaultDays(version)) {
+            starts.add(from);
+            capacities.add(resolve(version, null));
+            return;
+        }
+        CalendarCapacityIndex parentIndex = parent.getCapacityIndex();
+        registerAll(parentIndex);
+        int i = parentIndex.segmentAt(from);
+        while (i < parentIndex.segmentStarts.length
+                && parentIndex.segmentStarts[i] < to) {
+            starts.add(Math.max(from, parentIndex.segmentStarts[i]));
+            capacities.add(resolve(version,
+                    parentIndex.segmentCapacities[i]));
+            i++;
+        }
+    }
+
+    private static int extraSecondsOf(Capacity capacity) {
+        return capacity.isOverAssignableWithoutLimit() ? DailyCapacities.UNLIMITED
+                : capacity.getAllowedExtraEffort().getSeconds();
+    }
+
+    private static boolean hasDefaultDays(CalendarData version) {
+        for (Days each : Days.values()) {
+            if (version.isDefault(each)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Capacity[] resolve(CalendarData version,
+            Capacity[] fromParent) {
+        Capacity[] result = new Capacity[DAYS_PER_WEEK];
+        for (Days each : Days.values()) {
+            Capacity capacity = version.getCapacityOn(each);
+            if (capacity == null && fromParent != null) {
+                capacity = fromParent[each.ordinal()];
+            }
+            result[each.ordinal()] = capacity == null ? BaseCalendar.DEFAULT_VALUE
+                    : capacity;
+        }
+        return result;
+    }
+
+    private void buildExceptions(BaseCalendar calendar,
+            List<CalendarData> versions) {
+        Map<Integer, CalendarException> own = new HashMap<Integer, CalendarException>();
+        for (CalendarException each : calendar.getOwnExceptions()) {
+            own.put(DayNumbers.toDayNumber(each.getDate()), each);
+        }
+        Map<Integer, CalendarException> effective = new HashMap<Integer, CalendarException>();
+        int from = Integer.MIN_VALUE;
+        for (CalendarData each : versions) {
+            int to = each.getExpiringDate() == null ? Integer.MAX_VALUE
+                    : DayNumbers.toDayNumber(each.getExpiringDate());
+            BaseCalendar parent = each.getParent();
+            if (parent != null && from < to) {
+                CalendarCapacityIndex parentIndex = parent.getCapacityIndex();
+                registerAll(parentIndex);
+                for (Map.Entry<Integer, CalendarException> inherited : parentIndex.inheritableExceptions
+                        .entrySet()) {
+                    int day = inherited.getKey();
+                    if (day >= from && day < to) {
+                        effective.put(day, inherited.getValue());
+                    }
+                }
+            }
+            from = to;
+            if (each.getExpiringDate() == null) {
+                break;
+            }
+        }
+        effective.putAll(own);
+
+        List<Integer> days = new ArrayList<Integer>(effective.keySet());
+        Collections.sort(days);
+        exceptionDays = toIntArray(days);
+        exceptions = new CalendarException[exceptionDays.length];
+        for (int i = 0; i < exceptionDays.length; i++) {
+            exceptions[i] = effective.get(exceptionDays[i]);
+        }
+
+        // the exceptions a derived calendar sees are the ones returned by
+        // BaseCalendar#getExceptions(), that only follows the last parent
+        inheritableExceptions = new HashMap<Integer, CalendarException>();
+        BaseCalendar lastParent = calendar.getParent();
+        if (lastParent != null) {
+            CalendarCapacityIndex parentIndex = lastParent.getCapacityIndex();
+            registerAll(parentIndex);
+            inheritableExceptions.putAll(parentIndex.inheritableExceptions);
+        }
+        inheritableExceptions.putAll(own);
+    }
+
+    private void buildAvailabilities(List<CalendarAvailability> availabilities) {
+        if (availabilities.isEmpty()) {
+            availabilityStarts = null;
+            availabilityEnds = null;
+            return;
+        }
+        List<int[]> ranges = new ArrayList<int[]>();
+        for (CalendarAvailability each : availabilities) {
+            int start = DayNumbers.toDayNumber(each.getStartDate());
+            int endExclusive = each.getEndDate() == null ? Integer.MAX_VALUE
+                    : DayNumbers.toDayNumber(each.getEndDate()) + 1;
+            if (start < endExclusive) {
+                ranges.add(new int[] { start, endExclusive });
+            }
+        }
+        Collections.sort(ranges, BY_START);
+        List<int[]> merged = new ArrayList<int[]>();
+        for (int[] each : ranges) {
+            int[] last = merged.isEmpty() ? null : merged
+                    .get(merged.size() - 1);
+            if (last != null && each[0] <= last[1]) {
+                last[1] = Math.max(last[1], each[1]);
+            } else {
+                merged.add(each);
+            }
+        }
+        availabilityStarts = new int[merged.size()];
+        availabilityEnds = new int[merged.size()];
+        for (int i = 0; i < merged.size(); i++) {
+            availabilityStarts[i] = merged.get(i)[0];
+            availabilityEnds[i] = merged.get(i)[1];
+        }
+    }
+
+    private static int[] toIntArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    private int segmentAt(int day) {
+        int position = Arrays.binarySearch(segmentStarts, day);
+        return position >= 0 ? position : -position - 2;
+    }
+
+    private boolean isActive(int day) {
+        if (availabilityStarts == null) {
+            return true;
+        }
+        int position = Arrays.binarySearch(availabilityStarts, day);
+        int candidate = position >= 0 ? position : -position - 2;
+        return candidate >= 0 && day < availabilityEnds[candidate];
+    }
+
+    private int exceptionPosition(int day) {
+        return Arrays.binarySearch(exceptionDays, day);
+    }
+
+    public boolean isActive(LocalDate date) {
+        return isActive(DayNumbers.toDayNumber(date));
+    }
+
+    /**
+     * @return the exception that applies on the date, either an own exception
+     *         or an exception of the parent calendar valid at that date. It
+     *         can be <code>null</code>
+     */
+    public CalendarException getExceptionAt(LocalDate date) {
+        int position = exceptionPosition(DayNumbers.toDayNumber(date));
+        return position >= 0 ? exceptions[position] : null;
+    }
+
+    /**
+     * Equivalent to
+     * {@link BaseCalendar#getCapacityConsideringCalendarDatasOn(LocalDate, Days)}
+     */
+    public Capacity getCapacityConsideringCalendarDatasOn(LocalDate date) {
+        int day = DayNumbers.toDayNumber(date);
+        return segmentCapacities[segmentAt(day)][dayOfWeek(day)];
+    }
+
+    /**
+     * @return the capacity at the given date considering the availabilities,
+     *         the exceptions and the work weeks. It's not multiplied by the
+     *         calendar units
+     */
+    public Capacity getCapacityAt(LocalDate date) {
+        Validate.notNull(date);
+        int day = DayNumbers.toDayNumber(date);
+        if (!isActive(day)) {
+            return Capacity.zero();
+        }
+        int position = exceptionPosition(day);
+        if (position >= 0) {
+            return exceptions[position].getCapacity();
+        }
+        return segmentCapacities[segmentAt(day)][dayOfWeek(day)];
+    }
+
+    /**
+     * Sums the standard effort of the whole days in the interval. It's not
+     * multiplied by the calendar units.
+     *
+     * @param start
+     *            inclusive
+     * @param end
+     *            exclusive
+     */
+    public EffortDuration getStandardEffortBetween(LocalDate start,
+            LocalDate end) {
+        return toEffortDuration(getStandardSecondsBetween(start, end));
+    }
+
+    /**
+     * @see #getStandardEffortBetween(LocalDate, LocalDate)
+     */
+    public long getStandardSecondsBetween(LocalDate start, LocalDate end) {
+        Validate.notNull(start);
+        Validate.notNull(end);
+        return standardSecondsBetween(DayNumbers.toDayNumber(start),
+                DayNumbers.toDayNumber(end));
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the seconds don't fit in an {@link EffortDuration}
+     */
+    static EffortDuration toEffortDuration(long seconds) {
+        Validate.isTrue(seconds <= Integer.MAX_VALUE, "the effort of "
+                + seconds + " seconds is too big");
+        return EffortDuration.seconds((int) seconds);
+    }
+
+    long standardSecondsBetween(int start, int end) {
+        if (start >= end) {
+            return 0;
+        }
+        if (availabilityStarts == null) {
+            return activeStandardSecondsBetween(start, end);
+        }
+        long result = 0;
+        for (int i = 0; i < availabilityStarts.length; i++) {
+            if (availabilityStarts[i] >= end) {
+                break;
+            }
+            int from = Math.max(start, availabilityStarts[i]);
+            int to = Math.min(end, availabilityEnds[i]);
+            if (from < to) {
+                result += activeStandardSecondsBetween(from, to);
+            }
+        }
+        return result;
+    }
+
+    private long activeStandardSecondsBetween(int start, int end) {
+        long result = 0;
+        int i = segmentAt(start);
+        while (i < segmentStarts.length && segmentStarts[i] < end) {
+            int from = Math.max(start, segmentStarts[i]);
+            int to = i + 1 < segmentStarts.length ? Math.min(end,
+                    segmentStarts[i + 1]) : end;
+            result += weeklyPatternSum(i, from, to);
+            i++;
+        }
+        int position = exceptionPosition(start);
+        int j = position >= 0 ? position : -position - 1;
+        for (; j < exceptionDays.length && exceptionDays[j] < end; j++) {
+            int day = exceptionDays[j];
+            result -= segmentSeconds[segmentAt(day)][dayOfWeek(day)];
+            result += exceptions[j].getCapacity().getStandardEffort()
+                    .getSeconds();
+        }
+        return result;
+    }
+
+    private long weeklyPatternSum(int segment, int from, int to) {
+        long days = (long) to - from;
+        long result = (days / DAYS_PER_WEEK) * segmentWeekSeconds[segment];
+        int remainder = (int) (days % DAYS_PER_WEEK);
+        int weekDay = dayOfWeek(from);
+        for (int i = 0; i < remainder; i++) {
+            result += segmentSeconds[segment][(weekDay + i) % DAYS_PER_WEEK];
+        }
+        return result;
+    }
+
+    /**
+     * Fills the capacities of each day of the interval, multiplying them by
+     * the given calendar units. The days are visited in order, so no search
+     * is needed for each one of them.
+     */
+    void fill(DailyCapacities result, int units) {
+        int first = DayNumbers.toDayNumber(result.getStart());
+        int segment = segmentAt(first);
+        int position = exceptionPosition(first);
+        int exception = position >= 0 ? position : -position - 1;
+        int availability = 0;
+        for (int i = 0; i < result.size(); i++) {
+            int day = first + i;
+            while (segment + 1 < segmentStarts.length
+                    && segmentStarts[segment + 1] <= day) {
+                segment++;
+            }
+            while (exception < exceptionDays.length
+                    && exceptionDays[exception] < day) {
+                exception++;
+            }
+            if (availabilityStarts != null) {
+                while (availability < availabilityStarts.length
+                        && availabilityEnds[availability] <= day) {
+                    availability++;
+                }
+                if (availability == availabilityStarts.length
+                        || availabilityStarts[availability] > day) {
+                    result.set(i, 0, 0);
+                    continue;
+                }
+            }
+            int standard;
+            int extra;
+            if (exception < exceptionDays.length
+                    && exceptionDays[exception] == day) {
+                Capacity capacity = exceptions[exception].getCapacity();
+                standard = capacity.getStandardEffort().getSeconds();
+                extra = extraSecondsOf(capacity);
+            } else {
+                int dayOfWeek = dayOfWeek(day);
+                standard = segmentSeconds[segment][dayOfWeek];
+                extra = segmentExtraSeconds[segment][dayOfWeek];
+            }
+            result.set(i, standard * units,
+                    extra == DailyCapacities.UNLIMITED ? extra : extra * units);
+        }
+    }
+
+}
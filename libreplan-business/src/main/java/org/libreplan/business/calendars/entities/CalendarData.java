@@ -70,6 +70,7 @@ public class CalendarData extends IntegrationEntity {
     }
 
     public void updateUnvalidated(LocalDate expiringDate, BaseCalendar parent) {
+        capacityModified();
         if (expiringDate != null) {
             this.expiringDate = expiringDate;
         }
@@ -97,6 +98,12 @@ public class CalendarData extends IntegrationEntity {
 
     private BaseCalendar parent;
 
+    /**
+     * The calendar whose {@link CalendarCapacityIndex} was built using this
+     * version. This field is transient
+     */
+    private BaseCalendar indexedBy;
+
     public enum Days {
         MONDAY(Calendar.MONDAY),
         TUESDAY(Calendar.TUESDAY),
@@ -128,7 +135,7 @@ public class CalendarData extends IntegrationEntity {
     public CalendarData() {
         capacityPerDay = new HashMap<Integer, Capacity>();
         for (Days each : Days.values()) {
-            setCapacityAt(each, null);
+            capacityPerDay.put(each.ordinal(), null);
         }
     }
 
@@ -162,6 +169,7 @@ public class CalendarData extends IntegrationEntity {
 
     public void setCapacityAt(Days day, Capacity capacity) {
         capacityPerDay.put(day.ordinal(), capacity);
+        capacityModified();
     }
 
 
@@ -182,6 +190,7 @@ public class CalendarData extends IntegrationEntity {
 
     public void setExpiringDate(LocalDate expiringDate) {
         this.expiringDate = expiringDate;
+        capacityModified();
     }
 
     public CalendarData copy() {
@@ -200,10 +209,12 @@ public class CalendarData extends IntegrationEntity {
 
     public void setParent(BaseCalendar parent) {
         this.parent = parent;
+        capacityModified();
     }
 
     public void removeExpiringDate() {
         this.expiringDate = null;
+        capacityModified();
     }
 
     public boolean isPosteriorTo(LocalDate date) {
@@ -252,4 +263,14 @@ public class CalendarData extends IntegrationEntity {
         calendar.setCapacityAt(Days.SUNDAY, Capacity.zero());
     }
 
+    void usedInCapacityIndexOf(BaseCalendar calendar) {
+        this.indexedBy = calendar;
+    }
+
+    private void capacityModified() {
+        if (indexedBy != null) {
+            indexedBy.capacityModified();
+        }
+    }
+
 }
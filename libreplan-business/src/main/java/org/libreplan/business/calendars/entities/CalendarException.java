@@ -82,6 +82,7 @@ public class CalendarException extends IntegrationEntity {
         if (type != null) {
             this.type = type;
         }
+        capacityModified();
     }
 
     private LocalDate date;
@@ -90,6 +91,12 @@ public class CalendarException extends IntegrationEntity {
 
     private CalendarExceptionType type;
 
+    /**
+     * The calendar whose {@link CalendarCapacityIndex} was built using this
+     * exception. This field is transient
+     */
+    private BaseCalendar indexedBy;
+
     /**
      * Constructor for hibernate. Do not use!
      */
@@ -129,4 +136,14 @@ public class CalendarException extends IntegrationEntity {
         return Registry.getCalendarExceptionDAO();
     }
 
+    void usedInCapacityIndexOf(BaseCalendar calendar) {
+        this.indexedBy = calendar;
+    }
+
+    private void capacityModified() {
+        if (indexedBy != null) {
+            indexedBy.capacityModified();
+        }
+    }
+
 }
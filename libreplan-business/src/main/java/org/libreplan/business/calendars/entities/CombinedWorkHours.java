@@ -93,6 +93,24 @@ public abstract class CombinedWorkHours implements ICalendar {
         return result;
     }
 
+    @Override
+    public int[] asDurationsBetween(LocalDate startInclusive,
+            LocalDate endExclusive, ResourcesPerDay amount) {
+        int[] result = null;
+        for (ICalendar each : calendars) {
+            int[] current = each.asDurationsBetween(startInclusive,
+                    endExclusive, amount);
+            if (result == null) {
+                result = current;
+            } else {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = updateDuration(result[i], current[i]);
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public Capacity getCapacityWithOvertime(LocalDate day) {
         Capacity result = null;
@@ -103,6 +121,27 @@ public abstract class CombinedWorkHours implements ICalendar {
         return result;
     }
 
+    @Override
+    public DailyCapacities getCapacitiesBetween(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        DailyCapacities result = null;
+        for (ICalendar each : calendars) {
+            DailyCapacities current = each.getCapacitiesBetween(
+                    startInclusive, endExclusive);
+            if (result == null) {
+                result = current;
+            } else {
+                for (int i = 0; i < result.size(); i++) {
+                    result.set(i, updateStandard(result.getStandardSeconds(i),
+                            current.getStandardSeconds(i)), updateExtra(
+                            result.getExtraSeconds(i),
+                            current.getExtraSeconds(i)));
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public AvailabilityTimeLine getAvailability() {
         AvailabilityTimeLine result = AvailabilityTimeLine.allValid();
@@ -118,11 +157,20 @@ public abstract class CombinedWorkHours implements ICalendar {
     protected abstract EffortDuration updateDuration(EffortDuration current,
             EffortDuration each);
 
+    protected abstract int updateDuration(int currentSeconds, int eachSeconds);
+
     protected abstract EffortDuration updateCapacity(EffortDuration current,
             EffortDuration each);
 
     protected abstract Capacity updateCapacity(Capacity a, Capacity current);
 
+    protected abstract int updateStandard(int accumulated, int current);
+
+    /**
+     * The extra seconds can be {@link DailyCapacities#UNLIMITED}
+     */
+    protected abstract int updateExtra(int accumulated, int current);
+
     @Override
     public boolean thereAreCapacityFor(AvailabilityTimeLine availability,
             ResourcesPerDay resourcesPerDay, EffortDuration durationToAllocate) {
@@ -150,6 +198,11 @@ class Min extends CombinedWorkHours {
         return min(current, each);
     }
 
+    @Override
+    protected int updateDuration(int currentSeconds, int eachSeconds) {
+        return Math.min(currentSeconds, eachSeconds);
+    }
+
     @Override
     protected AvailabilityTimeLine compoundAvailability(
             AvailabilityTimeLine accumulated, AvailabilityTimeLine each) {
@@ -161,6 +214,22 @@ class Min extends CombinedWorkHours {
         return Capacity.min(accumulated, current);
     }
 
+    @Override
+    protected int updateStandard(int accumulated, int current) {
+        return Math.min(accumulated, current);
+    }
+
+    @Override
+    protected int updateExtra(int accumulated, int current) {
+        if (accumulated == DailyCapacities.UNLIMITED) {
+            return current;
+        }
+        if (current == DailyCapacities.UNLIMITED) {
+            return accumulated;
+        }
+        return Math.min(accumulated, current);
+    }
+
 }
 
 class Max extends CombinedWorkHours {
@@ -181,6 +250,11 @@ class Max extends CombinedWorkHours {
         return max(current, each);
     }
 
+    @Override
+    protected int updateDuration(int currentSeconds, int eachSeconds) {
+        return Math.max(currentSeconds, eachSeconds);
+    }
+
     @Override
     protected AvailabilityTimeLine compoundAvailability(
             AvailabilityTimeLine accumulated, AvailabilityTimeLine each) {
@@ -191,4 +265,18 @@ class Max extends CombinedWorkHours {
     protected Capacity updateCapacity(Capacity accumulated, Capacity current) {
         return Capacity.max(accumulated, current);
     }
+
+    @Override
+    protected int updateStandard(int accumulated, int current) {
+        return Math.max(accumulated, current);
+    }
+
+    @Override
+    protected int updateExtra(int accumulated, int current) {
+        if (accumulated == DailyCapacities.UNLIMITED
+                || current == DailyCapacities.UNLIMITED) {
+            return DailyCapacities.UNLIMITED;
+        }
+        return Math.max(accumulated, current);
+    }
 }
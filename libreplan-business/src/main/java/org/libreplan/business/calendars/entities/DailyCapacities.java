@@ -0,0 +1,164 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.calendars.entities;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.workingday.DayNumbers;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * <p>
+ * The capacities of a {@link ICalendar} for each whole day of an interval. The
+ * values are stored as seconds in primitive arrays, so they can be retrieved
+ * for long intervals without creating a {@link Capacity} and an
+ * {@link EffortDuration} per day.
+ * </p>
+ * <p>
+ * The extra effort of a day is {@link #UNLIMITED} if the capacity is
+ * {@link Capacity#isOverAssignableWithoutLimit() over assignable without
+ * limit}.
+ * </p>
+ *
+ * @see ICalendar#getCapacitiesBetween(LocalDate, LocalDate)
+ */
+public class DailyCapacities {
+
+    public static final int UNLIMITED = -1;
+
+    public static DailyCapacities create(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        Validate.notNull(startInclusive);
+        Validate.notNull(endExclusive);
+        int size = DayNumbers.toDayNumber(endExclusive)
+                - DayNumbers.toDayNumber(startInclusive);
+        Validate.isTrue(size >= 0, "endExclusive must not be before start");
+        return new DailyCapacities(startInclusive, size);
+    }
+
+    /**
+     * Fills the capacities asking the calendar day by day. It's intended for
+     * {@link ICalendar} implementations that can't do better.
+     */
+    public static DailyCapacities dayByDay(ICalendar calendar,
+            LocalDate startInclusive, LocalDate endExclusive) {
+        DailyCapacities result = create(startInclusive, endExclusive);
+        LocalDate current = startInclusive;
+        for (int i = 0; i < result.size(); i++) {
+            result.set(i, calendar.getCapacityWithOvertime(current));
+            current = current.plusDays(1);
+        }
+        return result;
+    }
+
+    private final LocalDate start;
+
+    private final int[] standardSeconds;
+
+    private final int[] extraSeconds;
+
+    private DailyCapacities(LocalDate start, int size) {
+        this.start = start;
+        this.standardSeconds = new int[size];
+        this.extraSeconds = new int[size];
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate getEndExclusive() {
+        return start.plusDays(size());
+    }
+
+    public int size() {
+        return standardSeconds.length;
+    }
+
+    /**
+     * @return the position of the day in this interval. It can be out of
+     *         bounds if the day is not contained in the interval
+     */
+    public int indexOf(LocalDate day) {
+        return DayNumbers.toDayNumber(day) - DayNumbers.toDayNumber(start);
+    }
+
+    public boolean contains(LocalDate day) {
+        int index = indexOf(day);
+        return index >= 0 && index < size();
+    }
+
+    public int getStandardSeconds(int index) {
+        return standardSeconds[index];
+    }
+
+    /**
+     * @return the seconds of allowed extra effort or {@link #UNLIMITED}
+     */
+    public int getExtraSeconds(int index) {
+        return extraSeconds[index];
+    }
+
+    public boolean isOverAssignableWithoutLimit(int index) {
+        return extraSeconds[index] == UNLIMITED;
+    }
+
+    /**
+     * @see Capacity#allowsWorking()
+     */
+    public boolean allowsWorking(int index) {
+        return standardSeconds[index] != 0 || extraSeconds[index] != 0;
+    }
+
+    public EffortDuration getStandardEffort(int index) {
+        return EffortDuration.seconds(standardSeconds[index]);
+    }
+
+    public Capacity getCapacity(int index) {
+        EffortDuration extra = isOverAssignableWithoutLimit(index) ? null
+                : EffortDuration.seconds(extraSeconds[index]);
+        return Capacity.create(getStandardEffort(index))
+                .withAllowedExtraEffort(extra);
+    }
+
+    public long sumStandardSeconds() {
+        long result = 0;
+        for (int each : standardSeconds) {
+            result += each;
+        }
+        return result;
+    }
+
+    public EffortDuration sumStandardEffort() {
+        return CalendarCapacityIndex.toEffortDuration(sumStandardSeconds());
+    }
+
+    void set(int index, int standard, int extra) {
+        standardSeconds[index] = standard;
+        extraSeconds[index] = extra;
+    }
+
+    void set(int index, Capacity capacity) {
+        set(index, capacity.getStandardEffort().getSeconds(),
+                capacity.isOverAssignableWithoutLimit() ? UNLIMITED : capacity
+                        .getAllowedExtraEffort().getSeconds());
+    }
+
+}
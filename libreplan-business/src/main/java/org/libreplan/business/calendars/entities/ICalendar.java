@@ -60,6 +60,35 @@ public interface ICalendar {
      */
     public Capacity getCapacityWithOvertime(LocalDate date);
 
+    /**
+     * Calculates the capacity information for all the whole days of an
+     * interval in one call. Each day contains the same information as
+     * {@link #getCapacityWithOvertime(LocalDate)} but it's stored in primitive
+     * arrays.
+     *
+     * @param startInclusive
+     *            a not null date
+     * @param endExclusive
+     *            a not null date not before startInclusive
+     * @return the capacities for each day of the interval
+     */
+    public DailyCapacities getCapacitiesBetween(LocalDate startInclusive,
+            LocalDate endExclusive);
+
+    /**
+     * Translates the received amount into the corresponding duration for all
+     * the whole days of an interval in one call. Each day has the same
+     * duration as {@link #asDurationOn(PartialDay, ResourcesPerDay)}.
+     *
+     * @param startInclusive
+     *            a not null date
+     * @param endExclusive
+     *            a not null date not before startInclusive
+     * @return the seconds of the duration of each day of the interval
+     */
+    public int[] asDurationsBetween(LocalDate startInclusive,
+            LocalDate endExclusive, ResourcesPerDay amount);
+
     public AvailabilityTimeLine getAvailability();
 
     public boolean thereAreCapacityFor(AvailabilityTimeLine availability,
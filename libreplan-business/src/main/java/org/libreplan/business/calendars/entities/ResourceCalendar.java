@@ -66,8 +66,8 @@ public class ResourceCalendar extends BaseCalendar {
     }
 
     @Override
-    protected Capacity multiplyByCalendarUnits(Capacity capacity) {
-        return capacity.multiplyBy(getCapacity());
+    protected int getCalendarUnits() {
+        return getCapacity();
     }
 
     @AssertTrue(message = "Capacity must be a positive integer number")
@@ -21,6 +21,8 @@
 
 package org.libreplan.business.calendars.entities;
 
+import java.util.Arrays;
+
 import org.apache.commons.lang.Validate;
 import org.joda.time.LocalDate;
 import org.libreplan.business.workingday.EffortDuration;
@@ -54,6 +56,16 @@ public class SameWorkHoursEveryDay implements ICalendar {
         return amount.asDurationGivenWorkingDayOf(getCapacityOn(day));
     }
 
+    @Override
+    public int[] asDurationsBetween(LocalDate startInclusive,
+            LocalDate endExclusive, ResourcesPerDay amount) {
+        int[] result = new int[DailyCapacities.create(startInclusive,
+                endExclusive).size()];
+        Arrays.fill(result, amount.asDurationGivenWorkingDayOf(
+                EffortDuration.hours(hours)).getSeconds());
+        return result;
+    }
+
     @Override
     public boolean thereAreCapacityFor(AvailabilityTimeLine availability,
             ResourcesPerDay resourcesPerDay, EffortDuration durationToAllocate) {
@@ -71,4 +83,16 @@ public class SameWorkHoursEveryDay implements ICalendar {
                 .overAssignableWithoutLimit();
     }
 
+    @Override
+    public DailyCapacities getCapacitiesBetween(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        DailyCapacities result = DailyCapacities.create(startInclusive,
+                endExclusive);
+        int seconds = EffortDuration.hours(hours).getSeconds();
+        for (int i = 0; i < result.size(); i++) {
+            result.set(i, seconds, DailyCapacities.UNLIMITED);
+        }
+        return result;
+    }
+
 }
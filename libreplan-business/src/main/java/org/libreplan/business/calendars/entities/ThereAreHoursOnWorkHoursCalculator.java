@@ -33,8 +33,6 @@ import org.libreplan.business.calendars.entities.AvailabilityTimeLine.FixedPoint
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine.Interval;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine.StartOfTime;
 import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.IntraDayDate;
-import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.libreplan.business.workingday.ResourcesPerDay;
 
 /**
@@ -42,6 +40,10 @@ import org.libreplan.business.workingday.ResourcesPerDay;
  */
 public class ThereAreHoursOnWorkHoursCalculator {
 
+    private static final int INITIAL_CHUNK_DAYS = 32;
+
+    private static final int MAX_CHUNK_DAYS = 1024;
+
     // Not instantiableisCapacityAvailable
     private ThereAreHoursOnWorkHoursCalculator() {
     }
@@ -225,25 +227,35 @@ public class ThereAreHoursOnWorkHoursCalculator {
                 effortToAllocate);
     }
 
+    /**
+     * The durations are retrieved in chunks that double their size each time,
+     * so a long interval is retrieved with few calls but the sum stops soon
+     * after reaching <code>maximum</code>.
+     */
     private static EffortDuration sumDurationUntil(ICalendar calendar,
             EffortDuration maximum,
             ResourcesPerDay resourcesPerDay,
             LocalDate start, LocalDate end) {
-        return sunDurationUntil(calendar, maximum, resourcesPerDay, IntraDayDate.startOfDay(start),
-                IntraDayDate.startOfDay(end));
-    }
-
-    private static EffortDuration sunDurationUntil(ICalendar calendar,
-            EffortDuration maximum, ResourcesPerDay resourcesPerDay,
-            IntraDayDate start, IntraDayDate end) {
-        EffortDuration result = zero();
-        for (PartialDay current : start.daysUntil(end)) {
-            result = result.plus(calendar.asDurationOn(current, resourcesPerDay));
-            if (result.compareTo(maximum) >= 0) {
-                return maximum;
+        long maximumSeconds = maximum.getSeconds();
+        long result = 0;
+        LocalDate chunkStart = start;
+        int chunkDays = INITIAL_CHUNK_DAYS;
+        while (chunkStart.compareTo(end) < 0) {
+            LocalDate chunkEnd = chunkStart.plusDays(chunkDays);
+            if (chunkEnd.compareTo(end) > 0) {
+                chunkEnd = end;
+            }
+            for (int each : calendar.asDurationsBetween(chunkStart, chunkEnd,
+                    resourcesPerDay)) {
+                result += each;
+                if (result >= maximumSeconds) {
+                    return maximum;
+                }
             }
+            chunkStart = chunkEnd;
+            chunkDays = Math.min(chunkDays * 2, MAX_CHUNK_DAYS);
         }
-        return result;
+        return EffortDuration.seconds((int) result);
     }
 
 }
@@ -161,6 +161,17 @@ public abstract class IntegrationEntity extends BaseEntity {
 
     }
 
+    /**
+     * It returns the entity that contains this one when they're sent/received
+     * together, e.g. the work report of a work report line, or
+     * <code>null</code> if this entity is sent/received by itself. It allows
+     * to report the modifications of this entity as modifications of the
+     * containing one.
+     */
+    public IntegrationEntity getIntegrationOwner() {
+        return null;
+    }
+
     /**
      * It returns the DAO of this entity.
      */
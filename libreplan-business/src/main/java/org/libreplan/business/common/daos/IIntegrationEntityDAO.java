@@ -21,6 +21,7 @@
 
 package org.libreplan.business.common.daos;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.libreplan.business.common.IntegrationEntity;
@@ -63,9 +64,48 @@ public interface IIntegrationEntityDAO<E extends IntegrationEntity>
 
     public E findExistingEntityByCode(String code);
 
+    /**
+     * It returns the entities whose code is one of <code>codes</code> with a
+     * single query. Like {@link #findByCode(String)}, codes are compared
+     * ignoring case and surrounding whitespace, and blank codes are ignored.
+     */
+    public List<E> findByCodes(Collection<String> codes);
+
     /**
      * It returns all entities ordered by ascending code.
      */
     public List<E> findAll();
 
+    /**
+     * It returns a page of the entities in the same order that
+     * {@link #findAll()}.
+     *
+     * @param firstResult
+     *            the position of the first entity to return, starting at zero
+     * @param maxResults
+     *            the maximum number of entities to return
+     */
+    public List<E> findAll(int firstResult, int maxResults);
+
+    /**
+     * It passes all the entities, in the same order that {@link #findAll()},
+     * to the <code>handler</code>. The entities are retrieved with a cursor
+     * and they are evicted from the session after being handled, so they can
+     * be exported without loading all of them at the same time.
+     *
+     * The session is cleared periodically, so it must not be used in
+     * transactions that have pending modifications.
+     */
+    public void scrollAll(IEntityHandler<E> handler);
+
+    /**
+     * It receives the entities retrieved by
+     * {@link IIntegrationEntityDAO#scrollAll(IEntityHandler)}.
+     */
+    public interface IEntityHandler<E> {
+
+        public void handle(E entity);
+
+    }
+
 }
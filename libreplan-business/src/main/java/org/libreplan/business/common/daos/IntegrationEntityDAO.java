@@ -21,9 +21,16 @@
 
 package org.libreplan.business.common.daos;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.libreplan.business.common.IntegrationEntity;
@@ -40,6 +47,8 @@ import org.springframework.transaction.annotation.Transactional;
 public class IntegrationEntityDAO<E extends IntegrationEntity>
     extends GenericDAOHibernate<E, Long> implements IIntegrationEntityDAO<E> {
 
+    private static final int SCROLL_BATCH_SIZE = 100;
+
     @Override
     public boolean existsByCode(String code) {
 
@@ -100,11 +109,74 @@ public class IntegrationEntityDAO<E extends IntegrationEntity>
 
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<E> findByCodes(Collection<String> codes) {
+        Set<String> lowerCaseCodes = new HashSet<String>();
+        for (String each : codes) {
+            if (!StringUtils.isBlank(each)) {
+                lowerCaseCodes.add(each.trim().toLowerCase());
+            }
+        }
+        if (lowerCaseCodes.isEmpty()) {
+            return new ArrayList<E>();
+        }
+        return getSession().createQuery(
+                "FROM " + getEntityClass().getName() + " e WHERE lower(e."
+                        + getCodeProperty() + ") IN (:codes)")
+                .setParameterList("codes", lowerCaseCodes).list();
+    }
+
+    /**
+     * It returns the name of the property that stores the code of the
+     * entities.
+     */
+    protected String getCodeProperty() {
+        return "code";
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public List<E> findAll() {
-        return getSession().createCriteria(getEntityClass()).
-            addOrder(Order.asc("code")).list();
+        return createFindAllCriteria().list();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<E> findAll(int firstResult, int maxResults) {
+        return createFindAllCriteria().setFirstResult(firstResult)
+                .setMaxResults(maxResults).list();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void scrollAll(IEntityHandler<E> handler) {
+        ScrollableResults results = createFindAllCriteria()
+                .setFetchSize(SCROLL_BATCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            int handled = 0;
+            while (results.next()) {
+                E entity = (E) results.get(0);
+                handler.handle(entity);
+                getSession().evict(entity);
+                if (++handled % SCROLL_BATCH_SIZE == 0) {
+                    getSession().clear();
+                }
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * It creates the criteria used by {@link #findAll()} and its variants.
+     * Subclasses can override it to change the retrieved entities or their
+     * order.
+     */
+    protected Criteria createFindAllCriteria() {
+        return getSession().createCriteria(getEntityClass()).addOrder(
+                Order.asc("code"));
     }
 
 }
@@ -22,12 +22,14 @@
 package org.libreplan.business.costcategories.daos;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import org.hibernate.Query;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.costcategories.entities.HourCost;
+import org.libreplan.business.costcategories.entities.PriceCostTable;
 import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
 import org.libreplan.business.resources.entities.Resource;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -78,4 +80,23 @@ public class HourCostDAO extends IntegrationEntityDAO<HourCost> implements
         return (BigDecimal) query.uniqueResult();
     }
 
-}
\ No newline at end of file
+    @SuppressWarnings("unchecked")
+    @Override
+    @Transactional(readOnly = true)
+    public PriceCostTable getPriceCostTable() {
+        String strQuery = "SELECT rcca.resource.id, hc.type.id, hc.priceCost, "
+                + "rcca.initDate, rcca.endDate, hc.initDate, hc.endDate "
+                + "FROM ResourcesCostCategoryAssignment rcca, HourCost hc "
+                + "WHERE rcca.costCategory = hc.category";
+
+        PriceCostTable.Builder builder = PriceCostTable.builder();
+        List<Object[]> rows = getSession().createQuery(strQuery).list();
+        for (Object[] each : rows) {
+            builder.add((Long) each[0], (Long) each[1], (BigDecimal) each[2],
+                    (LocalDate) each[3], (LocalDate) each[4],
+                    (LocalDate) each[5], (LocalDate) each[6]);
+        }
+        return builder.build();
+    }
+
+}
@@ -28,6 +28,7 @@ import org.libreplan.business.common.daos.IIntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.costcategories.entities.CostCategory;
 import org.libreplan.business.costcategories.entities.HourCost;
+import org.libreplan.business.costcategories.entities.PriceCostTable;
 import org.libreplan.business.costcategories.entities.ResourcesCostCategoryAssignment;
 import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
 import org.libreplan.business.resources.entities.Resource;
@@ -60,4 +61,11 @@ public interface IHourCostDAO extends IIntegrationEntityDAO<HourCost> {
     BigDecimal getPriceCostFromResourceDateAndType(Resource resource,
             LocalDate date, TypeOfWorkHours type);
 
+    /**
+     * Loads in a single query the price costs of all the resources, so
+     * {@link #getPriceCostFromResourceDateAndType(Resource, LocalDate, TypeOfWorkHours)}
+     * can be answered in memory for many work report lines.
+     */
+    PriceCostTable getPriceCostTable();
+
 }
@@ -165,4 +165,9 @@ public class HourCost extends IntegrationEntity {
     protected IHourCostDAO getIntegrationEntityDAO() {
         return Registry.getHourCostDAO();
     }
+
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getCategory();
+    }
 }
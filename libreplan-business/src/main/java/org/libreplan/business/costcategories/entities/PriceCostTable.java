@@ -0,0 +1,237 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.costcategories.entities;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.DayNumbers;
+
+/**
+ * <p>
+ * The price cost of each {@link TypeOfWorkHours} for each {@link Resource}
+ * along the time. Each entry is the interval in which a
+ * {@link ResourcesCostCategoryAssignment} and a {@link HourCost} of its
+ * {@link CostCategory} are both active.
+ * </p>
+ * <p>
+ * It answers the same question as
+ * {@link org.libreplan.business.costcategories.daos.IHourCostDAO#getPriceCostFromResourceDateAndType(Resource, LocalDate, TypeOfWorkHours)}
+ * but in memory, so the price of many work report lines can be calculated
+ * without a query per line.
+ * </p>
+ * <p>
+ * It's immutable once built, so it can be shared between threads.
+ * </p>
+ *
+ * @see org.libreplan.business.costcategories.daos.IHourCostDAO#getPriceCostTable()
+ */
+public class PriceCostTable {
+
+    private static final int OPEN_END = Integer.MAX_VALUE;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final Map<Long, Map<Long, List<Interval>>> intervals = new HashMap<Long, Map<Long, List<Interval>>>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the price cost while both intervals are active. The end of the
+         * intervals is inclusive and it can be <code>null</code>, meaning that
+         * the interval doesn't end. Nothing is added if the intervals don't
+         * overlap or any of them doesn't have init date.
+         */
+        public Builder add(Long resourceId, Long typeOfWorkHoursId,
+                BigDecimal priceCost, LocalDate assignmentInit,
+                LocalDate assignmentEnd, LocalDate hourCostInit,
+                LocalDate hourCostEnd) {
+            Validate.notNull(resourceId);
+            Validate.notNull(typeOfWorkHoursId);
+            if (assignmentInit == null || hourCostInit == null) {
+                return this;
+            }
+            int start = Math.max(DayNumbers.toDayNumber(assignmentInit),
+                    DayNumbers.toDayNumber(hourCostInit));
+            int end = Math.min(toEndDayNumber(assignmentEnd),
+                    toEndDayNumber(hourCostEnd));
+            if (start <= end) {
+                intervalsFor(resourceId, typeOfWorkHoursId).add(
+                        new Interval(start, end, priceCost));
+            }
+            return this;
+        }
+
+        private static int toEndDayNumber(LocalDate date) {
+            return date == null ? OPEN_END : DayNumbers.toDayNumber(date);
+        }
+
+        private List<Interval> intervalsFor(Long resourceId,
+                Long typeOfWorkHoursId) {
+            Map<Long, List<Interval>> byType = intervals.get(resourceId);
+            if (byType == null) {
+                byType = new HashMap<Long, List<Interval>>();
+                intervals.put(resourceId, byType);
+            }
+            List<Interval> result = byType.get(typeOfWorkHoursId);
+            if (result == null) {
+                result = new ArrayList<Interval>();
+                byType.put(typeOfWorkHoursId, result);
+            }
+            return result;
+        }
+
+        public PriceCostTable build() {
+            Map<Long, Map<Long, Entries>> result = new HashMap<Long, Map<Long, Entries>>();
+            for (Entry<Long, Map<Long, List<Interval>>> byResource : intervals
+                    .entrySet()) {
+                Map<Long, Entries> byType = new HashMap<Long, Entries>();
+                for (Entry<Long, List<Interval>> each : byResource.getValue()
+                        .entrySet()) {
+                    byType.put(each.getKey(), new Entries(each.getValue()));
+                }
+                result.put(byResource.getKey(), byType);
+            }
+            return new PriceCostTable(result);
+        }
+    }
+
+    private static class Interval {
+
+        private static final Comparator<Interval> BY_START = new Comparator<Interval>() {
+
+            @Override
+            public int compare(Interval o1, Interval o2) {
+                return o1.start < o2.start ? -1 : (o1.start == o2.start ? 0
+                        : 1);
+            }
+        };
+
+        private final int start;
+
+        private final int end;
+
+        private final BigDecimal price;
+
+        private Interval(int start, int end, BigDecimal price) {
+            this.start = start;
+            this.end = end;
+            this.price = price;
+        }
+    }
+
+    private final Map<Long, Map<Long, Entries>> entriesByResourceAndType;
+
+    private PriceCostTable(Map<Long, Map<Long, Entries>> entriesByResourceAndType) {
+        this.entriesByResourceAndType = entriesByResourceAndType;
+    }
+
+    /**
+     * @return the price cost for the resource in the date for the type of
+     *         work hours or <code>null</code> if it's not defined
+     */
+    public BigDecimal getPriceCost(Long resourceId, Long typeOfWorkHoursId,
+            LocalDate date) {
+        Map<Long, Entries> byType = entriesByResourceAndType.get(resourceId);
+        if (byType == null) {
+            return null;
+        }
+        Entries entries = byType.get(typeOfWorkHoursId);
+        if (entries == null) {
+            return null;
+        }
+        return entries.getPriceCostAt(DayNumbers.toDayNumber(date));
+    }
+
+    /**
+     * The intervals of a resource and a type of work hours sorted by start
+     */
+    private static class Entries {
+
+        private final int[] starts;
+
+        private final int[] ends;
+
+        private final BigDecimal[] prices;
+
+        /**
+         * For each position, the maximum end from the first entry to it. It
+         * allows to stop looking backwards if the intervals overlap.
+         */
+        private final int[] maxEnds;
+
+        private Entries(List<Interval> intervals) {
+            List<Interval> sorted = new ArrayList<Interval>(intervals);
+            Collections.sort(sorted, Interval.BY_START);
+            int size = sorted.size();
+            starts = new int[size];
+            ends = new int[size];
+            prices = new BigDecimal[size];
+            maxEnds = new int[size];
+            for (int i = 0; i < size; i++) {
+                Interval each = sorted.get(i);
+                starts[i] = each.start;
+                ends[i] = each.end;
+                prices[i] = each.price;
+                maxEnds[i] = i == 0 ? each.end : Math.max(maxEnds[i - 1],
+                        each.end);
+            }
+        }
+
+        BigDecimal getPriceCostAt(int day) {
+            int position = lastStartingAtOrBefore(day);
+            for (int i = position; i >= 0 && maxEnds[i] >= day; i--) {
+                if (ends[i] >= day) {
+                    return prices[i];
+                }
+            }
+            return null;
+        }
+
+        private int lastStartingAtOrBefore(int day) {
+            int low = 0;
+            int high = starts.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (starts[middle] <= day) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+    }
+
+}
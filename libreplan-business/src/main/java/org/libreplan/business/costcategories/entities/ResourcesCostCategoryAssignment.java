@@ -168,6 +168,11 @@ public class ResourcesCostCategoryAssignment extends IntegrationEntity {
         return Registry.getResourcesCostCategoryAssignmentDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getResource();
+    }
+
     public boolean isActiveAtDate(LocalDate date) {
         if (isEqualOrAfter(date) && isEqualOrBefore(date)) {
             return true;
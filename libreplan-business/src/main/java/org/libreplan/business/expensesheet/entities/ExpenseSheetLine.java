@@ -125,6 +125,11 @@ public class ExpenseSheetLine extends IntegrationEntity {
         return Registry.getExpenseSheetLineDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getExpenseSheet();
+    }
+
     public void setDate(LocalDate date) {
         boolean different = isDifferent(date);
         this.date = date;
@@ -0,0 +1,226 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A modification done to an entity in a transaction. It's received by the
+ * snapshots after the session has been closed, so it doesn't keep the modified
+ * instance, only its class and id.<br />
+ *
+ * The values of the immutable properties and the ids of the entities
+ * referenced are captured when the modification is done, while the session is
+ * still open, so they can be used safely afterwards.
+ */
+public class EntityModification {
+
+    public enum Kind {
+        INSERT, UPDATE, DELETE;
+
+        /**
+         * @return the kind of modification equivalent to this one followed by
+         *         <code>next</code> or <code>null</code> if they cancel each
+         *         other
+         */
+        Kind followedBy(Kind next) {
+            if (this == INSERT) {
+                return next == DELETE ? null : INSERT;
+            }
+            if (this == DELETE && next == INSERT) {
+                return UPDATE;
+            }
+            return next;
+        }
+    }
+
+    public static EntityModification create(Kind kind, Class<?> entityClass,
+            Serializable id) {
+        return create(kind, entityClass, id,
+                Collections.<String, Object> emptyMap(), null);
+    }
+
+    /**
+     * @param values
+     *            the values of the entity after the modification or, for the
+     *            deletions, before it
+     * @param previousValues
+     *            the values of an updated entity before the modification.
+     *            They're <code>null</code> if they're unknown, as happens
+     *            when a detached entity is updated
+     */
+    public static EntityModification create(Kind kind, Class<?> entityClass,
+            Serializable id, Map<String, Object> values,
+            Map<String, Object> previousValues) {
+        return new EntityModification(kind, entityClass, id, values,
+                previousValues);
+    }
+
+    /**
+     * Joins the modifications of the same entity, so there is at most one
+     * modification for each entity. An entity inserted and deleted afterwards
+     * has no modification. The order of the first modification of each
+     * entity is kept.
+     */
+    public static List<EntityModification> coalesce(
+            Collection<? extends EntityModification> modifications) {
+        Map<Object, EntityModification> byEntity = new LinkedHashMap<Object, EntityModification>();
+        List<EntityModification> withoutId = new ArrayList<EntityModification>();
+        for (EntityModification each : modifications) {
+            if (each.getId() == null) {
+                withoutId.add(each);
+                continue;
+            }
+            List<Object> key = each.getKey();
+            EntityModification previous = byEntity.get(key);
+            if (previous == null) {
+                byEntity.put(key, each);
+                continue;
+            }
+            EntityModification joined = previous.followedBy(each);
+            if (joined == null) {
+                byEntity.remove(key);
+            } else {
+                byEntity.put(key, joined);
+            }
+        }
+        List<EntityModification> result = new ArrayList<EntityModification>(
+                byEntity.values());
+        result.addAll(withoutId);
+        return result;
+    }
+
+    private final Kind kind;
+
+    private final Class<?> entityClass;
+
+    private final Serializable id;
+
+    private final Map<String, Object> values;
+
+    private final Map<String, Object> previousValues;
+
+    private EntityModification(Kind kind, Class<?> entityClass,
+            Serializable id, Map<String, Object> values,
+            Map<String, Object> previousValues) {
+        Validate.notNull(kind);
+        Validate.notNull(entityClass);
+        Validate.notNull(values);
+        this.kind = kind;
+        this.entityClass = entityClass;
+        this.id = id;
+        this.values = Collections.unmodifiableMap(new HashMap<String, Object>(
+                values));
+        this.previousValues = previousValues == null ? null : Collections
+                .unmodifiableMap(new HashMap<String, Object>(previousValues));
+    }
+
+    /**
+     * The values of the joined modification are the ones after
+     * <code>next</code>, and the previous values are the ones before this
+     * modification
+     *
+     * @return the modification equivalent to this one followed by
+     *         <code>next</code> or <code>null</code> if they cancel each
+     *         other
+     */
+    private EntityModification followedBy(EntityModification next) {
+        Kind joined = kind.followedBy(next.getKind());
+        if (joined == null) {
+            return null;
+        }
+        return create(joined, next.getEntityClass(), next.getId(),
+                next.values, valuesBefore());
+    }
+
+    private Map<String, Object> valuesBefore() {
+        switch (kind) {
+        case UPDATE:
+            return previousValues;
+        case DELETE:
+            return values;
+        default:
+            return null;
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public Serializable getId() {
+        return id;
+    }
+
+    /**
+     * @return the value of an immutable property or, if the property
+     *         references another entity, the id of that entity. It's
+     *         <code>null</code> if the property has no value or it isn't
+     *         captured
+     */
+    public Object getValue(String property) {
+        return values.get(property);
+    }
+
+    public boolean hasPreviousValues() {
+        return previousValues != null;
+    }
+
+    /**
+     * Like {@link #getValue(String)} but before an update
+     *
+     * @throws IllegalStateException
+     *             if the previous values are unknown
+     * @see #hasPreviousValues()
+     */
+    public Object getPreviousValue(String property) {
+        if (previousValues == null) {
+            throw new IllegalStateException("previous values of " + this
+                    + " are unknown");
+        }
+        return previousValues.get(property);
+    }
+
+    private List<Object> getKey() {
+        List<Object> result = new ArrayList<Object>(2);
+        result.add(entityClass);
+        result.add(id);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + entityClass.getSimpleName() + "#" + id;
+    }
+
+}
@@ -20,22 +20,32 @@
  */
 package org.libreplan.business.hibernate.notification;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.transaction.Status;
 import javax.transaction.Synchronization;
 
+import org.apache.commons.lang.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Transaction;
@@ -46,7 +56,12 @@ import org.hibernate.event.PostInsertEvent;
 import org.hibernate.event.PostInsertEventListener;
 import org.hibernate.event.PostUpdateEvent;
 import org.hibernate.event.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.Type;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.common.IntegrationEntity;
+import org.libreplan.business.hibernate.notification.EntityModification.Kind;
 
 /**
  * @author Óscar González Fernández
@@ -59,20 +74,41 @@ public class HibernateDatabaseModificationsListener implements
     private static final Log LOG = LogFactory
             .getLog(HibernateDatabaseModificationsListener.class);
 
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
     private final ExecutorService executor = Executors.newFixedThreadPool(3);
 
+    /**
+     * It waits for the debounce windows and notifies the
+     * {@link ICommittedModificationsListener listeners}, in the order the
+     * transactions are committed
+     */
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(daemonThreads());
+
+    private volatile long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+
+    private volatile IntegrationEntityChanges integrationEntityChanges;
+
+    private final List<ICommittedModificationsListener> committedModificationsListeners = new CopyOnWriteArrayList<ICommittedModificationsListener>();
+
+    private final List<EntityModification> pendingModifications = new ArrayList<EntityModification>();
+
+    private boolean flushScheduled = false;
+
     private final ConcurrentMap<Class<?>, BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>>> interested;
 
+    private final ConcurrentMap<Class<?>, BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>>> interestedOnUpdates;
+
     private ConcurrentMap<Transaction, Dispatcher> pending = new ConcurrentHashMap<Transaction, Dispatcher>();
 
     private Set<NotBlockingAutoUpdatedSnapshot<?>> snapshotsInterestedOn(
-            Class<?> entityClass) {
-        List<Class<?>> list = new ArrayList<Class<?>>(1);
-        list.add(entityClass);
-        return snapshotsInterestedOn(list);
+            Collection<? extends Class<?>> classesList) {
+        return snapshotsInterestedOn(interested, classesList);
     }
 
-    private Set<NotBlockingAutoUpdatedSnapshot<?>> snapshotsInterestedOn(
+    private static Set<NotBlockingAutoUpdatedSnapshot<?>> snapshotsInterestedOn(
+            Map<Class<?>, BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>>> interested,
             Collection<? extends Class<?>> classesList) {
         Set<NotBlockingAutoUpdatedSnapshot<?>> result = new HashSet<NotBlockingAutoUpdatedSnapshot<?>>();
         for (Class<?> each : new HashSet<Class<?>>(classesList)) {
@@ -87,16 +123,23 @@ public class HibernateDatabaseModificationsListener implements
 
     private final class Dispatcher implements Synchronization {
 
-        private BlockingQueue<Class<?>> classes = new LinkedBlockingQueue<Class<?>>();
+        private BlockingQueue<EntityModification> modifications = new LinkedBlockingQueue<EntityModification>();
+        private BlockingQueue<IntegrationEntityChange> integrationChanges = new LinkedBlockingQueue<IntegrationEntityChange>();
         private final Transaction transaction;
 
-        public Dispatcher(Transaction transaction, Class<?> entityClass) {
-            classes.offer(entityClass);
+        public Dispatcher(Transaction transaction,
+                EntityModification modification,
+                IntegrationEntityChange integrationChange) {
+            add(modification, integrationChange);
             this.transaction = transaction;
         }
 
-        public void add(Class<?> entityClass) {
-            classes.offer(entityClass);
+        public void add(EntityModification modification,
+                IntegrationEntityChange integrationChange) {
+            modifications.offer(modification);
+            if (integrationChange != null) {
+                integrationChanges.offer(integrationChange);
+            }
         }
 
         @Override
@@ -108,14 +151,12 @@ public class HibernateDatabaseModificationsListener implements
             LOG.debug("transaction completed with status: " + status);
             pending.remove(transaction);
             if (isProbablySucessful(status)) {
-                List<Class<?>> list = new ArrayList<Class<?>>();
-                classes.drainTo(list);
+                List<EntityModification> list = new ArrayList<EntityModification>();
+                modifications.drainTo(list);
+                List<IntegrationEntityChange> changes = new ArrayList<IntegrationEntityChange>();
+                integrationChanges.drainTo(changes);
                 LOG.debug(list.size() + " modification events recorded");
-                Set<NotBlockingAutoUpdatedSnapshot<?>> toDispatch = snapshotsInterestedOn(list);
-                LOG.debug("dispatching "
-                        + toDispatch
-                        + " snapshots to reload due to transaction successful completion");
-                dispatch(toDispatch);
+                dispatchModifications(list, changes);
             }
         }
 
@@ -128,24 +169,161 @@ public class HibernateDatabaseModificationsListener implements
 
     public HibernateDatabaseModificationsListener() {
         interested = new ConcurrentHashMap<Class<?>, BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>>>();
+        interestedOnUpdates = new ConcurrentHashMap<Class<?>, BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>>>();
+    }
+
+    /**
+     * The threads don't prevent the JVM from exiting and they're stopped by
+     * {@link #destroy()} when the application is undeployed
+     */
+    private static ThreadFactory daemonThreads() {
+        final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        return new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread result = defaultFactory.newThread(runnable);
+                result.setDaemon(true);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * The pending modifications are discarded, since the snapshots won't be
+     * used any more
+     */
+    public void destroy() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param debounceMillis
+     *            the time the modifications are kept before dispatching them.
+     *            If it's zero or less they're dispatched as soon as the
+     *            transaction is completed
+     */
+    public void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * @param integrationEntityChanges
+     *            it receives the modifications of the committed transactions
+     */
+    public void setIntegrationEntityChanges(
+            IntegrationEntityChanges integrationEntityChanges) {
+        this.integrationEntityChanges = integrationEntityChanges;
+    }
+
+    public void addCommittedModificationsListener(
+            ICommittedModificationsListener listener) {
+        Validate.notNull(listener);
+        committedModificationsListeners.add(listener);
     }
 
     @Override
     public void onPostDelete(PostDeleteEvent event) {
         modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+                modification(Kind.DELETE, event.getId(),
+                        getEntityObject(event), event.getPersister(),
+                        event.getDeletedState(), null),
+                integrationChange(Kind.DELETE, event.getId(),
+                        getEntityObject(event)));
     }
 
     @Override
     public void onPostUpdate(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
         modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+                modification(Kind.UPDATE, event.getId(),
+                        getEntityObject(event), event.getPersister(),
+                        event.getState(), oldState != null ? captureValues(
+                                event.getPersister(), oldState) : null),
+                integrationChange(Kind.UPDATE, event.getId(),
+                        getEntityObject(event)));
     }
 
     @Override
     public void onPostInsert(PostInsertEvent event) {
         modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+                modification(Kind.INSERT, event.getId(),
+                        getEntityObject(event), event.getPersister(),
+                        event.getState(), null),
+                integrationChange(Kind.INSERT, event.getId(),
+                        getEntityObject(event)));
+    }
+
+    /**
+     * The owner of the entity is resolved now, while the session is still
+     * open, so the owners not loaded yet can be retrieved
+     *
+     * @return <code>null</code> if the entity isn't an
+     *         {@link IntegrationEntity} or the changes aren't recorded
+     */
+    private IntegrationEntityChange integrationChange(Kind kind,
+            Serializable id, Object entity) {
+        if (integrationEntityChanges == null
+                || !(entity instanceof IntegrationEntity)
+                || !(id instanceof Long)) {
+            return null;
+        }
+        return IntegrationEntityChange.of(kind, inferEntityClass(entity),
+                (Long) id, (IntegrationEntity) entity);
+    }
+
+    private static EntityModification modification(Kind kind,
+            Serializable id, Object entity, EntityPersister persister,
+            Object[] state, Map<String, Object> previousValues) {
+        return EntityModification.create(kind, inferEntityClass(entity), id,
+                captureValues(persister, state), previousValues);
+    }
+
+    /**
+     * Only the values that can be kept safely once the session is closed are
+     * captured: the immutable ones and the ids of the referenced entities,
+     * which are known even if they're not loaded
+     */
+    private static Map<String, Object> captureValues(
+            EntityPersister persister, Object[] state) {
+        Map<String, Object> result = new HashMap<String, Object>();
+        if (state == null) {
+            return result;
+        }
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < names.length; i++) {
+            Object value = state[i];
+            if (value == null) {
+                continue;
+            }
+            if (types[i].isEntityType()) {
+                Serializable referencedId = idOf(value);
+                if (referencedId != null) {
+                    result.put(names[i], referencedId);
+                }
+            } else if (!types[i].isAssociationType()
+                    && !types[i].isComponentType() && !types[i].isMutable()) {
+                result.put(names[i], value);
+            }
+        }
+        return result;
+    }
+
+    private static Serializable idOf(Object entity) {
+        if (entity instanceof HibernateProxy) {
+            return ((HibernateProxy) entity).getHibernateLazyInitializer()
+                    .getIdentifier();
+        }
+        if (entity instanceof BaseEntity) {
+            return ((BaseEntity) entity).getId();
+        }
+        return null;
     }
 
     private Transaction inferTransaction(AbstractEvent event) {
@@ -172,23 +350,141 @@ public class HibernateDatabaseModificationsListener implements
         return entity.getClass();
     }
 
-    void modificationOn(Transaction transaction, Class<?> entityClass) {
+    void modificationOn(Transaction transaction,
+            EntityModification modification,
+            IntegrationEntityChange integrationChange) {
         if (transaction == null) {
-            dispatch(snapshotsInterestedOn(entityClass));
+            List<EntityModification> modifications = new ArrayList<EntityModification>();
+            modifications.add(modification);
+            List<IntegrationEntityChange> changes = new ArrayList<IntegrationEntityChange>();
+            if (integrationChange != null) {
+                changes.add(integrationChange);
+            }
+            dispatchModifications(modifications, changes);
             return;
         }
-        Dispatcher newDispatcher = new Dispatcher(transaction, entityClass);
+        Dispatcher newDispatcher = new Dispatcher(transaction, modification,
+                integrationChange);
         Dispatcher previous = null;
         previous = pending.putIfAbsent(transaction, newDispatcher);
 
         boolean dispatcherAlreadyExisted = previous != null;
         if (dispatcherAlreadyExisted) {
-            previous.add(entityClass);
+            previous.add(modification, integrationChange);
         } else {
             transaction.registerSynchronization(newDispatcher);
         }
     }
 
+    /**
+     * The modifications are kept during the debounce window since the first
+     * of them arrived, so the modifications of the transactions committed in
+     * the meanwhile are dispatched together. The window isn't extended by the
+     * new modifications, so the snapshots are refreshed even if there are
+     * modifications all the time.
+     */
+    private void dispatchModifications(
+            final List<EntityModification> modifications,
+            List<IntegrationEntityChange> integrationChanges) {
+        if (integrationEntityChanges != null) {
+            integrationEntityChanges.record(integrationChanges);
+        }
+        scheduler.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                notifyCommitted(modifications);
+            }
+        });
+        if (debounceMillis <= 0) {
+            dispatchNow(EntityModification.coalesce(modifications));
+            return;
+        }
+        synchronized (pendingModifications) {
+            pendingModifications.addAll(modifications);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        scheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                dispatchPending();
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void notifyCommitted(List<EntityModification> modifications) {
+        for (ICommittedModificationsListener each : committedModificationsListeners) {
+            try {
+                each.modificationsCommitted(modifications);
+            } catch (RuntimeException e) {
+                LOG.error("error notifying committed modifications", e);
+            }
+        }
+    }
+
+    private void dispatchPending() {
+        List<EntityModification> modifications;
+        synchronized (pendingModifications) {
+            modifications = new ArrayList<EntityModification>(
+                    pendingModifications);
+            pendingModifications.clear();
+            flushScheduled = false;
+        }
+        List<EntityModification> coalesced = EntityModification
+                .coalesce(modifications);
+        LOG.debug(modifications.size() + " modification events coalesced in "
+                + coalesced.size());
+        try {
+            dispatchNow(coalesced);
+        } catch (RuntimeException e) {
+            LOG.error("error dispatching modifications", e);
+        }
+    }
+
+    /**
+     * The snapshots interested on reloading on some of the modified classes
+     * are reloaded. The rest of snapshots interested on updating on some of
+     * the modified classes receive the modifications of those classes.
+     */
+    private void dispatchNow(List<EntityModification> modifications) {
+        if (modifications.isEmpty()) {
+            return;
+        }
+        Set<Class<?>> classes = new HashSet<Class<?>>();
+        for (EntityModification each : modifications) {
+            classes.add(each.getEntityClass());
+        }
+        Set<NotBlockingAutoUpdatedSnapshot<?>> toReload = snapshotsInterestedOn(classes);
+        LOG.debug("dispatching " + toReload
+                + " snapshots to reload due to transaction successful completion");
+        dispatch(toReload);
+
+        Map<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>> toUpdate = new HashMap<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>>();
+        for (EntityModification each : modifications) {
+            for (NotBlockingAutoUpdatedSnapshot<?> snapshot : snapshotsInterestedOn(
+                    interestedOnUpdates,
+                    Collections.singleton(each.getEntityClass()))) {
+                if (toReload.contains(snapshot)) {
+                    continue;
+                }
+                if (!toUpdate.containsKey(snapshot)) {
+                    toUpdate.put(snapshot, new ArrayList<EntityModification>());
+                }
+                toUpdate.get(snapshot).add(each);
+            }
+        }
+        for (Entry<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>> each : toUpdate
+                .entrySet()) {
+            LOG.debug("dispatching " + each.getValue().size()
+                    + " modifications to update " + each.getKey());
+            each.getKey().updateNeeded(executor, each.getValue());
+        }
+    }
+
     private void dispatch(Set<NotBlockingAutoUpdatedSnapshot<?>> toBeDispatched) {
         for (NotBlockingAutoUpdatedSnapshot<?> each : toBeDispatched) {
             dispatch(each);
@@ -204,15 +500,36 @@ public class HibernateDatabaseModificationsListener implements
             Callable<T> callable, ReloadOn reloadOn) {
         final NotBlockingAutoUpdatedSnapshot<T> result;
         result = new NotBlockingAutoUpdatedSnapshot<T>(name, callable);
-        for (Class<?> each : reloadOn.getClassesOnWhichToReload()) {
+        register(interested, reloadOn.getClassesOnWhichToReload(), result);
+        result.ensureFirstLoad(executor);
+        return result;
+    }
+
+    @Override
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+            Callable<T> callable, ReloadOn reloadOn, UpdateOn updateOn,
+            ISnapshotUpdater<T> updater) {
+        Validate.notNull(updater);
+        final NotBlockingAutoUpdatedSnapshot<T> result;
+        result = new NotBlockingAutoUpdatedSnapshot<T>(name, callable, updater);
+        register(interested, reloadOn.getClassesOnWhichToReload(), result);
+        register(interestedOnUpdates, updateOn.getClassesOnWhichToUpdate(),
+                result);
+        result.ensureFirstLoad(executor);
+        return result;
+    }
+
+    private void register(
+            ConcurrentMap<Class<?>, BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>>> interested,
+            Collection<Class<?>> classes,
+            NotBlockingAutoUpdatedSnapshot<?> snapshot) {
+        for (Class<?> each : classes) {
             interested.putIfAbsent(each, emptyQueue());
             BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>> queue = interested
                     .get(each);
-            boolean success = queue.add(result);
+            boolean success = queue.add(snapshot);
             assert success : "the type of queue used must not have restricted capacity";
         }
-        result.ensureFirstLoad(executor);
-        return result;
     }
 
     private BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>> emptyQueue() {
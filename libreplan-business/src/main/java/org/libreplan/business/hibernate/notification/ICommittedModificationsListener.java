@@ -0,0 +1,42 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.util.List;
+
+/**
+ * It receives the modifications of the committed transactions as soon as
+ * they're completed, without waiting for the debounce window of
+ * {@link HibernateDatabaseModificationsListener}.
+ *
+ * @see HibernateDatabaseModificationsListener#addCommittedModificationsListener(ICommittedModificationsListener)
+ */
+public interface ICommittedModificationsListener {
+
+    /**
+     * It's called from a thread of
+     * {@link HibernateDatabaseModificationsListener} once the transaction is
+     * completed, so it doesn't delay the committing thread. That thread is
+     * shared by all the listeners and the calls follow the order of the
+     * commits, so it should return quickly.
+     */
+    void modificationsCommitted(List<EntityModification> modifications);
+
+}
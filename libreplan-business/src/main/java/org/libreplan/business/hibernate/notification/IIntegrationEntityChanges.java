@@ -0,0 +1,114 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.common.IntegrationEntity;
+
+/**
+ * <p>
+ * It keeps the modifications of {@link IntegrationEntity integration
+ * entities} committed since the application started, so the integrations can
+ * ask for the entities modified since their last synchronization instead of
+ * retrieving all of them.
+ * </p>
+ * <p>
+ * The positions in the journal are given by opaque tokens. A token is expired
+ * if it was taken before the application was restarted or if the
+ * modifications after it have been discarded because there were too many. It
+ * also expires if the entity affected by one of those modifications is
+ * unknown, because the owner of the modified entity couldn't be retrieved. In
+ * that case the integration must do a full synchronization.
+ * </p>
+ * <p>
+ * The modifications are kept by each instance of the application, so the ones
+ * committed by other instances sharing the same database aren't known.
+ * </p>
+ */
+public interface IIntegrationEntityChanges {
+
+    /**
+     * The modifications committed after a token.
+     */
+    public static final class ChangesSince {
+
+        public static ChangesSince expired(String currentToken) {
+            return new ChangesSince(null, currentToken);
+        }
+
+        public static ChangesSince of(List<IntegrationEntityChange> changes,
+                String currentToken) {
+            Validate.notNull(changes);
+            return new ChangesSince(changes, currentToken);
+        }
+
+        private final List<IntegrationEntityChange> changes;
+
+        private final String token;
+
+        private ChangesSince(List<IntegrationEntityChange> changes,
+                String token) {
+            Validate.notNull(token);
+            this.changes = changes;
+            this.token = token;
+        }
+
+        public boolean isExpired() {
+            return changes == null;
+        }
+
+        /**
+         * @return at most one change for each entity, in the order they were
+         *         first modified. It's empty if the token is expired
+         */
+        public List<IntegrationEntityChange> getChanges() {
+            if (isExpired()) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(changes);
+        }
+
+        /**
+         * @return the token to ask for the next modifications
+         */
+        public String getToken() {
+            return token;
+        }
+
+    }
+
+    /**
+     * @return the token for the modifications committed from now on
+     */
+    public String getCurrentToken();
+
+    /**
+     * It returns the modifications of instances of <code>entityClass</code>,
+     * including its subclasses, committed after <code>token</code> was
+     * taken. If <code>token</code> is <code>null</code>, not valid or
+     * expired, the result is expired.
+     */
+    public ChangesSince getChangesSince(String token,
+            Class<? extends IntegrationEntity> entityClass);
+
+}
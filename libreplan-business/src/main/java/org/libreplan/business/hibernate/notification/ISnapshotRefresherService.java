@@ -30,4 +30,15 @@ public interface ISnapshotRefresherService {
 
     public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name, Callable<T> callable, ReloadOn reloadOn);
 
+    /**
+     * Like {@link #takeSnapshot(String, Callable, ReloadOn)} but the
+     * modifications of the classes specified by <code>updateOn</code> are
+     * applied to the current value by <code>updater</code>. If there are
+     * modifications of classes specified by <code>reloadOn</code> too, the
+     * value is calculated again.
+     */
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+            Callable<T> callable, ReloadOn reloadOn, UpdateOn updateOn,
+            ISnapshotUpdater<T> updater);
+
 }
@@ -0,0 +1,45 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.util.List;
+
+/**
+ * Updates the value of a snapshot from the modifications done to the entities
+ * it's interested on, instead of calculating it again from scratch.
+ *
+ * @see ISnapshotRefresherService#takeSnapshot(String,
+ *      java.util.concurrent.Callable, ReloadOn, UpdateOn, ISnapshotUpdater)
+ */
+public interface ISnapshotUpdater<T> {
+
+    /**
+     * It must not modify <code>previousValue</code>, since it could be in use.
+     * The modifications can come from several transactions, but there is at
+     * most one for each entity.
+     *
+     * @see EntityModification#coalesce(java.util.Collection)
+     * @return the updated value or <code>null</code> if the modifications
+     *         can't be applied and the value must be calculated again
+     */
+    public T update(T previousValue, List<EntityModification> modifications)
+            throws Exception;
+
+}
@@ -0,0 +1,181 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import org.apache.commons.lang.Validate;
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.libreplan.business.common.IntegrationEntity;
+import org.libreplan.business.hibernate.notification.EntityModification.Kind;
+
+/**
+ * A committed modification of an {@link IntegrationEntity}. The code is the
+ * one the entity had when it was modified, so it's known even if the entity
+ * has been deleted. The same applies to the owner, the outermost entity
+ * containing the modified one, if any. If the owner couldn't be retrieved
+ * when the entity was modified, it's {@link #isOwnerUnknown() unknown}.
+ *
+ * @see IntegrationEntity#getIntegrationOwner()
+ */
+public class IntegrationEntityChange {
+
+    public static IntegrationEntityChange create(Kind kind,
+            Class<?> entityClass, Long id, String code) {
+        return create(kind, entityClass, id, code, null, null);
+    }
+
+    public static IntegrationEntityChange create(Kind kind,
+            Class<?> entityClass, Long id, String code, Class<?> ownerClass,
+            String ownerCode) {
+        return new IntegrationEntityChange(kind, entityClass, id, code,
+                ownerClass, ownerCode, false);
+    }
+
+    public static IntegrationEntityChange withUnknownOwner(Kind kind,
+            Class<?> entityClass, Long id, String code) {
+        return new IntegrationEntityChange(kind, entityClass, id, code, null,
+                null, true);
+    }
+
+    /**
+     * It must be called while the session the entity was modified in is still
+     * open, so the owners not loaded yet can be retrieved. If one of them
+     * can't, the owner is unknown.
+     */
+    public static IntegrationEntityChange of(Kind kind, Class<?> entityClass,
+            Long id, IntegrationEntity entity) {
+        IntegrationEntity owner;
+        try {
+            owner = outermostOwnerOf(entity);
+        } catch (HibernateException e) {
+            return withUnknownOwner(kind, entityClass, id, entity.getCode());
+        }
+        if (owner == null) {
+            return create(kind, entityClass, id, entity.getCode());
+        }
+        return create(kind, entityClass, id, entity.getCode(),
+                Hibernate.getClass(owner), owner.getCode());
+    }
+
+    private static IntegrationEntity outermostOwnerOf(IntegrationEntity entity) {
+        IntegrationEntity result = null;
+        IntegrationEntity owner = entity.getIntegrationOwner();
+        while (owner != null) {
+            Hibernate.initialize(owner);
+            result = owner;
+            owner = owner.getIntegrationOwner();
+        }
+        return result;
+    }
+
+    private final Kind kind;
+
+    private final Class<?> entityClass;
+
+    private final Long id;
+
+    private final String code;
+
+    private final Class<?> ownerClass;
+
+    private final String ownerCode;
+
+    private final boolean ownerUnknown;
+
+    private IntegrationEntityChange(Kind kind, Class<?> entityClass, Long id,
+            String code, Class<?> ownerClass, String ownerCode,
+            boolean ownerUnknown) {
+        Validate.notNull(kind);
+        Validate.notNull(entityClass);
+        Validate.notNull(id);
+        this.kind = kind;
+        this.entityClass = entityClass;
+        this.id = id;
+        this.code = code;
+        this.ownerClass = ownerClass;
+        this.ownerCode = ownerCode;
+        this.ownerUnknown = ownerUnknown;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isDeletion() {
+        return kind == Kind.DELETE;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public boolean hasOwner() {
+        return ownerClass != null;
+    }
+
+    /**
+     * @return the class of the owner or <code>null</code> if the entity
+     *         doesn't have owner
+     */
+    public Class<?> getOwnerClass() {
+        return ownerClass;
+    }
+
+    public String getOwnerCode() {
+        return ownerCode;
+    }
+
+    /**
+     * @return if the entity could have an owner that couldn't be retrieved,
+     *         so the entity affected by the change is unknown
+     */
+    public boolean isOwnerUnknown() {
+        return ownerUnknown;
+    }
+
+    IntegrationEntityChange followedBy(IntegrationEntityChange next) {
+        Kind joined = kind.followedBy(next.getKind());
+        if (joined == null) {
+            return null;
+        }
+        if (next.hasOwner() || next.isOwnerUnknown()) {
+            return new IntegrationEntityChange(joined, entityClass, id,
+                    next.getCode(), next.getOwnerClass(), next.getOwnerCode(),
+                    next.isOwnerUnknown());
+        }
+        return new IntegrationEntityChange(joined, entityClass, id,
+                next.getCode(), ownerClass, ownerCode, ownerUnknown);
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + entityClass.getSimpleName() + " " + id + " ("
+                + code + ")";
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.common.IntegrationEntity;
+import org.libreplan.business.hibernate.notification.EntityModification.Kind;
+
+/**
+ * Default implementation of {@link IIntegrationEntityChanges}. It receives
+ * the modifications of the committed transactions from
+ * {@link HibernateDatabaseModificationsListener} and keeps them in memory, so
+ * the tokens aren't valid after restarting the application.
+ *
+ * The journal lives in a single JVM: it only knows the transactions committed
+ * by this instance of the application. If several instances share the
+ * database, the modifications committed by the others are missing.
+ *
+ * At most <code>capacity</code> modifications are kept. When it's full the
+ * oldest ones are discarded.
+ */
+public class IntegrationEntityChanges implements IIntegrationEntityChanges {
+
+    public static final int DEFAULT_CAPACITY = 100000;
+
+    private static final String SEPARATOR = "-";
+
+    private static class Entry {
+
+        private final long sequence;
+
+        private final IntegrationEntityChange change;
+
+        private Entry(long sequence, IntegrationEntityChange change) {
+            this.sequence = sequence;
+            this.change = change;
+        }
+
+    }
+
+    private final String epoch = Long.toString(
+            new Random().nextLong() & Long.MAX_VALUE, 36);
+
+    private final int capacity;
+
+    private final LinkedList<Entry> journal = new LinkedList<Entry>();
+
+    private long lastSequence = 0;
+
+    private long lastDiscardedSequence = 0;
+
+    public IntegrationEntityChanges() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntegrationEntityChanges(int capacity) {
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    /**
+     * It records the modifications of a committed transaction. Their owners
+     * must have been resolved before the session was closed.
+     *
+     * @see IntegrationEntityChange#of(Kind, Class, Long, IntegrationEntity)
+     */
+    public synchronized void record(
+            Collection<? extends IntegrationEntityChange> changes) {
+        for (IntegrationEntityChange each : changes) {
+            add(each);
+        }
+    }
+
+    private void add(IntegrationEntityChange change) {
+        journal.addLast(new Entry(++lastSequence, change));
+        if (journal.size() > capacity) {
+            lastDiscardedSequence = journal.removeFirst().sequence;
+        }
+    }
+
+    @Override
+    public synchronized String getCurrentToken() {
+        return epoch + SEPARATOR + lastSequence;
+    }
+
+    @Override
+    public synchronized ChangesSince getChangesSince(String token,
+            Class<? extends IntegrationEntity> entityClass) {
+        Validate.notNull(entityClass);
+        Long since = parseSequence(token);
+        if (since == null || since < lastDiscardedSequence) {
+            return ChangesSince.expired(getCurrentToken());
+        }
+        Map<List<Object>, IntegrationEntityChange> byEntity = new LinkedHashMap<List<Object>, IntegrationEntityChange>();
+        for (Entry each : journal) {
+            IntegrationEntityChange change = each.change;
+            if (each.sequence <= since
+                    || !entityClass.isAssignableFrom(change.getEntityClass())) {
+                continue;
+            }
+            if (change.isOwnerUnknown()) {
+                return ChangesSince.expired(getCurrentToken());
+            }
+            List<Object> key = keyOf(change);
+            IntegrationEntityChange previous = byEntity.get(key);
+            if (previous == null) {
+                byEntity.put(key, change);
+                continue;
+            }
+            IntegrationEntityChange joined = previous.followedBy(change);
+            if (joined == null) {
+                byEntity.remove(key);
+            } else {
+                byEntity.put(key, joined);
+            }
+        }
+        return ChangesSince.of(new ArrayList<IntegrationEntityChange>(
+                byEntity.values()), getCurrentToken());
+    }
+
+    private Long parseSequence(String token) {
+        if (StringUtils.isBlank(token)) {
+            return null;
+        }
+        String prefix = epoch + SEPARATOR;
+        if (!token.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            long result = Long.parseLong(token.substring(prefix.length()));
+            return result >= 0 && result <= lastSequence ? result : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static List<Object> keyOf(IntegrationEntityChange change) {
+        List<Object> result = new ArrayList<Object>(2);
+        result.add(change.getEntityClass());
+        result.add(change.getId());
+        return result;
+    }
+
+}
@@ -20,9 +20,11 @@
  */
 package org.libreplan.business.hibernate.notification;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang.Validate;
@@ -40,6 +42,8 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
 
     private final Callable<T> callable;
 
+    private final ISnapshotUpdater<T> updater;
+
     private final AtomicReference<State> currentState;
 
     private final String name;
@@ -49,11 +53,31 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
     private abstract class State {
         abstract T getValue();
 
+        /**
+         * Runs <code>task</code> once the value of this state is known,
+         * without blocking the current thread
+         */
+        abstract void whenKnown(Runnable task);
+
+        /**
+         * @return the value of this state if it has been calculated,
+         *         <code>null</code> if the calculation was cancelled or failed
+         */
+        abstract T getKnownValue();
+
         void cancel() {
         }
 
-        State nextState(Future<T> future) {
-            return new PreviousValueAndOngoingCalculation(this, future);
+        State nextState(Calculation future) {
+            return new PreviousValueAndOngoingCalculation(settled(), future);
+        }
+
+        /**
+         * @return an equivalent state that doesn't keep references to the
+         *         previous states if they're no longer needed
+         */
+        State settled() {
+            return this;
         }
 
         boolean hasBeenInitialized() {
@@ -69,7 +93,17 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         }
 
         @Override
-        State nextState(Future<T> future) {
+        void whenKnown(Runnable task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        T getKnownValue() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        State nextState(Calculation future) {
             return new FirstCalculation(future);
         }
 
@@ -91,15 +125,25 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         T getValue() {
             return value;
         }
+
+        @Override
+        void whenKnown(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        T getKnownValue() {
+            return value;
+        }
     }
 
     private class PreviousValueAndOngoingCalculation extends State {
         private final State previousValue;
 
-        private final Future<T> ongoingCalculation;
+        private final Calculation ongoingCalculation;
 
         private PreviousValueAndOngoingCalculation(State value,
-                Future<T> ongoingCalculation) {
+                Calculation ongoingCalculation) {
             Validate.notNull(value);
             Validate.notNull(ongoingCalculation);
             this.previousValue = value;
@@ -120,6 +164,27 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             return previousValue.getValue();
         }
 
+        @Override
+        void whenKnown(Runnable task) {
+            ongoingCalculation.whenDone(task);
+        }
+
+        @Override
+        T getKnownValue() {
+            return ongoingCalculation.getIfSucceeded();
+        }
+
+        @Override
+        State settled() {
+            if (ongoingCalculation.isCancelled()) {
+                return previousValue.settled();
+            }
+            if (ongoingCalculation.isDone()) {
+                return new NoOngoingCalculation(getValueFromFuture());
+            }
+            return this;
+        }
+
         private T getValueFromFuture() {
             try {
                 return ongoingCalculation.get();
@@ -145,9 +210,9 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
     }
 
     private class FirstCalculation extends State {
-        private final Future<T> ongoingCalculation;
+        private final Calculation ongoingCalculation;
 
-        private FirstCalculation(Future<T> ongoingCalculation) {
+        private FirstCalculation(Calculation ongoingCalculation) {
             this.ongoingCalculation = ongoingCalculation;
         }
 
@@ -160,6 +225,16 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             }
         }
 
+        @Override
+        void whenKnown(Runnable task) {
+            ongoingCalculation.whenDone(task);
+        }
+
+        @Override
+        T getKnownValue() {
+            return ongoingCalculation.getIfSucceeded();
+        }
+
         @Override
         void cancel() {
             ongoingCalculation.cancel(true);
@@ -167,11 +242,64 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
 
     }
 
+    /**
+     * A calculation that can have other tasks waiting for it to be done. They
+     * are run by the thread that finishes or cancels it, so no thread of the
+     * executor is kept waiting for another calculation
+     */
+    private class Calculation extends FutureTask<T> {
+
+        private List<Runnable> waiting = new ArrayList<Runnable>();
+
+        private Calculation(Callable<T> callable) {
+            super(callable);
+        }
+
+        void whenDone(Runnable task) {
+            synchronized (this) {
+                if (waiting != null) {
+                    waiting.add(task);
+                    return;
+                }
+            }
+            task.run();
+        }
+
+        @Override
+        protected void done() {
+            List<Runnable> toRun;
+            synchronized (this) {
+                toRun = waiting;
+                waiting = null;
+            }
+            for (Runnable each : toRun) {
+                each.run();
+            }
+        }
+
+        T getIfSucceeded() {
+            if (!isDone() || isCancelled()) {
+                return null;
+            }
+            try {
+                return get();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
     public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable) {
+        this(name, callable, null);
+    }
+
+    public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable,
+            ISnapshotUpdater<T> updater) {
         Validate.notNull(callable);
         Validate.notNull(name);
         this.name = "*" + name + "*";
         this.callable = callable;
+        this.updater = updater;
         this.currentState = new AtomicReference<State>(new NotLaunchState());
         this.executionsReport = new ExecutionsReport();
     }
@@ -182,8 +310,8 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
     }
 
     public void reloadNeeded(ExecutorService executorService) {
-        Future<T> future = executorService
-                .submit(callableDecoratedWithStatistics());
+        Calculation future = launch(executorService,
+                callableDecoratedWithStatistics());
         State previousState;
         State newState = null;
         do {
@@ -196,12 +324,91 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         previousState.cancel();
     }
 
+    public boolean canBeUpdated() {
+        return updater != null;
+    }
+
+    /**
+     * The modifications are applied to the value of the current state once
+     * it's known, so the ongoing calculations are not cancelled. The update is
+     * only submitted to the executor when that value is known, so it never
+     * waits for another calculation occupying one of its threads.
+     */
+    public void updateNeeded(final ExecutorService executorService,
+            List<EntityModification> modifications) {
+        if (!canBeUpdated() || !hasBeenInitialized()) {
+            reloadNeeded(executorService);
+            return;
+        }
+        State previousState;
+        State newState;
+        Calculation future;
+        do {
+            previousState = currentState.get();
+            future = new Calculation(
+                    callableDecoratedWithStatistics(applying(previousState,
+                            modifications)));
+            newState = previousState.nextState(future);
+        } while (!currentState.compareAndSet(previousState, newState));
+        final Calculation update = future;
+        previousState.whenKnown(new Runnable() {
+
+            @Override
+            public void run() {
+                executorService.execute(update);
+            }
+        });
+    }
+
+    /**
+     * If the previous value couldn't be calculated the modifications it was
+     * going to include are lost, so the value is calculated again from
+     * scratch
+     */
+    private Callable<T> applying(final State previousState,
+            final List<EntityModification> modifications) {
+        return new Callable<T>() {
+
+            @Override
+            public T call() throws Exception {
+                T previousValue = previousState.getKnownValue();
+                T result = null;
+                if (previousValue == null) {
+                    LOG.debug(name + " previous value not calculated."
+                            + " Calculating it again");
+                    return callable.call();
+                }
+                try {
+                    result = updater.update(previousValue, modifications);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    LOG.error(name + " error applying " + modifications.size()
+                            + " modifications. Calculating it again", e);
+                }
+                if (result == null) {
+                    LOG.debug(name + " modifications not applied."
+                            + " Calculating it again");
+                    return callable.call();
+                }
+                return result;
+            }
+        };
+    }
+
+    private Calculation launch(ExecutorService executorService,
+            Callable<T> callable) {
+        Calculation result = new Calculation(callable);
+        executorService.execute(result);
+        return result;
+    }
+
     public void ensureFirstLoad(ExecutorService executorService) {
         if (hasBeenInitialized()) {
             return;
         }
-        Future<T> future = executorService
-                .submit(callableDecoratedWithStatistics());
+        Calculation future = launch(executorService,
+                callableDecoratedWithStatistics());
         State previous = currentState.get();
         State newState = previous.nextState(future);
         boolean compareAndSet = currentState.compareAndSet(previous, newState);
@@ -220,6 +427,11 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
     }
 
     private Callable<T> callableDecoratedWithStatistics() {
+        return callableDecoratedWithStatistics(callable);
+    }
+
+    private Callable<T> callableDecoratedWithStatistics(
+            final Callable<T> callable) {
         final long requestTime = System.currentTimeMillis();
         return new Callable<T>() {
 
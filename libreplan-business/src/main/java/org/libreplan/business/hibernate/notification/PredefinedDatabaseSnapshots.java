@@ -22,10 +22,14 @@ package org.libreplan.business.hibernate.notification;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
@@ -39,10 +43,12 @@ import org.libreplan.business.calendars.entities.CalendarData;
 import org.libreplan.business.calendars.entities.CalendarException;
 import org.libreplan.business.common.AdHocTransactionService;
 import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.costcategories.daos.ICostCategoryDAO;
 import org.libreplan.business.costcategories.entities.CostCategory;
 import org.libreplan.business.externalcompanies.daos.IExternalCompanyDAO;
 import org.libreplan.business.externalcompanies.entities.ExternalCompany;
+import org.libreplan.business.hibernate.notification.EntityModification.Kind;
 import org.libreplan.business.labels.daos.ILabelDAO;
 import org.libreplan.business.labels.daos.ILabelTypeDAO;
 import org.libreplan.business.labels.entities.Label;
@@ -50,13 +56,15 @@ import org.libreplan.business.labels.entities.LabelType;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.planner.chart.ResourceLoadChartData;
+import org.libreplan.business.planner.chart.ResourceLoadChartData.IResourcesProvider;
 import org.libreplan.business.planner.daos.IDayAssignmentDAO;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
+import org.libreplan.business.planner.entities.CompactDayAssignments;
 import org.libreplan.business.planner.entities.DayAssignment;
-import org.libreplan.business.planner.entities.GenericResourceAllocation;
+import org.libreplan.business.planner.entities.DerivedDayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
 import org.libreplan.business.planner.entities.ICostCalculator;
-import org.libreplan.business.planner.entities.ResourceAllocation;
-import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
 import org.libreplan.business.planner.entities.TaskGroup;
@@ -204,11 +212,15 @@ public class PredefinedDatabaseSnapshots {
                 calculateCustomerReferences(), Order.class);
         ordersCodes = snapshot("order codes", calculateOrdersCodes(),
                 Order.class);
-        resourceLoadChartData = snapshot("resource load grouped by date",
-                calculateResourceLoadChartData(),
-                CalendarAvailability.class, CalendarException.class,
-                CalendarData.class, TaskElement.class, SpecificResourceAllocation.class,
-                GenericResourceAllocation.class, ResourceAllocation.class);
+        resourceLoadChartData = snapshotRefresherService.takeSnapshot(
+                "resource load grouped by date",
+                callableOnReadOnlyTransaction(calculateResourceLoadChartData()),
+                ReloadOn.onChangeOf(CalendarAvailability.class,
+                        CalendarException.class, CalendarData.class),
+                UpdateOn.onChangeOf(SpecificDayAssignment.class,
+                        GenericDayAssignment.class,
+                        DerivedDayAssignment.class),
+                updaterOnReadOnlyTransaction(updateResourceLoadChartData()));
         workReportLines = snapshot("work report lines", calculateWorkReportLines(),
                 WorkReportLine.class);
         estimatedCostPerTask = snapshot("estimated cost per task",
@@ -234,6 +246,13 @@ public class PredefinedDatabaseSnapshots {
                 Callable.class, callable);
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> ISnapshotUpdater<T> updaterOnReadOnlyTransaction(
+            ISnapshotUpdater<T> updater) {
+        return AdHocTransactionService.readOnlyProxy(transactionService,
+                ISnapshotUpdater.class, updater);
+    }
+
     @Autowired
     private ICriterionTypeDAO criterionTypeDAO;
 
@@ -403,8 +422,9 @@ public class PredefinedDatabaseSnapshots {
             @Override
             public ResourceLoadChartData call() {
 
-                List<DayAssignment> dayAssignments = dayAssignmentDAO.getAllFor(
-                        scenarioManager.getCurrent(), null, null);
+                CompactDayAssignments dayAssignments = dayAssignmentDAO
+                        .getCompactAllFor(scenarioManager.getCurrent(), null,
+                                null);
                 List<Resource> resources = resourceDAO.list(Resource.class);
                 return new ResourceLoadChartData(dayAssignments, resources);
 
@@ -412,6 +432,90 @@ public class PredefinedDatabaseSnapshots {
         };
     }
 
+    /**
+     * The load of the resources of the modified day assignments is retrieved
+     * again for the days between the first and the last modified day. The
+     * resource and the day of each assignment, before and after the
+     * modification, are taken from the values captured with the modification,
+     * since the assignment itself can't be accessed once the session is
+     * closed.
+     */
+    private ISnapshotUpdater<ResourceLoadChartData> updateResourceLoadChartData() {
+        return new ISnapshotUpdater<ResourceLoadChartData>() {
+
+            @Override
+            public ResourceLoadChartData update(
+                    ResourceLoadChartData previousValue,
+                    List<EntityModification> modifications) {
+                Set<Long> resourceIds = new HashSet<Long>();
+                List<LocalDate> days = new ArrayList<LocalDate>();
+                for (EntityModification each : modifications) {
+                    if (!addResourceAndDay(resourceIds, days,
+                            each.getValue(RESOURCE), each.getValue(DAY))) {
+                        return null;
+                    }
+                    if (each.getKind() != Kind.UPDATE) {
+                        continue;
+                    }
+                    if (!each.hasPreviousValues()
+                            || !addResourceAndDay(resourceIds, days,
+                                    each.getPreviousValue(RESOURCE),
+                                    each.getPreviousValue(DAY))) {
+                        return null;
+                    }
+                }
+                if (resourceIds.isEmpty()) {
+                    return previousValue;
+                }
+                LocalDate min = Collections.min(days);
+                LocalDate max = Collections.max(days);
+                CompactDayAssignments current = dayAssignmentDAO
+                        .getCompactAllFor(scenarioManager.getCurrent(),
+                                resourceIds, min, max);
+                return previousValue.withAssignmentsReplaced(resourceIds,
+                        min, max.plusDays(1), current, resourcesProvider());
+            }
+
+            private boolean addResourceAndDay(Set<Long> resourceIds,
+                    List<LocalDate> days, Object resourceId, Object day) {
+                if (!(resourceId instanceof Long)
+                        || !(day instanceof LocalDate)) {
+                    return false;
+                }
+                resourceIds.add((Long) resourceId);
+                days.add((LocalDate) day);
+                return true;
+            }
+        };
+    }
+
+    private static final String RESOURCE = "resource";
+
+    private static final String DAY = "day";
+
+    private IResourcesProvider resourcesProvider() {
+        return new IResourcesProvider() {
+
+            @Override
+            public List<Resource> getAllResources() {
+                return resourceDAO.list(Resource.class);
+            }
+
+            @Override
+            public List<Resource> getResources(Collection<Long> resourceIds) {
+                List<Resource> result = new ArrayList<Resource>();
+                for (Long each : resourceIds) {
+                    try {
+                        result.add(resourceDAO.find(each));
+                    } catch (InstanceNotFoundException e) {
+                        // its assignments are load without capacity
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
     @Autowired
     private IWorkReportLineDAO workReportLineDAO;
 
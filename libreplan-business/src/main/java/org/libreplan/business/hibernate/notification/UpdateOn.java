@@ -0,0 +1,52 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The classes whose modifications are applied to a snapshot by its
+ * {@link ISnapshotUpdater}
+ *
+ * @see ReloadOn
+ */
+public class UpdateOn {
+
+    public static UpdateOn onChangeOf(Class<?>... klasses) {
+        return onChangeOf(Arrays.asList(klasses));
+    }
+
+    public static UpdateOn onChangeOf(Collection<Class<?>> klasses) {
+        return new UpdateOn(klasses);
+    }
+
+    private final List<Class<?>> classes;
+
+    private UpdateOn(Collection<? extends Class<?>> classes) {
+        this.classes = new ArrayList<Class<?>>(classes);
+    }
+
+    public List<Class<?>> getClassesOnWhichToUpdate() {
+        return classes;
+    }
+}
@@ -107,6 +107,11 @@ public class Label extends IntegrationEntity implements Comparable<Label> {
         return Registry.getLabelDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getType();
+    }
+
     public void updateUnvalidated(String name) {
         if (!StringUtils.isBlank(name)) {
             this.name = name;
@@ -24,6 +24,7 @@ package org.libreplan.business.materials.daos;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Criteria;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
@@ -99,9 +100,8 @@ public class MaterialCategoryDAO extends IntegrationEntityDAO<MaterialCategory>
     }
 
     @Override
-    public List<MaterialCategory> findAll() {
+    protected Criteria createFindAllCriteria() {
         return getSession().createCriteria(MaterialCategory.class).add(
-                Restrictions.isNull("parent")).addOrder(Order.asc("code"))
-                .list();
+                Restrictions.isNull("parent")).addOrder(Order.asc("code"));
     }
 }
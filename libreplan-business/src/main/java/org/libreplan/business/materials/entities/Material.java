@@ -147,6 +147,11 @@ public class Material extends IntegrationEntity implements Comparable {
         return Registry.getMaterialDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getCategory();
+    }
+
     @Override
     public void setCodeAutogenerated(Boolean codeAutogenerated) {
         // do nothing
@@ -218,6 +218,11 @@ public class MaterialCategory extends IntegrationEntity {
         return Registry.getMaterialCategoryDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getParent();
+    }
+
     @SuppressWarnings("unused")
     @AssertTrue(message = "Subcategory names must be unique.")
     public boolean checkConstraintUniqueSubcategoryName() {
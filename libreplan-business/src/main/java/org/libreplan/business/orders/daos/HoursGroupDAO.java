@@ -21,10 +21,15 @@
 
 package org.libreplan.business.orders.daos;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
@@ -97,24 +102,44 @@ public class HoursGroupDAO extends IntegrationEntityDAO<HoursGroup>
     @Transactional(readOnly= true, propagation = Propagation.REQUIRES_NEW)
     public HoursGroup findRepeatedHoursGroupCodeInDB(List<HoursGroup> hoursGroupList) {
         final Map<String, HoursGroup> hoursGroups = createMapByCode(hoursGroupList);
-        final Map<String, HoursGroup> hoursGroupsInDB = createMapByCode(getAll());
 
-        for (String code : hoursGroups.keySet()) {
-            HoursGroup hoursGroup = hoursGroups.get(code);
-            HoursGroup hoursGroupInDB = hoursGroupsInDB.get(code);
+        for (Object[] each : findCodesAndIds(hoursGroups.keySet())) {
+            HoursGroup hoursGroup = hoursGroups.get(each[0]);
+            // With a case-insensitive collation the DB can return codes that
+            // only differ in case, they aren't repeated codes
+            if (hoursGroup == null) {
+                continue;
+            }
 
             // There's an element in the DB with the same code and it's a
             // different element
-            if (hoursGroupInDB != null
-                    && !hoursGroupInDB.getId().equals(hoursGroup.getId())) {
+            if (!each[1].equals(hoursGroup.getId())) {
                 return hoursGroup;
             }
         }
         return null;
     }
 
-    private List<HoursGroup> getAll() {
-        return list(HoursGroup.class);
+    /**
+     * Retrieves in a single query the code and the id of the
+     * {@link HoursGroup hours groups} in the DB with any of the codes
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> findCodesAndIds(Collection<String> codes) {
+        Set<String> notBlankCodes = new HashSet<String>();
+        for (String each : codes) {
+            if (!StringUtils.isBlank(each)) {
+                notBlankCodes.add(each);
+            }
+        }
+        if (notBlankCodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return getSession()
+                .createQuery(
+                        "SELECT hg.code, hg.id FROM HoursGroup hg "
+                                + "WHERE hg.code IN (:codes)")
+                .setParameterList("codes", notBlankCodes).list();
     }
 
     private Map<String, HoursGroup> createMapByCode(List<HoursGroup> hoursGroups) {
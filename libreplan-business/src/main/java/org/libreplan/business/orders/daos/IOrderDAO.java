@@ -104,6 +104,12 @@ public interface IOrderDAO extends IIntegrationEntityDAO<Order> {
 
     public Order loadOrderAvoidingProxyFor(OrderElement orderElement);
 
+    /**
+     * Retrieves the {@link Order} of each element with a number of queries
+     * that doesn't depend on the number of elements
+     *
+     * @see OrdersByElementMemo
+     */
     public List<Order> loadOrdersAvoidingProxyFor(
             List<OrderElement> orderElement);
 
@@ -22,14 +22,23 @@ package org.libreplan.business.orders.daos;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.SessionFactoryImplementor;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
@@ -75,6 +84,8 @@ import org.springframework.transaction.annotation.Transactional;
 public class OrderDAO extends IntegrationEntityDAO<Order> implements
         IOrderDAO {
 
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     @Autowired
     private ITaskSourceDAO taskSourceDAO;
 
@@ -157,10 +168,17 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
 
         List<OrderCostsPerResourceDTO> list = query.list();
 
+        OrdersByElementMemo ordersByElement = OrdersByElementMemo.create(this);
+        List<OrderElement> orderElements = new ArrayList<OrderElement>();
+        for (OrderCostsPerResourceDTO each : list) {
+            orderElements.add(each.getOrderElement());
+        }
+        ordersByElement.prefetch(orderElements);
+
         List<OrderCostsPerResourceDTO> filteredList = new ArrayList<OrderCostsPerResourceDTO>();
         for (OrderCostsPerResourceDTO each : list) {
 
-            Order order = loadOrderAvoidingProxyFor(each.getOrderElement());
+            Order order = ordersByElement.getOrderFor(each.getOrderElement());
 
             // Apply filtering
             if (matchFilterCriterion(each.getOrderElement(), criterions)
@@ -480,9 +498,14 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
     }
 
     @Override
-    public List<Order> findAll() {
+    protected String getCodeProperty() {
+        return "infoComponent.code";
+    }
+
+    @Override
+    protected Criteria createFindAllCriteria() {
         return getSession().createCriteria(getEntityClass()).addOrder(
-                org.hibernate.criterion.Order.asc("infoComponent.code")).list();
+                org.hibernate.criterion.Order.asc("infoComponent.code"));
     }
 
     @SuppressWarnings("unchecked")
@@ -628,51 +651,132 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
                 Collections.singletonList(orderElement)).get(0);
     }
 
+    /**
+     * The ids of the orders are retrieved on another transaction, so the
+     * parents of the elements are not loaded on the current session. The
+     * number of queries doesn't depend on the number of elements.
+     */
     @Override
     public List<Order> loadOrdersAvoidingProxyFor(
             final List<OrderElement> orderElements) {
-        List<OrderElement> orders = transactionService
-                .runOnAnotherTransaction(new IOnTransaction<List<OrderElement>>() {
-
-                    @Override
-                    public List<OrderElement> execute() {
-                        List<OrderElement> result = new ArrayList<OrderElement>();
-                        for (OrderElement each : orderElements) {
-                            if (each.isNewObject()) {
-                                result.add(each.getOrder());
-                            } else {
-                                result.add(orderFrom(each));
-                            }
-                        }
-                        return result;
-                    }
+        final Set<Long> ids = new HashSet<Long>();
+        for (OrderElement each : orderElements) {
+            if (!each.isNewObject()) {
+                ids.add(each.getId());
+            }
+        }
+        Map<Long, Long> orderIds = Collections.emptyMap();
+        if (!ids.isEmpty()) {
+            orderIds = transactionService
+                    .runOnAnotherTransaction(new IOnTransaction<Map<Long, Long>>() {
 
-                    private OrderElement orderFrom(OrderElement initial) {
-                        OrderElement current = initial;
-                        OrderElement result = current;
-                        while (current != null) {
-                            result = current;
-                            current = findParent(current);
+                        @Override
+                        public Map<Long, Long> execute() {
+                            return findOrderIdsFor(ids);
                         }
-                        return result;
-                    }
-
-                    private OrderElement findParent(OrderElement orderElement) {
-                        Query query = getSession()
-                                .createQuery(
-                                        "select e.parent from OrderElement e where e.id = :id")
-                                .setParameter("id", orderElement.getId());
-                        return (OrderElement) query.uniqueResult();
-                    }
-
-                });
+                    });
+        }
+        Map<Long, Order> ordersById = new HashMap<Long, Order>();
         List<Order> result = new ArrayList<Order>();
-        for (OrderElement each : orders) {
-            if (each != null) {
-                result.add(findExistingEntity(each.getId()));
-            } else {
+        for (OrderElement each : orderElements) {
+            Long orderId = each.isNewObject() ? idOf(each.getOrder())
+                    : orderIds.get(each.getId());
+            if (orderId == null) {
                 result.add(null);
+                continue;
+            }
+            if (!ordersById.containsKey(orderId)) {
+                ordersById.put(orderId, findExistingEntity(orderId));
             }
+            result.add(ordersById.get(orderId));
+        }
+        return result;
+    }
+
+    private static Long idOf(OrderElement orderElement) {
+        return orderElement != null ? orderElement.getId() : null;
+    }
+
+    /**
+     * @return the id of the root {@link Order} for each of the ids of
+     *         {@link OrderElement}. The ids not found are not included.
+     */
+    private Map<Long, Long> findOrderIdsFor(Collection<Long> orderElementIds) {
+        Map<Long, Long> result = new HashMap<Long, Long>();
+        List<Long> ids = new ArrayList<Long>(orderElementIds);
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = ids.subList(i,
+                    Math.min(ids.size(), i + MAX_IDS_PER_QUERY));
+            result.putAll(supportsRecursiveQueries() ? findOrderIdsRecursively(chunk)
+                    : findOrderIdsByLevels(chunk));
+        }
+        return result;
+    }
+
+    private boolean supportsRecursiveQueries() {
+        Dialect dialect = ((SessionFactoryImplementor) getSession()
+                .getSessionFactory()).getDialect();
+        return dialect instanceof PostgreSQLDialect;
+    }
+
+    /**
+     * Climbs all the trees at once with a recursive query
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Long> findOrderIdsRecursively(List<Long> ids) {
+        String queryString = "with recursive ancestor(element, id, parent) as ("
+                + "select e.id, e.id, e.parent from order_element e "
+                + "where e.id in (:ids) "
+                + "union all "
+                + "select a.element, p.id, p.parent from order_element p "
+                + "join ancestor a on p.id = a.parent) "
+                + "select element, id from ancestor where parent is null";
+        List<Object[]> rows = getSession().createSQLQuery(queryString)
+                .addScalar("element", Hibernate.LONG)
+                .addScalar("id", Hibernate.LONG)
+                .setParameterList("ids", ids, Hibernate.LONG).list();
+        Map<Long, Long> result = new HashMap<Long, Long>();
+        for (Object[] each : rows) {
+            result.put((Long) each[0], (Long) each[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Climbs all the trees at once one level for each query, for the
+     * databases not supporting recursive queries
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Long> findOrderIdsByLevels(List<Long> ids) {
+        Map<Long, Long> result = new HashMap<Long, Long>();
+        Map<Long, List<Long>> elementsByAncestor = new HashMap<Long, List<Long>>();
+        for (Long each : ids) {
+            elementsByAncestor.put(each,
+                    new ArrayList<Long>(Collections.singletonList(each)));
+        }
+        while (!elementsByAncestor.isEmpty()) {
+            List<Object[]> rows = getSession()
+                    .createQuery(
+                            "select e.id, e.parent.id from OrderElement e "
+                                    + "where e.id in (:ids)")
+                    .setParameterList("ids", elementsByAncestor.keySet())
+                    .list();
+            Map<Long, List<Long>> next = new HashMap<Long, List<Long>>();
+            for (Object[] each : rows) {
+                Long ancestor = (Long) each[0];
+                Long parent = (Long) each[1];
+                List<Long> elements = elementsByAncestor.get(ancestor);
+                if (parent == null) {
+                    for (Long element : elements) {
+                        result.put(element, ancestor);
+                    }
+                } else if (next.containsKey(parent)) {
+                    next.get(parent).addAll(elements);
+                } else {
+                    next.put(parent, elements);
+                }
+            }
+            elementsByAncestor = next;
         }
         return result;
     }
@@ -731,9 +835,16 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
 
         List<CostExpenseSheetDTO> list = query.list();
 
+        OrdersByElementMemo ordersByElement = OrdersByElementMemo.create(this);
+        List<OrderElement> orderElements = new ArrayList<OrderElement>();
+        for (CostExpenseSheetDTO each : list) {
+            orderElements.add(each.getOrderElement());
+        }
+        ordersByElement.prefetch(orderElements);
+
         List<CostExpenseSheetDTO> filteredList = new ArrayList<CostExpenseSheetDTO>();
         for (CostExpenseSheetDTO each : list) {
-            Order order = loadOrderAvoidingProxyFor(each.getOrderElement());
+            Order order = ordersByElement.getOrderFor(each.getOrderElement());
             // Apply filtering
             if (matchFilterCriterion(each.getOrderElement(), criterions)
                     && isOrderContained(order, orders)) {
@@ -25,6 +25,7 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -200,9 +201,14 @@ public class OrderElementDAO extends IntegrationEntityDAO<OrderElement>
     }
 
     @Override
-    public List<OrderElement> findAll() {
+    protected String getCodeProperty() {
+        return "infoComponent.code";
+    }
+
+    @Override
+    protected Criteria createFindAllCriteria() {
         return getSession().createCriteria(getEntityClass()).addOrder(
-                org.hibernate.criterion.Order.asc("infoComponent.code")).list();
+                org.hibernate.criterion.Order.asc("infoComponent.code"));
     }
 
     @SuppressWarnings("unchecked")
@@ -472,24 +478,50 @@ public class OrderElementDAO extends IntegrationEntityDAO<OrderElement>
     @Transactional(readOnly= true, propagation = Propagation.REQUIRES_NEW)
     public OrderElement findRepeatedOrderCodeInDB(OrderElement order) {
         final Map<String, OrderElement> orderElements = createMapByCode(getOrderAndAllChildren(order));
-        final Map<String, OrderElement> orderElementsInDB = createMapByCode(getAll());
 
-        for (String code : orderElements.keySet()) {
-            OrderElement orderElement = orderElements.get(code);
-            OrderElement orderElementInDB = orderElementsInDB.get(code);
+        for (Object[] each : findCodesAndIds(orderElements.keySet())) {
+            OrderElement orderElement = orderElements.get(each[0]);
+            Long idInDB = (Long) each[1];
+            // With a case-insensitive collation the DB can return codes that
+            // only differ in case, they aren't repeated codes
+            if (orderElement == null || idInDB.equals(orderElement.getId())) {
+                continue;
+            }
 
             // There's an element in the DB with the same code and it's a
-            // different element in a different order
-            if (orderElementInDB != null
-                    && !orderElementInDB.getId().equals(orderElement.getId())
-                    && !orderElementInDB.getOrder().getId()
-                            .equals(orderElement.getOrder().getId())) {
+            // different element. It's only loaded to check if it's in a
+            // different order
+            OrderElement orderElementInDB = (OrderElement) getSession().get(
+                    OrderElement.class, idInDB);
+            if (!areInTheSameOrder(orderElement, orderElementInDB)) {
                 return orderElement;
             }
         }
         return null;
     }
 
+    /**
+     * Retrieves in a single query the code and the id of the
+     * {@link OrderElement order elements} in the DB with any of the codes
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> findCodesAndIds(Collection<String> codes) {
+        Set<String> notBlankCodes = new HashSet<String>();
+        for (String each : codes) {
+            if (!StringUtils.isBlank(each)) {
+                notBlankCodes.add(each);
+            }
+        }
+        if (notBlankCodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return getSession()
+                .createQuery(
+                        "SELECT oe.infoComponent.code, oe.id FROM OrderElement oe "
+                                + "WHERE oe.infoComponent.code IN (:codes)")
+                .setParameterList("codes", notBlankCodes).list();
+    }
+
     private List<OrderElement> getOrderAndAllChildren(OrderElement order) {
         List<OrderElement> result = new ArrayList<OrderElement>();
         result.add(order);
@@ -0,0 +1,91 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.orders.daos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+
+/**
+ * <p>
+ * Remembers the {@link Order} of the {@link OrderElement order elements}
+ * already resolved with
+ * {@link IOrderDAO#loadOrdersAvoidingProxyFor(List)}, so they're not
+ * retrieved again.
+ * </p>
+ * <p>
+ * It's intended to be used during the processing of a request. The elements
+ * whose order is going to be needed should be {@link #prefetch(Collection)
+ * prefetched} together.
+ * </p>
+ */
+public class OrdersByElementMemo {
+
+    public static OrdersByElementMemo create(IOrderDAO orderDAO) {
+        return new OrdersByElementMemo(orderDAO);
+    }
+
+    private final IOrderDAO orderDAO;
+
+    private final Map<Long, Order> orderByElementId = new HashMap<Long, Order>();
+
+    private OrdersByElementMemo(IOrderDAO orderDAO) {
+        Validate.notNull(orderDAO);
+        this.orderDAO = orderDAO;
+    }
+
+    /**
+     * Retrieves at once the orders of the elements not resolved yet
+     */
+    public void prefetch(Collection<? extends OrderElement> orderElements) {
+        List<OrderElement> pending = new ArrayList<OrderElement>();
+        for (OrderElement each : orderElements) {
+            if (each != null && !each.isNewObject()
+                    && !orderByElementId.containsKey(each.getId())) {
+                pending.add(each);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Order> orders = orderDAO.loadOrdersAvoidingProxyFor(pending);
+        for (int i = 0; i < pending.size(); i++) {
+            orderByElementId.put(pending.get(i).getId(), orders.get(i));
+        }
+    }
+
+    public Order getOrderFor(OrderElement orderElement) {
+        if (orderElement.isNewObject()) {
+            return orderDAO.loadOrderAvoidingProxyFor(orderElement);
+        }
+        if (!orderByElementId.containsKey(orderElement.getId())) {
+            prefetch(Collections.singletonList(orderElement));
+        }
+        return orderByElementId.get(orderElement.getId());
+    }
+
+}
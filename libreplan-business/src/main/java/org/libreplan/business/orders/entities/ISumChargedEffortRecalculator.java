@@ -37,4 +37,30 @@ public interface ISumChargedEffortRecalculator {
      */
     void recalculate(Long orderId);
 
+    /**
+     * Returns the number of orders waiting to be recalculated or being
+     * recalculated.
+     */
+    int getPendingCount();
+
+    long getRequestsCount();
+
+    /**
+     * Returns the number of requests ignored because the order was already
+     * waiting to be recalculated.
+     */
+    long getCoalescedRequestsCount();
+
+    long getRecalculationsCount();
+
+    long getFailedRecalculationsCount();
+
+    /**
+     * Returns the average time since an order is requested to be recalculated
+     * till it's done.
+     */
+    long getAverageLatencyMillis();
+
+    long getMaxLatencyMillis();
+
 }
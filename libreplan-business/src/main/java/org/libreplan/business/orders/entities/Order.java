@@ -138,6 +138,11 @@ public class Order extends OrderLineGroup implements Comparable {
 
     private boolean neededToRecalculateSumExpenses = false;
 
+    /**
+     * This field is transient
+     */
+    private boolean codesCheckedInOtherOrders = false;
+
     public static class CurrentVersionInfo {
 
         private final OrderVersion orderVersion;
@@ -670,6 +675,22 @@ public class Order extends OrderLineGroup implements Comparable {
         return neededToRecalculateSumExpenses;
     }
 
+    /**
+     * Marks that the codes of all the order elements have already been checked
+     * against the other orders in the DB at once. Meanwhile
+     * {@link OrderElement#checkConstraintCodeRepeatedInAnotherOrder()} doesn't
+     * check them again one by one.
+     *
+     * @see org.libreplan.business.orders.daos.IOrderElementDAO#findRepeatedOrderCodeInDB(OrderElement)
+     */
+    public void setCodesCheckedInOtherOrders(boolean codesCheckedInOtherOrders) {
+        this.codesCheckedInOtherOrders = codesCheckedInOtherOrders;
+    }
+
+    public boolean isCodesCheckedInOtherOrders() {
+        return codesCheckedInOtherOrders;
+    }
+
     @Override
     public boolean isOrder() {
         return true;
@@ -1174,6 +1174,10 @@ public abstract class OrderElement extends IntegrationEntity implements
         if (StringUtils.isBlank(getCode())) {
             return true;
         }
+        Order order = getOrder();
+        if (order != null && order.isCodesCheckedInOtherOrders()) {
+            return true;
+        }
 
         return !Registry.getOrderElementDAO()
                 .existsByCodeInAnotherOrderAnotherTransaction(this);
@@ -1454,6 +1458,11 @@ public abstract class OrderElement extends IntegrationEntity implements
         return Registry.getOrderElementDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getParent();
+    }
+
     public void markAsDirtyLastAdvanceMeasurementForSpreading() {
         if (parent != null) {
             parent.markAsDirtyLastAdvanceMeasurementForSpreading();
@@ -26,11 +26,14 @@ import static org.libreplan.business.i18n.I18nHelper._;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -485,27 +488,134 @@ public class OrderLineGroup extends OrderElement implements
     }
 
     public BigDecimal getAdvancePercentageChildren(LocalDate date) {
-        Integer hours = getWorkHours();
+        if (date != null) {
+            return new AdvanceRollup(date).getPercentagesChildren(this)[0];
+        }
+        int[] childrenHours = new int[children.size()];
+        int hours = 0;
+        for (int i = 0; i < childrenHours.length; i++) {
+            childrenHours[i] = children.get(i).getWorkHours();
+            hours += childrenHours[i];
+        }
         BigDecimal result = new BigDecimal(0);
 
         if (hours > 0) {
-            for (OrderElement orderElement : children) {
-                BigDecimal childPercentage;
-                if (date == null) {
-                    childPercentage = orderElement.getAdvancePercentage();
+            for (int i = 0; i < childrenHours.length; i++) {
+                BigDecimal childPercentage = children.get(i)
+                        .getAdvancePercentage();
+                result = result.add(childPercentage.multiply(new BigDecimal(
+                        childrenHours[i])));
+            }
+            result = divideByHours(result, hours);
+        }
+
+        return result;
+    }
+
+    private static BigDecimal divideByHours(BigDecimal value, int hours) {
+        return value.divide(new BigDecimal(hours).setScale(2), 4,
+                RoundingMode.DOWN);
+    }
+
+    /**
+     * The progress of a subtree at some dates, calculated bottom-up in one
+     * traversal. The work hours of each element are summed once and the
+     * merged assignments of the indirect advances are calculated once per
+     * element, instead of once per date.
+     */
+    private static class AdvanceRollup {
+
+        private final LocalDate[] dates;
+
+        private final Map<OrderElement, Integer> workHours = new HashMap<OrderElement, Integer>();
+
+        AdvanceRollup(LocalDate... dates) {
+            this.dates = dates;
+        }
+
+        int getWorkHours(OrderElement element) {
+            Integer result = workHours.get(element);
+            if (result == null) {
+                List<OrderElement> children = element.getChildren();
+                if (children.isEmpty()) {
+                    result = element.getWorkHours();
                 } else {
-                    childPercentage = orderElement.getAdvancePercentage(date);
+                    result = 0;
+                    for (OrderElement each : children) {
+                        result += getWorkHours(each);
+                    }
                 }
-                Integer childHours = orderElement.getWorkHours();
-                result = result.add(childPercentage.multiply(new BigDecimal(
-                        childHours)));
+                workHours.put(element, result);
             }
-            result = result.divide(new BigDecimal(hours).setScale(2), 4,
-                    RoundingMode.DOWN);
+            return result;
+        }
+
+        /**
+         * @see OrderElement#getAdvancePercentage(LocalDate)
+         */
+        BigDecimal[] getPercentages(OrderElement element) {
+            for (DirectAdvanceAssignment each : element
+                    .getDirectAdvanceAssignments()) {
+                if (each.getReportGlobalAdvance()) {
+                    return getPercentages(each);
+                }
+            }
+            for (IndirectAdvanceAssignment each : element
+                    .getIndirectAdvanceAssignments()) {
+                if (each.getReportGlobalAdvance()) {
+                    if (isChildrenType(each)) {
+                        return getPercentagesChildren(element);
+                    }
+                    return getPercentages(element
+                            .calculateFakeDirectAdvanceAssignment(each));
+                }
+            }
+            return filled(BigDecimal.ZERO);
+        }
 
+        private BigDecimal[] getPercentages(DirectAdvanceAssignment assignment) {
+            BigDecimal[] result = new BigDecimal[dates.length];
+            for (int i = 0; i < dates.length; i++) {
+                result[i] = assignment.getAdvancePercentage(dates[i]);
+            }
+            return result;
         }
 
-        return result;
+        /**
+         * @see OrderLineGroup#getAdvancePercentageChildren(LocalDate)
+         */
+        BigDecimal[] getPercentagesChildren(OrderElement element) {
+            BigDecimal[] result = filled(new BigDecimal(0));
+            int hours = getWorkHours(element);
+            if (hours <= 0) {
+                return result;
+            }
+            for (OrderElement each : element.getChildren()) {
+                BigDecimal childHours = new BigDecimal(getWorkHours(each));
+                BigDecimal[] childPercentages = getPercentages(each);
+                for (int i = 0; i < dates.length; i++) {
+                    result[i] = result[i].add(childPercentages[i]
+                            .multiply(childHours));
+                }
+            }
+            for (int i = 0; i < dates.length; i++) {
+                result[i] = divideByHours(result[i], hours);
+            }
+            return result;
+        }
+
+        private BigDecimal[] filled(BigDecimal value) {
+            BigDecimal[] result = new BigDecimal[dates.length];
+            Arrays.fill(result, value);
+            return result;
+        }
+
+    }
+
+    private static boolean isChildrenType(
+            IndirectAdvanceAssignment indirectAdvanceAssignment) {
+        return indirectAdvanceAssignment.getAdvanceType().getUnitName()
+                .equals(PredefinedAdvancedTypes.CHILDREN.getTypeName());
     }
 
     @Override
@@ -545,13 +655,15 @@ public class OrderLineGroup extends OrderElement implements
         }
 
         List<LocalDate> measurementDates = getMeasurementDates(advanceMeasurements);
+        BigDecimal[] percentages = new AdvanceRollup(
+                measurementDates.toArray(new LocalDate[0]))
+                .getPercentagesChildren(this);
         SortedSet<AdvanceMeasurement> newAdvanceMeasurements = new TreeSet<AdvanceMeasurement>(
                 new AdvanceMeasurementComparator());
-        for (LocalDate localDate : measurementDates) {
-            BigDecimal value = getAdvancePercentageChildren(localDate)
-                    .multiply(new BigDecimal(100));
+        for (int i = 0; i < percentages.length; i++) {
+            BigDecimal value = percentages[i].multiply(new BigDecimal(100));
             AdvanceMeasurement advanceMeasurement = AdvanceMeasurement.create(
-                    localDate, value);
+                    measurementDates.get(i), value);
             advanceMeasurement.setAdvanceAssignment(newDirectAdvanceAssignment);
             newAdvanceMeasurements.add(advanceMeasurement);
         }
@@ -563,14 +675,12 @@ public class OrderLineGroup extends OrderElement implements
 
     private List<LocalDate> getMeasurementDates(
             List<AdvanceMeasurement> advanceMeasurements) {
-        List<LocalDate> result = new ArrayList<LocalDate>();
+        Set<LocalDate> dates = new HashSet<LocalDate>();
         for (AdvanceMeasurement advanceMeasurement : advanceMeasurements) {
-            LocalDate date = advanceMeasurement.getDate();
-            if (result.indexOf(date) < 0) {
-                result.add(date);
-            }
+            dates.add(advanceMeasurement.getDate());
         }
 
+        List<LocalDate> result = new ArrayList<LocalDate>(dates);
         Collections.sort(result);
 
         return result;
@@ -19,8 +19,13 @@
 
 package org.libreplan.business.orders.entities;
 
-import java.util.concurrent.ExecutorService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,9 +43,14 @@ import org.springframework.stereotype.Component;
  * This is needed to be called when some elements are moved in the {@link Order}
  * .<br />
  *
- * This class uses a thread, in order to call one by one all the requests
- * received. Moreover, if there's any concurrency issue (because of some reports
- * were saving in the meanwhile) the recalculation is repeated again (with
+ * The requests are coalesced per order: while an order is waiting to be
+ * recalculated the new requests for it are ignored, and the requests received
+ * while it's being recalculated cause just one more recalculation after the
+ * current one. Different orders are recalculated in parallel, but an order is
+ * never recalculated by two threads at the same time.<br />
+ *
+ * If there's any concurrency issue (because of some reports were saving in the
+ * meanwhile) the recalculation is scheduled again (with
  * <code>MAX_ATTEMPS_BECAUSE_CONCURRENCY</code> as maximum) till it's performed
  * without concurrency problems.
  *
@@ -64,60 +74,182 @@ public class SumChargedEffortRecalculator implements
      */
     protected static final int MAX_ATTEMPS_BECAUSE_CONCURRENCY = 100;
 
+    protected static final long MILLIS_BETWEEN_ATTEMPTS = 1000;
+
+    /**
+     * Number of orders recalculated at the same time. The recalculations
+     * mostly wait for the database, so it doesn't depend on the processors.
+     */
+    private static final int PARALLELISM = 4;
+
     @Autowired
     private ISumChargedEffortDAO sumChargedEffortDAO;
 
+    private final ScheduledExecutorService executor = Executors
+            .newScheduledThreadPool(PARALLELISM);
+
     /**
-     * Single thread executor in order to perform the recalculations one by one.
+     * Orders waiting to be recalculated with the time of the first request
+     * not served yet
      */
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<Long, Long> waiting = new HashMap<Long, Long>();
+
+    private final Set<Long> running = new HashSet<Long>();
+
+    /**
+     * Orders requested again while they were being recalculated
+     */
+    private final Map<Long, Long> requestedWhileRunning = new HashMap<Long, Long>();
+
+    private long requests = 0;
+
+    private long coalescedRequests = 0;
+
+    private long recalculations = 0;
+
+    private long failedRecalculations = 0;
+
+    private long totalLatencyMillis = 0;
+
+    private long maxLatencyMillis = 0;
 
     @Override
     public void recalculate(Long orderId) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            requests++;
+            if (waiting.containsKey(orderId)) {
+                coalescedRequests++;
+                return;
+            }
+            if (running.contains(orderId)) {
+                if (requestedWhileRunning.containsKey(orderId)) {
+                    coalescedRequests++;
+                } else {
+                    requestedWhileRunning.put(orderId, now);
+                }
+                return;
+            }
+            waiting.put(orderId, now);
+        }
         LOG.info("Mark order (id=" + orderId + ") to be recalculated");
-        executor.execute(getRecalculationThread(orderId));
+        executor.execute(getRecalculationThread(orderId, 0));
     }
 
-    private Runnable getRecalculationThread(final Long orderId) {
+    private Runnable getRecalculationThread(final Long orderId,
+            final int attempt) {
         return new Runnable() {
 
             @Override
             public void run() {
-                try {
-                    recalculateSumChargedEfforts(orderId);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-
-            private void recalculateSumChargedEfforts(Long orderId)
-                    throws InterruptedException {
-                recalculateSumChargedEfforts(orderId, 0);
-            }
-
-            private void recalculateSumChargedEfforts(Long orderId, int counter)
-                    throws InterruptedException {
-                if (counter > MAX_ATTEMPS_BECAUSE_CONCURRENCY) {
-                    LOG.error("Impossible to recalculate order (id=" + orderId
-                            + ") due to concurrency problems");
-                    return;
+                Long requestedAt;
+                synchronized (SumChargedEffortRecalculator.this) {
+                    requestedAt = waiting.remove(orderId);
+                    running.add(orderId);
                 }
-
                 try {
                     LOG.info("Recalculate order (id=" + orderId + ")");
-                    sumChargedEffortDAO.recalculateSumChargedEfforts(orderId);
+                    doRecalculation(orderId);
+                    finished(orderId, requestedAt, true);
                 } catch (OptimisticLockingFailureException e) {
-                    // Wait 1 second and try again
-                    LOG.info("Concurrency problem recalculating order (id="
-                            + orderId + ") trying again in 1 second (attempt "
-                            + counter + ")");
-                    Thread.sleep(1000);
-
-                    counter++;
-                    recalculateSumChargedEfforts(orderId, counter);
+                    retry(orderId, requestedAt, attempt);
+                } catch (RuntimeException e) {
+                    LOG.error("Error recalculating order (id=" + orderId
+                            + ")", e);
+                    finished(orderId, requestedAt, false);
                 }
             }
         };
     }
 
+    /**
+     * Recalculates the {@link SumChargedEffort} of the whole order
+     */
+    protected void doRecalculation(Long orderId) {
+        sumChargedEffortDAO.recalculateSumChargedEfforts(orderId);
+    }
+
+    private void retry(Long orderId, Long requestedAt, int attempt) {
+        int nextAttempt = attempt + 1;
+        if (nextAttempt > MAX_ATTEMPS_BECAUSE_CONCURRENCY) {
+            LOG.error("Impossible to recalculate order (id=" + orderId
+                    + ") due to concurrency problems");
+            finished(orderId, requestedAt, false);
+            return;
+        }
+        LOG.info("Concurrency problem recalculating order (id=" + orderId
+                + ") trying again in " + MILLIS_BETWEEN_ATTEMPTS
+                + " milliseconds (attempt " + attempt + ")");
+        synchronized (this) {
+            running.remove(orderId);
+            // the retry serves the requests received in the meanwhile too
+            requestedWhileRunning.remove(orderId);
+            waiting.put(orderId, requestedAt);
+        }
+        executor.schedule(getRecalculationThread(orderId, nextAttempt),
+                MILLIS_BETWEEN_ATTEMPTS, TimeUnit.MILLISECONDS);
+    }
+
+    private void finished(Long orderId, Long requestedAt, boolean successful) {
+        long latency = System.currentTimeMillis() - requestedAt;
+        Long requestedAgainAt;
+        synchronized (this) {
+            running.remove(orderId);
+            if (successful) {
+                recalculations++;
+                totalLatencyMillis += latency;
+                maxLatencyMillis = Math.max(maxLatencyMillis, latency);
+            } else {
+                failedRecalculations++;
+            }
+            requestedAgainAt = requestedWhileRunning.remove(orderId);
+            if (requestedAgainAt != null) {
+                waiting.put(orderId, requestedAgainAt);
+            }
+        }
+        if (successful) {
+            LOG.info("Order (id=" + orderId + ") recalculated in " + latency
+                    + " milliseconds since requested (" + getPendingCount()
+                    + " orders pending)");
+        }
+        if (requestedAgainAt != null) {
+            executor.execute(getRecalculationThread(orderId, 0));
+        }
+    }
+
+    @Override
+    public synchronized int getPendingCount() {
+        return waiting.size() + running.size();
+    }
+
+    @Override
+    public synchronized long getRequestsCount() {
+        return requests;
+    }
+
+    @Override
+    public synchronized long getCoalescedRequestsCount() {
+        return coalescedRequests;
+    }
+
+    @Override
+    public synchronized long getRecalculationsCount() {
+        return recalculations;
+    }
+
+    @Override
+    public synchronized long getFailedRecalculationsCount() {
+        return failedRecalculations;
+    }
+
+    @Override
+    public synchronized long getAverageLatencyMillis() {
+        return recalculations == 0 ? 0 : totalLatencyMillis / recalculations;
+    }
+
+    @Override
+    public synchronized long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
 }
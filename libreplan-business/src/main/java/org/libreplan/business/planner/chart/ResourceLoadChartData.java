@@ -24,9 +24,10 @@ package org.libreplan.business.planner.chart;
 import static org.libreplan.business.planner.chart.ContiguousDaysLine.compound;
 import static org.libreplan.business.planner.chart.ContiguousDaysLine.sum;
 import static org.libreplan.business.planner.chart.ContiguousDaysLine.toSortedMap;
-import static org.libreplan.business.workingday.EffortDuration.min;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,12 +35,16 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
 import org.libreplan.business.planner.chart.ContiguousDaysLine.IValueTransformer;
+import org.libreplan.business.planner.entities.CompactDayAssignments;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.DayNumbers;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
@@ -61,6 +66,12 @@ public class ResourceLoadChartData implements ILoadChartData {
 
     private SortedMap<LocalDate, EffortDuration> availability;
 
+    /**
+     * It's <code>null</code> if the data has not been calculated from
+     * {@link CompactDayAssignments}
+     */
+    private final LoadByResource loadByResource;
+
     public ResourceLoadChartData(List<DayAssignment> dayAssignments, List<Resource> resources) {
         this(dayAssignments, resources, null, null);
     }
@@ -68,6 +79,7 @@ public class ResourceLoadChartData implements ILoadChartData {
     public ResourceLoadChartData(List<DayAssignment> dayAssignments,
             List<Resource> resources, LocalDate startInclusive,
             LocalDate endExclusive) {
+        this.loadByResource = null;
 
         ContiguousDaysLine<List<DayAssignment>> assignments = ContiguousDaysLine
                 .byDay(dayAssignments);
@@ -77,11 +89,16 @@ public class ResourceLoadChartData implements ILoadChartData {
         ContiguousDaysLine<EffortDuration> load = assignments
                 .transform(extractLoad());
 
+        Map<Resource, DailyCapacities> capacities = capacitiesFor(resources,
+                assignments);
+
         ContiguousDaysLine<EffortDuration> overload = assignments
-                .transform(extractOverload());
+                .transform(compound(effortByResource(),
+                        calculateOverload(capacities)));
 
         ContiguousDaysLine<EffortDuration> availabilityOnAllResources = assignments
-                .transform(extractAvailabilityOnAllResources(resources));
+                .transform(extractAvailabilityOnAllResources(resources,
+                        capacities));
 
         this.load = toSortedMap(ContiguousDaysLine.min(load,
                 availabilityOnAllResources));
@@ -89,6 +106,389 @@ public class ResourceLoadChartData implements ILoadChartData {
         this.availability = toSortedMap(availabilityOnAllResources);
     }
 
+    /**
+     * Calculates the same values than
+     * {@link #ResourceLoadChartData(List, List)} directly from the columns of
+     * the assignments. The assignments of resources not included in
+     * <code>resources</code> are considered as load without capacity. The
+     * resulting data can be updated with
+     * {@link #withAssignmentsReplaced(Collection, LocalDate, LocalDate, CompactDayAssignments, IResourcesProvider)}
+     */
+    public ResourceLoadChartData(CompactDayAssignments dayAssignments,
+            List<Resource> resources) {
+        this(LoadByResource.calculate(dayAssignments, resources));
+    }
+
+    private ResourceLoadChartData(LoadByResource loadByResource) {
+        this.loadByResource = loadByResource;
+        this.load = new TreeMap<LocalDate, EffortDuration>();
+        this.overload = new TreeMap<LocalDate, EffortDuration>();
+        this.availability = new TreeMap<LocalDate, EffortDuration>();
+        for (int i = 0; i < loadByResource.size; i++) {
+            availability.put(loadByResource.start.plusDays(i),
+                    toEffort(loadByResource.availabilitySeconds[i]));
+        }
+        putLoadAndOverload(0, loadByResource.size);
+    }
+
+    private ResourceLoadChartData(ResourceLoadChartData previous,
+            LoadByResource loadByResource, int fromIndex, int toIndex) {
+        this.loadByResource = loadByResource;
+        this.load = new TreeMap<LocalDate, EffortDuration>(previous.load);
+        this.overload = new TreeMap<LocalDate, EffortDuration>(
+                previous.overload);
+        // the capacities don't change when the assignments are replaced, so
+        // the availability is shared and never modified
+        this.availability = previous.availability;
+        putLoadAndOverload(fromIndex, toIndex);
+    }
+
+    private void putLoadAndOverload(int fromIndex, int toIndex) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            LocalDate day = loadByResource.start.plusDays(i);
+            long available = loadByResource.availabilitySeconds[i];
+            load.put(day, toEffort(Math.min(
+                    loadByResource.loadSeconds[i], available)));
+            overload.put(day,
+                    toEffort(loadByResource.overloadSeconds[i] + available));
+        }
+    }
+
+    private static EffortDuration toEffort(long seconds) {
+        return EffortDuration.seconds((int) seconds);
+    }
+
+    /**
+     * Provides the resources whose capacities are needed for updating the
+     * data
+     */
+    public interface IResourcesProvider {
+
+        List<Resource> getAllResources();
+
+        List<Resource> getResources(Collection<Long> resourceIds);
+
+    }
+
+    /**
+     * <p>
+     * Creates new data replacing the assignments of some resources in an
+     * interval by <code>currentAssignments</code>. Only the values of the days
+     * of the interval are calculated again.
+     * </p>
+     * <p>
+     * If the interval goes beyond the days of this data, they're extended
+     * with the capacities of all the resources for the new days. The
+     * capacities of the resources unknown when this data was created are
+     * added too. The resources are retrieved from <code>resources</code>
+     * only in these cases.
+     * </p>
+     * <p>
+     * It can't be done if this data was not created from
+     * {@link CompactDayAssignments}.
+     * </p>
+     *
+     * @param currentAssignments
+     *            all the assignments of the resources in the interval
+     * @return the new data or <code>null</code> if it can't be done
+     */
+    public ResourceLoadChartData withAssignmentsReplaced(
+            Collection<Long> resourceIds, LocalDate startInclusive,
+            LocalDate endExclusive, CompactDayAssignments currentAssignments,
+            IResourcesProvider resourcesProvider) {
+        if (loadByResource == null || startInclusive.isAfter(endExclusive)) {
+            return null;
+        }
+        Set<Long> resources = new HashSet<Long>(resourceIds);
+        LoadByResource base = loadByResource;
+        if (!base.contains(startInclusive, endExclusive)) {
+            base = base.extendedTo(startInclusive, endExclusive,
+                    resourcesProvider.getAllResources());
+        }
+        Set<Long> unknown = base.withoutCapacities(resources);
+        if (!unknown.isEmpty()) {
+            base = base.withCapacitiesOf(resourcesProvider
+                    .getResources(unknown));
+        }
+        int fromIndex = base.indexOf(startInclusive);
+        int toIndex = base.indexOf(endExclusive);
+        LoadByResource updated = base.copy();
+        for (Long each : resources) {
+            updated.clear(each, fromIndex, toIndex);
+        }
+        for (int i = 0; i < currentAssignments.size(); i++) {
+            long resourceId = currentAssignments.getResourceId(i);
+            int index = base.indexOf(currentAssignments.getDay(i));
+            if (!resources.contains(resourceId) || index < fromIndex
+                    || index >= toIndex) {
+                return null;
+            }
+            updated.assigned(resourceId)[index] += currentAssignments
+                    .getSeconds(i);
+        }
+        for (Long each : resources) {
+            updated.addLoadOf(each, fromIndex, toIndex);
+        }
+        if (base != loadByResource) {
+            return new ResourceLoadChartData(updated);
+        }
+        return new ResourceLoadChartData(this, updated, fromIndex, toIndex);
+    }
+
+    /**
+     * The assigned seconds of each resource by day, so the load and the
+     * overload of some resources can be calculated again without the rest of
+     * assignments. The arrays are never modified once the chart data using
+     * them has been created.
+     */
+    private static class LoadByResource {
+
+        private static LoadByResource calculate(
+                CompactDayAssignments dayAssignments, List<Resource> resources) {
+            if (dayAssignments.isEmpty()) {
+                return new LoadByResource(new LocalDate(), 0);
+            }
+            LoadByResource result = new LoadByResource(
+                    dayAssignments.getFirstDay(),
+                    DayNumbers.toDayNumber(dayAssignments
+                            .getEndExclusive())
+                            - DayNumbers.toDayNumber(dayAssignments
+                                    .getFirstDay()));
+            for (Resource each : resources) {
+                if (each.getId() != null) {
+                    result.addCapacities(each, 0, result.size);
+                }
+            }
+            for (int i = 0; i < dayAssignments.size(); i++) {
+                result.assigned(dayAssignments.getResourceId(i))[dayAssignments
+                        .getDayNumber(i) - result.firstDayNumber] += dayAssignments
+                        .getSeconds(i);
+            }
+            for (Long each : result.assignedByResource.keySet()) {
+                result.addLoadOf(each, 0, result.size);
+            }
+            return result;
+        }
+
+        private final LocalDate start;
+
+        private final int firstDayNumber;
+
+        private final int size;
+
+        /**
+         * The standard seconds of capacity of each resource by day
+         */
+        private final Map<Long, int[]> capacities;
+
+        private final Map<Long, int[]> assignedByResource;
+
+        private final long[] availabilitySeconds;
+
+        private final long[] loadSeconds;
+
+        private final long[] overloadSeconds;
+
+        private LoadByResource(LocalDate start, int size) {
+            this.start = start;
+            this.firstDayNumber = DayNumbers.toDayNumber(start);
+            this.size = size;
+            this.capacities = new HashMap<Long, int[]>();
+            this.assignedByResource = new HashMap<Long, int[]>();
+            this.availabilitySeconds = new long[size];
+            this.loadSeconds = new long[size];
+            this.overloadSeconds = new long[size];
+        }
+
+        private LoadByResource(LoadByResource previous) {
+            this.start = previous.start;
+            this.firstDayNumber = previous.firstDayNumber;
+            this.size = previous.size;
+            this.capacities = previous.capacities;
+            this.assignedByResource = new HashMap<Long, int[]>(
+                    previous.assignedByResource);
+            this.availabilitySeconds = previous.availabilitySeconds;
+            this.loadSeconds = previous.loadSeconds.clone();
+            this.overloadSeconds = previous.overloadSeconds.clone();
+        }
+
+        private LoadByResource copy() {
+            return new LoadByResource(this);
+        }
+
+        private LocalDate getEndExclusive() {
+            return start.plusDays(size);
+        }
+
+        private int indexOf(LocalDate day) {
+            return DayNumbers.toDayNumber(day) - firstDayNumber;
+        }
+
+        private boolean contains(LocalDate startInclusive,
+                LocalDate endExclusive) {
+            return indexOf(startInclusive) >= 0
+                    && indexOf(endExclusive) <= size;
+        }
+
+        /**
+         * Creates a copy covering the days of this one and the interval. The
+         * values of the days already covered are kept and the capacities of
+         * <code>resources</code> are added for the new days. If there are no
+         * days yet, it only covers the interval.
+         */
+        private LoadByResource extendedTo(LocalDate startInclusive,
+                LocalDate endExclusive, List<Resource> resources) {
+            LocalDate newStart = size == 0
+                    || startInclusive.isBefore(start) ? startInclusive : start;
+            LocalDate newEnd = size == 0
+                    || endExclusive.isAfter(getEndExclusive()) ? endExclusive
+                    : getEndExclusive();
+            LoadByResource result = new LoadByResource(newStart,
+                    DayNumbers.toDayNumber(newEnd)
+                            - DayNumbers.toDayNumber(newStart));
+            int offset = firstDayNumber - result.firstDayNumber;
+            if (size > 0) {
+                System.arraycopy(availabilitySeconds, 0,
+                        result.availabilitySeconds, offset, size);
+                System.arraycopy(loadSeconds, 0, result.loadSeconds, offset,
+                        size);
+                System.arraycopy(overloadSeconds, 0, result.overloadSeconds,
+                        offset, size);
+                for (Entry<Long, int[]> each : assignedByResource.entrySet()) {
+                    result.assignedByResource.put(each.getKey(),
+                            shifted(each.getValue(), offset, result.size));
+                }
+                for (Entry<Long, int[]> each : capacities.entrySet()) {
+                    result.capacities.put(each.getKey(),
+                            shifted(each.getValue(), offset, result.size));
+                }
+            }
+            for (Resource each : resources) {
+                if (each.getId() == null) {
+                    continue;
+                }
+                if (size > 0 && result.capacities.containsKey(each.getId())) {
+                    result.addCapacities(each, 0, offset);
+                    result.addCapacities(each, offset + size, result.size);
+                } else {
+                    result.addCapacities(each, 0, result.size);
+                }
+            }
+            return result;
+        }
+
+        private static int[] shifted(int[] values, int offset, int size) {
+            int[] result = new int[size];
+            System.arraycopy(values, 0, result, offset, values.length);
+            return result;
+        }
+
+        /**
+         * @return the resources whose capacities are not known yet
+         */
+        private Set<Long> withoutCapacities(Collection<Long> resourceIds) {
+            Set<Long> result = new HashSet<Long>(resourceIds);
+            result.removeAll(capacities.keySet());
+            return result;
+        }
+
+        /**
+         * Creates a copy with the capacities of new resources. Their previous
+         * assignments were considered load without capacity, so their
+         * overload is calculated again.
+         */
+        private LoadByResource withCapacitiesOf(List<Resource> resources) {
+            LoadByResource result = new LoadByResource(start, size);
+            System.arraycopy(availabilitySeconds, 0,
+                    result.availabilitySeconds, 0, size);
+            System.arraycopy(loadSeconds, 0, result.loadSeconds, 0, size);
+            System.arraycopy(overloadSeconds, 0, result.overloadSeconds, 0,
+                    size);
+            result.assignedByResource.putAll(assignedByResource);
+            result.capacities.putAll(capacities);
+            for (Resource each : resources) {
+                Long resourceId = each.getId();
+                if (resourceId == null || capacities.containsKey(resourceId)) {
+                    continue;
+                }
+                result.addLoadOf(resourceId, 0, size, -1);
+                result.addCapacities(each, 0, size);
+                result.addLoadOf(resourceId, 0, size, 1);
+            }
+            return result;
+        }
+
+        /**
+         * Adds the capacities of the resource for the days between the
+         * indexes. The array of the resource is replaced by a copy, since it
+         * can be shared with other data.
+         */
+        private void addCapacities(Resource resource, int fromIndex,
+                int toIndex) {
+            if (fromIndex >= toIndex) {
+                return;
+            }
+            int[] previous = capacities.get(resource.getId());
+            int[] resourceCapacities = previous != null ? previous.clone()
+                    : new int[size];
+            DailyCapacities calculated = resource.getCalendarOrDefault()
+                    .getCapacitiesBetween(start.plusDays(fromIndex),
+                            start.plusDays(toIndex));
+            for (int i = fromIndex; i < toIndex; i++) {
+                int seconds = calculated.getStandardSeconds(i - fromIndex);
+                resourceCapacities[i] = seconds;
+                availabilitySeconds[i] += seconds;
+            }
+            capacities.put(resource.getId(), resourceCapacities);
+        }
+
+        private int[] assigned(long resourceId) {
+            int[] result = assignedByResource.get(resourceId);
+            if (result == null) {
+                result = new int[size];
+                assignedByResource.put(resourceId, result);
+            }
+            return result;
+        }
+
+        /**
+         * Removes the load of the resource in the interval. The array of the
+         * resource is replaced by a copy, since it can be shared with other
+         * data.
+         */
+        private void clear(Long resourceId, int fromIndex, int toIndex) {
+            int[] previous = assignedByResource.get(resourceId);
+            if (previous == null) {
+                return;
+            }
+            addLoadOf(resourceId, fromIndex, toIndex, -1);
+            int[] copy = previous.clone();
+            Arrays.fill(copy, fromIndex, toIndex, 0);
+            assignedByResource.put(resourceId, copy);
+        }
+
+        private void addLoadOf(Long resourceId, int fromIndex, int toIndex) {
+            addLoadOf(resourceId, fromIndex, toIndex, 1);
+        }
+
+        private void addLoadOf(Long resourceId, int fromIndex, int toIndex,
+                int sign) {
+            int[] assigned = assignedByResource.get(resourceId);
+            if (assigned == null) {
+                return;
+            }
+            int[] resourceCapacities = capacities.get(resourceId);
+            for (int i = fromIndex; i < toIndex; i++) {
+                int capacity = resourceCapacities != null ? resourceCapacities[i]
+                        : 0;
+                loadSeconds[i] += sign * assigned[i];
+                overloadSeconds[i] += sign
+                        * (assigned[i] - Math.min(capacity, assigned[i]));
+            }
+        }
+
+    }
+
     public static IValueTransformer<List<DayAssignment>, EffortDuration> extractOverload() {
         return compound(effortByResource(), calculateOverload());
     }
@@ -113,25 +513,39 @@ public class ResourceLoadChartData implements ILoadChartData {
     }
 
     public static IValueTransformer<Map<Resource, EffortDuration>, EffortDuration> calculateOverload() {
+        return calculateOverload(Collections
+                .<Resource, DailyCapacities> emptyMap());
+    }
+
+    private static IValueTransformer<Map<Resource, EffortDuration>, EffortDuration> calculateOverload(
+            final Map<Resource, DailyCapacities> capacities) {
         return new IValueTransformer<Map<Resource, EffortDuration>, EffortDuration>() {
 
             @Override
             public EffortDuration transform(LocalDate day,
                     Map<Resource, EffortDuration> previousValue) {
-
-                final PartialDay wholeDay = PartialDay.wholeDay(day);
-                return EffortDuration.sum(previousValue.entrySet(),
-                        new IEffortFrom<Entry<Resource, EffortDuration>>() {
-
-                            @Override
-                            public EffortDuration from(
-                                    Entry<Resource, EffortDuration> each) {
-                                EffortDuration capacity = calendarCapacityFor(
-                                        each.getKey(), wholeDay);
-                                EffortDuration assigned = each.getValue();
-                                return assigned.minus(min(capacity, assigned));
-                            }
-                        });
+                long overloadSeconds = 0;
+                PartialDay wholeDay = null;
+                for (Entry<Resource, EffortDuration> each : previousValue
+                        .entrySet()) {
+                    int assigned = each.getValue().getSeconds();
+                    DailyCapacities resourceCapacities = capacities.get(each
+                            .getKey());
+                    int capacity;
+                    if (resourceCapacities != null
+                            && resourceCapacities.contains(day)) {
+                        capacity = resourceCapacities
+                                .getStandardSeconds(resourceCapacities
+                                        .indexOf(day));
+                    } else {
+                        wholeDay = wholeDay != null ? wholeDay : PartialDay
+                                .wholeDay(day);
+                        capacity = calendarCapacityFor(each.getKey(), wholeDay)
+                                .getSeconds();
+                    }
+                    overloadSeconds += assigned - Math.min(capacity, assigned);
+                }
+                return EffortDuration.seconds((int) overloadSeconds);
             }
         };
     }
@@ -168,17 +582,53 @@ public class ResourceLoadChartData implements ILoadChartData {
     }
 
     private IValueTransformer<List<DayAssignment>, EffortDuration> extractAvailabilityOnAllResources(
-            final List<Resource> resources) {
+            final List<Resource> resources,
+            Map<Resource, DailyCapacities> capacities) {
+        if (capacities.isEmpty()) {
+            return new IValueTransformer<List<DayAssignment>, EffortDuration>() {
+
+                @Override
+                public EffortDuration transform(LocalDate day,
+                        List<DayAssignment> previousValue) {
+                    return sumCalendarCapacitiesForDay(resources, day);
+                }
+            };
+        }
+        final DailyCapacities any = capacities.values().iterator().next();
+        final long[] totals = new long[any.size()];
+        for (DailyCapacities each : capacities.values()) {
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += each.getStandardSeconds(i);
+            }
+        }
         return new IValueTransformer<List<DayAssignment>, EffortDuration>() {
 
             @Override
             public EffortDuration transform(LocalDate day,
                     List<DayAssignment> previousValue) {
-                return sumCalendarCapacitiesForDay(resources, day);
+                return EffortDuration.seconds((int) totals[any.indexOf(day)]);
             }
         };
     }
 
+    /**
+     * Retrieves the capacities of all the resources for the whole line at
+     * once, so they are not calculated day by day for each resource
+     */
+    private static Map<Resource, DailyCapacities> capacitiesFor(
+            List<Resource> resources,
+            ContiguousDaysLine<List<DayAssignment>> line) {
+        Map<Resource, DailyCapacities> result = new HashMap<Resource, DailyCapacities>();
+        if (line.isNotValid()) {
+            return result;
+        }
+        for (Resource each : resources) {
+            result.put(each, each.getCalendarOrDefault().getCapacitiesBetween(
+                    line.getStart(), line.getEndExclusive()));
+        }
+        return result;
+    }
+
     public SortedMap<LocalDate, EffortDuration> getLoad() {
         return load;
     }
@@ -28,15 +28,19 @@ import java.util.List;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Restrictions;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.GenericDAOHibernate;
+import org.libreplan.business.planner.entities.CompactDayAssignments;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.DerivedDayAssignment;
 import org.libreplan.business.planner.entities.GenericDayAssignment;
 import org.libreplan.business.planner.entities.SpecificDayAssignment;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Repository;
@@ -53,6 +57,8 @@ import org.springframework.stereotype.Repository;
 public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long>
         implements IDayAssignmentDAO {
 
+    private static final int COMPACT_FETCH_SIZE = 1000;
+
     @Override
     public void removeDerived(
             Collection<? extends DerivedDayAssignment> assignments) {
@@ -94,6 +100,64 @@ public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long>
         return result;
     }
 
+    @Override
+    public CompactDayAssignments getCompactAllFor(Scenario scenario,
+            LocalDate initInclusive, LocalDate endInclusive) {
+        return getCompactAllFor(scenario, null, initInclusive, endInclusive);
+    }
+
+    /**
+     * The assignments of each kind of container are retrieved with a
+     * projection and merged. The rows are read with a forward only cursor and
+     * no entity is loaded, so nothing is kept in the session.
+     */
+    @Override
+    public CompactDayAssignments getCompactAllFor(Scenario scenario,
+            Collection<Long> resourceIds, LocalDate initInclusive,
+            LocalDate endInclusive) {
+        CompactDayAssignments result = new CompactDayAssignments();
+        if (resourceIds != null && resourceIds.isEmpty()) {
+            return result;
+        }
+        addCompact(result, "SpecificDayAssignmentsContainer", scenario,
+                resourceIds, initInclusive, endInclusive);
+        addCompact(result, "GenericDayAssignmentsContainer", scenario,
+                resourceIds, initInclusive, endInclusive);
+        addCompact(result, "DerivedDayAssignmentsContainer", scenario,
+                resourceIds, initInclusive, endInclusive);
+        return result;
+    }
+
+    private void addCompact(CompactDayAssignments result,
+            String containerEntity, Scenario scenario,
+            Collection<Long> resourceIds, LocalDate initInclusive,
+            LocalDate endInclusive) {
+        String queryString = "select d.resource.id, d.day, d.duration from "
+                + containerEntity + " c "
+                + "JOIN c.dayAssignments d where c.scenario = :scenario"
+                + addQueryConditionForInitAndEndDate(initInclusive,
+                        endInclusive)
+                + (resourceIds != null ? " and d.resource.id in (:resources)"
+                        : "");
+        Query query = getSession().createQuery(queryString)
+                .setParameter("scenario", scenario)
+                .setFetchSize(COMPACT_FETCH_SIZE);
+        addInitAndEndParameters(query, initInclusive, endInclusive);
+        if (resourceIds != null) {
+            query.setParameterList("resources", resourceIds);
+        }
+        ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (rows.next()) {
+                EffortDuration duration = (EffortDuration) rows.get(2);
+                result.add((Long) rows.get(0), (LocalDate) rows.get(1),
+                        duration.getSeconds());
+            }
+        } finally {
+            rows.close();
+        }
+    }
+
     private List<DerivedDayAssignment> getDerived(Scenario scenario,
             LocalDate initInclusive, LocalDate endInclusive, Resource resource) {
         String queryString = "select d from DerivedDayAssignmentsContainer c "
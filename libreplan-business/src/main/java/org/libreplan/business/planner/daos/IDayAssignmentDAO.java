@@ -26,6 +26,7 @@ import java.util.List;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IGenericDAO;
+import org.libreplan.business.planner.entities.CompactDayAssignments;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.DerivedDayAssignment;
 import org.libreplan.business.resources.entities.Resource;
@@ -52,6 +53,27 @@ public interface IDayAssignmentDAO extends IGenericDAO<DayAssignment, Long> {
             LocalDate startDateInclusive, LocalDate endDateInclusive,
             Resource resource);
 
+    /**
+     * Like {@link #getAllFor(Scenario, LocalDate, LocalDate)} but retrieving
+     * only the data needed for aggregating the assigned effort with one query
+     * per kind of container and without loading the entities
+     *
+     * @param initInclusive
+     *            it can be <code>null</code>
+     * @param endInclusive
+     *            it can be <code>null</code>
+     */
+    public CompactDayAssignments getCompactAllFor(Scenario scenario,
+            LocalDate initInclusive, LocalDate endInclusive);
+
+    /**
+     * Like {@link #getCompactAllFor(Scenario, LocalDate, LocalDate)} but only
+     * for the resources with the specified ids
+     */
+    public CompactDayAssignments getCompactAllFor(Scenario scenario,
+            Collection<Long> resourceIds, LocalDate initInclusive,
+            LocalDate endInclusive);
+
     List<DayAssignment> listFilteredByDate(LocalDate init, LocalDate end);
 
     public List<DayAssignment> findByResources(Scenario scenario, List<Resource> resources);
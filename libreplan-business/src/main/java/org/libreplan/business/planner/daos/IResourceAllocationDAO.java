@@ -21,6 +21,7 @@
 
 package org.libreplan.business.planner.daos;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +60,20 @@ public interface IResourceAllocationDAO extends
             Resource resource,
             LocalDate intervalFilterStartDate, LocalDate intervalFilterEndDate);
 
+    /**
+     * It's equivalent to calling
+     * {@link #findAllocationsRelatedTo(Scenario, Resource, LocalDate, LocalDate)}
+     * for each resource, but the allocations are retrieved together with their
+     * tasks, order elements and assignment functions in a query for each type
+     * of allocation.
+     *
+     * @return the allocations related to each of the provided resources, in
+     *         the same order as the provided resources
+     */
+    Map<Resource, List<ResourceAllocation<?>>> findAllocationsRelatedTo(
+            Scenario onScenario, Collection<? extends Resource> resources,
+            LocalDate intervalFilterStartDate, LocalDate intervalFilterEndDate);
+
     Map<Criterion, List<GenericResourceAllocation>> findGenericAllocationsByCriterion(
             Scenario onScenario,
             Date intervalFilterStartDate, Date intervalFilterEndDate);
@@ -23,12 +23,16 @@ package org.libreplan.business.planner.daos;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
@@ -57,6 +61,13 @@ public class ResourceAllocationDAO extends
         GenericDAOHibernate<ResourceAllocation, Long> implements
         IResourceAllocationDAO {
 
+    /**
+     * Joins fetching the order element of a task aliased as <code>task</code>
+     */
+    private static final String FETCH_TASK_DATA = "left join fetch task.taskSource taskSource "
+            + "left join fetch taskSource.schedulingData taskSchedulingData "
+            + "left join fetch taskSchedulingData.orderElement ";
+
     @Override
     public List<ResourceAllocation<?>> findAllocationsRelatedToAnyOf(
             Scenario onScenario, List<Resource> resources) {
@@ -176,6 +187,132 @@ public class ResourceAllocationDAO extends
                 intervalFilterEndDate));
     }
 
+    @Override
+    public Map<Resource, List<ResourceAllocation<?>>> findAllocationsRelatedTo(
+            Scenario onScenario, Collection<? extends Resource> resources,
+            LocalDate intervalFilterStartDate, LocalDate intervalFilterEndDate) {
+        Map<Long, Set<ResourceAllocation<?>>> byResourceId = new HashMap<Long, Set<ResourceAllocation<?>>>();
+        List<Resource> withId = new ArrayList<Resource>();
+        for (Resource each : resources) {
+            if (each.getId() != null) {
+                withId.add(each);
+                byResourceId.put(each.getId(),
+                        new LinkedHashSet<ResourceAllocation<?>>());
+            }
+        }
+        if (!withId.isEmpty()) {
+            for (SpecificResourceAllocation each : findSpecificAllocationsFetchingData(
+                    onScenario, withId, intervalFilterStartDate,
+                    intervalFilterEndDate)) {
+                addTo(byResourceId, each.getResource().getId(), each);
+            }
+            for (Object[] each : findGenericAllocationsFetchingData(
+                    onScenario, withId, intervalFilterStartDate,
+                    intervalFilterEndDate)) {
+                addTo(byResourceId, (Long) each[1],
+                        (GenericResourceAllocation) each[0]);
+            }
+        }
+        Map<Resource, List<ResourceAllocation<?>>> result = new LinkedHashMap<Resource, List<ResourceAllocation<?>>>();
+        for (Resource each : resources) {
+            Set<ResourceAllocation<?>> found = byResourceId.get(each.getId());
+            result.put(each, found == null ? new ArrayList<ResourceAllocation<?>>()
+                    : stripAllocationsWithoutAssignations(new ArrayList<ResourceAllocation<?>>(
+                            found)));
+        }
+        return result;
+    }
+
+    private static void addTo(
+            Map<Long, Set<ResourceAllocation<?>>> byResourceId,
+            Long resourceId, ResourceAllocation<?> allocation) {
+        Set<ResourceAllocation<?>> allocations = byResourceId.get(resourceId);
+        if (allocations != null) {
+            allocations.add(allocation);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SpecificResourceAllocation> findSpecificAllocationsFetchingData(
+            final Scenario onScenario, final List<Resource> resources,
+            final LocalDate intervalFilterStartDate,
+            final LocalDate intervalFilterEndDate) {
+        QueryBuilder queryBuilder = new QueryBuilder() {
+
+            @Override
+            protected String getBaseQuery() {
+                return "select distinct specific from "
+                        + "SpecificResourceAllocation specific "
+                        + "join fetch specific.task task "
+                        + "left join fetch specific.assignmentFunction "
+                        + FETCH_TASK_DATA;
+            }
+
+            @Override
+            protected String getBaseConditions() {
+                return "where specific.resource in (:resources)";
+            }
+
+            @Override
+            protected void setBaseParameters(Query query) {
+                query.setParameterList("resources", resources);
+            }
+
+            @Override
+            protected IQueryPart[] getExtraParts() {
+                return new IQueryPart[] {
+                        new DatesInterval("task", intervalFilterStartDate,
+                                intervalFilterEndDate),
+                        new OnScenario("task", onScenario) };
+            }
+        };
+        return queryBuilder.build(getSession()).list();
+    }
+
+    /**
+     * @return pairs of {@link GenericResourceAllocation} and the id of a
+     *         resource with some day assignment on it
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> findGenericAllocationsFetchingData(
+            final Scenario onScenario, final List<Resource> resources,
+            final LocalDate intervalFilterStartDate,
+            final LocalDate intervalFilterEndDate) {
+        QueryBuilder queryBuilder = new QueryBuilder() {
+
+            @Override
+            protected String getBaseQuery() {
+                return "select distinct generic, dayAssignment.resource.id "
+                        + "from GenericResourceAllocation generic "
+                        + "join fetch generic.task task "
+                        + "left join fetch generic.assignmentFunction "
+                        + FETCH_TASK_DATA
+                        + "join generic.genericDayAssignmentsContainers container "
+                        + "join container.dayAssignments dayAssignment";
+            }
+
+            @Override
+            protected String getBaseConditions() {
+                return "where dayAssignment.resource in (:resources)";
+            }
+
+            @Override
+            protected void setBaseParameters(Query query) {
+                query.setParameterList("resources", resources);
+            }
+
+            @Override
+            protected IQueryPart[] getExtraParts() {
+                return new IQueryPart[] {
+                        new DatesInterval("task", intervalFilterStartDate,
+                                intervalFilterEndDate),
+                        new OnScenario("task", onScenario) };
+            }
+
+        };
+        return queryBuilder.build(getSession()).list();
+    }
+
     private <R extends ResourceAllocation<?>> List<R> stripAllocationsWithoutAssignations(
             List<R> allocations) {
         List<R> result = new ArrayList<R>();
@@ -0,0 +1,162 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.entities;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.workingday.DayNumbers;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * <p>
+ * The data of many {@link DayAssignment day assignments} stored by columns in
+ * primitive arrays: the id of the resource, the day and the assigned seconds.
+ * </p>
+ * <p>
+ * It's intended for the algorithms that only aggregate the assigned effort, so
+ * they don't need to load the {@link DayAssignment} entities.
+ * </p>
+ *
+ * @see org.libreplan.business.planner.daos.IDayAssignmentDAO#getCompactAllFor(org.libreplan.business.scenarios.entities.Scenario,
+ *      LocalDate, LocalDate)
+ */
+public class CompactDayAssignments {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    public static CompactDayAssignments from(
+            Collection<? extends DayAssignment> assignments) {
+        CompactDayAssignments result = new CompactDayAssignments(
+                assignments.size());
+        for (DayAssignment each : assignments) {
+            result.add(each.getResource().getId(), each.getDay(), each
+                    .getDuration().getSeconds());
+        }
+        return result;
+    }
+
+    private int size = 0;
+
+    private long[] resourceIds;
+
+    private int[] days;
+
+    private int[] seconds;
+
+    private int minDay = Integer.MAX_VALUE;
+
+    private int maxDay = Integer.MIN_VALUE;
+
+    public CompactDayAssignments() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private CompactDayAssignments(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        resourceIds = new long[capacity];
+        days = new int[capacity];
+        seconds = new int[capacity];
+    }
+
+    public void add(Long resourceId, LocalDate day, int assignedSeconds) {
+        Validate.notNull(resourceId);
+        Validate.notNull(day);
+        Validate.isTrue(assignedSeconds >= 0, "seconds cannot be negative");
+        ensureCapacity(size + 1);
+        int dayNumber = DayNumbers.toDayNumber(day);
+        resourceIds[size] = resourceId;
+        days[size] = dayNumber;
+        seconds[size] = assignedSeconds;
+        minDay = Math.min(minDay, dayNumber);
+        maxDay = Math.max(maxDay, dayNumber);
+        size++;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= days.length) {
+            return;
+        }
+        int newCapacity = Math.max(required, days.length * 2);
+        resourceIds = Arrays.copyOf(resourceIds, newCapacity);
+        days = Arrays.copyOf(days, newCapacity);
+        seconds = Arrays.copyOf(seconds, newCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getResourceId(int index) {
+        checkIndex(index);
+        return resourceIds[index];
+    }
+
+    /**
+     * @return the number of days elapsed from 1970-01-01
+     */
+    public int getDayNumber(int index) {
+        checkIndex(index);
+        return days[index];
+    }
+
+    public LocalDate getDay(int index) {
+        return DayNumbers.fromDayNumber(getDayNumber(index));
+    }
+
+    public int getSeconds(int index) {
+        checkIndex(index);
+        return seconds[index];
+    }
+
+    public EffortDuration getDuration(int index) {
+        return EffortDuration.seconds(getSeconds(index));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: "
+                    + size);
+        }
+    }
+
+    /**
+     * @return the first day with some assignment or <code>null</code> if it's
+     *         empty
+     */
+    public LocalDate getFirstDay() {
+        return isEmpty() ? null : DayNumbers.fromDayNumber(minDay);
+    }
+
+    /**
+     * @return the day after the last day with some assignment or
+     *         <code>null</code> if it's empty
+     */
+    public LocalDate getEndExclusive() {
+        return isEmpty() ? null : DayNumbers.fromDayNumber(maxDay + 1);
+    }
+
+}
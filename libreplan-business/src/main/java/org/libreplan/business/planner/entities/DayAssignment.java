@@ -21,8 +21,6 @@
 
 package org.libreplan.business.planner.entities;
 
-import static org.libreplan.business.workingday.EffortDuration.zero;
-
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -45,6 +43,7 @@ import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.util.deepcopy.AfterCopy;
 import org.libreplan.business.util.deepcopy.OnCopy;
 import org.libreplan.business.util.deepcopy.Strategy;
+import org.libreplan.business.workingday.EffortAccumulator;
 import org.libreplan.business.workingday.EffortDuration;
 
 public abstract class DayAssignment extends BaseEntity {
@@ -128,11 +127,11 @@ public abstract class DayAssignment extends BaseEntity {
 
     public static EffortDuration sum(
             Collection<? extends DayAssignment> assignments) {
-        EffortDuration result = zero();
+        EffortAccumulator result = new EffortAccumulator();
         for (DayAssignment each : assignments) {
-            result = result.plus(each.getDuration());
+            result.add(each.getDuration());
         }
-        return result;
+        return result.toEffortDuration();
     }
 
     public static <T extends DayAssignment> Map<Resource, List<T>> byResourceAndOrdered(
@@ -26,24 +26,21 @@ import static org.libreplan.business.workingday.EffortDuration.seconds;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
-import org.apache.commons.collections.ComparatorUtils;
 import org.apache.commons.lang.Validate;
 import org.joda.time.LocalDate;
 import org.libreplan.business.calendars.entities.Capacity;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.calendars.entities.ICalendar;
 import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.calendars.entities.SameWorkHoursEveryDay;
 import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortForResource;
 import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.DayNumbers;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.libreplan.business.workingday.ResourcesPerDay;
@@ -109,15 +106,6 @@ public class EffortDistributor {
             return result;
         }
 
-        static List<Resource> resources(
-                Collection<? extends ResourceWithAssignedDuration> collection) {
-            List<Resource> result = new ArrayList<Resource>();
-            for (ResourceWithAssignedDuration each : collection) {
-                result.add(each.resource);
-            }
-            return result;
-        }
-
         static Map<Resource, ResourceWithAssignedDuration> byResource(
                 Collection<? extends ResourceWithAssignedDuration> durations) {
             Map<Resource, ResourceWithAssignedDuration> result = new HashMap<Resource, ResourceWithAssignedDuration>();
@@ -220,29 +208,10 @@ public class EffortDistributor {
             this.calendar = generateCalendarFor(resource);
         }
 
-        ResourceWithAvailableCapacity withAvailableCapacityOn(PartialDay day,
-                IAssignedEffortForResource assignedEffort) {
-            EffortDuration allCapacityForDay = calendar
-                    .getCapacityOn(PartialDay.wholeDay(day.getDate()));
-            EffortDuration capacity = calendar.getCapacityOn(day);
-
-            EffortDuration capacityForAlreadyAssigned = allCapacityForDay
-                    .minus(capacity);
-
-            EffortDuration assigned = assignedEffort.getAssignedDurationAt(
-                    resource, day.getDate());
-            EffortDuration assignedInterfering = assigned.minus(min(assigned,
-                    capacityForAlreadyAssigned));
-
-            EffortDuration available = capacity.minus(min(assignedInterfering,
-                    capacity));
-            return new ResourceWithAvailableCapacity(resource, available);
-        }
-
         Capacity getAvailableCapacityOn(PartialDay day,
+                Capacity capacityWithOvertime,
                 IAssignedEffortForResource assignedEffort) {
-            Capacity originalCapacity = day.limitCapacity(calendar
-                    .getCapacityWithOvertime(day.getDate()));
+            Capacity originalCapacity = day.limitCapacity(capacityWithOvertime);
             EffortDuration alreadyAssigned = assignedEffort
                     .getAssignedDurationAt(resource, day.getDate());
             return originalCapacity.minus(alreadyAssigned);
@@ -251,66 +220,121 @@ public class EffortDistributor {
     }
 
     /**
-     * Note: this class has a natural ordering that is inconsistent with equals.
+     * The days are precalculated in blocks of this size, so the selectability
+     * of a resource along a block fits in a <code>long</code>.
      */
-    private static class ResourceWithAvailableCapacity implements
-            Comparable<ResourceWithAvailableCapacity> {
+    private static final int DAYS_PER_BLOCK = 64;
 
-        private final Resource resource;
+    private static final int POSITION_BITS = 24;
 
-        private final EffortDuration available;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
 
-        public ResourceWithAvailableCapacity(Resource resource,
-                EffortDuration available) {
-            Validate.notNull(resource);
-            Validate.notNull(available);
-            this.resource = resource;
-            this.available = available;
-        }
+    private static final long PICKED_FLAG = 1L << 62;
 
-        public ResourceWithAssignedDuration doBiggestAssignationPossible(
-                EffortDuration remaining) {
-            return new ResourceWithAssignedDuration(EffortDuration.min(
-                    remaining, available), resource);
+    /**
+     * The selectability and the capacities of all the resources for
+     * {@link #DAYS_PER_BLOCK} consecutive days. The capacities are retrieved
+     * at once from each calendar and the selectability of a day is calculated
+     * for all resources the first time the day is asked for, so distributing
+     * a day doesn't need to ask the calendars again.
+     */
+    private class DaysBlock {
+
+        private final int startDayNumber;
+
+        private final DailyCapacities[] capacities;
+
+        private final long[] selectable;
+
+        private long daysCalculated = 0;
+
+        DaysBlock(LocalDate start) {
+            this.startDayNumber = DayNumbers.toDayNumber(start);
+            this.capacities = new DailyCapacities[resources.size()];
+            this.selectable = new long[resources.size()];
+            LocalDate end = start.plusDays(DAYS_PER_BLOCK);
+            for (int i = 0; i < capacities.length; i++) {
+                capacities[i] = resources.get(i).calendar.getCapacitiesBetween(
+                        start, end);
+            }
         }
 
-        @Override
-        public int compareTo(ResourceWithAvailableCapacity o) {
-            return available.compareTo(o.available);
+        boolean contains(LocalDate date) {
+            int day = dayIndex(date);
+            return day >= 0 && day < DAYS_PER_BLOCK;
         }
 
-        @SuppressWarnings("unchecked")
-        static Comparator<ResourceWithAvailableCapacity> getComparatorConsidering(
-                final Set<Resource> lastResourcesUsed) {
-            return ComparatorUtils.chainedComparator(
-                    new Comparator<ResourceWithAvailableCapacity>() {
+        private int dayIndex(LocalDate date) {
+            return DayNumbers.toDayNumber(date) - startDayNumber;
+        }
 
-                        @Override
-                        public int compare(ResourceWithAvailableCapacity o1,
-                                ResourceWithAvailableCapacity o2) {
-                            boolean resource1Used = lastResourcesUsed
-                                    .contains(o1.resource);
-                            boolean resource2Used = lastResourcesUsed
-                                    .contains(o2.resource);
-                            return asInt(resource1Used) - asInt(resource2Used);
-                        }
+        /**
+         * Stores in <code>positions</code> the positions of the resources that
+         * can be selected at the given date
+         *
+         * @return the number of positions stored
+         */
+        int selectableAt(LocalDate date, int[] positions) {
+            long dayMask = 1L << dayIndex(date);
+            if ((daysCalculated & dayMask) == 0) {
+                for (int i = 0; i < selectable.length; i++) {
+                    if (resourceSelector.isSelectable(resources.get(i).resource,
+                            date)) {
+                        selectable[i] |= dayMask;
+                    }
+                }
+                daysCalculated |= dayMask;
+            }
+            int result = 0;
+            for (int i = 0; i < selectable.length; i++) {
+                if ((selectable[i] & dayMask) != 0) {
+                    positions[result++] = i;
+                }
+            }
+            return result;
+        }
 
-                        int asInt(boolean b) {
-                            return b ? 1 : 0;
-                        }
+        int getStandardSeconds(int position, LocalDate date) {
+            return capacities[position].getStandardSeconds(dayIndex(date));
+        }
 
-                    }, ComparatorUtils.naturalComparator());
+        Capacity getCapacityWithOvertime(int position, LocalDate date) {
+            return capacities[position].getCapacity(dayIndex(date));
         }
 
     }
 
+    private static LocalDate blockStartFor(LocalDate date) {
+        int offset = DayNumbers.toDayNumber(date) % DAYS_PER_BLOCK;
+        if (offset < 0) {
+            offset += DAYS_PER_BLOCK;
+        }
+        return date.minusDays(offset);
+    }
+
     private final List<ResourceWithDerivedData> resources;
 
     private final IAssignedEffortForResource assignedEffortForResource;
 
     private final IResourceSelector resourceSelector;
 
-    private Set<Resource> resourcesAlreadyPicked = new HashSet<Resource>();
+    /**
+     * For each position, the first position with the same resource. The
+     * resources already picked are tracked using these positions.
+     */
+    private final int[] samePositions;
+
+    private final boolean[] alreadyPicked;
+
+    private final int[] assignablePositions;
+
+    private final int[] availableSeconds;
+
+    private final long[] sortKeys;
+
+    private final Map<Resource, Integer> positionsByResource = new HashMap<Resource, Integer>();
+
+    private DaysBlock currentBlock;
 
     public EffortDistributor(List<Resource> resources,
             IAssignedEffortForResource assignedHoursForResource) {
@@ -320,16 +344,43 @@ public class EffortDistributor {
     public EffortDistributor(List<Resource> resources,
             IAssignedEffortForResource assignedEffortForResource,
             IResourceSelector selector) {
+        Validate.isTrue(resources.size() <= POSITION_MASK,
+                "too many resources");
         this.resources = ResourceWithDerivedData.from(resources);
         this.assignedEffortForResource = assignedEffortForResource;
         this.resourceSelector = selector != null ? new CompoundSelector(
                 new OnlyCanWork(), selector) : new OnlyCanWork();
+        int size = resources.size();
+        this.samePositions = new int[size];
+        this.alreadyPicked = new boolean[size];
+        this.assignablePositions = new int[size];
+        this.availableSeconds = new int[size];
+        this.sortKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            Resource resource = resources.get(i);
+            if (!positionsByResource.containsKey(resource)) {
+                positionsByResource.put(resource, i);
+            }
+            samePositions[i] = positionsByResource.get(resource);
+        }
+    }
+
+    private DaysBlock blockFor(LocalDate date) {
+        if (currentBlock == null || !currentBlock.contains(date)) {
+            currentBlock = new DaysBlock(blockStartFor(date));
+        }
+        return currentBlock;
     }
 
     public Capacity getCapacityAt(PartialDay day) {
+        LocalDate date = day.getDate();
+        DaysBlock block = blockFor(date);
+        int assignableCount = block.selectableAt(date, assignablePositions);
         List<Capacity> capacities = new ArrayList<Capacity>();
-        for (ResourceWithDerivedData each : resourcesAssignableAt(day.getDate())) {
-            capacities.add(each.getAvailableCapacityOn(day,
+        for (int i = 0; i < assignableCount; i++) {
+            int position = assignablePositions[i];
+            capacities.add(resources.get(position).getAvailableCapacityOn(day,
+                    block.getCapacityWithOvertime(position, date),
                     assignedEffortForResource));
         }
         return Capacity.sum(capacities);
@@ -344,17 +395,19 @@ public class EffortDistributor {
 
     private List<ResourceWithAssignedDuration> withCaptureOfResourcesPicked(
             List<ResourceWithAssignedDuration> result) {
-        resourcesAlreadyPicked.addAll(ResourceWithAssignedDuration
-                .resources(result));
+        for (ResourceWithAssignedDuration each : result) {
+            alreadyPicked[positionsByResource.get(each.resource)] = true;
+        }
         return result;
     }
 
     private List<ResourceWithAssignedDuration> distributeForDay_(
             PartialDay day, EffortDuration totalDuration) {
-        List<ResourceWithDerivedData> resourcesAssignable = resourcesAssignableAt(day
-                .getDate());
+        LocalDate date = day.getDate();
+        DaysBlock block = blockFor(date);
+        int assignableCount = block.selectableAt(date, assignablePositions);
         List<ResourceWithAssignedDuration> withoutOvertime = assignAllPossibleWithoutOvertime(
-                day, totalDuration, resourcesAssignable);
+                day, totalDuration, block, assignableCount);
         EffortDuration remaining = totalDuration
                 .minus(ResourceWithAssignedDuration
                         .sumDurations(withoutOvertime));
@@ -362,56 +415,80 @@ public class EffortDistributor {
             return withoutOvertime;
         }
         List<ResourceWithAssignedDuration> withOvertime = distributeInOvertimeForDayRemainingEffort(
-                day.getDate(), remaining,
+                date, remaining,
                 ResourceWithAssignedDuration.sumAssignedEffort(withoutOvertime,
                         assignedEffortForResource),
-                resourcesAssignable);
+                resourcesAt(assignablePositions, assignableCount));
         return ResourceWithAssignedDuration
                 .join(withoutOvertime, withOvertime);
     }
 
-    private List<ResourceWithDerivedData> resourcesAssignableAt(LocalDate day) {
+    private List<ResourceWithDerivedData> resourcesAt(int[] positions,
+            int count) {
         List<ResourceWithDerivedData> result = new ArrayList<ResourceWithDerivedData>();
-        for (ResourceWithDerivedData each : resources) {
-            if (resourceSelector.isSelectable(each.resource, day)) {
-                result.add(each);
-            }
+        for (int i = 0; i < count; i++) {
+            result.add(resources.get(positions[i]));
         }
         return result;
     }
 
+    /**
+     * The resources are used from the ones already picked in previous days to
+     * the ones not picked, and then from more available capacity to less.
+     */
     private List<ResourceWithAssignedDuration> assignAllPossibleWithoutOvertime(
-            PartialDay day, EffortDuration totalDuration,
-            List<ResourceWithDerivedData> resourcesAssignable) {
-
-        List<ResourceWithAvailableCapacity> fromMoreToLessCapacity = resourcesFromMoreDesirableToLess(
-                resourcesAssignable, day);
-        EffortDuration remaining = totalDuration;
+            PartialDay day, EffortDuration totalDuration, DaysBlock block,
+            int assignableCount) {
+        sortFromMoreDesirableToLess(day, block, assignableCount);
+        int remaining = totalDuration.getSeconds();
         List<ResourceWithAssignedDuration> result = new ArrayList<ResourceWithAssignedDuration>();
-        for (ResourceWithAvailableCapacity each : fromMoreToLessCapacity) {
-            if (!each.available.isZero()) {
-                ResourceWithAssignedDuration r = each
-                        .doBiggestAssignationPossible(remaining);
-                remaining = remaining.minus(r.duration);
-                if (!r.duration.isZero()) {
-                    result.add(r);
-                }
+        for (int i = 0; i < assignableCount && remaining > 0; i++) {
+            int position = assignablePositions[i];
+            int assigned = Math.min(remaining, availableSeconds[position]);
+            if (assigned > 0) {
+                remaining -= assigned;
+                result.add(new ResourceWithAssignedDuration(seconds(assigned),
+                        resources.get(position).resource));
             }
         }
         return result;
     }
 
-    private List<ResourceWithAvailableCapacity> resourcesFromMoreDesirableToLess(
-            List<ResourceWithDerivedData> resourcesAssignable, PartialDay day) {
-        List<ResourceWithAvailableCapacity> result = new ArrayList<ResourceWithAvailableCapacity>();
-        for (ResourceWithDerivedData each : resourcesAssignable) {
-            result.add(each.withAvailableCapacityOn(day,
-                    assignedEffortForResource));
+    /**
+     * Sorts the first <code>count</code> {@link #assignablePositions} and
+     * stores the available seconds for each one in {@link #availableSeconds}.
+     * The ties keep the order of the resources.
+     */
+    private void sortFromMoreDesirableToLess(PartialDay day, DaysBlock block,
+            int count) {
+        LocalDate date = day.getDate();
+        for (int i = 0; i < count; i++) {
+            int position = assignablePositions[i];
+            int available = availableSecondsOn(day, position,
+                    block.getStandardSeconds(position, date));
+            availableSeconds[position] = available;
+            long picked = alreadyPicked[samePositions[position]] ? PICKED_FLAG
+                    : 0;
+            sortKeys[i] = picked | ((long) available << POSITION_BITS)
+                    | (POSITION_MASK - position);
+        }
+        Arrays.sort(sortKeys, 0, count);
+        for (int i = 0; i < count; i++) {
+            long key = sortKeys[count - 1 - i];
+            assignablePositions[i] = (int) (POSITION_MASK - (key & POSITION_MASK));
         }
-        Collections.sort(result, Collections
-                .reverseOrder(ResourceWithAvailableCapacity
-                        .getComparatorConsidering(resourcesAlreadyPicked)));
-        return result;
+    }
+
+    private int availableSecondsOn(PartialDay day, int position,
+            int allCapacityForDay) {
+        int capacity = day.isWholeDay() ? allCapacityForDay : day
+                .limitWorkingDay(seconds(allCapacityForDay)).getSeconds();
+        int capacityForAlreadyAssigned = allCapacityForDay - capacity;
+        int assigned = assignedEffortForResource.getAssignedDurationAt(
+                resources.get(position).resource, day.getDate()).getSeconds();
+        int assignedInterfering = assigned
+                - Math.min(assigned, capacityForAlreadyAssigned);
+        return capacity - Math.min(assignedInterfering, capacity);
     }
 
     private List<ResourceWithAssignedDuration> distributeInOvertimeForDayRemainingEffort(
@@ -193,10 +193,14 @@ public class GenericResourceAllocation extends
     private final class ResourcesSatisfyingCriterionsSelector implements
             IResourceSelector {
 
+        private ICriterion compoundCriterion;
+
         @Override
         public boolean isSelectable(Resource resource, LocalDate day) {
-            ICriterion compoundCriterion = CriterionCompounder.buildAnd(
-                    criterions).getResult();
+            if (compoundCriterion == null) {
+                compoundCriterion = CriterionCompounder.buildAnd(criterions)
+                        .getResult();
+            }
             return compoundCriterion.isSatisfiedBy(resource, day);
         }
     }
@@ -21,14 +21,19 @@ package org.libreplan.business.planner.entities;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.joda.time.LocalDate;
 import org.libreplan.business.costcategories.daos.IHourCostDAO;
+import org.libreplan.business.costcategories.entities.PriceCostTable;
 import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
-import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
@@ -107,22 +112,53 @@ public class MoneyCostCalculator implements IMoneyCostCalculator {
 
     @Override
     public BigDecimal getHoursMoneyCost(OrderElement orderElement) {
+        BigDecimal cached = getCachedCostOfHours(orderElement);
+        if (cached != null) {
+            return cached;
+        }
+        List<Long> notCalculatedIds = new ArrayList<Long>();
+        collectNotCalculatedIds(orderElement, notCalculatedIds);
+        return calculateHoursMoneyCost(orderElement,
+                getMoneyCostFromOwnWorkReportLines(notCalculatedIds));
+    }
+
+    private BigDecimal getCachedCostOfHours(OrderElement orderElement) {
         MoneyCost moneyCost = moneyCostTotalMap.get(orderElement);
-        if (moneyCost != null) {
-            BigDecimal result = moneyCost.getCostOfHours();
-            if (result != null) {
-                return result;
-            }
+        return moneyCost != null ? moneyCost.getCostOfHours() : null;
+    }
+
+    private void collectNotCalculatedIds(OrderElement orderElement,
+            List<Long> result) {
+        if (getCachedCostOfHours(orderElement) != null) {
+            return;
+        }
+        if (orderElement.getId() != null) {
+            result.add(orderElement.getId());
+        }
+        for (OrderElement each : orderElement.getChildren()) {
+            collectNotCalculatedIds(each, result);
+        }
+    }
+
+    private BigDecimal calculateHoursMoneyCost(OrderElement orderElement,
+            Map<Long, BigDecimal> ownCosts) {
+        BigDecimal cached = getCachedCostOfHours(orderElement);
+        if (cached != null) {
+            return cached;
         }
 
         BigDecimal result = BigDecimal.ZERO.setScale(2);
         for (OrderElement each : orderElement.getChildren()) {
-            result = result.add(getHoursMoneyCost(each));
+            result = result.add(calculateHoursMoneyCost(each, ownCosts));
         }
 
-        result = result.add(getMoneyCostFromOwnWorkReportLines(orderElement))
-                .setScale(2, RoundingMode.HALF_UP);
+        BigDecimal ownCost = ownCosts.get(orderElement.getId());
+        if (ownCost != null) {
+            result = result.add(ownCost);
+        }
+        result = result.setScale(2, RoundingMode.HALF_UP);
 
+        MoneyCost moneyCost = moneyCostTotalMap.get(orderElement);
         if (moneyCost == null) {
             moneyCost = new MoneyCost();
         }
@@ -131,29 +167,47 @@ public class MoneyCostCalculator implements IMoneyCostCalculator {
         return result;
     }
 
-    private BigDecimal getMoneyCostFromOwnWorkReportLines(OrderElement orderElement) {
-        List<WorkReportLine> workReportLines = workReportLineDAO
-                .findByOrderElement(orderElement);
-
-        BigDecimal result = BigDecimal.ZERO.setScale(2);
-        for (WorkReportLine workReportLine : workReportLines) {
-            BigDecimal priceCost = hourCostDAO
-                    .getPriceCostFromResourceDateAndType(
-                            workReportLine.getResource(),
-                            workReportLine.getLocalDate(),
-                            workReportLine.getTypeOfWorkHours());
+    /**
+     * The work report lines of all the order elements are retrieved at once
+     * and priced with the {@link PriceCostTable}, instead of querying the
+     * price of each line. The table is loaded again on each call, so changes
+     * in the hour costs or cost categories are taken into account.
+     *
+     * @return the cost of the work report lines of each order element by its
+     *         id. The order elements without lines are not included
+     */
+    private Map<Long, BigDecimal> getMoneyCostFromOwnWorkReportLines(
+            Collection<Long> orderElementIds) {
+        Map<Long, BigDecimal> result = new HashMap<Long, BigDecimal>();
+        List<Object[]> rows = workReportLineDAO
+                .getLinesForMoneyCost(orderElementIds);
+        if (rows.isEmpty()) {
+            return result;
+        }
+
+        PriceCostTable priceCosts = hourCostDAO.getPriceCostTable();
+        for (Object[] each : rows) {
+            Long orderElementId = (Long) each[0];
+            Date date = (Date) each[4];
+            BigDecimal priceCost = date == null ? null : priceCosts
+                    .getPriceCost((Long) each[1], (Long) each[2],
+                            LocalDate.fromDateFields(date));
 
             // If cost undefined via CostCategory get it from type
             if (priceCost == null) {
-                priceCost = workReportLine.getTypeOfWorkHours()
-                        .getDefaultPrice();
+                priceCost = (BigDecimal) each[3];
             }
 
-            BigDecimal cost = priceCost.multiply(workReportLine.getEffort()
-                    .toHoursAsDecimalWithScale(2));
-            result = result.add(cost);
-        }
+            EffortDuration effort = (EffortDuration) each[5];
+            long numberOfLines = ((Number) each[6]).longValue();
+            BigDecimal cost = priceCost.multiply(
+                    effort.toHoursAsDecimalWithScale(2)).multiply(
+                    BigDecimal.valueOf(numberOfLines));
 
+            BigDecimal previous = result.get(orderElementId);
+            result.put(orderElementId, previous == null ? cost : previous
+                    .add(cost));
+        }
         return result;
     }
 
@@ -22,7 +22,6 @@
 package org.libreplan.business.planner.entities;
 
 import static java.util.Arrays.asList;
-import static org.libreplan.business.workingday.EffortDuration.zero;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -31,8 +30,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -58,6 +60,7 @@ import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.util.TaskElementVisitor;
 import org.libreplan.business.util.deepcopy.OnCopy;
 import org.libreplan.business.util.deepcopy.Strategy;
+import org.libreplan.business.workingday.EffortAccumulator;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.business.workingday.ResourcesPerDay;
@@ -566,21 +569,28 @@ public abstract class TaskElement extends BaseEntity {
     public abstract Set<ResourceAllocation<?>> getAllResourceAllocations();
 
     public SortedMap<LocalDate, EffortDuration> getDurationsAssignedByDay() {
-        SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
+        Map<LocalDate, EffortAccumulator> byDay = new HashMap<LocalDate, EffortAccumulator>();
         for (ResourceAllocation<?> resourceAllocation : getSatisfiedResourceAllocations()) {
             for (DayAssignment each : resourceAllocation
                     .getAssignments()) {
-                addToResult(result, each.getDay(), each.getDuration());
+                accumulatorFor(byDay, each.getDay()).add(each.getDuration());
             }
         }
+        SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
+        for (Entry<LocalDate, EffortAccumulator> each : byDay.entrySet()) {
+            result.put(each.getKey(), each.getValue().toEffortDuration());
+        }
         return result;
     }
 
-    private void addToResult(SortedMap<LocalDate, EffortDuration> result,
-            LocalDate date, EffortDuration duration) {
-        EffortDuration current = result.get(date) != null ? result.get(date)
-                : zero();
-        result.put(date, current.plus(duration));
+    private static EffortAccumulator accumulatorFor(
+            Map<LocalDate, EffortAccumulator> byDay, LocalDate date) {
+        EffortAccumulator result = byDay.get(date);
+        if (result == null) {
+            result = new EffortAccumulator();
+            byDay.put(date, result);
+        }
+        return result;
     }
 
     public List<DayAssignment> getDayAssignments(DayAssignment.FilterType filter) {
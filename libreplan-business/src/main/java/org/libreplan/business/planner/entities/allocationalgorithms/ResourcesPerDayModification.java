@@ -298,6 +298,13 @@ public abstract class ResourcesPerDayModification extends
                 return effortDistributor.distributeForDay(distributeOn,
                         effortLimited);
             }
+
+            @Override
+            public List<? extends DayAssignment> createAssignmentsAtWholeDay(
+                    LocalDate day, EffortDuration effort) {
+                return effortDistributor.distributeForDay(
+                        PartialDay.wholeDay(day), effort);
+            }
         };
     }
 
@@ -33,6 +33,7 @@ import java.util.Map.Entry;
 
 import org.apache.commons.lang.Validate;
 import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.calendars.entities.ICalendar;
 import org.libreplan.business.calendars.entities.ThereAreHoursOnWorkHoursCalculator.CapacityResult;
 import org.libreplan.business.common.ProportionalDistributor;
@@ -48,6 +49,10 @@ import org.libreplan.business.workingday.ResourcesPerDay;
 
 public abstract class UntilFillingHoursAllocator {
 
+    private static final int MIN_DAYS_PER_CHUNK = 32;
+
+    private static final int MAX_DAYS_PER_CHUNK = 512;
+
     private final Direction direction;
 
     private final Task task;
@@ -113,6 +118,13 @@ public abstract class UntilFillingHoursAllocator {
 
         List<? extends DayAssignment> createAssignmentsAtDay(PartialDay day,
                 EffortDuration limit, ResourcesPerDay resourcesPerDay);
+
+        /**
+         * Creates the assignments for a whole day with an effort that has
+         * already been calculated, so the calendar is not asked again.
+         */
+        List<? extends DayAssignment> createAssignmentsAtWholeDay(
+                LocalDate day, EffortDuration effort);
     }
 
     /**
@@ -131,6 +143,17 @@ public abstract class UntilFillingHoursAllocator {
         IAssignmentsCreator assignmentsCreator = resourcesPerDayModification
                 .createAssignmentsCreator();
         while (effortRemaining.compareTo(zero()) > 0) {
+            if (canAllocateWholeDaysAtOnce(resourcesPerDayModification,
+                    current)) {
+                Pair<LocalDate, EffortDuration> last = assignForWholeDays(
+                        resourcesPerDayModification, assignmentsCreator,
+                        firstWholeDay(current), effortRemaining);
+                taken = last.getSecond();
+                biggestLastAssignment = last.getSecond();
+                effortRemaining = zero();
+                current = atWholeDay(last.getFirst());
+                break;
+            }
             PartialDay day = calculateDay(current);
             Pair<EffortDuration, EffortDuration> pair = assignForDay(
                     resourcesPerDayModification, assignmentsCreator, day,
@@ -152,6 +175,139 @@ public abstract class UntilFillingHoursAllocator {
         return finish;
     }
 
+    /**
+     * The effort of a specific allocation at each day only depends on its
+     * calendar, so once the allocation reaches the start of a day the effort
+     * of the following whole days can be calculated in advance.
+     */
+    private boolean canAllocateWholeDaysAtOnce(
+            ResourcesPerDayModification resourcesPerDayModification,
+            IntraDayDate current) {
+        return resourcesPerDayModification.isSpecific()
+                && current.isStartOfDay();
+    }
+
+    private LocalDate firstWholeDay(IntraDayDate current) {
+        return isForwardScheduling() ? current.getDate() : current.getDate()
+                .minusDays(1);
+    }
+
+    /**
+     * @return the {@link IntraDayDate} that {@link #calculateDay(IntraDayDate)}
+     *         converts to the whole day provided
+     */
+    private IntraDayDate atWholeDay(LocalDate day) {
+        return IntraDayDate.startOfDay(isForwardScheduling() ? day : day
+                .plusDays(1));
+    }
+
+    private LocalDate dayAt(LocalDate first, int position) {
+        return isForwardScheduling() ? first.plusDays(position) : first
+                .minusDays(position);
+    }
+
+    /**
+     * Assigns the whole days from <code>firstDay</code>, in the direction of
+     * the allocation, until <code>effortRemaining</code> is consumed. The
+     * effort of each day is calculated for chunks of days, only asking the
+     * calendar about the days with some standard capacity, and the last day is
+     * found with a binary search over the accumulated effort of the chunk.
+     *
+     * @return the last day with some assignment and the effort assigned to it
+     */
+    private Pair<LocalDate, EffortDuration> assignForWholeDays(
+            ResourcesPerDayModification resourcesPerDayModification,
+            IAssignmentsCreator assignmentsCreator, LocalDate firstDay,
+            EffortDuration effortRemaining) {
+        List<DayAssignment> assignments = resultAssignments
+                .get(resourcesPerDayModification);
+        long remaining = effortRemaining.getSeconds();
+        LocalDate chunkFirstDay = firstDay;
+        int chunkSize = MIN_DAYS_PER_CHUNK;
+        while (true) {
+            int[] effortPerDay = effortPerWholeDay(resourcesPerDayModification,
+                    chunkFirstDay, chunkSize);
+            long[] accumulated = accumulate(effortPerDay);
+            int last = firstReaching(accumulated, remaining);
+            if (last < 0) {
+                addAssignments(assignments, assignmentsCreator, chunkFirstDay,
+                        effortPerDay, chunkSize);
+                remaining -= accumulated[chunkSize - 1];
+                chunkFirstDay = dayAt(chunkFirstDay, chunkSize);
+                chunkSize = Math.min(2 * chunkSize, MAX_DAYS_PER_CHUNK);
+                continue;
+            }
+            long previous = last > 0 ? accumulated[last - 1] : 0;
+            effortPerDay[last] = (int) (remaining - previous);
+            addAssignments(assignments, assignmentsCreator, chunkFirstDay,
+                    effortPerDay, last + 1);
+            return Pair.create(dayAt(chunkFirstDay, last),
+                    EffortDuration.seconds(effortPerDay[last]));
+        }
+    }
+
+    private int[] effortPerWholeDay(
+            ResourcesPerDayModification resourcesPerDayModification,
+            LocalDate firstDay, int size) {
+        LocalDate start = isForwardScheduling() ? firstDay : firstDay
+                .minusDays(size - 1);
+        DailyCapacities capacities = resourcesPerDayModification
+                .getBeingModified().getAllocationCalendar()
+                .getCapacitiesBetween(start, start.plusDays(size));
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            LocalDate day = dayAt(firstDay, i);
+            // a day without standard effort can't give any duration
+            if (capacities.getStandardSeconds(capacities.indexOf(day)) > 0) {
+                result[i] = resourcesPerDayModification.durationAtDay(
+                        PartialDay.wholeDay(day)).getSeconds();
+            }
+        }
+        return result;
+    }
+
+    private static long[] accumulate(int[] values) {
+        long[] result = new long[values.length];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            result[i] = sum;
+        }
+        return result;
+    }
+
+    /**
+     * @return the first position of <code>accumulated</code> that reaches
+     *         <code>value</code> or a negative number if none does
+     */
+    private static int firstReaching(long[] accumulated, long value) {
+        if (accumulated.length == 0
+                || accumulated[accumulated.length - 1] < value) {
+            return -1;
+        }
+        int low = 0;
+        int high = accumulated.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (accumulated[middle] >= value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void addAssignments(List<DayAssignment> assignments,
+            IAssignmentsCreator assignmentsCreator, LocalDate firstDay,
+            int[] effortPerDay, int days) {
+        for (int i = 0; i < days; i++) {
+            assignments.addAll(assignmentsCreator.createAssignmentsAtWholeDay(
+                    dayAt(firstDay, i),
+                    EffortDuration.seconds(effortPerDay[i])));
+        }
+    }
+
     private IntraDayDate adjustFinish(
             ResourcesPerDayModification resourcesPerDayModification,
             EffortDuration allocatedLastDay,
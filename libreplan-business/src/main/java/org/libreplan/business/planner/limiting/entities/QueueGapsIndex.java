@@ -0,0 +1,338 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.limiting.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.resources.entities.Resource;
+
+/**
+ * <p>
+ * Index over the gaps between the elements of a
+ * {@link org.libreplan.business.resources.entities.LimitingResourceQueue}. It
+ * keeps the elements in an array sorted by start time, so the position of a
+ * time is found with a binary search, and remembers the {@link Gap} between
+ * each pair of consecutive elements once its hours have been calculated.
+ * </p>
+ * <p>
+ * The hours of the gaps are summarized in a tree storing the maximum of each
+ * range of positions. The gaps without enough hours for an element are
+ * skipped without visiting them and without asking the calendar again. A gap
+ * whose hours have not been calculated yet is considered big enough until it's
+ * visited.
+ * </p>
+ * <p>
+ * It also keeps the gaps delimited by the activation periods of the calendar
+ * between each pair of consecutive elements, so the gaps of the queue can be
+ * provided again without recalculating them all.
+ * </p>
+ * <p>
+ * When an element is added or removed only the gaps next to it are
+ * forgotten.
+ * </p>
+ */
+public class QueueGapsIndex {
+
+    private static final Comparator<LimitingResourceQueueElement> BY_START_TIME = LimitingResourceQueueElement
+            .byStartTimeComparator();
+
+    public static QueueGapsIndex create(Resource resource,
+            Collection<? extends LimitingResourceQueueElement> sortedElements) {
+        Validate.notNull(resource);
+        return new QueueGapsIndex(resource, sortedElements);
+    }
+
+    private final Resource resource;
+
+    private final List<LimitingResourceQueueElement> elements;
+
+    /**
+     * The gap before the element at the same position. The first one is
+     * always <code>null</code> since it depends on the time the search starts
+     */
+    private final List<Gap> gapsBefore;
+
+    /**
+     * The gaps inside the activation periods before the element at the same
+     * position. The last position holds the gap after the last element
+     */
+    private final List<List<Gap>> activeGapsBefore;
+
+    /**
+     * Maximum hours of each range of positions, from 0 to {@link #size()}
+     * both included. The leaves start at {@link #leaves}
+     */
+    private int[] maxHours;
+
+    private int leaves;
+
+    private boolean treeOutdated = true;
+
+    private QueueGapsIndex(Resource resource,
+            Collection<? extends LimitingResourceQueueElement> sortedElements) {
+        this.resource = resource;
+        this.elements = new ArrayList<LimitingResourceQueueElement>(
+                sortedElements);
+        this.gapsBefore = new ArrayList<Gap>(Collections.<Gap> nCopies(
+                elements.size(), null));
+        this.activeGapsBefore = new ArrayList<List<Gap>>(Collections
+                .<List<Gap>> nCopies(elements.size() + 1, null));
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    public void elementAdded(LimitingResourceQueueElement element) {
+        int position = Collections.binarySearch(elements, element,
+                BY_START_TIME);
+        position = position < 0 ? -(position + 1) : position;
+        elements.add(position, element);
+        gapsBefore.add(position, null);
+        activeGapsBefore.add(position, null);
+        forgetGapBefore(position + 1);
+        treeOutdated = true;
+    }
+
+    public void elementRemoved(LimitingResourceQueueElement element) {
+        int position = positionOf(element);
+        if (position < 0) {
+            return;
+        }
+        elements.remove(position);
+        gapsBefore.remove(position);
+        activeGapsBefore.remove(position);
+        forgetGapBefore(position);
+        treeOutdated = true;
+    }
+
+    private int positionOf(LimitingResourceQueueElement element) {
+        int position = Collections.binarySearch(elements, element,
+                BY_START_TIME);
+        if (position >= 0 && elements.get(position) == element) {
+            return position;
+        }
+        for (int i = 0; i < elements.size(); i++) {
+            if (elements.get(i) == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void forgetGapBefore(int position) {
+        if (position < gapsBefore.size()) {
+            gapsBefore.set(position, null);
+        }
+        activeGapsBefore.set(position, null);
+    }
+
+    /**
+     * @return the gaps of the queue inside the activation periods of the
+     *         calendar ordered by start time. The last one is the gap after
+     *         the last element
+     */
+    public List<Gap> getGapsInActivationPeriods() {
+        List<Gap> result = new ArrayList<Gap>();
+        for (int i = 0; i <= size(); i++) {
+            result.addAll(getActiveGapsBefore(i));
+        }
+        return result;
+    }
+
+    private List<Gap> getActiveGapsBefore(int position) {
+        List<Gap> result = activeGapsBefore.get(position);
+        if (result == null) {
+            result = calculateActiveGapsBefore(position);
+            activeGapsBefore.set(position, result);
+        }
+        return result;
+    }
+
+    private List<Gap> calculateActiveGapsBefore(int position) {
+        DateAndHour previousEnd = position > 0 ? elements.get(position - 1)
+                .getEndTime() : null;
+        if (position == size()) {
+            return Collections.singletonList(Gap.create(resource, previousEnd,
+                    null));
+        }
+        DateAndHour startTime = elements.get(position).getStartTime();
+        if (previousEnd != null && !startTime.isAfter(previousEnd)) {
+            return Collections.emptyList();
+        }
+        List<GapInterval> gapIntervals = GapInterval.create(previousEnd,
+                startTime).delimitByActivationPeriods(
+                resource.getCalendar().getCalendarAvailabilities());
+        return new ArrayList<Gap>(GapInterval.gapsOn(gapIntervals, resource));
+    }
+
+    /**
+     * @return the first position whose gap is not completely before
+     *         <code>since</code>. It's zero if <code>since</code> is before
+     *         the first element, and otherwise the position of the first
+     *         element not starting before <code>since</code> or
+     *         {@link #size()} if there is none
+     */
+    public int firstPositionSince(DateAndHour since) {
+        if (elements.isEmpty()
+                || since.isBefore(elements.get(0).getStartTime())) {
+            return 0;
+        }
+        int low = 1;
+        int high = elements.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (elements.get(middle).getStartTime().compareTo(since) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first position from <code>from</code> whose gap could have
+     *         at least <code>hours</code>. The gap before the first element
+     *         and the gap after the last one are always returned since they
+     *         depend on the time the search starts. If there is none, it
+     *         returns a position bigger than {@link #size()}
+     */
+    public int nextPositionWithHours(int from, int hours) {
+        ensureTreeUpdated();
+        int current = from;
+        while (current <= size()) {
+            int position = firstWithAtLeast(1, 0, leaves - 1, current, hours);
+            if (position < 0) {
+                return size() + 1;
+            }
+            if (!isKnown(position)) {
+                setHours(position, getGapBefore(position).getHoursInGap());
+            }
+            if (maxHours[leaves + position] >= hours) {
+                return position;
+            }
+            current = position + 1;
+        }
+        return size() + 1;
+    }
+
+    private int firstWithAtLeast(int node, int low, int high, int from,
+            int hours) {
+        if (high < from || maxHours[node] < hours) {
+            return -1;
+        }
+        if (low == high) {
+            return low;
+        }
+        int middle = (low + high) >>> 1;
+        int result = firstWithAtLeast(2 * node, low, middle, from, hours);
+        return result >= 0 ? result : firstWithAtLeast(2 * node + 1,
+                middle + 1, high, from, hours);
+    }
+
+    private boolean isInner(int position) {
+        return position > 0 && position < size();
+    }
+
+    private boolean isKnown(int position) {
+        return !isInner(position) || gapsBefore.get(position) != null;
+    }
+
+    private void ensureTreeUpdated() {
+        if (!treeOutdated) {
+            return;
+        }
+        int positions = size() + 1;
+        leaves = 1;
+        while (leaves < positions) {
+            leaves *= 2;
+        }
+        maxHours = new int[2 * leaves];
+        for (int i = 0; i < leaves; i++) {
+            maxHours[leaves + i] = leafValue(i);
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            maxHours[node] = Math.max(maxHours[2 * node],
+                    maxHours[2 * node + 1]);
+        }
+        treeOutdated = false;
+    }
+
+    private int leafValue(int position) {
+        if (position > size()) {
+            return Integer.MIN_VALUE;
+        }
+        if (!isInner(position) || gapsBefore.get(position) == null) {
+            return Integer.MAX_VALUE;
+        }
+        return gapsBefore.get(position).getHoursInGap();
+    }
+
+    private void setHours(int position, int hours) {
+        int node = leaves + position;
+        maxHours[node] = hours;
+        for (node = node / 2; node > 0; node = node / 2) {
+            maxHours[node] = Math.max(maxHours[2 * node],
+                    maxHours[2 * node + 1]);
+        }
+    }
+
+    private Gap getGapBefore(int position) {
+        Gap result = gapsBefore.get(position);
+        if (result == null) {
+            result = Gap.create(resource, elements.get(position - 1)
+                    .getEndTime(), elements.get(position).getStartTime());
+            gapsBefore.set(position, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the gap at <code>position</code> that doesn't start before
+     *         <code>since</code>. It's <code>null</code> for the first
+     *         position if <code>since</code> is not before the first element
+     */
+    public Gap getGapAt(int position, DateAndHour since) {
+        if (elements.isEmpty()) {
+            return Gap.create(resource, since, null);
+        }
+        if (position == size()) {
+            return Gap.create(resource, DateAndHour.max(since,
+                    elements.get(size() - 1).getEndTime()), null);
+        }
+        LimitingResourceQueueElement next = elements.get(position);
+        if (position == 0) {
+            return since.getDate().isBefore(next.getStartDate()) ? Gap
+                    .create(resource, since, next.getStartTime()) : null;
+        }
+        DateAndHour previousEnd = elements.get(position - 1).getEndTime();
+        if (since.compareTo(previousEnd) <= 0) {
+            return getGapBefore(position);
+        }
+        return Gap.create(resource, since, next.getStartTime());
+    }
+
+}
@@ -112,7 +112,11 @@ public interface IResourceDAO extends IIntegrationEntityDAO<Resource> {
             Date endingDate);
 
     /**
-     * Returns all {@link HoursWorkedPerWorkerInAMonthDTO} in year and month
+     * Returns all {@link HoursWorkedPerWorkerInAMonthDTO} in year and month,
+     * one per resource and month of the year with some work report line. If
+     * <code>month</code> is <code>null</code> the whole year is used, and if
+     * <code>year</code> is <code>null</code> all the dates, adding together the
+     * same month of different years.
      *
      * @param year
      * @param month
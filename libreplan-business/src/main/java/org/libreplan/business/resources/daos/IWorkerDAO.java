@@ -21,8 +21,8 @@
 
 package org.libreplan.business.resources.daos;
 
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
@@ -111,8 +111,13 @@ public interface IWorkerDAO extends IIntegrationEntityDAO<Worker> {
     List<Worker> findByFirstNameSecondNameAndNifAnotherTransaction(
             String firstname, String surname, String nif);
 
-    List<Object[]> getWorkingHoursGroupedPerWorker(List<String> workerCodes,
-            Date startingDate, Date endingDate);
+    /**
+     * Returns the codes of the workers indexed by their ids.<br />
+     *
+     * If <code>workerCodes</code> is <code>null</code> or empty, it returns the
+     * codes of all the workers.
+     */
+    Map<Long, String> getCodesPerId(List<String> workerCodes);
 
     Worker findByNifAnotherTransaction(String nif)
             throws InstanceNotFoundException;
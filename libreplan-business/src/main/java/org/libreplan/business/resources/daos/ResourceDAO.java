@@ -25,9 +25,12 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.hibernate.Query;
 import org.hibernate.criterion.Restrictions;
+import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.reports.dtos.HoursWorkedPerResourceDTO;
@@ -40,6 +43,8 @@ import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.entities.DailyWorkedEffort;
+import org.libreplan.business.workreports.entities.IResourceWorkedEffortRollup;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
@@ -60,6 +65,9 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
     @Autowired
     private IScenarioManager scenarioManager;
 
+    @Autowired
+    private IResourceWorkedEffortRollup resourceWorkedEffortRollup;
+
     @Override
     public List<Worker> getWorkers() {
         return list(Worker.class);
@@ -222,44 +230,29 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
     @Override
     public List<HoursWorkedPerWorkerInAMonthDTO> getWorkingHoursPerWorker(
             Integer year, Integer month) {
-
-        String strQuery = "SELECT wrlresource.id, SUM(wrl.effort) "
-                + "FROM WorkReportLine wrl "
-                + "LEFT OUTER JOIN wrl.resource wrlresource ";
-
+        LocalDate start = null;
+        LocalDate end = null;
         if (year != null) {
-            strQuery += "WHERE YEAR(wrl.date) = :year ";
-        }
-        if (month != null) {
-            strQuery += "AND MONTH(wrl.date) = :month ";
+            start = new LocalDate(year, month != null ? month : 1, 1);
+            end = month != null ? start.plusMonths(1).minusDays(1) : start
+                    .plusYears(1).minusDays(1);
         }
 
-        strQuery += "GROUP BY wrlresource.id, MONTH(wrl.date) ";
+        Map<Long, DailyWorkedEffort> effortPerResource = resourceWorkedEffortRollup
+                .getDailyWorkedEffortPerResource();
 
-        Query query = getSession().createQuery(strQuery);
-        if (year != null) {
-            query.setParameter("year", year);
-        }
-        if (month != null) {
-            query.setParameter("month", month);
-        }
-
-        List<HoursWorkedPerWorkerInAMonthDTO> result = toDTO(query.list());
-        return result;
-    }
-
-    private List<HoursWorkedPerWorkerInAMonthDTO> toDTO(List<Object> rows) {
         List<HoursWorkedPerWorkerInAMonthDTO> result = new ArrayList<HoursWorkedPerWorkerInAMonthDTO>();
-
-        for (Object row: rows) {
-            Object[] columns = (Object[]) row;
-            Resource resource = (Resource) findExistingEntity((Long) columns[0]);
-            EffortDuration effort = EffortDuration.seconds(((Long) columns[1])
-                    .intValue());
-
-            HoursWorkedPerWorkerInAMonthDTO dto = new HoursWorkedPerWorkerInAMonthDTO(
-                    resource, effort);
-            result.add(dto);
+        for (Entry<Long, DailyWorkedEffort> each : effortPerResource.entrySet()) {
+            Map<Integer, Long> secondsPerMonth = each.getValue()
+                    .getSecondsPerMonthBetween(start, end);
+            if (secondsPerMonth.isEmpty()) {
+                continue;
+            }
+            Resource resource = findExistingEntity(each.getKey());
+            for (Long seconds : secondsPerMonth.values()) {
+                result.add(new HoursWorkedPerWorkerInAMonthDTO(resource,
+                        EffortDuration.seconds(seconds.intValue())));
+            }
         }
         return result;
     }
@@ -21,8 +21,9 @@
 
 package org.libreplan.business.resources.daos;
 
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
@@ -146,49 +147,23 @@ public class WorkerDAO extends IntegrationEntityDAO<Worker>
 
     @Override
     @Transactional(readOnly = true)
-    public List<Object[]> getWorkingHoursGroupedPerWorker(
-            List<String> workerCodes, Date startingDate, Date endingDate) {
-        String strQuery = "SELECT worker.code, SUM(wrl.effort) "
-                + "FROM Worker worker, WorkReportLine wrl "
-                + "LEFT OUTER JOIN wrl.resource resource "
-                + "WHERE resource.id = worker.id ";
-
-        // Set date range
-        if (startingDate != null && endingDate != null) {
-            strQuery += "AND wrl.date BETWEEN :startingDate AND :endingDate ";
-        }
-        if (startingDate != null && endingDate == null) {
-            strQuery += "AND wrl.date >= :startingDate ";
-        }
-        if (startingDate == null && endingDate != null) {
-            strQuery += "AND wrl.date <= :endingDate ";
-        }
-
-        // Set workers
+    public Map<Long, String> getCodesPerId(List<String> workerCodes) {
+        String strQuery = "SELECT worker.id, worker.code FROM Worker worker ";
         if (workerCodes != null && !workerCodes.isEmpty()) {
-            strQuery += "AND worker.code IN (:workerCodes) ";
+            strQuery += "WHERE worker.code IN (:workerCodes) ";
         }
 
-        // Group by
-        strQuery += "GROUP BY worker.code ";
-
-        // Order by
-        strQuery += "ORDER BY worker.code";
-
-        // Set parameters
         Query query = getSession().createQuery(strQuery);
-        if (startingDate != null) {
-            query.setParameter("startingDate", startingDate);
-        }
-        if (endingDate != null) {
-            query.setParameter("endingDate", endingDate);
-        }
         if (workerCodes != null && !workerCodes.isEmpty()) {
             query.setParameterList("workerCodes", workerCodes);
         }
 
-        // Get result
-        return query.list();
+        Map<Long, String> result = new HashMap<Long, String>();
+        for (Object each : query.list()) {
+            Object[] row = (Object[]) each;
+            result.put((Long) row[0], (String) row[1]);
+        }
+        return result;
     }
 
     @Override
@@ -451,6 +451,11 @@ public class Criterion extends IntegrationEntity implements ICriterion,
         return Registry.getCriterionDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getType();
+    }
+
     @Override
     public void setCodeAutogenerated(Boolean codeAutogenerated) {
         // do nothing
@@ -320,4 +320,9 @@ public class CriterionSatisfaction extends IntegrationEntity {
         return Registry.getCriterionSatisfactionDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getResource();
+    }
+
 }
@@ -33,15 +33,12 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
-import org.libreplan.business.calendars.entities.CalendarAvailability;
-import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.planner.limiting.entities.DateAndHour;
-import org.libreplan.business.planner.limiting.entities.Gap;
 import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
-import org.libreplan.business.planner.limiting.entities.GapInterval;
 import org.libreplan.business.planner.limiting.entities.InsertionRequirements;
 import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.planner.limiting.entities.QueueGapsIndex;
 /**
  *
  * @author Diego Pino Garcia <dpino@igalia.com>
@@ -56,6 +53,8 @@ public class LimitingResourceQueue extends BaseEntity {
 
     private List<GapOnQueue> cachedGaps;
 
+    private QueueGapsIndex gapsIndex;
+
     public static Collection<LimitingResourceQueue> queuesOf(
             Collection<LimitingResourceQueueElement> queueElements) {
         Set<LimitingResourceQueue> result = new HashSet<LimitingResourceQueue>();
@@ -83,12 +82,16 @@ public class LimitingResourceQueue extends BaseEntity {
 
     public void addLimitingResourceQueueElement(LimitingResourceQueueElement element) {
         element.setLimitingResourceQueue(this);
-        limitingResourceQueueElements.add(element);
+        if (limitingResourceQueueElements.add(element) && gapsIndex != null) {
+            gapsIndex.elementAdded(element);
+        }
         invalidCachedGaps();
     }
 
     public void removeLimitingResourceQueueElement(LimitingResourceQueueElement element) {
-        limitingResourceQueueElements.remove(element);
+        if (limitingResourceQueueElements.remove(element) && gapsIndex != null) {
+            gapsIndex.elementRemoved(element);
+        }
         element.detach();
         invalidCachedGaps();
     }
@@ -104,26 +107,21 @@ public class LimitingResourceQueue extends BaseEntity {
         return cachedGaps;
     }
 
-    private List<GapOnQueue> calculateGaps() {
-        List<Gap> result = new ArrayList<Gap>();
-        DateAndHour previousEnd = null;
-        ResourceCalendar calendar = resource.getCalendar();
-        List<CalendarAvailability> activationPeriods = calendar.getCalendarAvailabilities();
-
-        for (LimitingResourceQueueElement each : limitingResourceQueueElements) {
-            DateAndHour startTime = each.getStartTime();
-            if (previousEnd == null || startTime.isAfter(previousEnd)) {
-                List<GapInterval> gapIntervals = GapInterval.
-                        create(previousEnd, startTime).
-                        delimitByActivationPeriods(activationPeriods);
-                if (!gapIntervals.isEmpty()) {
-                    result.addAll(GapInterval.gapsOn(gapIntervals, resource));
-                }
-            }
-            previousEnd = each.getEndTime();
+    /**
+     * The index is kept while elements are added or removed, but it's
+     * discarded when an element of the queue is moved
+     */
+    public QueueGapsIndex getGapsIndex() {
+        if (gapsIndex == null) {
+            gapsIndex = QueueGapsIndex.create(resource,
+                    limitingResourceQueueElements);
         }
-        result.add(Gap.create(resource, previousEnd, null));
-        return GapOnQueue.onQueue(this, result);
+        return gapsIndex;
+    }
+
+    private List<GapOnQueue> calculateGaps() {
+        return GapOnQueue.onQueue(this, getGapsIndex()
+                .getGapsInActivationPeriods());
     }
 
     public SortedSet<LimitingResourceQueueElement> getLimitingResourceQueueElements() {
@@ -169,6 +167,7 @@ public class LimitingResourceQueue extends BaseEntity {
     public void queueElementMoved(
             LimitingResourceQueueElement limitingResourceQueueElement) {
         invalidCachedGaps();
+        gapsIndex = null;
     }
 
     public String toString() {
@@ -44,6 +44,7 @@ import org.hibernate.validator.Valid;
 import org.joda.time.LocalDate;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.calendars.entities.ICalendar;
 import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.calendars.entities.SameWorkHoursEveryDay;
@@ -921,6 +922,11 @@ public abstract class Resource extends IntegrationEntity implements
             IntraDayDate startInclusive, IntraDayDate endExclusive,
             final ICriterion criterionToSatisfy) {
 
+        if (areWholeDays(startInclusive, endExclusive)) {
+            return getTotalEffortForWholeDays(calendar,
+                    startInclusive.getDate(), endExclusive.getDate(),
+                    criterionToSatisfy);
+        }
         Iterable<PartialDay> daysBetween = startInclusive
                 .daysUntil(endExclusive);
 
@@ -940,6 +946,33 @@ public abstract class Resource extends IntegrationEntity implements
         });
     }
 
+    private static boolean areWholeDays(IntraDayDate startInclusive,
+            IntraDayDate endExclusive) {
+        return startInclusive.getEffortDuration().isZero()
+                && endExclusive.getEffortDuration().isZero()
+                && startInclusive.compareTo(endExclusive) <= 0;
+    }
+
+    private EffortDuration getTotalEffortForWholeDays(ICalendar calendar,
+            LocalDate startInclusive, LocalDate endExclusive,
+            ICriterion criterionToSatisfy) {
+        DailyCapacities capacities = calendar.getCapacitiesBetween(
+                startInclusive, endExclusive);
+        if (criterionToSatisfy == null) {
+            return capacities.sumStandardEffort();
+        }
+        long seconds = 0;
+        LocalDate current = startInclusive;
+        for (int i = 0; i < capacities.size(); i++) {
+            if (capacities.getStandardSeconds(i) > 0
+                    && satisfiesCriterionAt(criterionToSatisfy, current)) {
+                seconds += capacities.getStandardSeconds(i);
+            }
+            current = current.plusDays(1);
+        }
+        return EffortDuration.seconds((int) seconds);
+    }
+
     private boolean satisfiesCriterionAt(ICriterion criterionToSatisfy,
             LocalDate current) {
         return criterionToSatisfy.isSatisfiedBy(this, current);
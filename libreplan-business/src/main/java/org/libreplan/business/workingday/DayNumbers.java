@@ -0,0 +1,58 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.workingday;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Conversions between {@link LocalDate} and the number of days elapsed since
+ * 1970-01-01. The day numbers allow to store days in primitive arrays and to
+ * calculate distances between days without creating intermediate objects.
+ */
+public class DayNumbers {
+
+    private static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+
+    private DayNumbers() {
+    }
+
+    /**
+     * Converts a date to the number of days elapsed since 1970-01-01. It uses
+     * the proleptic gregorian calendar as {@link LocalDate} does by default.
+     */
+    public static int toDayNumber(LocalDate date) {
+        int year = date.getYear();
+        int month = date.getMonthOfYear();
+        int day = date.getDayOfMonth();
+        year -= month <= 2 ? 1 : 0;
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day
+                - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+                + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    public static LocalDate fromDayNumber(int dayNumber) {
+        return EPOCH.plusDays(dayNumber);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.workingday;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Mutable sum of {@link EffortDuration efforts}. Adding to it doesn't create
+ * any intermediate {@link EffortDuration}, so it's intended for summing lots of
+ * efforts in a loop. It isn't thread safe.
+ */
+public class EffortAccumulator {
+
+    private long seconds = 0;
+
+    public EffortAccumulator add(EffortDuration effort) {
+        Validate.notNull(effort);
+        seconds += effort.getSeconds();
+        return this;
+    }
+
+    public EffortAccumulator add(EffortAccumulator other) {
+        seconds += other.seconds;
+        return this;
+    }
+
+    public EffortAccumulator addSeconds(int amount) {
+        Validate.isTrue(amount >= 0, "seconds cannot be negative");
+        seconds += amount;
+        return this;
+    }
+
+    public long getSeconds() {
+        return seconds;
+    }
+
+    public boolean isZero() {
+        return seconds == 0;
+    }
+
+    public void reset() {
+        seconds = 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the sum doesn't fit in an {@link EffortDuration}
+     */
+    public EffortDuration toEffortDuration() {
+        Validate.isTrue(seconds <= Integer.MAX_VALUE,
+                "the sum is too big for an effort duration");
+        return EffortDuration.seconds((int) seconds);
+    }
+
+}
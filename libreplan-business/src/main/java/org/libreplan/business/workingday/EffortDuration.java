@@ -123,11 +123,11 @@ public class EffortDuration implements Comparable<EffortDuration> {
 
     public static <T> EffortDuration sum(Iterable<? extends T> collection,
             IEffortFrom<T> effortFrom) {
-        EffortDuration result = zero();
+        EffortAccumulator result = new EffortAccumulator();
         for (T each : collection) {
-            result = result.plus(effortFrom.from(each));
+            result.add(effortFrom.from(each));
         }
-        return result;
+        return result.toEffortDuration();
     }
 
     public static EffortDuration sum(EffortDuration... summands) {
@@ -145,7 +145,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
     }
 
     public static EffortDuration elapsing(int amount, Granularity granularity) {
-        return new EffortDuration(granularity.toSeconds(amount));
+        return of(granularity.toSeconds(amount));
     }
 
     public static EffortDuration hours(int amount) {
@@ -166,6 +166,36 @@ public class EffortDuration implements Comparable<EffortDuration> {
                 Granularity.SECONDS);
     }
 
+    private static final int SECONDS_PER_MINUTE = Granularity.MINUTES
+            .toSeconds(1);
+
+    private static final int MAX_CACHED_SECONDS = Granularity.HOURS
+            .toSeconds(24);
+
+    /**
+     * Canonical instances for the durations from zero to 24 hours at minute
+     * granularity. They're the values most frequently used in the working
+     * days, so sharing them avoids creating lots of short lived objects.
+     */
+    private static final EffortDuration[] cachedByMinute = createCache();
+
+    private static EffortDuration[] createCache() {
+        EffortDuration[] result = new EffortDuration[MAX_CACHED_SECONDS
+                / SECONDS_PER_MINUTE + 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new EffortDuration(i * SECONDS_PER_MINUTE);
+        }
+        return result;
+    }
+
+    private static EffortDuration of(int seconds) {
+        if (seconds >= 0 && seconds <= MAX_CACHED_SECONDS
+                && seconds % SECONDS_PER_MINUTE == 0) {
+            return cachedByMinute[seconds / SECONDS_PER_MINUTE];
+        }
+        return new EffortDuration(seconds);
+    }
+
     private final int seconds;
 
     private EffortDuration(int seconds) {
@@ -190,7 +220,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
     }
 
     public EffortDuration and(int amount, Granularity granularity) {
-        return new EffortDuration(seconds + granularity.toSeconds(amount));
+        return of(seconds + granularity.toSeconds(amount));
     }
 
     @Override
@@ -246,7 +276,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
      */
     public EffortDuration divideBy(int n) {
         Validate.isTrue(n > 0);
-        return new EffortDuration(seconds / n);
+        return of(seconds / n);
     }
 
     /**
@@ -306,7 +336,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
      *         {@link EffortDuration} and the other duration
      */
     public EffortDuration plus(EffortDuration other) {
-        return new EffortDuration(seconds + other.seconds);
+        return of(seconds + other.seconds);
     }
 
     public boolean isZero() {
@@ -326,7 +356,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
     public EffortDuration minus(EffortDuration duration) {
         Validate.isTrue(this.compareTo(duration) >= 0,
                 "minued must not be smaller than subtrahend");
-        return new EffortDuration(seconds - duration.seconds);
+        return of(seconds - duration.seconds);
     }
 
     public BigDecimal toHoursAsDecimalWithScale(int scale) {
@@ -296,7 +296,7 @@ public class IntraDayDate implements Comparable<IntraDayDate> {
                             capacity.isOverAssignableWithoutLimit());
         }
 
-        private boolean isWholeDay() {
+        public boolean isWholeDay() {
             return start.getEffortDuration().isZero()
                     && end.getEffortDuration().isZero();
         }
@@ -21,6 +21,7 @@
 
 package org.libreplan.business.workreports.daos;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -84,4 +85,23 @@ public interface IWorkReportLineDAO extends
     List<WorkReportLine> findByOrderElementAndChildrenFilteredByDate(
             OrderElement orderElement, Date start, Date end, boolean sortByDate);
 
+    /**
+     * Returns the effort reported by each {@link Resource} per day as rows
+     * with the resource id, the date and the sum of the effort in seconds,
+     * ordered by resource id and date.<br />
+     *
+     * If <code>resourceIds</code> is <code>null</code>, it returns the rows of
+     * all the resources.
+     */
+    List<Object[]> getEffortPerResourceAndDay(Collection<Long> resourceIds);
+
+    /**
+     * Returns the {@link WorkReportLine work report lines} of the
+     * {@link OrderElement order elements} grouped by the fields needed to
+     * calculate their money cost. Each row has the order element id, the
+     * resource id, the type of work hours id, its default price, the date, the
+     * effort of each line and the number of lines.
+     */
+    List<Object[]> getLinesForMoneyCost(Collection<Long> orderElementIds);
+
 }
@@ -245,4 +245,47 @@ public class WorkReportLineDAO extends IntegrationEntityDAO<WorkReportLine>
 
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Object[]> getEffortPerResourceAndDay(
+            Collection<Long> resourceIds) {
+        if (resourceIds != null && resourceIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String strQuery = "SELECT wrl.resource.id, wrl.date, SUM(wrl.effort) "
+                + "FROM WorkReportLine wrl ";
+        if (resourceIds != null) {
+            strQuery += "WHERE wrl.resource.id IN (:resourceIds) ";
+        }
+        strQuery += "GROUP BY wrl.resource.id, wrl.date "
+                + "ORDER BY wrl.resource.id, wrl.date";
+
+        Query query = getSession().createQuery(strQuery);
+        if (resourceIds != null) {
+            query.setParameterList("resourceIds", resourceIds);
+        }
+        return query.list();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getLinesForMoneyCost(
+            Collection<Long> orderElementIds) {
+        if (orderElementIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String strQuery = "SELECT wrl.orderElement.id, wrl.resource.id, "
+                + "towh.id, towh.defaultPrice, wrl.date, wrl.effort, "
+                + "COUNT(wrl.id) "
+                + "FROM WorkReportLine wrl JOIN wrl.typeOfWorkHours towh "
+                + "WHERE wrl.orderElement.id IN (:orderElementIds) "
+                + "GROUP BY wrl.orderElement.id, wrl.resource.id, towh.id, "
+                + "towh.defaultPrice, wrl.date, wrl.effort";
+
+        Query query = getSession().createQuery(strQuery);
+        query.setParameterList("orderElementIds", orderElementIds);
+        return query.list();
+    }
+
 }
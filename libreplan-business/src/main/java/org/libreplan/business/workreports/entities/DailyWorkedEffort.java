@@ -0,0 +1,186 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.workreports.entities;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.workingday.DayNumbers;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * <p>
+ * The effort reported by a resource in {@link WorkReportLine work report
+ * lines} for each day with some line. The days are kept sorted along with the
+ * accumulated effort up to each of them, so the effort between any two days
+ * is calculated with two binary searches and a subtraction.
+ * </p>
+ * <p>
+ * It's immutable.
+ * </p>
+ *
+ * @see IResourceWorkedEffortRollup
+ */
+public class DailyWorkedEffort {
+
+    public static final DailyWorkedEffort EMPTY = new DailyWorkedEffort(
+            new int[0], new long[0]);
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Receives the effort of each day in ascending order.
+     */
+    public static class Builder {
+
+        private int size = 0;
+
+        private int[] days = new int[16];
+
+        private long[] accumulated = new long[16];
+
+        private Builder() {
+        }
+
+        public Builder add(LocalDate day, long seconds) {
+            Validate.notNull(day);
+            Validate.isTrue(seconds >= 0, "seconds cannot be negative");
+            int dayNumber = DayNumbers.toDayNumber(day);
+            long previous = 0;
+            if (size > 0) {
+                Validate.isTrue(dayNumber > days[size - 1],
+                        "the days must be added in ascending order");
+                previous = accumulated[size - 1];
+            }
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                accumulated = Arrays.copyOf(accumulated, size * 2);
+            }
+            days[size] = dayNumber;
+            accumulated[size] = previous + seconds;
+            size++;
+            return this;
+        }
+
+        public DailyWorkedEffort build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new DailyWorkedEffort(Arrays.copyOf(days, size),
+                    Arrays.copyOf(accumulated, size));
+        }
+
+    }
+
+    private final int[] days;
+
+    private final long[] accumulated;
+
+    private DailyWorkedEffort(int[] days, long[] accumulated) {
+        this.days = days;
+        this.accumulated = accumulated;
+    }
+
+    public boolean isEmpty() {
+        return days.length == 0;
+    }
+
+    /**
+     * @param startInclusive
+     *            if <code>null</code> there is no lower limit
+     * @param endInclusive
+     *            if <code>null</code> there is no upper limit
+     * @return if there is some day with reported effort, even if it's zero,
+     *         in the interval
+     */
+    public boolean hasWorkBetween(LocalDate startInclusive,
+            LocalDate endInclusive) {
+        return firstIndex(startInclusive) < endIndex(endInclusive);
+    }
+
+    /**
+     * @see #hasWorkBetween(LocalDate, LocalDate)
+     */
+    public long getSecondsBetween(LocalDate startInclusive,
+            LocalDate endInclusive) {
+        int first = firstIndex(startInclusive);
+        int end = endIndex(endInclusive);
+        if (first >= end) {
+            return 0;
+        }
+        return accumulated[end - 1]
+                - (first == 0 ? 0 : accumulated[first - 1]);
+    }
+
+    public EffortDuration getEffortBetween(LocalDate startInclusive,
+            LocalDate endInclusive) {
+        return EffortDuration.seconds((int) getSecondsBetween(startInclusive,
+                endInclusive));
+    }
+
+    /**
+     * Returns the effort between both dates grouped by the month of the year,
+     * from 1 to 12, of each day. The days of the same month in different years
+     * are added together. Only the months with some day with reported effort
+     * are included.
+     *
+     * @see #getSecondsBetween(LocalDate, LocalDate)
+     */
+    public SortedMap<Integer, Long> getSecondsPerMonthBetween(
+            LocalDate startInclusive, LocalDate endInclusive) {
+        SortedMap<Integer, Long> result = new TreeMap<Integer, Long>();
+        int end = endIndex(endInclusive);
+        for (int i = firstIndex(startInclusive); i < end; i++) {
+            int month = DayNumbers.fromDayNumber(days[i]).getMonthOfYear();
+            long seconds = accumulated[i] - (i == 0 ? 0 : accumulated[i - 1]);
+            Long previous = result.get(month);
+            result.put(month, previous == null ? seconds : previous + seconds);
+        }
+        return result;
+    }
+
+    private int firstIndex(LocalDate startInclusive) {
+        if (startInclusive == null) {
+            return 0;
+        }
+        return lowerBound(DayNumbers.toDayNumber(startInclusive));
+    }
+
+    private int endIndex(LocalDate endInclusive) {
+        if (endInclusive == null) {
+            return days.length;
+        }
+        return lowerBound(DayNumbers.toDayNumber(endInclusive) + 1);
+    }
+
+    /**
+     * @return the position of the first day not before <code>dayNumber</code>
+     */
+    private int lowerBound(int dayNumber) {
+        int index = Arrays.binarySearch(days, dayNumber);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.workreports.entities;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Keeps the {@link DailyWorkedEffort effort reported per day} by each
+ * {@link Resource} in {@link WorkReportLine work report lines}, so the effort
+ * worked in any interval is calculated without aggregating the lines again.
+ * <br />
+ *
+ * It's kept up to date when the transactions modifying work report lines are
+ * committed.
+ */
+public interface IResourceWorkedEffortRollup {
+
+    DailyWorkedEffort getDailyWorkedEffort(Long resourceId);
+
+    /**
+     * Returns the effort per day of all the resources with some work report
+     * line.
+     */
+    Map<Long, DailyWorkedEffort> getDailyWorkedEffortPerResource();
+
+    /**
+     * Returns the effort worked between both dates by each of the resources
+     * with some work report line in the interval. The resources without lines
+     * in the interval are not included.
+     *
+     * @param resourceIds
+     *            if it's <code>null</code> all the resources are considered
+     * @param startInclusive
+     *            if it's <code>null</code> there is no lower limit
+     * @param endInclusive
+     *            if it's <code>null</code> there is no upper limit
+     */
+    Map<Long, EffortDuration> getWorkedEffortPerResource(
+            Collection<Long> resourceIds, LocalDate startInclusive,
+            LocalDate endInclusive);
+
+    /**
+     * Forgets the effort kept for all the resources, so it's loaded again from
+     * the database when needed.
+     */
+    void invalidateAll();
+
+}
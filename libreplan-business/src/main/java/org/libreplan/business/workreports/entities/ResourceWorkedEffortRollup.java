@@ -0,0 +1,279 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.workreports.entities;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.hibernate.notification.EntityModification;
+import org.libreplan.business.hibernate.notification.EntityModification.Kind;
+import org.libreplan.business.hibernate.notification.HibernateDatabaseModificationsListener;
+import org.libreplan.business.hibernate.notification.ICommittedModificationsListener;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Default implementation of {@link IResourceWorkedEffortRollup}.<br />
+ *
+ * The effort of each resource is loaded from the database the first time it's
+ * requested and kept in memory. When a transaction inserting or removing
+ * {@link WorkReportLine work report lines} is committed, the effort of their
+ * resources is loaded again the next time. For the updated lines both the
+ * previous and the new resource are loaded again. If the previous one is
+ * unknown, because the line was updated without being loaded in the session,
+ * all the effort is loaded again.<br />
+ *
+ * If there are modifications while the effort is being loaded, it's returned
+ * but not kept, as it could be outdated.
+ */
+@Component
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class ResourceWorkedEffortRollup implements
+        IResourceWorkedEffortRollup, ICommittedModificationsListener {
+
+    @Autowired
+    private IWorkReportLineDAO workReportLineDAO;
+
+    @Autowired
+    private HibernateDatabaseModificationsListener modificationsListener;
+
+    private static final String RESOURCE = "resource";
+
+    private final Object lock = new Object();
+
+    private final Map<Long, DailyWorkedEffort> loaded = new HashMap<Long, DailyWorkedEffort>();
+
+    /**
+     * If it's true, the resources not loaded and not stale have no work
+     * report lines
+     */
+    private boolean complete = false;
+
+    private final Set<Long> stale = new HashSet<Long>();
+
+    private long version = 0;
+
+    @PostConstruct
+    public void listenToModifications() {
+        modificationsListener.addCommittedModificationsListener(this);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DailyWorkedEffort getDailyWorkedEffort(Long resourceId) {
+        return get(Collections.singleton(resourceId)).get(resourceId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, DailyWorkedEffort> getDailyWorkedEffortPerResource() {
+        return getAll();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, EffortDuration> getWorkedEffortPerResource(
+            Collection<Long> resourceIds, LocalDate startInclusive,
+            LocalDate endInclusive) {
+        Map<Long, DailyWorkedEffort> efforts = resourceIds == null ? getAll()
+                : get(resourceIds);
+        Map<Long, EffortDuration> result = new HashMap<Long, EffortDuration>();
+        for (Entry<Long, DailyWorkedEffort> each : efforts.entrySet()) {
+            DailyWorkedEffort effort = each.getValue();
+            if (effort.hasWorkBetween(startInclusive, endInclusive)) {
+                result.put(each.getKey(),
+                        effort.getEffortBetween(startInclusive, endInclusive));
+            }
+        }
+        return result;
+    }
+
+    private Map<Long, DailyWorkedEffort> get(Collection<Long> resourceIds) {
+        Map<Long, DailyWorkedEffort> result = new HashMap<Long, DailyWorkedEffort>();
+        Set<Long> missing = new HashSet<Long>();
+        long loadingVersion;
+        synchronized (lock) {
+            for (Long each : resourceIds) {
+                DailyWorkedEffort effort = getKept(each);
+                if (effort != null) {
+                    result.put(each, effort);
+                } else {
+                    missing.add(each);
+                }
+            }
+            loadingVersion = version;
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, DailyWorkedEffort> newlyLoaded = load(missing);
+            result.putAll(newlyLoaded);
+            keep(newlyLoaded, false, loadingVersion);
+        }
+        return result;
+    }
+
+    private DailyWorkedEffort getKept(Long resourceId) {
+        DailyWorkedEffort result = loaded.get(resourceId);
+        if (result == null && complete && !stale.contains(resourceId)) {
+            return DailyWorkedEffort.EMPTY;
+        }
+        return result;
+    }
+
+    private Map<Long, DailyWorkedEffort> getAll() {
+        Set<Long> toLoad;
+        long loadingVersion;
+        synchronized (lock) {
+            if (complete && stale.isEmpty()) {
+                return new HashMap<Long, DailyWorkedEffort>(loaded);
+            }
+            toLoad = complete ? new HashSet<Long>(stale) : null;
+            loadingVersion = version;
+        }
+        if (toLoad == null) {
+            Map<Long, DailyWorkedEffort> result = load(null);
+            keep(result, true, loadingVersion);
+            return result;
+        }
+        Map<Long, DailyWorkedEffort> newlyLoaded = load(toLoad);
+        Map<Long, DailyWorkedEffort> result;
+        synchronized (lock) {
+            result = new HashMap<Long, DailyWorkedEffort>(loaded);
+        }
+        result.putAll(newlyLoaded);
+        keep(newlyLoaded, false, loadingVersion);
+        return result;
+    }
+
+    private void keep(Map<Long, DailyWorkedEffort> newlyLoaded,
+            boolean all, long loadingVersion) {
+        synchronized (lock) {
+            if (version != loadingVersion) {
+                return;
+            }
+            if (all) {
+                loaded.clear();
+                complete = true;
+            }
+            loaded.putAll(newlyLoaded);
+            stale.removeAll(newlyLoaded.keySet());
+        }
+    }
+
+    /**
+     * @return the effort of the requested resources, including the ones
+     *         without work report lines
+     */
+    private Map<Long, DailyWorkedEffort> load(Collection<Long> resourceIds) {
+        Map<Long, DailyWorkedEffort> result = new HashMap<Long, DailyWorkedEffort>();
+        List<Object[]> rows = workReportLineDAO
+                .getEffortPerResourceAndDay(resourceIds);
+        Long current = null;
+        DailyWorkedEffort.Builder builder = null;
+        for (Object[] each : rows) {
+            Long resourceId = (Long) each[0];
+            if (!resourceId.equals(current)) {
+                if (current != null) {
+                    result.put(current, builder.build());
+                }
+                current = resourceId;
+                builder = DailyWorkedEffort.builder();
+            }
+            builder.add(LocalDate.fromDateFields((Date) each[1]),
+                    ((Number) each[2]).longValue());
+        }
+        if (current != null) {
+            result.put(current, builder.build());
+        }
+        if (resourceIds != null) {
+            for (Long each : resourceIds) {
+                if (!result.containsKey(each)) {
+                    result.put(each, DailyWorkedEffort.EMPTY);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void modificationsCommitted(List<EntityModification> modifications) {
+        Set<Long> resourceIds = new HashSet<Long>();
+        for (EntityModification each : modifications) {
+            if (!WorkReportLine.class.isAssignableFrom(each.getEntityClass())) {
+                continue;
+            }
+            Long resourceId = (Long) each.getValue(RESOURCE);
+            if (resourceId == null) {
+                invalidateAll();
+                return;
+            }
+            resourceIds.add(resourceId);
+            if (each.getKind() == Kind.UPDATE) {
+                Long previousResourceId = each.hasPreviousValues() ? (Long) each
+                        .getPreviousValue(RESOURCE) : null;
+                if (previousResourceId == null) {
+                    invalidateAll();
+                    return;
+                }
+                resourceIds.add(previousResourceId);
+            }
+        }
+        if (!resourceIds.isEmpty()) {
+            invalidate(resourceIds);
+        }
+    }
+
+    private void invalidate(Set<Long> resourceIds) {
+        synchronized (lock) {
+            version++;
+            for (Long each : resourceIds) {
+                loaded.remove(each);
+                if (complete) {
+                    stale.add(each);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (lock) {
+            version++;
+            loaded.clear();
+            stale.clear();
+            complete = false;
+        }
+    }
+
+}
@@ -398,6 +398,11 @@ public class WorkReportLine extends IntegrationEntity implements
         return Registry.getWorkReportLineDAO();
     }
 
+    @Override
+    public IntegrationEntity getIntegrationOwner() {
+        return getWorkReport();
+    }
+
     @AssertTrue(message = "fields should match with timesheet data if are shared by lines")
     public boolean checkConstraintFieldsMatchWithWorkReportIfAreSharedByLines() {
         if (!firstLevelValidationsPassed()) {
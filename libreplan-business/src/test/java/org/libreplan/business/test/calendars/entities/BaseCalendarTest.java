@@ -25,12 +25,15 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.workingday.EffortDuration.hours;
 import static org.libreplan.business.workingday.EffortDuration.zero;
 import static org.libreplan.business.workingday.IntraDayDate.PartialDay.wholeDay;
 
+import java.math.BigDecimal;
 import java.util.Set;
 import java.util.UUID;
 
@@ -38,11 +41,14 @@ import org.joda.time.LocalDate;
 import org.junit.Test;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.CalendarAvailability;
 import org.libreplan.business.calendars.entities.CalendarData.Days;
+import org.libreplan.business.calendars.entities.CalendarCapacityIndex;
 import org.libreplan.business.calendars.entities.CalendarException;
 import org.libreplan.business.calendars.entities.CalendarExceptionType;
 import org.libreplan.business.calendars.entities.CalendarExceptionTypeColor;
 import org.libreplan.business.calendars.entities.Capacity;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.libreplan.business.workingday.ResourcesPerDay;
@@ -912,4 +918,175 @@ public class BaseCalendarTest {
         AvailabilityTimeLine availability = calendar.getAvailability();
         assertFalse(availability.isValid(MONDAY_LOCAL_DATE));
     }
+
+    private EffortDuration sumDayByDay(BaseCalendar calendar, LocalDate init,
+            LocalDate endInclusive) {
+        EffortDuration result = zero();
+        for (LocalDate current = init; current.compareTo(endInclusive) <= 0; current = current
+                .plusDays(1)) {
+            result = result.plus(calendar.getCapacityOn(wholeDay(current)));
+        }
+        return result;
+    }
+
+    private BaseCalendar createThreeLevelsDerivedCalendar() {
+        BaseCalendar grandParent = createChristmasCalendar();
+        grandParent.newVersion(MONDAY_LOCAL_DATE.plusWeeks(10));
+        grandParent.setCapacityAt(Days.FRIDAY, withNormalDuration(hours(4)));
+
+        BaseCalendar parent = grandParent.newDerivedCalendar();
+        parent.setCapacityAt(Days.SATURDAY, withNormalDuration(hours(2)));
+        addExceptionOn(parent, WEDNESDAY_LOCAL_DATE,
+                withNormalDuration(hours(1)));
+
+        BaseCalendar calendar = parent.newDerivedCalendar();
+        calendar.newVersion(MONDAY_LOCAL_DATE.plusWeeks(20));
+        calendar.setCapacityAt(Days.MONDAY, withNormalDuration(hours(6)));
+        addExceptionOn(calendar, THURSDAY_LOCAL_DATE,
+                withNormalDuration(hours(3)));
+        return calendar;
+    }
+
+    @Test
+    public void theWorkableDurationOfADerivedCalendarIsTheSumOfEachDay() {
+        BaseCalendar calendar = createThreeLevelsDerivedCalendar();
+        LocalDate init = MONDAY_LOCAL_DATE.minusWeeks(3).plusDays(2);
+        LocalDate end = init.plusYears(1);
+
+        assertThat(calendar.getWorkableDuration(init, end),
+                equalTo(sumDayByDay(calendar, init, end)));
+    }
+
+    @Test
+    public void theCapacityIndexIsRebuiltWhenAnAncestorChanges() {
+        BaseCalendar calendar = createThreeLevelsDerivedCalendar();
+        BaseCalendar grandParent = calendar.getParent().getParent();
+        LocalDate init = MONDAY_LOCAL_DATE;
+        LocalDate end = init.plusMonths(6);
+        EffortDuration before = calendar.getWorkableDuration(init, end);
+
+        grandParent.setCapacityAt(Days.TUESDAY, withNormalDuration(hours(1)),
+                MONDAY_LOCAL_DATE);
+        addExceptionOn(grandParent, FRIDAY_LOCAL_DATE, Capacity.zero());
+
+        EffortDuration after = calendar.getWorkableDuration(init, end);
+        assertThat(after, equalTo(sumDayByDay(calendar, init, end)));
+        assertTrue(after.compareTo(before) < 0);
+        assertThat(calendar.getCapacityOn(wholeDay(TUESDAY_LOCAL_DATE)),
+                equalTo(hours(1)));
+        assertThat(calendar.getCapacityOn(wholeDay(FRIDAY_LOCAL_DATE)),
+                equalTo(zero()));
+    }
+
+    @Test
+    public void theCapacityIndexIsKeptWhenAnotherCalendarChanges() {
+        BaseCalendar calendar = createThreeLevelsDerivedCalendar();
+        BaseCalendar another = createBasicCalendar();
+        CalendarCapacityIndex index = calendar.getCapacityIndex();
+
+        another.setCapacityAt(Days.TUESDAY, withNormalDuration(hours(1)));
+        addExceptionOn(another, FRIDAY_LOCAL_DATE, Capacity.zero());
+
+        assertSame(index, calendar.getCapacityIndex());
+    }
+
+    @Test
+    public void theCapacityIndexIsRebuiltWhenAnIndexedExceptionChanges() {
+        BaseCalendar calendar = createBasicCalendar();
+        addExceptionOn(calendar, FRIDAY_LOCAL_DATE, Capacity.zero());
+        CalendarCapacityIndex index = calendar.getCapacityIndex();
+
+        calendar.getOwnExceptionDay(FRIDAY_LOCAL_DATE).updateUnvalidated(
+                THURSDAY_LOCAL_DATE, null, null);
+
+        assertNotSame(index, calendar.getCapacityIndex());
+        assertThat(calendar.getCapacityOn(wholeDay(THURSDAY_LOCAL_DATE)),
+                equalTo(zero()));
+        assertThat(calendar.getCapacityOn(wholeDay(FRIDAY_LOCAL_DATE)),
+                equalTo(hours(8)));
+    }
+
+    @Test
+    public void theWorkableDurationConsidersTheAvailabilities() {
+        BaseCalendar calendar = createBasicCalendar().newDerivedResourceCalendar();
+        CalendarAvailability first = calendar.getCalendarAvailabilities()
+                .get(0);
+        calendar.setStartDate(first, MONDAY_LOCAL_DATE.minusWeeks(5));
+        calendar.addNewCalendarAvailability(CalendarAvailability.create(
+                MONDAY_LOCAL_DATE.plusDays(2), null));
+        calendar.setEndDate(first, MONDAY_LOCAL_DATE.minusWeeks(1));
+        LocalDate init = MONDAY_LOCAL_DATE.minusWeeks(8);
+        LocalDate end = MONDAY_LOCAL_DATE.plusWeeks(8);
+
+        assertThat(calendar.getWorkableDuration(init, end),
+                equalTo(sumDayByDay(calendar, init, end)));
+        assertFalse(calendar.isActive(MONDAY_LOCAL_DATE));
+        assertTrue(calendar.isActive(WEDNESDAY_LOCAL_DATE));
+    }
+
+    @Test
+    public void theCapacitiesBetweenTwoDatesAreTheSameAsDayByDay() {
+        BaseCalendar calendar = createThreeLevelsDerivedCalendar();
+        LocalDate start = MONDAY_LOCAL_DATE.minusWeeks(2);
+        LocalDate end = MONDAY_LOCAL_DATE.plusWeeks(30);
+
+        DailyCapacities capacities = calendar.getCapacitiesBetween(start, end);
+
+        assertThat(capacities.size(), equalTo(32 * 7));
+        for (int i = 0; i < capacities.size(); i++) {
+            LocalDate day = start.plusDays(i);
+            assertThat(capacities.getCapacity(i),
+                    equalTo(calendar.getCapacityWithOvertime(day)));
+        }
+    }
+
+    @Test
+    public void theStandardSecondsOfLongIntervalsDoNotOverflow() {
+        BaseCalendar calendar = createBasicCalendar();
+        LocalDate end = MONDAY_LOCAL_DATE.plusWeeks(20000);
+
+        assertThat(calendar.getCapacityIndex().getStandardSecondsBetween(
+                MONDAY_LOCAL_DATE, end), equalTo(20000L * 40 * 3600));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anEffortTooBigForAnEffortDurationIsRejected() {
+        BaseCalendar calendar = createBasicCalendar();
+        calendar.getWorkableDuration(MONDAY_LOCAL_DATE,
+                MONDAY_LOCAL_DATE.plusWeeks(20000));
+    }
+
+    private static void assertDurationsAreTheSameAsDayByDay(
+            BaseCalendar calendar, LocalDate start, LocalDate end,
+            ResourcesPerDay amount) {
+        int[] durations = calendar.asDurationsBetween(start, end, amount);
+        assertThat(durations.length, equalTo(DailyCapacities.create(start,
+                end).size()));
+        for (int i = 0; i < durations.length; i++) {
+            assertThat(EffortDuration.seconds(durations[i]),
+                    equalTo(calendar.asDurationOn(
+                            wholeDay(start.plusDays(i)), amount)));
+        }
+    }
+
+    @Test
+    public void theDurationsBetweenTwoDatesAreTheSameAsDayByDay() {
+        BaseCalendar calendar = createThreeLevelsDerivedCalendar();
+        calendar.setCapacityAt(Days.MONDAY, Capacity.create(hours(8))
+                .withAllowedExtraEffort(hours(2)));
+        calendar.setCapacityAt(Days.TUESDAY, Capacity.create(hours(8))
+                .notOverAssignableWithoutLimit());
+        LocalDate start = MONDAY_LOCAL_DATE.minusWeeks(2);
+        LocalDate end = MONDAY_LOCAL_DATE.plusWeeks(10);
+
+        assertDurationsAreTheSameAsDayByDay(calendar, start, end,
+                ResourcesPerDay.amount(1));
+        assertDurationsAreTheSameAsDayByDay(calendar, start, end,
+                ResourcesPerDay.amount(2));
+        assertDurationsAreTheSameAsDayByDay(calendar, start, end,
+                ResourcesPerDay.amount(new BigDecimal("0.33")));
+        assertDurationsAreTheSameAsDayByDay(
+                ResourceCalendarTest.createBasicResourceCalendar(3), start,
+                end, ResourcesPerDay.amount(2));
+    }
 }
@@ -28,14 +28,18 @@ import static org.easymock.EasyMock.replay;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.workingday.IntraDayDate.PartialDay.wholeDay;
 
 import org.joda.time.LocalDate;
 import org.junit.Test;
 import org.libreplan.business.calendars.entities.CombinedWorkHours;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.calendars.entities.ICalendar;
+import org.libreplan.business.calendars.entities.SameWorkHoursEveryDay;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+import org.libreplan.business.workingday.ResourcesPerDay;
 
 public class CombinedWorkHoursTest {
 
@@ -66,6 +70,50 @@ public class CombinedWorkHoursTest {
         assertThat(duration, equalTo(EffortDuration.hours(2)));
     }
 
+    @Test
+    public void theCapacitiesBetweenTwoDatesAreCombinedDayByDay() {
+        LocalDate start = new LocalDate(2000, 3, 3);
+        ICalendar minOf = CombinedWorkHours.minOf(new SameWorkHoursEveryDay(4),
+                new SameWorkHoursEveryDay(6));
+        ICalendar maxOf = CombinedWorkHours.maxOf(new SameWorkHoursEveryDay(4),
+                new SameWorkHoursEveryDay(6));
+
+        DailyCapacities min = minOf.getCapacitiesBetween(start,
+                start.plusDays(10));
+        DailyCapacities max = maxOf.getCapacitiesBetween(start,
+                start.plusDays(10));
+
+        assertThat(min.size(), equalTo(10));
+        assertThat(min.getStandardEffort(3),
+                equalTo(EffortDuration.hours(4)));
+        assertThat(max.getStandardEffort(3),
+                equalTo(EffortDuration.hours(6)));
+        assertTrue(min.isOverAssignableWithoutLimit(3));
+        assertThat(max.sumStandardEffort(), equalTo(EffortDuration.hours(60)));
+    }
+
+    @Test
+    public void theDurationsBetweenTwoDatesAreCombinedDayByDay() {
+        LocalDate start = new LocalDate(2000, 3, 3);
+        ICalendar minOf = CombinedWorkHours.minOf(new SameWorkHoursEveryDay(4),
+                new SameWorkHoursEveryDay(6));
+        ICalendar maxOf = CombinedWorkHours.maxOf(new SameWorkHoursEveryDay(4),
+                new SameWorkHoursEveryDay(6));
+        ResourcesPerDay amount = ResourcesPerDay.amount(2);
+
+        int[] min = minOf.asDurationsBetween(start, start.plusDays(10),
+                amount);
+        int[] max = maxOf.asDurationsBetween(start, start.plusDays(10),
+                amount);
+
+        assertThat(min.length, equalTo(10));
+        assertThat(EffortDuration.seconds(min[3]),
+                equalTo(minOf.asDurationOn(wholeDay(start.plusDays(3)),
+                        amount)));
+        assertThat(EffortDuration.seconds(max[3]),
+                equalTo(EffortDuration.hours(12)));
+    }
+
     private ICalendar hours(int hours) {
         ICalendar result = createNiceMock(ICalendar.class);
         expect(result.getCapacityOn(isA(PartialDay.class))).andReturn(
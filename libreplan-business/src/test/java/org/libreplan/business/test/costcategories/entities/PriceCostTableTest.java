@@ -0,0 +1,138 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.costcategories.entities;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.costcategories.entities.PriceCostTable;
+
+public class PriceCostTableTest {
+
+    private static final Long RESOURCE = 1L;
+
+    private static final Long OTHER_RESOURCE = 2L;
+
+    private static final Long TYPE = 10L;
+
+    private static final Long OTHER_TYPE = 11L;
+
+    private static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    private PriceCostTable.Builder builder;
+
+    @Before
+    public void createBuilder() {
+        builder = PriceCostTable.builder();
+    }
+
+    @Test
+    public void withoutEntriesThereIsNoPrice() {
+        assertNull(builder.build().getPriceCost(RESOURCE, TYPE, START));
+    }
+
+    @Test
+    public void thePriceIsOnlyDefinedWhileBothIntervalsAreActive() {
+        builder.add(RESOURCE, TYPE, new BigDecimal("20"), START,
+                START.plusDays(30), START.plusDays(10), null);
+
+        PriceCostTable table = builder.build();
+        assertNull(table.getPriceCost(RESOURCE, TYPE, START.plusDays(9)));
+        assertThat(table.getPriceCost(RESOURCE, TYPE, START.plusDays(10)),
+                equalTo(new BigDecimal("20")));
+        assertThat(table.getPriceCost(RESOURCE, TYPE, START.plusDays(30)),
+                equalTo(new BigDecimal("20")));
+        assertNull(table.getPriceCost(RESOURCE, TYPE, START.plusDays(31)));
+    }
+
+    @Test
+    public void openIntervalsDoNotEnd() {
+        builder.add(RESOURCE, TYPE, new BigDecimal("20"), START, null, START,
+                null);
+
+        PriceCostTable table = builder.build();
+        assertThat(table.getPriceCost(RESOURCE, TYPE, START.plusYears(50)),
+                equalTo(new BigDecimal("20")));
+    }
+
+    @Test
+    public void intervalsWithoutIntersectionAreIgnored() {
+        builder.add(RESOURCE, TYPE, new BigDecimal("20"), START,
+                START.plusDays(5), START.plusDays(6), null);
+
+        PriceCostTable table = builder.build();
+        assertNull(table.getPriceCost(RESOURCE, TYPE, START.plusDays(5)));
+        assertNull(table.getPriceCost(RESOURCE, TYPE, START.plusDays(6)));
+    }
+
+    @Test
+    public void thePriceDependsOnTheResourceAndTheType() {
+        builder.add(RESOURCE, TYPE, new BigDecimal("20"), START, null, START,
+                null);
+        builder.add(RESOURCE, OTHER_TYPE, new BigDecimal("30"), START, null,
+                START, null);
+        builder.add(OTHER_RESOURCE, TYPE, new BigDecimal("40"), START, null,
+                START, null);
+
+        PriceCostTable table = builder.build();
+        assertThat(table.getPriceCost(RESOURCE, TYPE, START),
+                equalTo(new BigDecimal("20")));
+        assertThat(table.getPriceCost(RESOURCE, OTHER_TYPE, START),
+                equalTo(new BigDecimal("30")));
+        assertThat(table.getPriceCost(OTHER_RESOURCE, TYPE, START),
+                equalTo(new BigDecimal("40")));
+        assertNull(table.getPriceCost(OTHER_RESOURCE, OTHER_TYPE, START));
+    }
+
+    @Test
+    public void theEntriesCanBeAddedInAnyOrder() {
+        for (int i = 9; i >= 0; i--) {
+            builder.add(RESOURCE, TYPE, new BigDecimal(i), START,
+                    null, START.plusMonths(i), START.plusMonths(i + 1)
+                            .minusDays(1));
+        }
+
+        PriceCostTable table = builder.build();
+        for (int i = 0; i < 10; i++) {
+            assertThat(table.getPriceCost(RESOURCE, TYPE, START.plusMonths(i)
+                    .plusDays(3)), equalTo(new BigDecimal(i)));
+        }
+        assertNull(table.getPriceCost(RESOURCE, TYPE, START.plusMonths(10)));
+    }
+
+    @Test
+    public void aLongerPreviousIntervalIsFoundAfterAShorterOne() {
+        builder.add(RESOURCE, TYPE, new BigDecimal("20"), START, null, START,
+                START.plusDays(100));
+        builder.add(RESOURCE, TYPE, new BigDecimal("30"), START, null,
+                START.plusDays(10), START.plusDays(20));
+
+        PriceCostTable table = builder.build();
+        assertThat(table.getPriceCost(RESOURCE, TYPE, START.plusDays(50)),
+                equalTo(new BigDecimal("20")));
+    }
+
+}
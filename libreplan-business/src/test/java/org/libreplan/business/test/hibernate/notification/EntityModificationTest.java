@@ -0,0 +1,135 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.hibernate.notification;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.libreplan.business.hibernate.notification.EntityModification;
+import org.libreplan.business.hibernate.notification.EntityModification.Kind;
+
+public class EntityModificationTest {
+
+    private static EntityModification modification(Kind kind, Long id) {
+        return EntityModification.create(kind, String.class, id);
+    }
+
+    @Test
+    public void theModificationsOfDifferentEntitiesAreKept() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(modification(Kind.INSERT, 1L),
+                        modification(Kind.UPDATE, 2L),
+                        EntityModification.create(Kind.UPDATE, Integer.class,
+                                1L)));
+        assertThat(result.size(), equalTo(3));
+        assertThat(result.get(0).getId(), equalTo((Object) 1L));
+        assertThat(result.get(1).getId(), equalTo((Object) 2L));
+    }
+
+    @Test
+    public void severalUpdatesOfTheSameEntityAreJoined() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(modification(Kind.UPDATE, 1L),
+                        modification(Kind.UPDATE, 1L)));
+        assertThat(result.size(), equalTo(1));
+        assertThat(result.get(0).getKind(), equalTo(Kind.UPDATE));
+    }
+
+    @Test
+    public void anInsertionFollowedByUpdatesIsAnInsertion() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(modification(Kind.INSERT, 1L),
+                        modification(Kind.UPDATE, 1L)));
+        assertThat(result.size(), equalTo(1));
+        assertThat(result.get(0).getKind(), equalTo(Kind.INSERT));
+    }
+
+    @Test
+    public void anUpdateFollowedByADeletionIsADeletion() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(modification(Kind.UPDATE, 1L),
+                        modification(Kind.DELETE, 1L)));
+        assertThat(result.size(), equalTo(1));
+        assertThat(result.get(0).getKind(), equalTo(Kind.DELETE));
+    }
+
+    @Test
+    public void anEntityInsertedAndDeletedHasNoModifications() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(modification(Kind.INSERT, 1L),
+                        modification(Kind.UPDATE, 1L),
+                        modification(Kind.DELETE, 1L)));
+        assertTrue(result.isEmpty());
+    }
+
+    private static Map<String, Object> values(Object resourceId) {
+        return Collections.<String, Object> singletonMap("resource",
+                resourceId);
+    }
+
+    @Test
+    public void theJoinedUpdatesKeepTheValuesBeforeTheFirstOne() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(EntityModification.create(Kind.UPDATE, String.class,
+                        1L, values(2L), values(1L)),
+                        EntityModification.create(Kind.UPDATE, String.class,
+                                1L, values(3L), values(2L))));
+        assertThat(result.get(0).getValue("resource"), equalTo((Object) 3L));
+        assertThat(result.get(0).getPreviousValue("resource"),
+                equalTo((Object) 1L));
+    }
+
+    @Test
+    public void aDeletionFollowedByAnInsertionIsAnUpdateFromTheDeletedValues() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(EntityModification.create(Kind.DELETE, String.class,
+                        1L, values(1L), null),
+                        EntityModification.create(Kind.INSERT, String.class,
+                                1L, values(2L), null)));
+        assertThat(result.get(0).getKind(), equalTo(Kind.UPDATE));
+        assertThat(result.get(0).getPreviousValue("resource"),
+                equalTo((Object) 1L));
+    }
+
+    @Test
+    public void thePreviousValuesOfADetachedUpdateAreUnknown() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(EntityModification.create(Kind.UPDATE, String.class,
+                        1L, values(2L), null)));
+        assertFalse(result.get(0).hasPreviousValues());
+    }
+
+    @Test
+    public void theModificationsWithoutIdAreNotJoined() {
+        List<EntityModification> result = EntityModification.coalesce(Arrays
+                .asList(modification(Kind.INSERT, null),
+                        modification(Kind.INSERT, null)));
+        assertThat(result.size(), equalTo(2));
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.hibernate.notification;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.IntegrationEntity;
+import org.libreplan.business.hibernate.notification.EntityModification.Kind;
+import org.libreplan.business.hibernate.notification.IIntegrationEntityChanges.ChangesSince;
+import org.libreplan.business.hibernate.notification.IntegrationEntityChange;
+import org.libreplan.business.hibernate.notification.IntegrationEntityChanges;
+import org.libreplan.business.labels.entities.LabelType;
+import org.libreplan.business.materials.entities.Material;
+import org.libreplan.business.materials.entities.MaterialCategory;
+import org.libreplan.business.materials.entities.UnitType;
+import org.libreplan.business.workreports.entities.WorkReport;
+import org.libreplan.business.workreports.entities.WorkReportLine;
+
+public class IntegrationEntityChangesTest {
+
+    private IntegrationEntityChanges changes;
+
+    @Before
+    public void setUp() {
+        changes = new IntegrationEntityChanges(3);
+    }
+
+    private static IntegrationEntityChange modification(Kind kind, Long id,
+            String code) {
+        return IntegrationEntityChange.of(kind, UnitType.class, id,
+                UnitType.create(code, "measure" + id));
+    }
+
+    @Test
+    public void anUnknownTokenIsExpired() {
+        assertTrue(changes.getChangesSince(null, UnitType.class).isExpired());
+        assertTrue(changes.getChangesSince("other-0", UnitType.class)
+                .isExpired());
+        String token = changes.getCurrentToken();
+        assertTrue(new IntegrationEntityChanges().getChangesSince(token,
+                UnitType.class).isExpired());
+    }
+
+    @Test
+    public void theModificationsAfterTheTokenAreReturned() {
+        changes.record(Arrays.asList(modification(Kind.INSERT, 1L, "a")));
+        String token = changes.getCurrentToken();
+        changes.record(Arrays.asList(modification(Kind.UPDATE, 2L, "b"),
+                modification(Kind.DELETE, 3L, "c")));
+
+        ChangesSince result = changes.getChangesSince(token, UnitType.class);
+
+        assertFalse(result.isExpired());
+        List<IntegrationEntityChange> list = result.getChanges();
+        assertThat(list.size(), equalTo(2));
+        assertThat(list.get(0).getCode(), equalTo("b"));
+        assertThat(list.get(1).getCode(), equalTo("c"));
+        assertTrue(list.get(1).isDeletion());
+        assertTrue(changes.getChangesSince(result.getToken(), UnitType.class)
+                .getChanges().isEmpty());
+    }
+
+    @Test
+    public void onlyTheModificationsOfTheRequestedClassAreReturned() {
+        String token = changes.getCurrentToken();
+        changes.record(Arrays.asList(modification(Kind.INSERT, 1L, "a"),
+                IntegrationEntityChange.of(Kind.INSERT, LabelType.class, 1L,
+                        LabelType.create("l", "label"))));
+
+        assertThat(changes.getChangesSince(token, UnitType.class)
+                .getChanges().size(), equalTo(1));
+        assertThat(changes.getChangesSince(token, LabelType.class)
+                .getChanges().size(), equalTo(1));
+    }
+
+    @Test
+    public void theModificationsOfTheSameEntityAreJoined() {
+        changes = new IntegrationEntityChanges();
+        String token = changes.getCurrentToken();
+        changes.record(Arrays.asList(modification(Kind.INSERT, 1L, "a"),
+                modification(Kind.UPDATE, 1L, "renamed"),
+                modification(Kind.INSERT, 2L, "b")));
+        changes.record(Arrays.asList(modification(Kind.DELETE, 2L, "b")));
+
+        List<IntegrationEntityChange> list = changes.getChangesSince(token,
+                UnitType.class).getChanges();
+
+        assertThat(list.size(), equalTo(1));
+        assertThat(list.get(0).getKind(), equalTo(Kind.INSERT));
+        assertThat(list.get(0).getCode(), equalTo("renamed"));
+    }
+
+    @Test
+    public void theOwnerOfADeletedEntityIsKept() {
+        WorkReport workReport = WorkReport.create();
+        workReport.setCode("report");
+        WorkReportLine line = WorkReportLine.create(workReport);
+        line.setCode("line");
+        String token = changes.getCurrentToken();
+        changes.record(Arrays.asList(IntegrationEntityChange.of(Kind.DELETE,
+                WorkReportLine.class, 1L, line)));
+
+        List<IntegrationEntityChange> list = changes.getChangesSince(token,
+                WorkReportLine.class).getChanges();
+
+        assertThat(list.size(), equalTo(1));
+        IntegrationEntityChange change = list.get(0);
+        assertTrue(change.isDeletion());
+        assertThat(change.getCode(), equalTo("line"));
+        assertTrue(change.hasOwner());
+        assertThat(change.getOwnerClass(), equalTo((Object) WorkReport.class));
+        assertThat(change.getOwnerCode(), equalTo("report"));
+    }
+
+    @Test
+    public void theOwnerIsTheOutermostContainingEntity() {
+        MaterialCategory root = MaterialCategory.createUnvalidated("root",
+                "root");
+        MaterialCategory subcategory = MaterialCategory.createUnvalidated(
+                "sub", "sub");
+        root.addSubcategory(subcategory);
+        Material material = Material.createUnvalidated("material", "", null,
+                false);
+        material.setCategory(subcategory);
+        String token = changes.getCurrentToken();
+        changes.record(Arrays.asList(IntegrationEntityChange.of(Kind.UPDATE,
+                Material.class, 1L, material), IntegrationEntityChange.of(
+                Kind.UPDATE, MaterialCategory.class, 2L, root)));
+
+        List<IntegrationEntityChange> list = changes.getChangesSince(token,
+                IntegrationEntity.class).getChanges();
+
+        assertThat(list.get(0).getOwnerCode(), equalTo("root"));
+        assertFalse(list.get(1).hasOwner());
+    }
+
+    @Test
+    public void theTokenExpiresIfTheOwnerOfAModificationIsUnknown() {
+        String before = changes.getCurrentToken();
+        changes.record(Arrays.asList(IntegrationEntityChange
+                .withUnknownOwner(Kind.DELETE, WorkReportLine.class, 1L,
+                        "line")));
+        String after = changes.getCurrentToken();
+        changes.record(Arrays.asList(modification(Kind.INSERT, 2L, "b")));
+
+        assertTrue(changes.getChangesSince(before, IntegrationEntity.class)
+                .isExpired());
+        assertFalse(changes.getChangesSince(before, UnitType.class)
+                .isExpired());
+        assertThat(changes.getChangesSince(after, IntegrationEntity.class)
+                .getChanges().size(), equalTo(1));
+    }
+
+    @Test
+    public void theTokenExpiresWhenItsModificationsAreDiscarded() {
+        String token = changes.getCurrentToken();
+        changes.record(Arrays.asList(modification(Kind.INSERT, 1L, "a"),
+                modification(Kind.INSERT, 2L, "b"),
+                modification(Kind.INSERT, 3L, "c")));
+        assertFalse(changes.getChangesSince(token, UnitType.class)
+                .isExpired());
+
+        changes.record(Arrays.asList(modification(Kind.INSERT, 4L, "d")));
+
+        ChangesSince result = changes.getChangesSince(token, UnitType.class);
+        assertTrue(result.isExpired());
+        assertThat(result.getToken(), equalTo(changes.getCurrentToken()));
+    }
+
+}
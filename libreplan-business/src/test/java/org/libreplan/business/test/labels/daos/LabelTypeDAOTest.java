@@ -28,11 +28,14 @@ import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityHandler;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.labels.daos.ILabelTypeDAO;
 import org.libreplan.business.labels.entities.LabelType;
@@ -84,4 +87,58 @@ public class LabelTypeDAOTest {
         List<LabelType> list = labelTypeDAO.list(LabelType.class);
         assertEquals(previous + 1, list.size());
     }
+
+    @Test
+    public void testFindAllPaginated() {
+        labelTypeDAO.save(createLabelTypeWithCode());
+        labelTypeDAO.save(createLabelTypeWithCode());
+        labelTypeDAO.save(createLabelTypeWithCode());
+        List<LabelType> all = labelTypeDAO.findAll();
+        assertEquals(all.subList(0, 2), labelTypeDAO.findAll(0, 2));
+        assertEquals(all.subList(1, all.size()),
+                labelTypeDAO.findAll(1, all.size()));
+    }
+
+    @Test
+    public void testScrollAllInTheSameOrder() {
+        labelTypeDAO.save(createLabelTypeWithCode());
+        labelTypeDAO.save(createLabelTypeWithCode());
+        labelTypeDAO.flush();
+        List<String> expectedCodes = new ArrayList<String>();
+        for (LabelType each : labelTypeDAO.findAll()) {
+            expectedCodes.add(each.getCode());
+        }
+        final List<String> codes = new ArrayList<String>();
+        labelTypeDAO.scrollAll(new IEntityHandler<LabelType>() {
+
+            @Override
+            public void handle(LabelType entity) {
+                codes.add(entity.getCode());
+            }
+        });
+        assertEquals(expectedCodes, codes);
+    }
+
+    @Test
+    public void testFindByCodesIgnoringCase() {
+        LabelType labelType1 = createLabelTypeWithCode();
+        LabelType labelType2 = createLabelTypeWithCode();
+        labelTypeDAO.save(labelType1);
+        labelTypeDAO.save(labelType2);
+        labelTypeDAO.save(createLabelTypeWithCode());
+
+        List<LabelType> found = labelTypeDAO.findByCodes(Arrays.asList(" "
+                + labelType1.getCode().toUpperCase() + " ", labelType2
+                .getCode(), "", null, UUID.randomUUID().toString()));
+
+        assertEquals(2, found.size());
+        assertTrue(found.contains(labelType1));
+        assertTrue(found.contains(labelType2));
+    }
+
+    private LabelType createLabelTypeWithCode() {
+        return LabelType.create(UUID.randomUUID().toString(), UUID
+                .randomUUID().toString());
+    }
+
 }
@@ -22,12 +22,14 @@ package org.libreplan.business.test.orders.daos;
 import static junit.framework.Assert.assertNotNull;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -40,8 +42,13 @@ import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.externalcompanies.entities.DeadlineCommunication;
+import org.libreplan.business.orders.daos.IHoursGroupDAO;
 import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.IOrderElementDAO;
+import org.libreplan.business.orders.entities.HoursGroup;
 import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.OrderLine;
 import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
 import org.libreplan.business.scenarios.entities.OrderVersion;
@@ -77,6 +84,12 @@ public class OrderDAOTest {
     @Autowired
     private IOrderDAO orderDAO;
 
+    @Autowired
+    private IOrderElementDAO orderElementDAO;
+
+    @Autowired
+    private IHoursGroupDAO hoursGroupDAO;
+
     @Autowired
     private IBaseCalendarDAO calendarDAO;
 
@@ -204,4 +217,88 @@ public class OrderDAOTest {
         });
     }
 
+    private OrderLine addLine(Order order, String code) {
+        OrderLine result = OrderLine.createOrderLineWithUnfixedPercentage(10);
+        result.setName(UUID.randomUUID().toString());
+        result.setCode(code);
+        result.getHoursGroups().get(0).setCode(hoursGroupCode(code));
+        order.add(result);
+        return result;
+    }
+
+    private static String hoursGroupCode(String orderLineCode) {
+        return orderLineCode + "-HG";
+    }
+
+    private static OrderLine lineAt(Order order, int position) {
+        return (OrderLine) order.getChildren().get(position);
+    }
+
+    private Order saveOrderWithLinesInAnotherTransaction(
+            final String... codes) {
+        return transactionService
+                .runOnAnotherTransaction(new IOnTransaction<Order>() {
+                    @Override
+                    public Order execute() {
+                        Order order = createValidOrder(UUID.randomUUID()
+                                .toString());
+                        for (String each : codes) {
+                            addLine(order, each);
+                        }
+                        orderDAO.save(order);
+                        orderDAO.flush();
+                        return order;
+                    }
+                });
+    }
+
+    @Test
+    public void theCodesOfTheSameElementsAreNotRepeated() {
+        Order order = saveOrderWithLinesInAnotherTransaction(UUID
+                .randomUUID().toString(), UUID.randomUUID().toString());
+
+        assertNull(orderElementDAO.findRepeatedOrderCodeInDB(order));
+        assertNull(hoursGroupDAO.findRepeatedHoursGroupCodeInDB(lineAt(order,
+                0).getHoursGroups()));
+    }
+
+    @Test
+    public void theCodesSwappedInTheSameOrderAreNotRepeated() {
+        String code1 = UUID.randomUUID().toString();
+        String code2 = UUID.randomUUID().toString();
+        Order order = saveOrderWithLinesInAnotherTransaction(code1, code2);
+
+        lineAt(order, 0).setCode(code2);
+        lineAt(order, 1).setCode(code1);
+
+        assertNull(orderElementDAO.findRepeatedOrderCodeInDB(order));
+    }
+
+    @Test
+    public void theCodeOfAnotherHoursGroupInTheSameOrderIsRepeated() {
+        String code1 = UUID.randomUUID().toString();
+        Order order = saveOrderWithLinesInAnotherTransaction(code1, UUID
+                .randomUUID().toString());
+
+        List<HoursGroup> hoursGroups = lineAt(order, 1).getHoursGroups();
+        hoursGroups.get(0).setCode(hoursGroupCode(code1));
+
+        assertThat(hoursGroupDAO.findRepeatedHoursGroupCodeInDB(hoursGroups),
+                equalTo(hoursGroups.get(0)));
+    }
+
+    @Test
+    public void theCodesOfElementsInAnotherOrderAreRepeated() {
+        String code = UUID.randomUUID().toString();
+        saveOrderWithLinesInAnotherTransaction(code);
+
+        Order anotherOrder = createValidOrder(UUID.randomUUID().toString());
+        OrderLine line = addLine(anotherOrder, code);
+
+        assertThat(orderElementDAO.findRepeatedOrderCodeInDB(anotherOrder),
+                equalTo((OrderElement) line));
+        assertThat(hoursGroupDAO.findRepeatedHoursGroupCodeInDB(line
+                .getHoursGroups()), equalTo(line.getHoursGroups().get(0)));
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.orders.daos;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.OrdersByElementMemo;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+
+/**
+ * Tests for {@link OrdersByElementMemo}
+ */
+public class OrdersByElementMemoTest {
+
+    private OrderElement savedElement(long id) {
+        OrderElement result = createNiceMock(OrderElement.class);
+        expect(result.getId()).andReturn(id).anyTimes();
+        expect(result.isNewObject()).andReturn(false).anyTimes();
+        org.easymock.classextension.EasyMock.replay(result);
+        return result;
+    }
+
+    private Order order() {
+        Order result = createNiceMock(Order.class);
+        org.easymock.classextension.EasyMock.replay(result);
+        return result;
+    }
+
+    @Test
+    public void theElementsPrefetchedTogetherAreRetrievedWithOneCall() {
+        OrderElement first = savedElement(1L);
+        OrderElement second = savedElement(2L);
+        Order order = order();
+        IOrderDAO orderDAO = createMock(IOrderDAO.class);
+        List<OrderElement> elements = Arrays.asList(first, second);
+        expect(orderDAO.loadOrdersAvoidingProxyFor(elements)).andReturn(
+                Arrays.asList(order, order)).once();
+        replay(orderDAO);
+
+        OrdersByElementMemo memo = OrdersByElementMemo.create(orderDAO);
+        memo.prefetch(elements);
+        assertThat(memo.getOrderFor(first), sameInstance(order));
+        assertThat(memo.getOrderFor(second), sameInstance(order));
+        verify(orderDAO);
+    }
+
+    @Test
+    public void onlyTheElementsNotResolvedYetAreRetrieved() {
+        OrderElement first = savedElement(1L);
+        OrderElement second = savedElement(2L);
+        Order firstOrder = order();
+        Order secondOrder = order();
+        IOrderDAO orderDAO = createMock(IOrderDAO.class);
+        expect(
+                orderDAO.loadOrdersAvoidingProxyFor(Collections
+                        .singletonList(first))).andReturn(
+                Collections.singletonList(firstOrder)).once();
+        expect(
+                orderDAO.loadOrdersAvoidingProxyFor(Collections
+                        .singletonList(second))).andReturn(
+                Collections.singletonList(secondOrder)).once();
+        replay(orderDAO);
+
+        OrdersByElementMemo memo = OrdersByElementMemo.create(orderDAO);
+        assertThat(memo.getOrderFor(first), sameInstance(firstOrder));
+        memo.prefetch(Arrays.asList(first, second));
+        assertThat(memo.getOrderFor(first), sameInstance(firstOrder));
+        assertThat(memo.getOrderFor(second), sameInstance(secondOrder));
+        verify(orderDAO);
+    }
+
+}
@@ -24,6 +24,7 @@ package org.libreplan.business.test.orders.entities;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -883,6 +884,63 @@ public class OrderElementTest {
                 sameValueAs(division.divide(20, 100)));
     }
 
+    @Test
+    public void checkGetAdvancePercentageAtDatesTwoLevelOfDepth()
+            throws DuplicateValueTrueReportGlobalAdvanceException,
+            DuplicateAdvanceAssignmentForOrderElementException {
+        OrderLineGroup orderLineGroup_1 = OrderLineGroup.create();
+        orderLineGroup_1.setName("OrderLineGroup 1");
+        orderLineGroup_1.setCode("1");
+        orderLineGroup_1.useSchedulingDataFor(mockedOrderVersion);
+        OrderLineGroup orderLineGroup_1_1 = OrderLineGroup.create();
+        orderLineGroup_1_1.setName("OrderLineGroup 1.1");
+        orderLineGroup_1_1.setCode("1.1");
+
+        OrderLine orderLine_1_1_1 = givenOrderLine("OrderLine 1.1.1", "1.1.1",
+                1000);
+        OrderLine orderLine_1_2 = givenOrderLine("OrderLine 1.2", "1.2", 3000);
+
+        orderLineGroup_1.add(orderLineGroup_1_1);
+        orderLineGroup_1_1.add(orderLine_1_1_1);
+        orderLineGroup_1.add(orderLine_1_2);
+
+        LocalDate one = new LocalDate(2009, 9, 1);
+        LocalDate two = new LocalDate(2009, 9, 2);
+        LocalDate three = new LocalDate(2009, 9, 3);
+
+        AdvanceType advanceType1 = AdvanceType.create("test1", new BigDecimal(
+                10000), true, new BigDecimal(1), true, false);
+        addAvanceAssignmentWithMeasurement(orderLine_1_1_1, advanceType1,
+                new BigDecimal(100), new BigDecimal(10), true, one);
+        orderLine_1_1_1.getReportGlobalAdvanceAssignment()
+                .addAdvanceMeasurements(
+                        AdvanceMeasurement.create(three, new BigDecimal(50)));
+
+        AdvanceType advanceType2 = AdvanceType.create("test2", new BigDecimal(
+                10000), true, new BigDecimal(1), true, false);
+        addAvanceAssignmentWithMeasurement(orderLine_1_2, advanceType2,
+                new BigDecimal(100), new BigDecimal(20), true, two);
+
+        assertThat(orderLineGroup_1.getAdvancePercentage(one.minusDays(1)),
+                equalTo(new BigDecimal("0.0000")));
+        assertThat(orderLineGroup_1.getAdvancePercentage(one),
+                equalTo(new BigDecimal("0.0250")));
+        assertThat(orderLineGroup_1.getAdvancePercentage(two),
+                equalTo(new BigDecimal("0.1750")));
+        assertThat(orderLineGroup_1.getAdvancePercentage(three.plusDays(1)),
+                equalTo(new BigDecimal("0.2750")));
+
+        DirectAdvanceAssignment fake = orderLineGroup_1
+                .calculateFakeDirectAdvanceAssignment(orderLineGroup_1
+                        .getChildrenAdvance());
+        assertThat(fake.getAdvanceMeasurements().size(), equalTo(3));
+        assertThat(fake.getAdvanceMeasurementAtExactDate(two).getValue(),
+                equalTo(new BigDecimal("17.5000")));
+        assertThat(fake.getAdvanceMeasurementAtDateOrPrevious(three.plusDays(1))
+                .getDate(), equalTo(three));
+        assertNull(fake.getAdvanceMeasurementAtDateOrPrevious(one.minusDays(1)));
+    }
+
     @Test
     public void checkAdvancePercentageOrderGroupLineWithPercentageAdvanceType()
             throws DuplicateValueTrueReportGlobalAdvanceException,
@@ -23,6 +23,7 @@ package org.libreplan.business.test.orders.entities;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
@@ -87,4 +88,16 @@ public class OrderTest {
                     equalTo((OrderElement) created[i]));
         }
     }
+
+    @Test
+    public void theCodesAreNotCheckedOneByOneIfCheckedForTheWholeOrder() {
+        Order order = Order.create();
+        order.useSchedulingDataFor(mockedOrderVersion);
+        OrderLine leaf = OrderLine.create();
+        leaf.setCode("code");
+        order.add(leaf);
+
+        order.setCodesCheckedInOtherOrders(true);
+        assertTrue(leaf.checkConstraintCodeRepeatedInAnotherOrder());
+    }
 }
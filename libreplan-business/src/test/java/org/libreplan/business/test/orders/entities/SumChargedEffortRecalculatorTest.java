@@ -0,0 +1,122 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.orders.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.orders.entities.SumChargedEffortRecalculator;
+
+public class SumChargedEffortRecalculatorTest {
+
+    private static class BlockingRecalculator extends
+            SumChargedEffortRecalculator {
+
+        private final List<Long> recalculated = Collections
+                .synchronizedList(new ArrayList<Long>());
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final Long blockedOrderId;
+
+        private BlockingRecalculator(Long blockedOrderId) {
+            this.blockedOrderId = blockedOrderId;
+        }
+
+        @Override
+        protected void doRecalculation(Long orderId) {
+            if (orderId.equals(blockedOrderId) && release.getCount() > 0) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            recalculated.add(orderId);
+        }
+
+    }
+
+    private BlockingRecalculator recalculator;
+
+    @Before
+    public void createRecalculator() {
+        recalculator = new BlockingRecalculator(1L);
+    }
+
+    private void waitTillNothingPending() throws InterruptedException {
+        long limit = System.currentTimeMillis() + 10000;
+        while (recalculator.getPendingCount() > 0
+                && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, recalculator.getPendingCount());
+    }
+
+    @Test
+    public void theRequestsReceivedWhileRecalculatingAreCoalesced()
+            throws InterruptedException {
+        recalculator.recalculate(1L);
+        assertTrue(recalculator.started.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 500; i++) {
+            recalculator.recalculate(1L);
+        }
+        recalculator.release.countDown();
+        waitTillNothingPending();
+
+        assertEquals(2, recalculator.recalculated.size());
+        assertEquals(501, recalculator.getRequestsCount());
+        assertEquals(499, recalculator.getCoalescedRequestsCount());
+        assertEquals(2, recalculator.getRecalculationsCount());
+    }
+
+    @Test
+    public void otherOrdersAreRecalculatedMeanwhile()
+            throws InterruptedException {
+        recalculator.recalculate(1L);
+        assertTrue(recalculator.started.await(10, TimeUnit.SECONDS));
+        recalculator.recalculate(2L);
+        recalculator.recalculate(3L);
+
+        long limit = System.currentTimeMillis() + 10000;
+        while (recalculator.recalculated.size() < 2
+                && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, recalculator.recalculated.size());
+        assertEquals(1, recalculator.getPendingCount());
+
+        recalculator.release.countDown();
+        waitTillNothingPending();
+        assertEquals(Long.valueOf(1L), recalculator.recalculated.get(2));
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.chart;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.SameWorkHoursEveryDay;
+import org.libreplan.business.planner.chart.ResourceLoadChartData;
+import org.libreplan.business.planner.chart.ResourceLoadChartData.IResourcesProvider;
+import org.libreplan.business.planner.entities.CompactDayAssignments;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+
+public class ResourceLoadChartDataTest {
+
+    private static final LocalDate someDate = new LocalDate(2013, 3, 4);
+
+    private static Resource createResource(long id, int hoursPerDay) {
+        Worker result = createNiceMock(Worker.class);
+        expect(result.getId()).andReturn(id).anyTimes();
+        expect(result.getCalendarOrDefault()).andReturn(
+                new SameWorkHoursEveryDay(hoursPerDay)).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static IResourcesProvider provider(final List<Resource> resources) {
+        return new IResourcesProvider() {
+
+            @Override
+            public List<Resource> getAllResources() {
+                return resources;
+            }
+
+            @Override
+            public List<Resource> getResources(Collection<Long> resourceIds) {
+                List<Resource> result = new ArrayList<Resource>();
+                for (Resource each : resources) {
+                    if (resourceIds.contains(each.getId())) {
+                        result.add(each);
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    @Test
+    public void theCompactAssignmentsKeepTheColumnsOfEachAssignment() {
+        CompactDayAssignments assignments = new CompactDayAssignments();
+        for (int i = 0; i < 100; i++) {
+            assignments.add((long) i % 3, someDate.plusDays(i), i);
+        }
+        assertThat(assignments.size(), equalTo(100));
+        assertThat(assignments.getFirstDay(), equalTo(someDate));
+        assertThat(assignments.getEndExclusive(),
+                equalTo(someDate.plusDays(100)));
+        for (int i = 0; i < 100; i++) {
+            assertThat(assignments.getResourceId(i), equalTo((long) i % 3));
+            assertThat(assignments.getDay(i), equalTo(someDate.plusDays(i)));
+            assertThat(assignments.getSeconds(i), equalTo(i));
+        }
+    }
+
+    @Test
+    public void withoutAssignmentsTheChartIsEmpty() {
+        ResourceLoadChartData data = new ResourceLoadChartData(
+                new CompactDayAssignments(),
+                Arrays.asList(createResource(1, 8)));
+        assertTrue(data.getLoad().isEmpty());
+        assertTrue(data.getOverload().isEmpty());
+        assertTrue(data.getAvailability().isEmpty());
+    }
+
+    @Test
+    public void theCompactAssignmentsGiveTheSameChartThanTheEntities() {
+        Resource first = createResource(1, 8);
+        Resource second = createResource(2, 4);
+        Resource notAssigned = createResource(3, 6);
+        List<Resource> resources = Arrays.asList(first, second, notAssigned);
+
+        List<DayAssignment> assignments = new ArrayList<DayAssignment>();
+        assignments.add(SpecificDayAssignment.create(someDate, hours(10),
+                first));
+        assignments.add(SpecificDayAssignment.create(someDate, hours(3),
+                second));
+        assignments.add(SpecificDayAssignment.create(someDate, hours(2),
+                second));
+        assignments.add(SpecificDayAssignment.create(someDate.plusDays(3),
+                hours(2), first));
+        assignments.add(SpecificDayAssignment.create(someDate.plusDays(4),
+                hours(20), second));
+
+        ResourceLoadChartData fromEntities = new ResourceLoadChartData(
+                assignments, resources);
+        ResourceLoadChartData fromColumns = new ResourceLoadChartData(
+                CompactDayAssignments.from(assignments), resources);
+
+        assertThat(fromColumns.getLoad(), equalTo(fromEntities.getLoad()));
+        assertThat(fromColumns.getOverload(),
+                equalTo(fromEntities.getOverload()));
+        assertThat(fromColumns.getAvailability(),
+                equalTo(fromEntities.getAvailability()));
+
+        assertThat(fromColumns.getLoad().size(), equalTo(5));
+        assertThat(fromColumns.getAvailability().get(someDate),
+                equalTo(hours(18)));
+        assertThat(fromColumns.getLoad().get(someDate), equalTo(hours(15)));
+        assertThat(fromColumns.getOverload().get(someDate),
+                equalTo(hours(3).plus(hours(18))));
+        assertThat(fromColumns.getLoad().get(someDate.plusDays(1)),
+                equalTo(EffortDuration.zero()));
+    }
+
+    @Test
+    public void theAssignmentsOfSomeResourcesCanBeReplaced() {
+        Resource first = createResource(1, 8);
+        Resource second = createResource(2, 4);
+        List<Resource> resources = Arrays.asList(first, second);
+
+        CompactDayAssignments initial = new CompactDayAssignments();
+        CompactDayAssignments modified = new CompactDayAssignments();
+        CompactDayAssignments replacement = new CompactDayAssignments();
+        for (int i = 0; i < 10; i++) {
+            LocalDate day = someDate.plusDays(i);
+            initial.add(1L, day, hours(6).getSeconds());
+            initial.add(2L, day, hours(5).getSeconds());
+            modified.add(2L, day, hours(5).getSeconds());
+            int seconds = i >= 3 && i < 6 ? hours(12).getSeconds() : hours(6)
+                    .getSeconds();
+            modified.add(1L, day, seconds);
+            if (i >= 2 && i < 7) {
+                replacement.add(1L, day, seconds);
+            }
+        }
+
+        ResourceLoadChartData updated = new ResourceLoadChartData(initial,
+                resources).withAssignmentsReplaced(Arrays.asList(1L),
+                someDate.plusDays(2), someDate.plusDays(7), replacement,
+                provider(resources));
+        ResourceLoadChartData expected = new ResourceLoadChartData(modified,
+                resources);
+
+        assertThat(updated.getLoad(), equalTo(expected.getLoad()));
+        assertThat(updated.getOverload(), equalTo(expected.getOverload()));
+        assertThat(updated.getAvailability(),
+                equalTo(expected.getAvailability()));
+        assertThat(updated.getOverload().get(someDate.plusDays(3)),
+                equalTo(hours(4).plus(hours(1)).plus(hours(12))));
+    }
+
+    @Test
+    public void theReplacementIsNotDoneIfTheDataWasCalculatedFromEntities() {
+        List<Resource> resources = Arrays.asList(createResource(1, 8));
+        assertThat(new ResourceLoadChartData(
+                new ArrayList<DayAssignment>(), resources)
+                .withAssignmentsReplaced(Arrays.asList(1L), someDate,
+                        someDate.plusDays(1), new CompactDayAssignments(),
+                        provider(resources)), nullValue());
+    }
+
+    @Test
+    public void theDaysAreExtendedIfTheReplacementIsOutsideThem() {
+        Resource first = createResource(1, 8);
+        Resource second = createResource(2, 4);
+        List<Resource> resources = Arrays.asList(first, second);
+        CompactDayAssignments initial = new CompactDayAssignments();
+        initial.add(1L, someDate, hours(6).getSeconds());
+        initial.add(2L, someDate.plusDays(1), hours(5).getSeconds());
+        CompactDayAssignments replacement = new CompactDayAssignments();
+        replacement.add(1L, someDate.plusDays(4), hours(9).getSeconds());
+        CompactDayAssignments modified = new CompactDayAssignments();
+        modified.add(2L, someDate.plusDays(1), hours(5).getSeconds());
+        modified.add(1L, someDate.plusDays(4), hours(9).getSeconds());
+
+        ResourceLoadChartData updated = new ResourceLoadChartData(initial,
+                resources).withAssignmentsReplaced(Arrays.asList(1L),
+                someDate, someDate.plusDays(5), replacement,
+                provider(resources));
+        ResourceLoadChartData expected = new ResourceLoadChartData(modified,
+                resources);
+
+        assertThat(updated.getLoad().get(someDate),
+                equalTo(EffortDuration.zero()));
+        assertThat(updated.getLoad().tailMap(someDate.plusDays(1)),
+                equalTo(expected.getLoad()));
+        assertThat(updated.getOverload().tailMap(someDate.plusDays(1)),
+                equalTo(expected.getOverload()));
+        assertThat(updated.getAvailability().tailMap(someDate.plusDays(1)),
+                equalTo(expected.getAvailability()));
+        assertThat(updated.getAvailability().get(someDate.plusDays(4)),
+                equalTo(hours(12)));
+    }
+
+    @Test
+    public void theCapacitiesOfNewResourcesAreAdded() {
+        Resource first = createResource(1, 8);
+        Resource newResource = createResource(2, 4);
+        CompactDayAssignments initial = new CompactDayAssignments();
+        CompactDayAssignments replacement = new CompactDayAssignments();
+        CompactDayAssignments modified = new CompactDayAssignments();
+        for (int i = 0; i < 3; i++) {
+            LocalDate day = someDate.plusDays(i);
+            initial.add(1L, day, hours(6).getSeconds());
+            modified.add(1L, day, hours(6).getSeconds());
+            modified.add(2L, day, hours(5).getSeconds());
+            replacement.add(2L, day, hours(5).getSeconds());
+        }
+
+        ResourceLoadChartData updated = new ResourceLoadChartData(initial,
+                Arrays.asList(first)).withAssignmentsReplaced(
+                Arrays.asList(2L), someDate, someDate.plusDays(3),
+                replacement, provider(Arrays.asList(first, newResource)));
+        ResourceLoadChartData expected = new ResourceLoadChartData(modified,
+                Arrays.asList(first, newResource));
+
+        assertThat(updated.getLoad(), equalTo(expected.getLoad()));
+        assertThat(updated.getOverload(), equalTo(expected.getOverload()));
+        assertThat(updated.getAvailability(),
+                equalTo(expected.getAvailability()));
+    }
+
+    @Test
+    public void theAssignmentsOfAResourceCanBeRemoved() {
+        List<Resource> resources = Arrays.asList(createResource(1, 8));
+        CompactDayAssignments initial = new CompactDayAssignments();
+        initial.add(1L, someDate, hours(6).getSeconds());
+        ResourceLoadChartData data = new ResourceLoadChartData(initial,
+                resources);
+
+        ResourceLoadChartData withoutLoad = data.withAssignmentsReplaced(
+                Arrays.asList(1L), someDate, someDate.plusDays(1),
+                new CompactDayAssignments(), provider(resources));
+        assertThat(withoutLoad.getLoad().get(someDate),
+                equalTo(EffortDuration.zero()));
+        assertThat(data.getLoad().get(someDate), equalTo(hours(6)));
+    }
+
+    @Test
+    public void theReplacementDoesNotModifyThePreviousData() {
+        List<Resource> resources = Arrays.asList(createResource(1, 8));
+        CompactDayAssignments initial = new CompactDayAssignments();
+        CompactDayAssignments replacement = new CompactDayAssignments();
+        for (int i = 0; i < 5; i++) {
+            initial.add(1L, someDate.plusDays(i), hours(6).getSeconds());
+        }
+        replacement.add(1L, someDate.plusDays(2), hours(10).getSeconds());
+        ResourceLoadChartData previous = new ResourceLoadChartData(initial,
+                resources);
+        SortedMap<LocalDate, EffortDuration> load = new TreeMap<LocalDate, EffortDuration>(
+                previous.getLoad());
+        SortedMap<LocalDate, EffortDuration> overload = new TreeMap<LocalDate, EffortDuration>(
+                previous.getOverload());
+        SortedMap<LocalDate, EffortDuration> availability = new TreeMap<LocalDate, EffortDuration>(
+                previous.getAvailability());
+
+        ResourceLoadChartData updated = previous.withAssignmentsReplaced(
+                Arrays.asList(1L), someDate.plusDays(1), someDate.plusDays(4),
+                replacement, provider(resources));
+
+        assertThat(updated.getOverload().get(someDate.plusDays(2)),
+                equalTo(hours(2).plus(hours(8))));
+        assertThat(updated.getAvailability(), equalTo(previous
+                .getAvailability()));
+        assertThat(previous.getLoad(), equalTo(load));
+        assertThat(previous.getOverload(), equalTo(overload));
+        assertThat(previous.getAvailability(), equalTo(availability));
+    }
+
+}
@@ -28,9 +28,11 @@ import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -294,4 +296,24 @@ public class ResourceAllocationDAOTest {
                 resources,
                 intervalInitDate, null).contains(resourceAllocation1));
   }
+
+    @Test
+    public void theAllocationsOfSeveralResourcesAreFoundByResource() {
+        Scenario current = scenarioManager.getCurrent();
+        ResourceAllocation<?> allocation = createValidSpecificResourceAllocation();
+        resourceAllocationDAO.save(allocation);
+        Resource withAllocation = allocation.getAssociatedResources().get(0);
+        Resource withoutAllocation = createValidWorker();
+
+        Map<Resource, List<ResourceAllocation<?>>> found = resourceAllocationDAO
+                .findAllocationsRelatedTo(current,
+                        Arrays.asList(withoutAllocation, withAllocation),
+                        null, null);
+
+        assertEquals(Arrays.asList(withoutAllocation, withAllocation),
+                new ArrayList<Resource>(found.keySet()));
+        assertEquals(resourceAllocationDAO.findAllocationsRelatedTo(current,
+                withAllocation, null, null), found.get(withAllocation));
+        assertTrue(found.get(withoutAllocation).isEmpty());
+    }
 }
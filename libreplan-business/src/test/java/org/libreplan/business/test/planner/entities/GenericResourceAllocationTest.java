@@ -57,6 +57,7 @@ import org.junit.Test;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.calendars.entities.Capacity;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.calendars.entities.SameWorkHoursEveryDay;
 import org.libreplan.business.planner.entities.GenericDayAssignment;
@@ -348,6 +349,39 @@ public class GenericResourceAllocationTest {
                 .anyTimes();
         expect(baseCalendar.getCapacityWithOvertime(isA(LocalDate.class)))
                 .andReturn(capacityMultipliedByUnits).anyTimes();
+        final BaseCalendar calendar = baseCalendar;
+        expect(
+                baseCalendar.getCapacitiesBetween(isA(LocalDate.class),
+                        isA(LocalDate.class))).andAnswer(
+                new IAnswer<DailyCapacities>() {
+
+                    @Override
+                    public DailyCapacities answer() throws Throwable {
+                        LocalDate start = (LocalDate) getCurrentArguments()[0];
+                        LocalDate end = (LocalDate) getCurrentArguments()[1];
+                        return DailyCapacities.dayByDay(calendar, start, end);
+                    }
+                }).anyTimes();
+        expect(
+                baseCalendar.asDurationsBetween(isA(LocalDate.class),
+                        isA(LocalDate.class), isA(ResourcesPerDay.class)))
+                .andAnswer(new IAnswer<int[]>() {
+
+                    @Override
+                    public int[] answer() throws Throwable {
+                        LocalDate start = (LocalDate) getCurrentArguments()[0];
+                        LocalDate end = (LocalDate) getCurrentArguments()[1];
+                        ResourcesPerDay amount = (ResourcesPerDay) getCurrentArguments()[2];
+                        int[] durations = new int[DailyCapacities.create(
+                                start, end).size()];
+                        for (int i = 0; i < durations.length; i++) {
+                            durations[i] = calendar.asDurationOn(
+                                    PartialDay.wholeDay(start.plusDays(i)),
+                                    amount).getSeconds();
+                        }
+                        return durations;
+                    }
+                }).anyTimes();
 
         if (baseCalendar instanceof ResourceCalendar) {
             ResourceCalendar resourceCalendar = (ResourceCalendar) baseCalendar;
@@ -668,6 +702,36 @@ public class GenericResourceAllocationTest {
         assertThat(assignmentsWorker2, haveHours());
     }
 
+    @Test
+    public void manyWorkersAlongAYearAreDistributedFromMoreToLessAvailable() {
+        final int WORKERS = 200;
+        final int TASK_DURATION_DAYS = 365;
+        givenBaseCalendarWithoutExceptions(8);
+        LocalDate start = new LocalDate(2013, 1, 1);
+        givenTaskWithStartAndEnd(toInterval(start,
+                Period.days(TASK_DURATION_DAYS)));
+        givenGenericResourceAllocationForTask(task);
+        List<Worker> manyWorkers = new ArrayList<Worker>();
+        for (int i = 0; i < WORKERS; i++) {
+            manyWorkers.add(createWorkerWithLoad(null, i % 4));
+        }
+
+        genericResourceAllocation.forResources(manyWorkers).allocate(
+                ResourcesPerDay.amount(150));
+
+        assertThat(genericResourceAllocation.getAssignedHours(),
+                equalTo(150 * 8 * TASK_DURATION_DAYS));
+        List<GenericDayAssignment> assignmentsFirstWorker = genericResourceAllocation
+                .getOrderedAssignmentsFor(manyWorkers.get(0));
+        assertThat(assignmentsFirstWorker.size(), equalTo(TASK_DURATION_DAYS));
+        for (GenericDayAssignment each : assignmentsFirstWorker) {
+            assertThat(each.getHours(), equalTo(8));
+        }
+        List<GenericDayAssignment> assignmentsLastWorker = genericResourceAllocation
+                .getOrderedAssignmentsFor(manyWorkers.get(WORKERS - 1));
+        assertThat(assignmentsLastWorker, haveHours());
+    }
+
     @Test
     public void doesntSurpassTheExtraHours() {
         final int TASK_DURATION_DAYS = 4;
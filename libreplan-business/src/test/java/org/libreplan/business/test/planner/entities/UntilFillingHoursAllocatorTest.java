@@ -48,6 +48,8 @@ import org.joda.time.LocalDate;
 import org.junit.Test;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.Capacity;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.calendars.entities.ThereAreHoursOnWorkHoursCalculator;
 import org.libreplan.business.calendars.entities.ThereAreHoursOnWorkHoursCalculator.CapacityResult;
 import org.libreplan.business.planner.entities.DayAssignment;
@@ -218,6 +220,46 @@ public class UntilFillingHoursAllocatorTest {
                 18), hours(6))));
     }
 
+    @Test
+    public void theDaysWithoutCapacityAreSkippedWhenAllocatingManyDays() {
+        AvailabilityTimeLine availability = AvailabilityTimeLine.allValid();
+        availability.invalidAt(new LocalDate(2009, 10, 20), new LocalDate(
+                2009, 12, 20));
+        givenCalendarWithAvailability(availability, hours(8));
+        givenSpecificAllocations(ResourcesPerDay.amount(1));
+        IntraDayDate endDate = ResourceAllocation.allocating(allocations)
+                .untilAllocating(hours(8 * 100 + 3));
+        // 10 days before the gap and 90 days and 3 hours after it
+        assertThat(endDate,
+                equalTo(IntraDayDate.create(new LocalDate(2010, 3, 20),
+                        hours(3))));
+        ResourceAllocation<?> allocation = allocations.get(0)
+                .getBeingModified();
+        assertThat(DayAssignment.sum(allocation.getAssignments()),
+                equalTo(hours(8 * 100 + 3)));
+    }
+
+    @Test
+    public void theDaysWithoutCapacityAreSkippedWhenAllocatingManyDaysFromEnd() {
+        AvailabilityTimeLine availability = AvailabilityTimeLine.allValid();
+        availability.invalidAt(new LocalDate(2009, 10, 20), new LocalDate(
+                2009, 12, 20));
+        givenCalendarWithAvailability(availability, hours(8));
+        givenStartDate(IntraDayDate.startOfDay(new LocalDate(2009, 10, 1)));
+        givenEndDate(IntraDayDate.startOfDay(new LocalDate(2010, 1, 1)));
+        givenSpecificAllocations(ResourcesPerDay.amount(1));
+        IntraDayDate newStart = ResourceAllocation.allocating(allocations)
+                .untilAllocating(Direction.BACKWARD, hours(8 * 15 + 2));
+        // 12 days after the gap and 3 days and 2 hours before it
+        assertThat(newStart,
+                equalTo(IntraDayDate.create(new LocalDate(2009, 10, 16),
+                        hours(6))));
+        ResourceAllocation<?> allocation = allocations.get(0)
+                .getBeingModified();
+        assertThat(DayAssignment.sum(allocation.getAssignments()),
+                equalTo(hours(8 * 15 + 2)));
+    }
+
     @Test
     public void ifNoAvailableHoursTheAllocationsAreNotSatisfied() {
         AvailabilityTimeLine availability = AvailabilityTimeLine.allValid();
@@ -614,6 +656,50 @@ public class UntilFillingHoursAllocatorTest {
                         }
                     }
                 }).anyTimes();
+        expect(result.getCapacityWithOvertime(isA(LocalDate.class)))
+                .andAnswer(new IAnswer<Capacity>() {
+
+                    @Override
+                    public Capacity answer() throws Throwable {
+                        LocalDate day = (LocalDate) getCurrentArguments()[0];
+                        EffortDuration standard = availability.isValid(day) ? workingDay
+                                : zero();
+                        return Capacity.create(standard)
+                                .overAssignableWithoutLimit();
+                    }
+                }).anyTimes();
+        expect(
+                result.getCapacitiesBetween(isA(LocalDate.class),
+                        isA(LocalDate.class))).andAnswer(
+                new IAnswer<DailyCapacities>() {
+
+                    @Override
+                    public DailyCapacities answer() throws Throwable {
+                        LocalDate start = (LocalDate) getCurrentArguments()[0];
+                        LocalDate end = (LocalDate) getCurrentArguments()[1];
+                        return DailyCapacities.dayByDay(result, start, end);
+                    }
+                }).anyTimes();
+        expect(
+                result.asDurationsBetween(isA(LocalDate.class),
+                        isA(LocalDate.class), isA(ResourcesPerDay.class)))
+                .andAnswer(new IAnswer<int[]>() {
+
+                    @Override
+                    public int[] answer() throws Throwable {
+                        LocalDate start = (LocalDate) getCurrentArguments()[0];
+                        LocalDate end = (LocalDate) getCurrentArguments()[1];
+                        ResourcesPerDay amount = (ResourcesPerDay) getCurrentArguments()[2];
+                        int[] durations = new int[DailyCapacities.create(
+                                start, end).size()];
+                        for (int i = 0; i < durations.length; i++) {
+                            durations[i] = result.asDurationOn(
+                                    PartialDay.wholeDay(start.plusDays(i)),
+                                    amount).getSeconds();
+                        }
+                        return durations;
+                    }
+                }).anyTimes();
         expect(
                 result.asDurationOn(isA(PartialDay.class),
                         isA(ResourcesPerDay.class))).andAnswer(
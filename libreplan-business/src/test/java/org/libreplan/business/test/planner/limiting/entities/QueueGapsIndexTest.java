@@ -0,0 +1,168 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.limiting.entities;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.easymock.IAnswer;
+import org.easymock.classextension.EasyMock;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.CalendarAvailability;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.Gap;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.planner.limiting.entities.QueueGapsIndex;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+
+public class QueueGapsIndexTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private Resource resource;
+
+    private int daysAsked = 0;
+
+    private List<LimitingResourceQueueElement> elements = new ArrayList<LimitingResourceQueueElement>();
+
+    @Before
+    public void givenResourceWorkingEightHoursEveryDay() {
+        ResourceCalendar calendar = createNiceMock(ResourceCalendar.class);
+        expect(calendar.getCapacityOn(isA(PartialDay.class))).andAnswer(
+                new IAnswer<EffortDuration>() {
+
+                    @Override
+                    public EffortDuration answer() throws Throwable {
+                        daysAsked++;
+                        PartialDay day = (PartialDay) EasyMock
+                                .getCurrentArguments()[0];
+                        return day.limitWorkingDay(hours(8));
+                    }
+                }).anyTimes();
+        expect(calendar.getCalendarAvailabilities()).andReturn(
+                new ArrayList<CalendarAvailability>()).anyTimes();
+        resource = createNiceMock(Resource.class);
+        expect(resource.getCalendar()).andReturn(calendar).anyTimes();
+        replay(calendar, resource);
+    }
+
+    private LimitingResourceQueueElement element(int startDay, int endDay) {
+        LimitingResourceQueueElement result = LimitingResourceQueueElement
+                .create();
+        result.setStartDate(START.plusDays(startDay));
+        result.setEndDate(START.plusDays(endDay));
+        return result;
+    }
+
+    private static DateAndHour day(int day) {
+        return new DateAndHour(START.plusDays(day), 0);
+    }
+
+    private QueueGapsIndex givenIndexWithGapsOfOneAndThreeDays() {
+        elements.add(element(0, 1));
+        elements.add(element(2, 5));
+        elements.add(element(8, 10));
+        return QueueGapsIndex.create(resource, elements);
+    }
+
+    @Test
+    public void theFirstPositionSinceATimeIsFoundAmongTheStarts() {
+        QueueGapsIndex index = givenIndexWithGapsOfOneAndThreeDays();
+        assertThat(index.firstPositionSince(day(-1)), equalTo(0));
+        assertThat(index.firstPositionSince(day(0)), equalTo(1));
+        assertThat(index.firstPositionSince(day(2)), equalTo(1));
+        assertThat(index.firstPositionSince(day(3)), equalTo(2));
+        assertThat(index.firstPositionSince(day(9)), equalTo(3));
+    }
+
+    @Test
+    public void theGapsWithoutEnoughHoursAreSkipped() {
+        QueueGapsIndex index = givenIndexWithGapsOfOneAndThreeDays();
+        assertThat(index.nextPositionWithHours(0, 16), equalTo(0));
+        assertThat(index.nextPositionWithHours(1, 16), equalTo(2));
+        assertThat(index.nextPositionWithHours(1, 8), equalTo(1));
+        assertThat(index.nextPositionWithHours(3, 1000), equalTo(3));
+        assertThat(index.getGapAt(2, day(0)).getHoursInGap(), equalTo(24));
+    }
+
+    @Test
+    public void theHoursOfEachGapAreOnlyCalculatedOnce() {
+        QueueGapsIndex index = givenIndexWithGapsOfOneAndThreeDays();
+        index.nextPositionWithHours(1, 16);
+        int asked = daysAsked;
+        assertThat(index.nextPositionWithHours(1, 16), equalTo(2));
+        assertThat(index.nextPositionWithHours(1, 32), equalTo(3));
+        assertThat(daysAsked, equalTo(asked));
+    }
+
+    @Test
+    public void theGapsAreUpdatedWhenAddingAndRemovingElements() {
+        QueueGapsIndex index = givenIndexWithGapsOfOneAndThreeDays();
+        index.nextPositionWithHours(1, 16);
+        LimitingResourceQueueElement added = element(6, 7);
+        index.elementAdded(added);
+        assertThat(index.size(), equalTo(4));
+        assertThat(index.nextPositionWithHours(1, 16), equalTo(4));
+        assertThat(index.getGapAt(2, day(0)).getHoursInGap(), equalTo(8));
+        assertThat(index.getGapAt(3, day(0)).getHoursInGap(), equalTo(8));
+
+        index.elementRemoved(added);
+        assertThat(index.size(), equalTo(3));
+        assertThat(index.nextPositionWithHours(1, 16), equalTo(2));
+    }
+
+    @Test
+    public void theGapIsClampedToTheStartOfTheSearch() {
+        QueueGapsIndex index = givenIndexWithGapsOfOneAndThreeDays();
+        Gap gap = index.getGapAt(2, day(6));
+        assertThat(gap.getStartTime(), equalTo(day(6)));
+        assertThat(gap.getHoursInGap(), equalTo(16));
+        assertThat(index.getGapAt(0, day(0)), nullValue());
+        assertThat(index.getGapAt(3, day(0)).getEndTime(), nullValue());
+    }
+
+    @Test
+    public void theGapAfterTheLastElementFollowsTheInsertions() {
+        QueueGapsIndex index = givenIndexWithGapsOfOneAndThreeDays();
+        List<Gap> gaps = index.getGapsInActivationPeriods();
+        assertThat(gaps.size(), equalTo(1));
+        assertThat(gaps.get(0).getStartTime(), equalTo(day(10)));
+
+        index.elementAdded(element(12, 15));
+        gaps = index.getGapsInActivationPeriods();
+        assertThat(gaps.size(), equalTo(1));
+        assertThat(gaps.get(0).getStartTime(), equalTo(day(15)));
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.workingday;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.minutes;
+import static org.libreplan.business.workingday.EffortDuration.seconds;
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import org.junit.Test;
+import org.libreplan.business.workingday.EffortAccumulator;
+
+public class EffortAccumulatorTest {
+
+    @Test
+    public void aNewAccumulatorIsZero() {
+        EffortAccumulator accumulator = new EffortAccumulator();
+        assertTrue(accumulator.isZero());
+        assertThat(accumulator.toEffortDuration(), equalTo(zero()));
+    }
+
+    @Test
+    public void itSumsTheAddedEfforts() {
+        EffortAccumulator accumulator = new EffortAccumulator();
+        accumulator.add(hours(3)).add(minutes(20)).addSeconds(15);
+        assertFalse(accumulator.isZero());
+        assertThat(accumulator.toEffortDuration(),
+                equalTo(hours(3).plus(minutes(20)).plus(seconds(15))));
+    }
+
+    @Test
+    public void itCanAddOtherAccumulator() {
+        EffortAccumulator accumulator = new EffortAccumulator().add(hours(1));
+        accumulator.add(new EffortAccumulator().add(hours(2)));
+        assertThat(accumulator.toEffortDuration(), equalTo(hours(3)));
+    }
+
+    @Test
+    public void itCanBeReset() {
+        EffortAccumulator accumulator = new EffortAccumulator().add(hours(1));
+        accumulator.reset();
+        assertTrue(accumulator.isZero());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSecondsCannotBeAdded() {
+        new EffortAccumulator().addSeconds(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aSumTooBigForAnEffortDurationIsNotConverted() {
+        EffortAccumulator accumulator = new EffortAccumulator();
+        accumulator.addSeconds(Integer.MAX_VALUE).addSeconds(1);
+        accumulator.toEffortDuration();
+    }
+
+}
@@ -224,4 +224,27 @@ public class EffortDurationTest {
         assertThat(minutes(30).roundToHours(), equalTo(1));
     }
 
+    @Test
+    public void theCommonDurationsAreShared() {
+        assertTrue(zero() == seconds(0));
+        assertTrue(hours(8) == minutes(480));
+        assertTrue(hours(4).plus(hours(4)) == hours(8));
+        assertTrue(hours(8).minus(minutes(30)) == minutes(450));
+        assertTrue(hours(24) == seconds(24 * 3600));
+    }
+
+    @Test
+    public void theDurationsNotCachedAreEqualAnyway() {
+        assertThat(seconds(59).plus(seconds(1)), equalTo(minutes(1)));
+        assertThat(hours(24).plus(minutes(1)), equalTo(seconds(24 * 3600 + 60)));
+        assertThat(hours(30).minus(hours(6)), equalTo(hours(24)));
+    }
+
+    @Test
+    public void theSumOfManyDurationsIsCorrect() {
+        assertThat(EffortDuration.sum(hours(8), minutes(30), seconds(20)),
+                equalTo(hours(8).and(30, Granularity.MINUTES).and(20,
+                        Granularity.SECONDS)));
+    }
+
 }
@@ -0,0 +1,108 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.workreports.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SortedMap;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.entities.DailyWorkedEffort;
+
+public class DailyWorkedEffortTest {
+
+    private static final LocalDate DAY = new LocalDate(2013, 1, 7);
+
+    private static DailyWorkedEffort example() {
+        return DailyWorkedEffort.builder().add(DAY, 3600)
+                .add(DAY.plusDays(1), 7200).add(DAY.plusDays(5), 0)
+                .add(DAY.plusDays(6), 1800).build();
+    }
+
+    @Test
+    public void theEffortBetweenTwoDaysIncludesBoth() {
+        DailyWorkedEffort effort = example();
+        assertEquals(10800, effort.getSecondsBetween(DAY, DAY.plusDays(1)));
+        assertEquals(7200,
+                effort.getSecondsBetween(DAY.plusDays(1), DAY.plusDays(5)));
+        assertEquals(EffortDuration.minutes(30),
+                effort.getEffortBetween(DAY.plusDays(2), DAY.plusDays(6)));
+    }
+
+    @Test
+    public void nullLimitsMeanNoLimit() {
+        DailyWorkedEffort effort = example();
+        assertEquals(12600, effort.getSecondsBetween(null, null));
+        assertEquals(3600, effort.getSecondsBetween(null, DAY));
+        assertEquals(1800, effort.getSecondsBetween(DAY.plusDays(6), null));
+    }
+
+    @Test
+    public void theDaysWithoutEffortCountAsWorked() {
+        DailyWorkedEffort effort = example();
+        assertTrue(effort.hasWorkBetween(DAY.plusDays(5), DAY.plusDays(5)));
+        assertFalse(effort.hasWorkBetween(DAY.plusDays(2), DAY.plusDays(4)));
+        assertFalse(effort.hasWorkBetween(DAY.minusDays(10), DAY.minusDays(1)));
+        assertEquals(0,
+                effort.getSecondsBetween(DAY.plusDays(2), DAY.plusDays(4)));
+    }
+
+    @Test
+    public void anEmptyIntervalHasNoEffort() {
+        DailyWorkedEffort effort = example();
+        assertEquals(0, effort.getSecondsBetween(DAY.plusDays(6), DAY));
+        assertFalse(DailyWorkedEffort.EMPTY.hasWorkBetween(null, null));
+        assertTrue(DailyWorkedEffort.builder().build().isEmpty());
+    }
+
+    @Test
+    public void theEffortCanBeGroupedByTheMonthOfTheYear() {
+        DailyWorkedEffort effort = DailyWorkedEffort.builder()
+                .add(new LocalDate(2012, 1, 31), 3600)
+                .add(new LocalDate(2012, 2, 1), 0)
+                .add(new LocalDate(2013, 1, 2), 1800)
+                .add(new LocalDate(2013, 3, 4), 7200).build();
+
+        SortedMap<Integer, Long> all = effort.getSecondsPerMonthBetween(null,
+                null);
+        assertEquals(Arrays.asList(1, 2, 3),
+                new ArrayList<Integer>(all.keySet()));
+        assertEquals(Arrays.asList(5400L, 0L, 7200L), new ArrayList<Long>(
+                all.values()));
+
+        SortedMap<Integer, Long> inTheYear = effort.getSecondsPerMonthBetween(
+                new LocalDate(2013, 1, 1), new LocalDate(2013, 12, 31));
+        assertEquals(Arrays.asList(1, 3),
+                new ArrayList<Integer>(inTheYear.keySet()));
+        assertEquals(Long.valueOf(1800), inTheYear.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void theDaysMustBeAddedInOrder() {
+        DailyWorkedEffort.builder().add(DAY, 3600).add(DAY, 3600);
+    }
+
+}
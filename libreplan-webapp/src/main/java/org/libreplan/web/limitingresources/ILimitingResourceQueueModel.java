@@ -118,6 +118,16 @@ public interface ILimitingResourceQueueModel {
      */
     void initGlobalView();
 
+    /**
+     * Loads the day assignments and the orders of the queue elements that
+     * weren't loaded yet. <code>initGlobalView</code> doesn't load them for
+     * the elements on the queues, so this must be called before showing them
+     *
+     * @param elements
+     */
+    void loadQueueElements(
+            Collection<? extends LimitingResourceQueueElement> elements);
+
     /**
      * Inserts element into queue at a specific time
      *
@@ -145,6 +155,17 @@ public interface ILimitingResourceQueueModel {
             LimitingResourceQueueElement oldElement,
             LimitingResourceQueueElement newElement);
 
+    /**
+     * Assigns all the elements in a single pass following their topological
+     * order, so each element is placed after its predecessors in the batch.
+     * The gaps of the queues are kept between insertions and the elements
+     * already in the queues are only shifted if some of them depends on an
+     * inserted element. Nothing is stored until <code>confirm</code>, so the
+     * returned elements can be shown as a preview
+     *
+     * @param elements
+     * @return all the elements inserted or moved
+     */
     Set<LimitingResourceQueueElement> assignLimitingResourceQueueElements(
             List<LimitingResourceQueueElement> elements);
 
@@ -46,13 +46,17 @@ import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.calendars.entities.CalendarAvailability;
 import org.libreplan.business.calendars.entities.CalendarData;
 import org.libreplan.business.calendars.entities.CalendarException;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.OrdersByElementMemo;
 import org.libreplan.business.orders.entities.HoursGroup;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.orders.entities.TaskSource;
 import org.libreplan.business.planner.daos.IDependencyDAO;
+import org.libreplan.business.planner.daos.IResourceAllocationDAO;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.Dependency;
@@ -125,6 +129,12 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
     @Autowired
     private ILimitingResourceQueueDependencyDAO limitingResourceQueueDependencyDAO;
 
+    @Autowired
+    private IResourceAllocationDAO resourceAllocationDAO;
+
+    @Autowired
+    private IAdHocTransactionService transactionService;
+
     private QueuesState queuesState;
 
     private Interval viewInterval;
@@ -139,6 +149,8 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
 
     private Scenario master;
 
+    private OrdersByElementMemo ordersByElement;
+
     private Map<LimitingResourceQueueElement, HashSet<LimitingResourceQueueDependency>> toBeSavedDependencies =
         new HashMap<LimitingResourceQueueElement, HashSet<LimitingResourceQueueDependency>>();
 
@@ -153,6 +165,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         master = PredefinedScenarios.MASTER.getScenario();
         List<LimitingResourceQueueElement> unassigned = findUnassignedLimitingResourceQueueElements();
         List<LimitingResourceQueue> queues = loadLimitingResourceQueues();
+        prefetchOrdersOf(unassigned);
         queuesState = new QueuesState(queues, unassigned);
         final Date startingDate = getEarliestDate();
         Date endDate = (new LocalDate(startingDate)).plusYears(2)
@@ -166,6 +179,29 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
 
     }
 
+    /**
+     * The orders are needed to show the unassigned elements and the tooltips
+     * of the queue elements. They are retrieved at once instead of walking up
+     * the tree of every task. The ones of the queue elements are retrieved
+     * when the elements are loaded
+     */
+    private void prefetchOrdersOf(List<LimitingResourceQueueElement> unassigned) {
+        ordersByElement = OrdersByElementMemo.create(orderDAO);
+        List<OrderElement> orderElements = new ArrayList<OrderElement>();
+        addOrderElementsOf(orderElements, unassigned);
+        ordersByElement.prefetch(orderElements);
+    }
+
+    private void addOrderElementsOf(List<OrderElement> result,
+            Collection<LimitingResourceQueueElement> elements) {
+        for (LimitingResourceQueueElement each : elements) {
+            Task task = each.getResourceAllocation().getTask();
+            if (task != null) {
+                result.add(task.getOrderElement());
+            }
+        }
+    }
+
     private Date getEarliestDate() {
         final LimitingResourceQueueElement element = getEarliestQueueElement();
         return (element != null) ? element.getStartDate()
@@ -209,16 +245,23 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
      * @return
      */
     private List<LimitingResourceQueueElement> findUnassignedLimitingResourceQueueElements() {
-        return initializeLimitingResourceQueueElements(limitingResourceQueueElementDAO
-                .getUnassigned());
-    }
-
-    private List<LimitingResourceQueueElement> initializeLimitingResourceQueueElements(
-            List<LimitingResourceQueueElement> elements) {
-        for (LimitingResourceQueueElement each : elements) {
+        List<LimitingResourceQueueElement> result = limitingResourceQueueElementDAO
+                .getUnassigned();
+        for (LimitingResourceQueueElement each : result) {
             initializeLimitingResourceQueueElement(each);
+            initializeDayAssignments(each);
         }
-        return elements;
+        return result;
+    }
+
+    /**
+     * Day assignments are the bulk of the data of an element. They're only
+     * loaded for the unassigned elements and, through
+     * {@link #loadQueueElements(Collection)}, for the queue elements shown or
+     * moved
+     */
+    private void initializeDayAssignments(LimitingResourceQueueElement element) {
+        Hibernate.initialize(element.getResourceAllocation().getAssignments());
     }
 
     private void initializeLimitingResourceQueueElement(
@@ -244,7 +287,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         }
         initializeDependencies(task);
         initializeTaskSource(task.getTaskSource());
-        initializeRootOrder(task);
+        Hibernate.initialize(task.getOrderElement());
     }
 
     private void initializeDependencies(Task task) {
@@ -271,18 +314,6 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         }
     }
 
-    // FIXME: Needed to fetch order.name in QueueComponent.composeTooltiptext.
-    // Try to replace it with a HQL query instead of iterating all the way up
-    // through order
-    private void initializeRootOrder(Task task) {
-        Hibernate.initialize(task.getOrderElement());
-        OrderElement order = task.getOrderElement();
-        do {
-            Hibernate.initialize(order.getParent());
-            order = order.getParent();
-        } while (order.getParent() != null);
-    }
-
     private void initializeCalendarIfAny(BaseCalendar calendar) {
         if (calendar != null) {
             Hibernate.initialize(calendar);
@@ -322,7 +353,6 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
                 GenericResourceAllocation generic = (GenericResourceAllocation) resourceAllocation;
                 initializeCriteria(generic.getCriterions());
             }
-            Hibernate.initialize(resourceAllocation.getAssignments());
             Hibernate.initialize(resourceAllocation.getLimitingResourceQueueElement());
         }
         return resourceAllocation;
@@ -364,7 +394,6 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         if (resource != null) {
             Hibernate.initialize(resource);
             initializeCalendarIfAny(resource.getCalendar());
-            resource.getAssignments();
             for (CriterionSatisfaction each : resource
                     .getCriterionSatisfactions()) {
                 Hibernate.initialize(each);
@@ -376,7 +405,44 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
     @Override
     @Transactional(readOnly = true)
     public Order getOrderByTask(TaskElement task) {
-        return orderDAO.loadOrderAvoidingProxyFor(task.getOrderElement());
+        if (ordersByElement == null) {
+            ordersByElement = OrdersByElementMemo.create(orderDAO);
+        }
+        return ordersByElement.getOrderFor(task.getOrderElement());
+    }
+
+    @Override
+    public void loadQueueElements(
+            Collection<? extends LimitingResourceQueueElement> elements) {
+        final List<LimitingResourceQueueElement> notLoaded = queuesState
+                .getNotLoaded(elements);
+        if (notLoaded.isEmpty()) {
+            return;
+        }
+        transactionService.runOnReadOnlyTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                loadInTransaction(notLoaded);
+                return null;
+            }
+        });
+        queuesState.loaded(notLoaded);
+    }
+
+    private void loadInTransaction(List<LimitingResourceQueueElement> elements) {
+        for (LimitingResourceQueueElement each : elements) {
+            resourceAllocationDAO.reattachUnmodifiedEntity(each
+                    .getResourceAllocation());
+            initializeDayAssignments(each);
+        }
+        List<OrderElement> orderElements = new ArrayList<OrderElement>();
+        addOrderElementsOf(orderElements, elements);
+        ordersByElement.prefetch(orderElements);
+    }
+
+    private void loadQueueElement(LimitingResourceQueueElement element) {
+        loadQueueElements(Collections.singletonList(element));
     }
 
     @Override
@@ -442,15 +508,31 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         List<LimitingResourceQueueElement> result = new ArrayList<LimitingResourceQueueElement>();
         result.add(requirements.getElement());
 
-        List<LimitingResourceQueueElement> moved = shift(
-                queuesState
-                        .getPotentiallyAffectedByInsertion(externalQueueElement),
-                requirements.getElement(), allocation);
+        List<LimitingResourceQueueElement> moved = shiftIfNeeded(
+                externalQueueElement, requirements.getElement(), allocation);
         result.addAll(rescheduleAffectedElementsToSatisfyDependencies(allocation, moved));
 
         return result;
     }
 
+    /**
+     * Building the graph of the elements potentially affected by an insertion
+     * is expensive, so it's skipped if no successor of the inserted element
+     * is on a queue. That's always the case for the elements scheduled in
+     * topological order whose successors are still unassigned
+     */
+    private List<LimitingResourceQueueElement> shiftIfNeeded(
+            LimitingResourceQueueElement externalQueueElement,
+            LimitingResourceQueueElement elementInserted,
+            AllocationSpec allocationAlreadyDone) {
+        if (!queuesState.hasSuccessorsOnQueues(externalQueueElement)) {
+            return Collections.emptyList();
+        }
+        return shift(queuesState
+                .getPotentiallyAffectedByInsertion(externalQueueElement),
+                elementInserted, allocationAlreadyDone);
+    }
+
     /**
      * After an allocation dependencies might be broken, this method unschedules
      * elements affected by an allocation and reschedule them again in
@@ -567,6 +649,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
                 && current.getEndTime().compareTo(newEnd) == 0) {
             return null;
         }
+        loadQueueElement(current);
         InsertionRequirements requirements = InsertionRequirements.create(
                 current, newStart, newEnd);
         GapOnQueue gap = Gap.untilEnd(current, newStart).onQueue(
@@ -782,6 +865,8 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
     private void applyAllocation(AllocationSpec allocationStillNotDone,
             IDayAssignmentBehaviour allocationBehaviour) {
 
+        loadQueueElement(allocationStillNotDone.getElement());
+
         // Do day allocation
         allocationBehaviour.allocateDayAssigments(
                 convert(allocationStillNotDone.getStartInclusive()),
@@ -1044,6 +1129,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
      */
     @Override
     public LimitingResourceQueueElement unschedule(LimitingResourceQueueElement queueElement) {
+        loadQueueElement(queueElement);
         queuesState.unassingFromQueue(queueElement);
         markAsModified(queueElement);
         return queueElement;
@@ -1091,6 +1177,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         Validate.notNull(queue);
         Validate.notNull(startTime);
 
+        loadQueueElement(element);
         if (element.getLimitingResourceQueue() != null) {
             unschedule(element);
         }
@@ -1100,6 +1187,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
 
     @Override
     public void init(LimitingResourceQueueElement element) {
+        loadQueueElement(element);
         beingEdited = queuesState.getEquivalent(element);
     }
 
@@ -1117,6 +1205,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
 
         LimitingResourceQueue queue = queuesState.getEquivalent(_queue);
         LimitingResourceQueueElement element = queuesState.getEquivalent(_element);
+        loadQueueElement(element);
 
         InsertionRequirements requirements = queuesState
                 .getRequirementsFor(element, allocationTime);
@@ -1215,6 +1304,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
 
         List<LimitingResourceQueueElement> result = new ArrayList<LimitingResourceQueueElement>();
 
+        loadQueueElement(oldElement);
         boolean needToReassign = oldElement.hasDayAssignments();
 
         limitingResourceQueueElementDAO.save(oldElement);
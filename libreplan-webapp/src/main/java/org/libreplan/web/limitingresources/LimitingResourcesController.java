@@ -25,6 +25,7 @@ import static org.libreplan.web.I18nHelper._;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -41,6 +42,7 @@ import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ResourceAllocation;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskElement;
 import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency;
 import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
 import org.libreplan.business.resources.entities.Criterion;
@@ -233,6 +235,15 @@ public class LimitingResourcesController extends GenericForwardComposer {
         return result;
     }
 
+    public Order getOrderByTask(TaskElement task) {
+        return limitingResourceQueueModel.getOrderByTask(task);
+    }
+
+    public void loadQueueElements(
+            Collection<? extends LimitingResourceQueueElement> elements) {
+        limitingResourceQueueModel.loadQueueElements(elements);
+    }
+
     private LimitingResourceQueueElementDTO toLimitingResourceQueueElementDTO(
             LimitingResourceQueueElement element) {
         final Task task = element.getResourceAllocation().getTask();
@@ -31,6 +31,8 @@ import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.joda.time.Period;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.planner.entities.TaskElement;
 import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
 import org.libreplan.business.resources.entities.LimitingResourceQueue;
 import org.libreplan.web.common.Util;
@@ -150,6 +152,11 @@ public class LimitingResourcesPanel extends HtmlMacroComponent {
 
         treeModel = createModelForTree();
 
+        // The queues only render and load the elements in the first page
+        paginatorFilter = new PaginatorFilter();
+        paginatorFilter.goToFirstPageOf(timeTracker.getRealInterval());
+        timeTracker.setFilter(paginatorFilter);
+
         queueListComponent = new QueueListComponent(this, timeTracker,
                 treeModel);
 
@@ -432,7 +439,6 @@ public class LimitingResourcesPanel extends HtmlMacroComponent {
     }
 
     private void initializePagination() {
-        paginatorFilter = new PaginatorFilter();
         paginationUpButton.setDisabled(paginatorFilter.isLastPage());
         paginatorFilter.setInterval(timeTracker.getRealInterval());
         timeTracker.setFilter(paginatorFilter);
@@ -503,6 +509,15 @@ public class LimitingResourcesPanel extends HtmlMacroComponent {
         dependencyList.addDependenciesFor(element);
     }
 
+    public Order getOrderByTask(TaskElement task) {
+        return limitingResourcesController.getOrderByTask(task);
+    }
+
+    public void loadQueueElements(
+            Collection<LimitingResourceQueueElement> elements) {
+        limitingResourcesController.loadQueueElements(elements);
+    }
+
     public void refreshQueues(Collection<LimitingResourceQueue> queues) {
         for (LimitingResourceQueue each: queues) {
             refreshQueue(each);
@@ -571,6 +586,12 @@ public class LimitingResourcesPanel extends HtmlMacroComponent {
         }
 
         public void setInterval(Interval realInterval) {
+            goToFirstPageOf(realInterval);
+            updatePaginationButtons();
+            dependencyList.recreateDependencyComponents();
+        }
+
+        public void goToFirstPageOf(Interval realInterval) {
             intervalStart = realInterval.getStart().toDateTimeAtStartOfDay();
             intervalEnd = realInterval.getFinish().toDateTimeAtStartOfDay();
             paginatorStart = intervalStart;
@@ -578,8 +599,6 @@ public class LimitingResourcesPanel extends HtmlMacroComponent {
             if ((paginatorEnd.plus(intervalIncrease()).isAfter(intervalEnd))) {
                 paginatorEnd = intervalEnd;
             }
-            updatePaginationButtons();
-            dependencyList.recreateDependencyComponents();
         }
 
         @Override
@@ -659,6 +678,10 @@ public class LimitingResourcesPanel extends HtmlMacroComponent {
         }
 
         private void updatePaginationButtons() {
+            if (paginationDownButton == null) {
+                // Not composed yet, initializePagination will update them
+                return;
+            }
             paginationDownButton.setDisabled(isFirstPage());
             paginationUpButton.setDisabled(isLastPage());
         }
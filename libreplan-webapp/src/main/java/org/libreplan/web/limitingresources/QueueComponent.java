@@ -29,12 +29,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
-import java.util.SortedSet;
 
 import org.joda.time.Duration;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.exceptions.ValidationException;
-import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ResourceAllocation;
@@ -139,7 +138,8 @@ public class QueueComponent extends XulElement implements
 
     public void invalidate() {
         removeChildren();
-        appendQueueElements(limitingResourceQueue.getLimitingResourceQueueElements());
+        appendQueueElements(inCurrentPage(limitingResourceQueue
+                .getLimitingResourceQueueElements()));
     }
 
     private void removeChildren() {
@@ -169,43 +169,54 @@ public class QueueComponent extends XulElement implements
             Set<LimitingResourceQueueElement> list) {
 
         List<QueueTask> result = new ArrayList<QueueTask>();
+        for (LimitingResourceQueueElement each : inCurrentPage(list)) {
+            result.add(createQueueTask(datesMapper, each));
+        }
+        return result;
+    }
 
+    /**
+     * Only the elements intersecting the current page of the time tracker
+     * are rendered and loaded, so the components and the day assignments of
+     * the rest of the queue are not kept in the session
+     */
+    private List<LimitingResourceQueueElement> inCurrentPage(
+            Set<LimitingResourceQueueElement> elements) {
         org.zkoss.ganttz.util.Interval interval = null;
         if (timeTracker.getFilter() != null) {
             timeTracker.getFilter().resetInterval();
             interval = timeTracker.getFilter().getCurrentPaginationInterval();
         }
-        for (LimitingResourceQueueElement each : list) {
-            if (interval != null) {
-                if (each.getEndDate().toDateMidnight()
-                        .isAfter(interval.getStart().toDateMidnight())
-                        && each.getStartDate().toDateMidnight()
-                                .isBefore(interval.getFinish().toDateMidnight())) {
-                    result.add(createQueueTask(datesMapper, each));
-                }
-            } else {
-                result.add(createQueueTask(datesMapper, each));
+        List<LimitingResourceQueueElement> result = new ArrayList<LimitingResourceQueueElement>();
+        for (LimitingResourceQueueElement each : elements) {
+            if (interval == null || isInInterval(each, interval)) {
+                result.add(each);
             }
         }
+        getLimitingResourcesPanel().loadQueueElements(result);
         return result;
     }
 
-    private static QueueTask createQueueTask(IDatesMapper datesMapper, LimitingResourceQueueElement element) {
+    private static boolean isInInterval(LimitingResourceQueueElement element,
+            org.zkoss.ganttz.util.Interval interval) {
+        return element.getEndDate().toDateMidnight()
+                .isAfter(interval.getStart().toDateMidnight())
+                && element.getStartDate().toDateMidnight()
+                        .isBefore(interval.getFinish().toDateMidnight());
+    }
+
+    private QueueTask createQueueTask(IDatesMapper datesMapper, LimitingResourceQueueElement element) {
         validateQueueElement(element);
         return createDivForElement(datesMapper, element);
     }
 
-    private static OrderElement getRootOrder(Task task) {
-        OrderElement order = task.getOrderElement();
-        while (order.getParent() != null) {
-            order = order.getParent();
-        }
-        return order;
+    private Order getOrder(Task task) {
+        return getLimitingResourcesPanel().getOrderByTask(task);
     }
 
-    private static String createTooltiptext(LimitingResourceQueueElement element) {
+    private String createTooltiptext(LimitingResourceQueueElement element) {
         final Task task = element.getResourceAllocation().getTask();
-        final OrderElement order = getRootOrder(task);
+        final Order order = getOrder(task);
 
         StringBuilder result = new StringBuilder();
         result.append(_("Project: {0}", order.getName()) + " ");
@@ -258,11 +269,11 @@ public class QueueComponent extends XulElement implements
                 new BigDecimal(totalHours)).intValue() : 0;
     }
 
-    private static QueueTask createDivForElement(IDatesMapper datesMapper,
+    private QueueTask createDivForElement(IDatesMapper datesMapper,
             LimitingResourceQueueElement queueElement) {
 
         final Task task = queueElement.getResourceAllocation().getTask();
-        final OrderElement order = getRootOrder(task);
+        final Order order = getOrder(task);
 
         QueueTask result = new QueueTask(queueElement);
         String cssClass = "queue-element";
@@ -420,7 +431,7 @@ public class QueueComponent extends XulElement implements
                 * DatesMapperOnInterval.MILISECONDS_PER_HOUR));
     }
 
-    public void appendQueueElements(SortedSet<LimitingResourceQueueElement> elements) {
+    public void appendQueueElements(List<LimitingResourceQueueElement> elements) {
         for (LimitingResourceQueueElement each : elements) {
             appendQueueElement(each);
         }
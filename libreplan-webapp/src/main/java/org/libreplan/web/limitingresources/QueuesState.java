@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -73,6 +74,8 @@ public class QueuesState {
 
     private final Map<Long, LimitingResourceQueue> queuesByResourceId;
 
+    private final Set<LimitingResourceQueueElement> loadedElements = new HashSet<LimitingResourceQueueElement>();
+
     private static <T extends BaseEntity> Map<Long, T> byId(
             Collection<? extends T> entities) {
         Map<Long, T> result = new HashMap<Long, T>();
@@ -103,6 +106,7 @@ public class QueuesState {
                 unassignedLimitingResourceQueueElements));
         this.queuesByResourceId = byResourceId(limitingResourceQueues);
         this.graph = buildGraph(getAllElements(unassignedElements, queues));
+        this.loadedElements.addAll(unassignedElements);
     }
 
     private static DirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> buildGraph(
@@ -162,6 +166,31 @@ public class QueuesState {
         return Collections.unmodifiableList(queues);
     }
 
+    /**
+     * The elements on the queues are initially loaded without their day
+     * assignments. The gaps and the dependencies only need their positions,
+     * so the rest is only loaded for the elements shown or moved
+     *
+     * @return the elements of <code>elements</code> whose day assignments
+     *         haven't been loaded yet
+     */
+    public List<LimitingResourceQueueElement> getNotLoaded(
+            Collection<? extends LimitingResourceQueueElement> elements) {
+        List<LimitingResourceQueueElement> result = new ArrayList<LimitingResourceQueueElement>();
+        for (LimitingResourceQueueElement each : elements) {
+            LimitingResourceQueueElement element = getEquivalent(each);
+            if (element != null && !element.isNewObject()
+                    && !loadedElements.contains(element)) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    public void loaded(Collection<? extends LimitingResourceQueueElement> elements) {
+        loadedElements.addAll(elements);
+    }
+
     public ArrayList<LimitingResourceQueue> getQueuesOrderedByResourceName() {
         ArrayList<LimitingResourceQueue> result = new ArrayList<LimitingResourceQueue>(
                 queues);
@@ -393,6 +422,21 @@ public class QueuesState {
 
     }
 
+    /**
+     * If none of the direct successors of <code>element</code> is on a queue,
+     * {@link #getPotentiallyAffectedByInsertion(LimitingResourceQueueElement)}
+     * can't contain any element that must be moved because of its insertion
+     */
+    public boolean hasSuccessorsOnQueues(LimitingResourceQueueElement element) {
+        for (LimitingResourceQueueDependency each : graph
+                .outgoingEdgesOf(getEquivalent(element))) {
+            if (!each.getHasAsDestiny().isDetached()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private DirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> onQueues(
             DirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> graph) {
         SimpleDirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> result;
@@ -585,6 +629,7 @@ public class QueuesState {
 
         unassignedElements.add(newElement);
         elementsById.put(newElement.getId(), newElement);
+        loadedElements.add(newElement);
         graph.addVertex(newElement);
         for (LimitingResourceQueueDependency each: newElement.getDependenciesAsOrigin()) {
             graph.addEdge(each.getHasAsOrigin(), each.getHasAsDestiny(), each);
@@ -614,6 +659,8 @@ public class QueuesState {
     private DirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> buildSubgraphFor(
             List<LimitingResourceQueueElement> queueElements) {
         SimpleDirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> result = instantiateDirectedGraph();
+        Set<LimitingResourceQueueElement> included = new HashSet<LimitingResourceQueueElement>(
+                queueElements);
 
         // Iterate through elements and construct graph
         for (LimitingResourceQueueElement each : queueElements) {
@@ -622,7 +669,7 @@ public class QueuesState {
                     .getDependenciesAsOrigin()) {
                 LimitingResourceQueueElement destiny = dependency
                         .getHasAsDestiny();
-                if (queueElements.contains(destiny)) {
+                if (included.contains(destiny)) {
                     // Add source, destiny and edge between them
                     addDependency(result, dependency);
                 }
@@ -0,0 +1,104 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * The pessimistic, normal and optimistic durations in days of several tasks,
+ * together with the probability of each one, stored in primitive arrays
+ */
+class DurationsSampler {
+
+    private int size = 0;
+
+    private int[] pessimisticDays = new int[16];
+
+    private int[] normalDays = new int[16];
+
+    private int[] optimisticDays = new int[16];
+
+    private double[] pessimisticUpperLimit = new double[16];
+
+    private double[] normalUpperLimit = new double[16];
+
+    /**
+     * The optimistic duration is chosen for the percentage not covered by the
+     * pessimistic and normal ones
+     *
+     * @return the index of the added task
+     */
+    int add(int pessimistic, int pessimisticPercentage, int normal,
+            int normalPercentage, int optimistic) {
+        Validate.isTrue(pessimistic >= 0 && normal >= 0 && optimistic >= 0,
+                "durations cannot be negative");
+        Validate.isTrue(pessimisticPercentage >= 0 && normalPercentage >= 0
+                && pessimisticPercentage + normalPercentage <= 100,
+                "percentages must be between 0 and 100");
+        ensureCapacity(size + 1);
+        pessimisticDays[size] = pessimistic;
+        normalDays[size] = normal;
+        optimisticDays[size] = optimistic;
+        pessimisticUpperLimit[size] = pessimisticPercentage / 100.0;
+        normalUpperLimit[size] = (pessimisticPercentage + normalPercentage) / 100.0;
+        return size++;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= pessimisticDays.length) {
+            return;
+        }
+        int newCapacity = Math.max(required, pessimisticDays.length * 2);
+        pessimisticDays = Arrays.copyOf(pessimisticDays, newCapacity);
+        normalDays = Arrays.copyOf(normalDays, newCapacity);
+        optimisticDays = Arrays.copyOf(optimisticDays, newCapacity);
+        pessimisticUpperLimit = Arrays.copyOf(pessimisticUpperLimit,
+                newCapacity);
+        normalUpperLimit = Arrays.copyOf(normalUpperLimit, newCapacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int sample(int index, Random random) {
+        double value = random.nextDouble();
+        if (value <= pessimisticUpperLimit[index]) {
+            return pessimisticDays[index];
+        } else if (value <= normalUpperLimit[index]) {
+            return normalDays[index];
+        }
+        return optimisticDays[index];
+    }
+
+    int min(int index) {
+        return Math.min(pessimisticDays[index],
+                Math.min(normalDays[index], optimisticDays[index]));
+    }
+
+    int max(int index) {
+        return Math.max(pessimisticDays[index],
+                Math.max(normalDays[index], optimisticDays[index]));
+    }
+
+}
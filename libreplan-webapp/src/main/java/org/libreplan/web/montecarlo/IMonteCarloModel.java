@@ -35,8 +35,28 @@ import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
  */
 public interface IMonteCarloModel {
 
+    /**
+     * @param seed
+     *            the seed of the random numbers. Running again with the same
+     *            seed and estimations gives the same result
+     */
     Map<LocalDate, BigDecimal> calculateMonteCarlo(List<MonteCarloTask> tasks,
-            int times, IDesktopUpdatesEmitter<Integer> iterationProgress);
+            int times, long seed,
+            IDesktopUpdatesEmitter<Integer> iterationProgress);
+
+    /**
+     * Simulates all the tasks of the project following their dependencies,
+     * instead of only the tasks of a critical path
+     *
+     * @param tasks
+     *            the estimations to use for these tasks. The rest of tasks use
+     *            the default ones
+     * @param seed
+     *            the seed of the random numbers
+     */
+    MonteCarloNetworkResult calculateMonteCarloOnNetwork(
+            List<MonteCarloTask> tasks, int times, long seed,
+            IDesktopUpdatesEmitter<Integer> iterationProgress);
 
     void setCriticalPath(List<TaskElement> criticalPath);
 
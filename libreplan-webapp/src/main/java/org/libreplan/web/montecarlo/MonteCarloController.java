@@ -24,11 +24,15 @@ package org.libreplan.web.montecarlo;
 import static org.libreplan.web.I18nHelper._;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.joda.time.LocalDate;
+import org.libreplan.business.planner.entities.Task;
 import org.libreplan.web.common.Util;
 import org.libreplan.web.montecarlo.MonteCarloGraphController.IOnClose;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -53,6 +57,7 @@ import org.zkoss.zul.Intbox;
 import org.zkoss.zul.Label;
 import org.zkoss.zul.Listbox;
 import org.zkoss.zul.Listitem;
+import org.zkoss.zul.Longbox;
 import org.zkoss.zul.Progressmeter;
 import org.zkoss.zul.Row;
 import org.zkoss.zul.RowRenderer;
@@ -78,10 +83,18 @@ public class MonteCarloController extends GenericForwardComposer {
 
     private final RowRenderer gridCriticalPathTasksRender = new CriticalPathTasksRender();
 
+    private final RowRenderer gridCriticalityIndexesRender = new CriticalityIndexesRender();
+
     private Grid gridCriticalPathTasks;
 
+    private Grid gridCriticalityIndexes;
+
+    private Checkbox cbWholeNetwork;
+
     private Intbox ibIterations;
 
+    private Longbox lbSeed;
+
     private Button btnRunMonteCarlo;
 
     private Checkbox cbGroupByWeeks;
@@ -131,9 +144,22 @@ public class MonteCarloController extends GenericForwardComposer {
                 try {
                     updatesEmitter.doUpdate(disableButton(true));
                     int iterations = getIterations();
+                    long seed = getSeed();
+                    if (cbWholeNetwork.isChecked()) {
+                        MonteCarloNetworkResult result = monteCarloModel
+                                .calculateMonteCarloOnNetwork(
+                                        getSelectedCriticalPath(), iterations,
+                                        seed,
+                                        percentageCompletedNotifier(updatesEmitter));
+                        updatesEmitter.doUpdate(showCriticalityIndexes(result
+                                .getCriticalityIndexes()));
+                        updatesEmitter.doUpdate(showCalculatedData(result
+                                .getCompletionProbabilities()));
+                        return;
+                    }
                     final Map<LocalDate, BigDecimal> monteCarloData = monteCarloModel
                             .calculateMonteCarlo(getSelectedCriticalPath(),
-                                    iterations,
+                                    iterations, seed,
                                     percentageCompletedNotifier(updatesEmitter));
                     updatesEmitter.doUpdate(showCalculatedData(monteCarloData));
                 } finally {
@@ -166,6 +192,14 @@ public class MonteCarloController extends GenericForwardComposer {
                 return iterations;
             }
 
+            /**
+             * An empty seed means a different simulation each time
+             */
+            private long getSeed() {
+                return lbSeed.getValue() != null ? lbSeed.getValue()
+                        .longValue() : new Date().getTime();
+            }
+
             private void validateRowsPercentages() {
                 Intbox intbox;
 
@@ -221,6 +255,24 @@ public class MonteCarloController extends GenericForwardComposer {
                 };
             }
 
+            private IDesktopUpdate showCriticalityIndexes(
+                    final Map<Task, BigDecimal> criticalityIndexes) {
+                return new IDesktopUpdate() {
+
+                    @Override
+                    public void doUpdate() {
+                        gridCriticalityIndexes.setModel(new SimpleListModel(
+                                new ArrayList<Entry<Task, BigDecimal>>(
+                                        criticalityIndexes.entrySet())));
+                        if (gridCriticalityIndexes.getRowRenderer() == null) {
+                            gridCriticalityIndexes
+                                    .setRowRenderer(gridCriticalityIndexesRender);
+                        }
+                        gridCriticalityIndexes.setVisible(true);
+                    }
+                };
+            }
+
             private IDesktopUpdate showCalculatedData(
                     final Map<LocalDate, BigDecimal> monteCarloData) {
                 return new IDesktopUpdate() {
@@ -305,6 +357,21 @@ public class MonteCarloController extends GenericForwardComposer {
                 .isEmpty());
     }
 
+    private static class CriticalityIndexesRender implements RowRenderer {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void render(Row row, Object data) {
+            Entry<Task, BigDecimal> entry = (Entry<Task, BigDecimal>) data;
+            row.setValue(entry);
+            row.appendChild(new Label(entry.getKey().getName()));
+            row.appendChild(new Label(entry.getValue()
+                    .multiply(BigDecimal.valueOf(100)).setScale(2)
+                    .toPlainString()));
+        }
+
+    }
+
     private static class CriticalPathTasksRender implements RowRenderer {
 
         @Override
@@ -27,17 +27,17 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.hibernate.Hibernate;
+import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
@@ -45,6 +45,7 @@ import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.Dependency;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.planner.entities.TaskGroup;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
@@ -77,6 +78,10 @@ public class MonteCarloModel implements IMonteCarloModel {
 
     private List<Task> tasksInCriticalPath;
 
+    private List<TaskElement> tasksInNetwork = new ArrayList<TaskElement>();
+
+    private Map<Task, MonteCarloTask> defaultEstimations = new HashMap<Task, MonteCarloTask>();
+
     @Override
     @Transactional(readOnly = true)
     public void setCriticalPath(List<TaskElement> tasksInCriticalPath) {
@@ -89,6 +94,7 @@ public class MonteCarloModel implements IMonteCarloModel {
         }
         Collections.sort(this.tasksInCriticalPath, Task.getByStartDateComparator());
         initializeTasksInOrder(getOrderFor(this.tasksInCriticalPath));
+        initializeNetwork(getOrderFor(this.tasksInCriticalPath));
         initializeOrderNameFor(this.tasksInCriticalPath);
         feedCriticalPaths(this.tasksInCriticalPath);
     }
@@ -154,6 +160,23 @@ public class MonteCarloModel implements IMonteCarloModel {
         }
     }
 
+    private void initializeNetwork(Order order) {
+        tasksInNetwork.clear();
+        defaultEstimations.clear();
+        TaskElement root = order.getAssociatedTaskElement();
+        if (root == null) {
+            return;
+        }
+        tasksInNetwork.add(root);
+        tasksInNetwork.addAll(root.getAllChildren());
+        for (TaskElement each : tasksInNetwork) {
+            if (each instanceof Task) {
+                defaultEstimations.put((Task) each,
+                        MonteCarloTask.create((Task) each));
+            }
+        }
+    }
+
     private void initializeOrderNameFor(List<Task> tasksInCriticalPath) {
         orderName = tasksInCriticalPath.isEmpty() ? "" : getOrderFor(
                 tasksInCriticalPath).getName();
@@ -194,158 +217,229 @@ public class MonteCarloModel implements IMonteCarloModel {
 
     @Override
     public Map<LocalDate, BigDecimal> calculateMonteCarlo(
-            List<MonteCarloTask> _tasks, int iterations,
+            List<MonteCarloTask> _tasks, int iterations, long seed,
             IDesktopUpdatesEmitter<Integer> iterationProgress) {
 
-        MonteCarloCalculation monteCarloCalculation = new MonteCarloCalculation(
-                copyOf(_tasks), iterations, iterationProgress);
-        Map<LocalDate, BigDecimal> monteCarloValues = monteCarloCalculation.doCalculation();
-
-        // Convert number of times to probability
-        for (LocalDate key : monteCarloValues.keySet()) {
-            BigDecimal times = monteCarloValues.get(key);
-            BigDecimal probability = times.divide(
-                    BigDecimal.valueOf(iterations), 8, RoundingMode.HALF_UP);
-            monteCarloValues.put(key, probability);
-        }
-        return monteCarloValues;
-    }
-
-    private List<MonteCarloTask> copyOf(List<MonteCarloTask> _tasks) {
-        List<MonteCarloTask> result = new ArrayList<MonteCarloTask>();
-        for (MonteCarloTask each: _tasks) {
-            result.add(MonteCarloTask.copy(each));
-        }
-        return result;
+        List<MonteCarloTask> tasks = copyOf(_tasks);
+        adjustDurationDays(tasks);
+        return MonteCarloSimulation.create(tasks)
+                .run(iterations, seed, iterationProgress)
+                .toProbabilities();
     }
 
     @Override
-    public String getOrderName() {
-        return orderName;
-    }
-
-    private String toString(List<? extends TaskElement> tasks) {
-        List<String> result = new ArrayList<String>();
-        for (TaskElement each : tasks) {
-            result.add(each.getName());
+    public MonteCarloNetworkResult calculateMonteCarloOnNetwork(
+            List<MonteCarloTask> tasks, int iterations, long seed,
+            IDesktopUpdatesEmitter<Integer> iterationProgress) {
+        Map<Task, MonteCarloTask> estimations = new HashMap<Task, MonteCarloTask>(
+                defaultEstimations);
+        for (MonteCarloTask each : tasks) {
+            estimations.put(each.getTask(), each);
         }
-        return StringUtils.join(result, ",");
+        NetworkBuilder builder = new NetworkBuilder(estimations);
+        MonteCarloNetwork.Result result = builder.build().run(iterations,
+                seed, iterationProgress);
+        return new MonteCarloNetworkResult(result.getCompletion()
+                .toProbabilities(), builder.criticalityIndexes(result));
     }
 
-    private static class MonteCarloCalculation {
+    /**
+     * Creates a node for each {@link Task} and milestone and two nodes, for
+     * the start and the end, for each {@link TaskGroup}. The start of a group
+     * precedes the start of its children and the end of its children precedes
+     * the end of the group.
+     */
+    private class NetworkBuilder {
+
+        private final Map<Task, MonteCarloTask> estimations;
 
-        private Map<MonteCarloTask, Set<EstimationRange>> estimationRangesForTasks = new HashMap<MonteCarloTask, Set<EstimationRange>>();
+        private final Map<TaskElement, Integer> startNodes = new HashMap<TaskElement, Integer>();
 
-        private List<MonteCarloTask> tasks;
+        private final Map<TaskElement, Integer> endNodes = new HashMap<TaskElement, Integer>();
 
-        private int iterations;
+        private MonteCarloNetwork network;
 
-        private IDesktopUpdatesEmitter<Integer> iterationProgress;
+        private LocalDate start;
 
-        public MonteCarloCalculation(List<MonteCarloTask> tasks,
-                int iterations,
-                IDesktopUpdatesEmitter<Integer> iterationProgress) {
-            adjustDurationDays(tasks);
-            initializeEstimationRanges(tasks);
-            this.tasks = tasks;
-            this.iterations = iterations;
-            this.iterationProgress = iterationProgress;
+        NetworkBuilder(Map<Task, MonteCarloTask> estimations) {
+            this.estimations = estimations;
         }
 
-        public Map<LocalDate, BigDecimal> doCalculation() {
-            Map<LocalDate, BigDecimal> result = new HashMap<LocalDate, BigDecimal>();
-
-            final int ONE_PERCENT = iterations / 100;
-            Random randomGenerator = new Random((new Date()).getTime());
-            // Calculate number of times a date is repeated
-            for (int i = 0; i < iterations; i++) {
-                LocalDate endDate = calculateEndDateFor(tasks, randomGenerator);
-                BigDecimal times = result.get(endDate);
-                times = times != null ? times.add(BigDecimal.ONE) : BigDecimal.ONE;
-                result.put(endDate, times);
-                if (i % ONE_PERCENT == 0) {
-                    increaseProgressMeter((i * 100) / iterations);
-                }
+        MonteCarloNetwork build() {
+            Validate.notEmpty(tasksInNetwork);
+            start = tasksInNetwork.get(0).getStartAsLocalDate();
+            for (TaskElement each : tasksInNetwork) {
+                start = min(start, each.getStartAsLocalDate());
+            }
+            network = MonteCarloNetwork.create(start);
+            for (TaskElement each : tasksInNetwork) {
+                addNodes(each);
+            }
+            for (TaskElement each : tasksInNetwork) {
+                addLinksWithParent(each);
+                addDependencies(each);
             }
+            return network;
+        }
 
-            return result;
+        private LocalDate min(LocalDate a, LocalDate b) {
+            return a.isBefore(b) ? a : b;
         }
 
-        private void increaseProgressMeter(int completedPercent) {
-            iterationProgress.doUpdate(completedPercent);
+        private void addNodes(TaskElement element) {
+            int release = release(element);
+            if (element instanceof TaskGroup) {
+                int startNode = network.addFixed(release, 0);
+                int endNode = network.addFixed(0, 0);
+                network.addDependency(startNode, endNode,
+                        Dependency.Type.END_START);
+                startNodes.put(element, startNode);
+                endNodes.put(element, endNode);
+                return;
+            }
+            int node;
+            if (element instanceof Task) {
+                MonteCarloTask estimation = adjusted(estimations
+                        .get(element));
+                node = network.addTask(release, estimation
+                        .getPessimisticDuration().intValue(), estimation
+                        .getPessimisticDurationPercentage(), estimation
+                        .getNormalDuration().intValue(), estimation
+                        .getNormalDurationPercentage(), estimation
+                        .getOptimisticDuration().intValue());
+            } else {
+                node = network.addFixed(release, daysBetween(
+                        element.getStartAsLocalDate(),
+                        element.getEndAsLocalDate()));
+            }
+            startNodes.put(element, node);
+            endNodes.put(element, node);
         }
 
-        private LocalDate calculateEndDateFor(List<MonteCarloTask> tasks,
-                Random randomGenerator) {
-            Validate.notEmpty(tasks);
-            BigDecimal durationDays = BigDecimal.ZERO;
-            MonteCarloTask first = tasks.get(0);
+        private MonteCarloTask adjusted(MonteCarloTask estimation) {
+            List<MonteCarloTask> result = Collections.singletonList(MonteCarloTask
+                    .copy(estimation));
+            adjustDurationDays(result);
+            return result.get(0);
+        }
 
-            for (MonteCarloTask each : tasks) {
-                BigDecimal randomNumber = generate(randomGenerator);
-                durationDays = durationDays.add(getDuration(each, randomNumber));
+        /**
+         * The planned start is kept only for the elements not constrained by
+         * any dependency, nor them nor their ancestors
+         */
+        private int release(TaskElement element) {
+            for (TaskElement current = element; current != null; current = current
+                    .getParent()) {
+                if (!current.getDependenciesWithThisDestination().isEmpty()) {
+                    return 0;
+                }
             }
-            return first.getStartDate().plusDays(durationDays.intValue());
+            return daysBetween(start, element.getStartAsLocalDate());
         }
 
-        private BigDecimal generate(Random randomGenerator) {
-            return BigDecimal.valueOf(randomGenerator.nextDouble());
+        private int daysBetween(LocalDate from, LocalDate to) {
+            return Math.max(0, Days.daysBetween(from, to).getDays());
         }
 
-        private BigDecimal getDuration(MonteCarloTask each, BigDecimal random) {
-            ESTIMATION_TYPE type = getEstimationType(each, random);
-            Validate.notNull(type);
-            switch (type) {
-            case PESSIMISTIC:
-                BigDecimal duration = each.getPessimisticDuration();
-                return duration;
-            case NORMAL:
-                return each.getNormalDuration();
-            case OPTIMISTIC:
-                return each.getOptimisticDuration();
+        private void addLinksWithParent(TaskElement element) {
+            TaskGroup parent = element.getParent();
+            if (parent == null || !startNodes.containsKey(parent)) {
+                return;
             }
-            return BigDecimal.ZERO;
+            network.addDependency(startNodes.get(parent),
+                    startNodes.get(element), Dependency.Type.START_START);
+            network.addDependency(endNodes.get(element), endNodes.get(parent),
+                    Dependency.Type.END_END);
         }
 
-        private void adjustDurationDays(List<MonteCarloTask> tasks) {
-            for (MonteCarloTask each : tasks) {
-                each.setPessimisticDuration(MonteCarloTask
-                        .calculateRealDurationFor(each,
-                                each.getPessimisticDuration()));
-                each.setNormalDuration(MonteCarloTask.calculateRealDurationFor(
-                        each, each.getNormalDuration()));
-                each.setOptimisticDuration(MonteCarloTask.calculateRealDurationFor(
-                        each, each.getOptimisticDuration()));
+        private void addDependencies(TaskElement destination) {
+            for (Dependency each : destination
+                    .getDependenciesWithThisDestination()) {
+                TaskElement origin = each.getOrigin();
+                if (!startNodes.containsKey(origin)
+                        || isAncestor(origin, destination)
+                        || isAncestor(destination, origin)) {
+                    continue;
+                }
+                Dependency.Type type = each.getType();
+                network.addDependency(
+                        fromStart(type) ? startNodes.get(origin) : endNodes
+                                .get(origin),
+                        type.modifiesDestinationStart() ? startNodes
+                                .get(destination) : endNodes.get(destination),
+                        type);
             }
         }
 
-        private void initializeEstimationRanges(List<MonteCarloTask> tasks) {
-            estimationRangesForTasks.clear();
-            for (MonteCarloTask each : tasks) {
-                createEstimationRangesFor(each);
-            }
+        private boolean fromStart(Dependency.Type type) {
+            return type == Dependency.Type.START_START
+                    || type == Dependency.Type.START_END;
         }
 
-        private void createEstimationRangesFor(MonteCarloTask task) {
-            Set<EstimationRange> estimationRanges = new HashSet<EstimationRange>();
-            estimationRanges.add(EstimationRange.pessimisticRangeFor(task));
-            estimationRanges.add(EstimationRange.normalRangeFor(task));
-            estimationRanges.add(EstimationRange.optimisticRangeFor(task));
-            estimationRangesForTasks.put(task, estimationRanges);
+        private boolean isAncestor(TaskElement ancestor, TaskElement element) {
+            for (TaskElement current = element.getParent(); current != null; current = current
+                    .getParent()) {
+                if (current.equals(ancestor)) {
+                    return true;
+                }
+            }
+            return false;
         }
 
-        public ESTIMATION_TYPE getEstimationType(MonteCarloTask task,
-                BigDecimal random) {
-            Set<EstimationRange> estimationRanges = estimationRangesForTasks
-                    .get(task);
-            for (EstimationRange each : estimationRanges) {
-                if (each.contains(random)) {
-                    return each.getEstimationType();
+        Map<Task, BigDecimal> criticalityIndexes(MonteCarloNetwork.Result result) {
+            List<Task> tasks = new ArrayList<Task>(estimations.keySet());
+            final Map<Task, BigDecimal> indexes = new HashMap<Task, BigDecimal>();
+            for (Task each : tasks) {
+                indexes.put(each, BigDecimal.valueOf(
+                        result.getCriticalityIndex(startNodes.get(each)))
+                        .setScale(4, RoundingMode.HALF_UP));
+            }
+            Collections.sort(tasks, new Comparator<Task>() {
+
+                @Override
+                public int compare(Task o1, Task o2) {
+                    return indexes.get(o2).compareTo(indexes.get(o1));
                 }
+            });
+            Map<Task, BigDecimal> sorted = new LinkedHashMap<Task, BigDecimal>();
+            for (Task each : tasks) {
+                sorted.put(each, indexes.get(each));
             }
-            return null;
+            return sorted;
         }
 
     }
 
+    private void adjustDurationDays(List<MonteCarloTask> tasks) {
+        for (MonteCarloTask each : tasks) {
+            BigDecimal[] durations = MonteCarloTask.calculateRealDurationsFor(
+                    each, each.getPessimisticDuration(),
+                    each.getNormalDuration(), each.getOptimisticDuration());
+            each.setPessimisticDuration(durations[0]);
+            each.setNormalDuration(durations[1]);
+            each.setOptimisticDuration(durations[2]);
+        }
+    }
+
+    private List<MonteCarloTask> copyOf(List<MonteCarloTask> _tasks) {
+        List<MonteCarloTask> result = new ArrayList<MonteCarloTask>();
+        for (MonteCarloTask each: _tasks) {
+            result.add(MonteCarloTask.copy(each));
+        }
+        return result;
+    }
+
+    @Override
+    public String getOrderName() {
+        return orderName;
+    }
+
+    private String toString(List<? extends TaskElement> tasks) {
+        List<String> result = new ArrayList<String>();
+        for (TaskElement each : tasks) {
+            result.add(each.getName());
+        }
+        return StringUtils.join(result, ",");
+    }
+
 }
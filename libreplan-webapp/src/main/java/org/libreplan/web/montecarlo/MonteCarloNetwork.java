@@ -0,0 +1,430 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.planner.entities.Dependency.Type;
+import org.libreplan.web.montecarlo.MonteCarloSimulation.Histogram;
+import org.libreplan.web.montecarlo.ParallelIterations.ISimulation;
+import org.libreplan.web.montecarlo.ParallelIterations.Progress;
+import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
+
+/**
+ * <p>
+ * Simulates the end date of a network of tasks linked by dependencies. In
+ * each iteration a duration is chosen for every task and the earliest start
+ * and finish of the tasks are propagated following a topological order of
+ * the dependencies. The end date is the latest finish of all the tasks.
+ * </p>
+ * <p>
+ * Besides the distribution of the end dates it calculates the criticality
+ * index of each task: the fraction of the iterations in which the task was
+ * in the critical path, i.e. the chain of dependencies that determined the
+ * end date.
+ * </p>
+ * <p>
+ * The nodes are identified by the index returned when they're added. The
+ * dependencies are stored as compact arrays of predecessors for each node.
+ * </p>
+ *
+ * @see MonteCarloSimulation
+ */
+public class MonteCarloNetwork {
+
+    private static final int NO_DRIVER = -1;
+
+    public static MonteCarloNetwork create(LocalDate start) {
+        return new MonteCarloNetwork(start);
+    }
+
+    private final LocalDate start;
+
+    private final DurationsSampler durations = new DurationsSampler();
+
+    private int size = 0;
+
+    /**
+     * The index in {@link #durations} or -1 if the duration is fixed
+     */
+    private int[] durationIndexes = new int[16];
+
+    private int[] fixedDays = new int[16];
+
+    private int[] releases = new int[16];
+
+    private final List<int[]> dependencies = new ArrayList<int[]>();
+
+    private int[] topologicalOrder;
+
+    private int[] predecessorsFrom;
+
+    private int[] predecessorOrigins;
+
+    private Type[] predecessorTypes;
+
+    private MonteCarloNetwork(LocalDate start) {
+        Validate.notNull(start);
+        this.start = start;
+    }
+
+    /**
+     * @param release
+     *            the number of days since the start of the network before
+     *            which the task can't start
+     * @return the index of the node added
+     */
+    public int addTask(int release, int pessimistic,
+            int pessimisticPercentage, int normal, int normalPercentage,
+            int optimistic) {
+        int durationIndex = durations.add(pessimistic, pessimisticPercentage,
+                normal, normalPercentage, optimistic);
+        return addNode(release, durationIndex, 0);
+    }
+
+    /**
+     * Adds a node whose duration is always the same, e.g. a milestone
+     *
+     * @see #addTask(int, int, int, int, int, int)
+     */
+    public int addFixed(int release, int days) {
+        Validate.isTrue(days >= 0, "days cannot be negative");
+        return addNode(release, -1, days);
+    }
+
+    private int addNode(int release, int durationIndex, int days) {
+        Validate.isTrue(release >= 0, "release cannot be negative");
+        ensureCapacity(size + 1);
+        durationIndexes[size] = durationIndex;
+        fixedDays[size] = days;
+        releases[size] = release;
+        topologicalOrder = null;
+        return size++;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= durationIndexes.length) {
+            return;
+        }
+        int newCapacity = Math.max(required, durationIndexes.length * 2);
+        durationIndexes = Arrays.copyOf(durationIndexes, newCapacity);
+        fixedDays = Arrays.copyOf(fixedDays, newCapacity);
+        releases = Arrays.copyOf(releases, newCapacity);
+    }
+
+    public void addDependency(int origin, int destination, Type type) {
+        checkNode(origin);
+        checkNode(destination);
+        Validate.notNull(type);
+        dependencies.add(new int[] { origin, destination, type.ordinal() });
+        topologicalOrder = null;
+    }
+
+    private void checkNode(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("node: " + node + ", size: "
+                    + size);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void prepare() {
+        if (topologicalOrder != null) {
+            return;
+        }
+        predecessorsFrom = new int[size + 1];
+        int[] successorsFrom = new int[size + 1];
+        for (int[] each : dependencies) {
+            successorsFrom[each[0] + 1]++;
+            predecessorsFrom[each[1] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            successorsFrom[i + 1] += successorsFrom[i];
+            predecessorsFrom[i + 1] += predecessorsFrom[i];
+        }
+        int[] successors = new int[dependencies.size()];
+        predecessorOrigins = new int[dependencies.size()];
+        predecessorTypes = new Type[dependencies.size()];
+        int[] successorsFilled = Arrays.copyOf(successorsFrom, size);
+        int[] predecessorsFilled = Arrays.copyOf(predecessorsFrom, size);
+        Type[] types = Type.values();
+        for (int[] each : dependencies) {
+            successors[successorsFilled[each[0]]++] = each[1];
+            int position = predecessorsFilled[each[1]]++;
+            predecessorOrigins[position] = each[0];
+            predecessorTypes[position] = types[each[2]];
+        }
+        topologicalOrder = sortTopologically(successorsFrom, successors);
+    }
+
+    private int[] sortTopologically(int[] successorsFrom, int[] successors) {
+        int[] pendingPredecessors = new int[size];
+        for (int i = 0; i < size; i++) {
+            pendingPredecessors[i] = predecessorsFrom[i + 1]
+                    - predecessorsFrom[i];
+        }
+        int[] result = new int[size];
+        int added = 0;
+        for (int i = 0; i < size; i++) {
+            if (pendingPredecessors[i] == 0) {
+                result[added++] = i;
+            }
+        }
+        for (int processed = 0; processed < added; processed++) {
+            int node = result[processed];
+            for (int j = successorsFrom[node]; j < successorsFrom[node + 1]; j++) {
+                if (--pendingPredecessors[successors[j]] == 0) {
+                    result[added++] = successors[j];
+                }
+            }
+        }
+        if (added < size) {
+            throw new IllegalStateException(
+                    "the dependencies of the network contain a cycle");
+        }
+        return result;
+    }
+
+    public Result run(int iterations, long seed,
+            IDesktopUpdatesEmitter<Integer> progress) {
+        return run(iterations, seed, ParallelIterations.defaultWorkers(),
+                progress);
+    }
+
+    public Result run(int iterations, long seed, int workers,
+            IDesktopUpdatesEmitter<Integer> progress) {
+        Validate.isTrue(size > 0, "the network has no nodes");
+        prepare();
+        List<Partial> partials = ParallelIterations.run(iterations, seed,
+                workers, progress, new ISimulation<Partial>() {
+
+                    @Override
+                    public Partial simulate(int iterations, Random random,
+                            Progress progress) {
+                        return MonteCarloNetwork.this.simulate(iterations,
+                                random, progress);
+                    }
+                });
+        int minDays = Integer.MAX_VALUE;
+        int maxDays = Integer.MIN_VALUE;
+        int[] critical = new int[size];
+        for (Partial each : partials) {
+            if (!each.isEmpty()) {
+                minDays = Math.min(minDays, each.minEnd);
+                maxDays = Math.max(maxDays, each.maxEnd);
+            }
+            for (int i = 0; i < size; i++) {
+                critical[i] += each.critical[i];
+            }
+        }
+        int length = maxDays - minDays + 1;
+        List<int[]> completions = new ArrayList<int[]>();
+        for (Partial each : partials) {
+            completions.add(each.completionFrom(minDays, length));
+        }
+        return new Result(Histogram.sum(start.plusDays(minDays), length,
+                iterations, completions), critical, iterations);
+    }
+
+    /**
+     * The range of end dates isn't known in advance. The finish of the
+     * network isn't monotonic on the durations of the tasks, as a longer
+     * task linked with {@link Type#END_END} or {@link Type#START_END} starts
+     * earlier, so each worker records the ends actually sampled.
+     */
+    private Partial simulate(int iterations, Random random, Progress progress) {
+        Partial result = new Partial(size);
+        Propagation propagation = new Propagation();
+        for (int i = 0; i < iterations; i++) {
+            for (int j = 0; j < size; j++) {
+                int index = durationIndexes[j];
+                propagation.days[j] = index < 0 ? fixedDays[j] : durations
+                        .sample(index, random);
+            }
+            result.addEnd(propagation.propagate());
+            propagation.countCriticalPath(result.critical);
+            progress.iterationDone();
+        }
+        return result;
+    }
+
+    /**
+     * The state of an iteration, reused between iterations by the same worker
+     */
+    private class Propagation {
+
+        private final int[] days = new int[size];
+
+        private final int[] starts = new int[size];
+
+        private final int[] finishes = new int[size];
+
+        private final int[] drivers = new int[size];
+
+        private int last;
+
+        /**
+         * @return the latest finish
+         */
+        int propagate() {
+            int result = 0;
+            last = topologicalOrder[0];
+            for (int node : topologicalOrder) {
+                int start = releases[node];
+                int driver = NO_DRIVER;
+                for (int j = predecessorsFrom[node]; j < predecessorsFrom[node + 1]; j++) {
+                    int candidate = constrainedStart(predecessorOrigins[j],
+                            predecessorTypes[j], days[node]);
+                    if (candidate > start) {
+                        start = candidate;
+                        driver = predecessorOrigins[j];
+                    }
+                }
+                starts[node] = start;
+                finishes[node] = start + days[node];
+                drivers[node] = driver;
+                if (finishes[node] > result) {
+                    result = finishes[node];
+                    last = node;
+                }
+            }
+            return result;
+        }
+
+        private int constrainedStart(int origin, Type type, int duration) {
+            switch (type) {
+            case END_START:
+                return finishes[origin];
+            case START_START:
+                return starts[origin];
+            case END_END:
+                return finishes[origin] - duration;
+            case START_END:
+                return starts[origin] - duration;
+            default:
+                throw new IllegalArgumentException("unknown type: " + type);
+            }
+        }
+
+        void countCriticalPath(int[] critical) {
+            for (int node = last; node != NO_DRIVER; node = drivers[node]) {
+                critical[node]++;
+            }
+        }
+
+    }
+
+    private static class Partial {
+
+        /**
+         * The number of iterations ending on each day, starting from
+         * {@link #firstEnd}. It grows as needed to hold the ends sampled.
+         */
+        private int[] completion = new int[0];
+
+        private int firstEnd;
+
+        private int minEnd = Integer.MAX_VALUE;
+
+        private int maxEnd = Integer.MIN_VALUE;
+
+        private final int[] critical;
+
+        private Partial(int size) {
+            this.critical = new int[size];
+        }
+
+        boolean isEmpty() {
+            return minEnd > maxEnd;
+        }
+
+        void addEnd(int end) {
+            if (isEmpty()) {
+                completion = new int[16];
+                firstEnd = end;
+            } else if (end < firstEnd) {
+                int shift = Math.max(firstEnd - end, completion.length);
+                int[] grown = new int[completion.length + shift];
+                System.arraycopy(completion, 0, grown, shift,
+                        completion.length);
+                completion = grown;
+                firstEnd -= shift;
+            } else if (end - firstEnd >= completion.length) {
+                completion = Arrays.copyOf(completion, Math.max(end
+                        - firstEnd + 1, completion.length * 2));
+            }
+            completion[end - firstEnd]++;
+            minEnd = Math.min(minEnd, end);
+            maxEnd = Math.max(maxEnd, end);
+        }
+
+        /**
+         * @return the number of iterations ending on each day of the range
+         *         starting at <code>from</code>, that must contain all the
+         *         ends of this partial
+         */
+        int[] completionFrom(int from, int length) {
+            int[] result = new int[length];
+            if (!isEmpty()) {
+                System.arraycopy(completion, minEnd - firstEnd, result,
+                        minEnd - from, maxEnd - minEnd + 1);
+            }
+            return result;
+        }
+
+    }
+
+    public static class Result {
+
+        private final Histogram completion;
+
+        private final int[] critical;
+
+        private final int iterations;
+
+        private Result(Histogram completion, int[] critical, int iterations) {
+            this.completion = completion;
+            this.critical = critical;
+            this.iterations = iterations;
+        }
+
+        public Histogram getCompletion() {
+            return completion;
+        }
+
+        /**
+         * @return the fraction of iterations in which the node was in the
+         *         critical path, between zero and one
+         */
+        public double getCriticalityIndex(int node) {
+            return ((double) critical[node]) / iterations;
+        }
+
+    }
+
+}
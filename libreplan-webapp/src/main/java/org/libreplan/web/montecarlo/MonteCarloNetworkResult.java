@@ -0,0 +1,61 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.planner.entities.Task;
+
+/**
+ * The result of simulating the whole dependency network of a project
+ *
+ * @see IMonteCarloModel#calculateMonteCarloOnNetwork(java.util.List, int,
+ *      org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter)
+ */
+public class MonteCarloNetworkResult {
+
+    private final Map<LocalDate, BigDecimal> completionProbabilities;
+
+    private final Map<Task, BigDecimal> criticalityIndexes;
+
+    MonteCarloNetworkResult(Map<LocalDate, BigDecimal> completionProbabilities,
+            Map<Task, BigDecimal> criticalityIndexes) {
+        this.completionProbabilities = completionProbabilities;
+        this.criticalityIndexes = criticalityIndexes;
+    }
+
+    /**
+     * @return the probability of the project ending on each day
+     */
+    public Map<LocalDate, BigDecimal> getCompletionProbabilities() {
+        return completionProbabilities;
+    }
+
+    /**
+     * @return the probability of each task being in the critical path,
+     *         sorted from the most critical task
+     */
+    public Map<Task, BigDecimal> getCriticalityIndexes() {
+        return criticalityIndexes;
+    }
+
+}
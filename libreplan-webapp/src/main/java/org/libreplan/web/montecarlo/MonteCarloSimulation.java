@@ -0,0 +1,205 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.libreplan.web.montecarlo.ParallelIterations.ISimulation;
+import org.libreplan.web.montecarlo.ParallelIterations.Progress;
+import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
+
+/**
+ * <p>
+ * Simulates the end date of a sequence of tasks. For each task a duration in
+ * days is chosen among its pessimistic, normal and optimistic durations
+ * according to their percentages, and the end date is the start date plus
+ * the sum of the chosen durations.
+ * </p>
+ * <p>
+ * The iterations are split among several workers, each one with its own
+ * {@link Random} seeded from the provided seed, so the results are
+ * reproducible for the same seed and number of workers. Each worker counts
+ * the durations in a histogram indexed by the number of days, and the
+ * histograms are added up at the end.
+ * </p>
+ *
+ * @see MonteCarloModel#calculateMonteCarlo(List, int, IDesktopUpdatesEmitter)
+ */
+public class MonteCarloSimulation {
+
+    public static MonteCarloSimulation create(LocalDate start) {
+        return new MonteCarloSimulation(start);
+    }
+
+    /**
+     * @param tasks
+     *            their durations must be already converted to calendar days
+     */
+    public static MonteCarloSimulation create(List<MonteCarloTask> tasks) {
+        Validate.notEmpty(tasks);
+        MonteCarloSimulation result = create(tasks.get(0).getStartDate());
+        for (MonteCarloTask each : tasks) {
+            result.addTask(each.getPessimisticDuration().intValue(),
+                    each.getPessimisticDurationPercentage(), each
+                            .getNormalDuration().intValue(),
+                    each.getNormalDurationPercentage(), each
+                            .getOptimisticDuration().intValue());
+        }
+        return result;
+    }
+
+    private final LocalDate start;
+
+    private final DurationsSampler durations = new DurationsSampler();
+
+    private int minDays = 0;
+
+    private int maxDays = 0;
+
+    private MonteCarloSimulation(LocalDate start) {
+        Validate.notNull(start);
+        this.start = start;
+    }
+
+    /**
+     * The optimistic duration is chosen for the percentage not covered by the
+     * pessimistic and normal ones
+     */
+    public MonteCarloSimulation addTask(int pessimistic,
+            int pessimisticPercentage, int normal, int normalPercentage,
+            int optimistic) {
+        int index = durations.add(pessimistic, pessimisticPercentage, normal,
+                normalPercentage, optimistic);
+        minDays += durations.min(index);
+        maxDays += durations.max(index);
+        return this;
+    }
+
+    public Histogram run(int iterations, long seed,
+            IDesktopUpdatesEmitter<Integer> progress) {
+        return run(iterations, seed, ParallelIterations.defaultWorkers(),
+                progress);
+    }
+
+    public Histogram run(int iterations, long seed, int workers,
+            IDesktopUpdatesEmitter<Integer> progress) {
+        List<int[]> partials = ParallelIterations.run(iterations, seed,
+                workers, progress, new ISimulation<int[]>() {
+
+                    @Override
+                    public int[] simulate(int iterations, Random random,
+                            Progress progress) {
+                        return MonteCarloSimulation.this.simulate(iterations,
+                                random, progress);
+                    }
+                });
+        return Histogram.sum(start.plusDays(minDays), maxDays - minDays + 1,
+                iterations, partials);
+    }
+
+    private int[] simulate(int iterations, Random random, Progress progress) {
+        int[] result = new int[maxDays - minDays + 1];
+        for (int i = 0; i < iterations; i++) {
+            int days = 0;
+            for (int j = 0; j < durations.size(); j++) {
+                days += durations.sample(j, random);
+            }
+            result[days - minDays]++;
+            progress.iterationDone();
+        }
+        return result;
+    }
+
+    /**
+     * The number of iterations that ended on each day, starting from the
+     * earliest possible end date
+     */
+    public static class Histogram {
+
+        private final LocalDate firstDay;
+
+        private final int[] times;
+
+        private final int iterations;
+
+        static Histogram sum(LocalDate firstDay, int length, int iterations,
+                List<int[]> partials) {
+            int[] times = new int[length];
+            for (int[] each : partials) {
+                for (int i = 0; i < length; i++) {
+                    times[i] += each[i];
+                }
+            }
+            return new Histogram(firstDay, times, iterations);
+        }
+
+        private Histogram(LocalDate firstDay, int[] times, int iterations) {
+            this.firstDay = firstDay;
+            this.times = times;
+            this.iterations = iterations;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public LocalDate getFirstDay() {
+            return firstDay;
+        }
+
+        public LocalDate getLastDay() {
+            return firstDay.plusDays(times.length - 1);
+        }
+
+        public int getTimes(LocalDate day) {
+            int index = Days.daysBetween(firstDay, day).getDays();
+            if (index < 0 || index >= times.length) {
+                return 0;
+            }
+            return times[index];
+        }
+
+        /**
+         * @return the probability of ending on each day, only for the days
+         *         that some iteration ended on
+         */
+        public Map<LocalDate, BigDecimal> toProbabilities() {
+            Map<LocalDate, BigDecimal> result = new HashMap<LocalDate, BigDecimal>();
+            BigDecimal total = BigDecimal.valueOf(iterations);
+            for (int i = 0; i < times.length; i++) {
+                if (times[i] > 0) {
+                    result.put(firstDay.plusDays(i), BigDecimal.valueOf(
+                            times[i]).divide(total, 8, RoundingMode.HALF_UP));
+                }
+            }
+            return result;
+        }
+
+    }
+
+}
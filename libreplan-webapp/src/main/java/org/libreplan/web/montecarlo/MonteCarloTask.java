@@ -23,12 +23,10 @@ import java.math.MathContext;
 import java.math.RoundingMode;
 
 import org.apache.commons.lang.Validate;
-import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.DailyCapacities;
 import org.libreplan.business.planner.entities.Task;
-import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 
 /**
  *
@@ -45,29 +43,59 @@ public class MonteCarloTask {
         return new MonteCarloTask(task);
     }
 
+    private static final int CAPACITIES_CHUNK_DAYS = 64;
+
     public static BigDecimal calculateRealDurationFor(MonteCarloTask task, BigDecimal daysDuration) {
+        return calculateRealDurationsFor(task, daysDuration)[0];
+    }
+
+    /**
+     * Converts several durations in working days to the days elapsed from
+     * the start of the task. The capacities of the calendar are retrieved in
+     * bulk and only once for all of them.
+     */
+    public static BigDecimal[] calculateRealDurationsFor(MonteCarloTask task,
+            BigDecimal... daysDurations) {
         LocalDate start = task.getStartDate();
         Validate.notNull(start);
-        LocalDate end = calculateEndDateFor(task, daysDuration);
-        Days daysBetween = Days.daysBetween(start, end);
-        return BigDecimal.valueOf(daysBetween.getDays());
-    }
-
-    private static LocalDate calculateEndDateFor(MonteCarloTask task, BigDecimal daysDuration) {
-        BaseCalendar calendar = task.getCalendar();
-        LocalDate start = new LocalDate(task.getStartDate());
-        LocalDate day = start;
-
-        double duration = daysDuration.doubleValue();
-        for (int i = 0; i < duration;) {
-            EffortDuration workableTime = calendar.getCapacityOn(PartialDay
-                    .wholeDay(day));
-            if (!EffortDuration.zero().equals(workableTime)) {
-                i++;
+        int[] workingDaysNeeded = new int[daysDurations.length];
+        int maxWorkingDays = 0;
+        for (int i = 0; i < daysDurations.length; i++) {
+            workingDaysNeeded[i] = Math.max(0, (int) Math
+                    .ceil(daysDurations[i].doubleValue()));
+            maxWorkingDays = Math.max(maxWorkingDays, workingDaysNeeded[i]);
+        }
+        int[] elapsed = elapsedDaysUntilEachWorkingDay(task.getCalendar(),
+                start, maxWorkingDays);
+        BigDecimal[] result = new BigDecimal[daysDurations.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = BigDecimal.valueOf(elapsed[workingDaysNeeded[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the days elapsed from <code>start</code> until completing each
+     *         number of working days, from zero to <code>workingDays</code>
+     */
+    private static int[] elapsedDaysUntilEachWorkingDay(BaseCalendar calendar,
+            LocalDate start, int workingDays) {
+        int[] result = new int[workingDays + 1];
+        int found = 0;
+        int offset = 0;
+        while (found < workingDays) {
+            DailyCapacities capacities = calendar.getCapacitiesBetween(
+                    start.plusDays(offset),
+                    start.plusDays(offset + CAPACITIES_CHUNK_DAYS));
+            for (int i = 0; i < capacities.size() && found < workingDays; i++) {
+                if (capacities.getStandardSeconds(i) != 0) {
+                    found++;
+                    result[found] = offset + i + 1;
+                }
             }
-            day = day.plusDays(1);
+            offset += capacities.size();
         }
-        return day;
+        return result;
     }
 
     private Task task;
@@ -0,0 +1,170 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
+
+/**
+ * Splits the iterations of a simulation among several workers, each one with
+ * its own {@link Random} seeded from the provided seed. Meanwhile the calling
+ * thread reports the percentage of iterations done.
+ */
+class ParallelIterations {
+
+    interface ISimulation<T> {
+
+        /**
+         * Runs the iterations and returns the partial result of a worker. It
+         * must call {@link Progress#iterationDone()} after each iteration.
+         */
+        T simulate(int iterations, Random random, Progress progress);
+    }
+
+    /**
+     * Counts the iterations done by a worker, publishing them to the shared
+     * counter every some iterations
+     */
+    static class Progress {
+
+        private static final int STEP = 1000;
+
+        private final AtomicInteger done;
+
+        private int pending = 0;
+
+        private Progress(AtomicInteger done) {
+            this.done = done;
+        }
+
+        public void iterationDone() {
+            pending++;
+            if (pending == STEP) {
+                done.addAndGet(pending);
+                pending = 0;
+            }
+        }
+
+    }
+
+    private static final long PROGRESS_INTERVAL_MILLISECONDS = 200;
+
+    static int defaultWorkers() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the partial results of the workers, always in the same order
+     */
+    static <T> List<T> run(int iterations, long seed, int workers,
+            IDesktopUpdatesEmitter<Integer> progress,
+            ISimulation<T> simulation) {
+        Validate.isTrue(iterations > 0, "iterations must be positive");
+        Validate.isTrue(workers > 0, "workers must be positive");
+        Validate.notNull(progress);
+        Validate.notNull(simulation);
+        int effectiveWorkers = Math.min(workers, iterations);
+        Random seeds = new Random(seed);
+        AtomicInteger done = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(effectiveWorkers);
+        ExecutorService executor = Executors
+                .newFixedThreadPool(effectiveWorkers);
+        try {
+            List<Future<T>> results = new ArrayList<Future<T>>();
+            for (int i = 0; i < effectiveWorkers; i++) {
+                int share = iterations / effectiveWorkers
+                        + (i < iterations % effectiveWorkers ? 1 : 0);
+                results.add(executor.submit(worker(simulation, share,
+                        new Random(seeds.nextLong()), new Progress(done),
+                        finished)));
+            }
+            reportProgressUntilFinished(iterations, done, finished, progress);
+            List<T> result = new ArrayList<T>();
+            for (Future<T> each : results) {
+                result.add(get(each));
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> Callable<T> worker(final ISimulation<T> simulation,
+            final int iterations, final Random random,
+            final Progress progress, final CountDownLatch finished) {
+        return new Callable<T>() {
+
+            @Override
+            public T call() {
+                try {
+                    return simulation.simulate(iterations, random, progress);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+    }
+
+    private static void reportProgressUntilFinished(int iterations,
+            AtomicInteger done, CountDownLatch finished,
+            IDesktopUpdatesEmitter<Integer> progress) {
+        int lastReported = -1;
+        try {
+            while (!finished.await(PROGRESS_INTERVAL_MILLISECONDS,
+                    TimeUnit.MILLISECONDS)) {
+                int percentage = (int) ((done.get() * 100L) / iterations);
+                if (percentage != lastReported) {
+                    progress.doUpdate(percentage);
+                    lastReported = percentage;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private ParallelIterations() {
+    }
+
+}
@@ -397,7 +397,7 @@ public class SaveCommandBuilder {
                 // NonUniqueObjectException later
                 taskElementDAO.reattach(rootTask);
             }
-            orderDAO.save(order);
+            saveOrderWithCodesAlreadyChecked(order);
 
             saveDerivedScenarios(order);
             deleteOrderElementWithoutParent(order);
@@ -532,6 +532,20 @@ public class SaveCommandBuilder {
             }
         }
 
+        /**
+         * The codes were checked against the DB by
+         * {@link #checkConstraintOrderUniqueCode(OrderElement)} with a single
+         * query, so the validation doesn't check them again element by element
+         */
+        private void saveOrderWithCodesAlreadyChecked(Order order) {
+            order.setCodesCheckedInOtherOrders(true);
+            try {
+                orderDAO.save(order);
+            } finally {
+                order.setCodesCheckedInOtherOrders(false);
+            }
+        }
+
         private void checkConstraintHoursGroupUniqueCode(Order order) {
             HoursGroup repeatedHoursGroup;
 
@@ -48,6 +48,7 @@ import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.OrdersByElementMemo;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.planner.daos.IResourceAllocationDAO;
@@ -124,6 +125,12 @@ public class ResourceLoadModel implements IResourceLoadModel {
     @Autowired
     private IAdHocTransactionService transactionService;
 
+    /**
+     * The orders already resolved while building the time lines. It's
+     * recreated each time the data to display is calculated.
+     */
+    private OrdersByElementMemo ordersByElement;
+
     @Override
     @Transactional(readOnly = true)
     public ResourceLoadDisplayData calculateDataToDisplay(
@@ -134,6 +141,7 @@ public class ResourceLoadModel implements IResourceLoadModel {
             planningState.reattach();
             planningState.reassociateResourcesWithSession();
         }
+        ordersByElement = OrdersByElementMemo.create(orderDAO);
         ResourceAllocationsFinder<?> allocationsFinder = create(parameters);
         List<LoadTimeLine> loadTimeLines = allocationsFinder.buildTimeLines();
         return new ResourceLoadDisplayData(loadTimeLines,
@@ -354,17 +362,17 @@ public class ResourceLoadModel implements IResourceLoadModel {
 
         private Map<Resource, List<ResourceAllocation<?>>> eachWithAllocations(
                 List<Resource> allResources) {
+            Map<Resource, List<ResourceAllocation<?>>> found = resourceAllocationDAO
+                    .findAllocationsRelatedTo(getCurrentScenario(),
+                            allResources, parameters.getInitDateFilter(),
+                            parameters.getEndDateFilter());
             Map<Resource, List<ResourceAllocation<?>>> result = new LinkedHashMap<Resource, List<ResourceAllocation<?>>>();
             for (Resource resource : allResources) {
                 IAllocationCriteria criteria = and(onInterval(),
                         relatedToResource(resource));
                 result.put(resource, ResourceAllocation
                         .sortedByStartDate(doReplacementsIfNeeded(
-                                resourceAllocationDAO.findAllocationsRelatedTo(
-                                        getCurrentScenario(), resource,
-                                        parameters.getInitDateFilter(),
-                                        parameters.getEndDateFilter()),
-                                criteria)));
+                                found.get(resource), criteria)));
             }
             return result;
         }
@@ -1019,16 +1027,23 @@ public class ResourceLoadModel implements IResourceLoadModel {
     private Map<Order, List<ResourceAllocation<?>>> byOrder(
             Collection<? extends ResourceAllocation<?>> allocations) {
         Map<Order, List<ResourceAllocation<?>>> result = new HashMap<Order, List<ResourceAllocation<?>>>();
+        List<ResourceAllocation<?>> withTask = new ArrayList<ResourceAllocation<?>>();
+        List<OrderElement> orderElements = new ArrayList<OrderElement>();
         for (ResourceAllocation<?> resourceAllocation : allocations) {
             if ((resourceAllocation.isSatisfied())
                     && (resourceAllocation.getTask() != null)) {
-                OrderElement orderElement = resourceAllocation.getTask()
-                        .getOrderElement();
-                Order order = orderDAO.loadOrderAvoidingProxyFor(orderElement);
-                initializeIfNeeded(result, order);
-                result.get(order).add(resourceAllocation);
+                withTask.add(resourceAllocation);
+                orderElements.add(resourceAllocation.getTask()
+                        .getOrderElement());
             }
         }
+        ordersByElement.prefetch(orderElements);
+        for (int i = 0; i < withTask.size(); i++) {
+            ResourceAllocation<?> resourceAllocation = withTask.get(i);
+            Order order = ordersByElement.getOrderFor(orderElements.get(i));
+            initializeIfNeeded(result, order);
+            result.get(order).add(resourceAllocation);
+        }
         return result;
     }
 
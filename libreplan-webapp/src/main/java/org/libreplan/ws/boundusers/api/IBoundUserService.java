@@ -34,6 +34,8 @@ public interface IBoundUserService {
 
     Response getTimesheetEntriesByTask(String taskCode);
 
+    Response getTimesheetEntriesByTask(String taskCode, int offset, int limit);
+
     Response importTimesheetEntries(PersonalTimesheetEntryListDTO dto);
 
 }
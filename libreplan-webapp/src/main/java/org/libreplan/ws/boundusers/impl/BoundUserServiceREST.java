@@ -93,18 +93,32 @@ public class BoundUserServiceREST implements IBoundUserService {
     @GET
     @Transactional(readOnly = true)
     @Path("/timesheets/{task-code}/")
-    @SuppressWarnings("unchecked")
     public Response getTimesheetEntriesByTask(
             @PathParam("task-code") String taskCode) {
         try {
-            OrderElement orderElement = orderElementDAO.findByCode(taskCode);
-            List<WorkReport> workReports = workReportDAO
-                    .findPersonalTimesheetsByResourceAndOrderElement(UserDashboardUtil
-                            .getBoundResourceFromSession());
-            List<WorkReportLine> workReportLines = workReportLineDAO
-                    .findByOrderElementAndWorkReports(orderElement, workReports);
-            Collections.sort(workReportLines);
-            Collections.reverse(workReportLines);
+            PersonalTimesheetEntryListDTO dto = PersonalTimesheetEntryConverter
+                    .toDTO(getTimesheetLinesByTask(taskCode));
+            return Response.ok(dto).build();
+        } catch (InstanceNotFoundException e) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+    }
+
+    @Override
+    @GET
+    @Transactional(readOnly = true)
+    @Path("/timesheets/{task-code}/page/{offset}/{limit}/")
+    public Response getTimesheetEntriesByTask(
+            @PathParam("task-code") String taskCode,
+            @PathParam("offset") int offset, @PathParam("limit") int limit) {
+        try {
+            List<WorkReportLine> workReportLines = getTimesheetLinesByTask(taskCode);
+            if (offset < 0 || limit <= 0 || offset >= workReportLines.size()) {
+                workReportLines = Collections.emptyList();
+            } else {
+                workReportLines = workReportLines.subList(offset,
+                        Math.min(workReportLines.size(), offset + limit));
+            }
             PersonalTimesheetEntryListDTO dto = PersonalTimesheetEntryConverter
                     .toDTO(workReportLines);
             return Response.ok(dto).build();
@@ -113,6 +127,24 @@ public class BoundUserServiceREST implements IBoundUserService {
         }
     }
 
+    /**
+     * It returns the lines of the personal timesheets of the bound user for
+     * the task, the most recent first
+     */
+    @SuppressWarnings("unchecked")
+    private List<WorkReportLine> getTimesheetLinesByTask(String taskCode)
+            throws InstanceNotFoundException {
+        OrderElement orderElement = orderElementDAO.findByCode(taskCode);
+        List<WorkReport> workReports = workReportDAO
+                .findPersonalTimesheetsByResourceAndOrderElement(UserDashboardUtil
+                        .getBoundResourceFromSession());
+        List<WorkReportLine> workReportLines = workReportLineDAO
+                .findByOrderElementAndWorkReports(orderElement, workReports);
+        Collections.sort(workReportLines);
+        Collections.reverse(workReportLines);
+        return workReportLines;
+    }
+
     @Override
     @POST
     @Path("/timesheets/")
@@ -24,6 +24,7 @@ package org.libreplan.ws.calendarexceptiontypes.api;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.calendars.entities.CalendarExceptionType;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -35,6 +36,12 @@ public interface ICalendarExceptionTypeService {
 
     CalendarExceptionTypeListDTO getCalendarExceptionType();
 
+    CalendarExceptionTypeListDTO getCalendarExceptionType(int offset, int limit);
+
+    Response streamCalendarExceptionTypes();
+
+    EntityChangeListDTO getCalendarExceptionTypeChanges(String token);
+
     InstanceConstraintViolationsListDTO addCalendarExceptionTypes(
             CalendarExceptionTypeListDTO calendarExceptionTypeListDTO);
 
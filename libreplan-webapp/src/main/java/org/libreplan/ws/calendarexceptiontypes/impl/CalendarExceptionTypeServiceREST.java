@@ -27,6 +27,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.calendars.daos.ICalendarExceptionTypeDAO;
@@ -36,6 +37,7 @@ import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.ws.calendarexceptiontypes.api.CalendarExceptionTypeDTO;
 import org.libreplan.ws.calendarexceptiontypes.api.CalendarExceptionTypeListDTO;
 import org.libreplan.ws.calendarexceptiontypes.api.ICalendarExceptionTypeService;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.impl.GenericRESTService;
 import org.libreplan.ws.common.impl.RecoverableErrorException;
@@ -90,6 +92,31 @@ public class CalendarExceptionTypeServiceREST extends
         return new CalendarExceptionTypeListDTO(findAll());
     }
 
+    @Override
+    @GET
+    @Path("/page/{offset}/{limit}/")
+    @Transactional(readOnly = true)
+    public CalendarExceptionTypeListDTO getCalendarExceptionType(@PathParam("offset") int offset,
+            @PathParam("limit") int limit) {
+        return new CalendarExceptionTypeListDTO(findAll(offset, limit));
+    }
+
+    @Override
+    @GET
+    @Path("/stream/")
+    public Response streamCalendarExceptionTypes() {
+        return streamAll(CalendarExceptionTypeListDTO.class);
+    }
+
+    @Override
+    @GET
+    @Path("/changes/")
+    @Transactional(readOnly = true)
+    public EntityChangeListDTO getCalendarExceptionTypeChanges(
+            @QueryParam("token") String token) {
+        return getChangesSince(token);
+    }
+
     @Override
     @POST
     @Consumes("application/xml")
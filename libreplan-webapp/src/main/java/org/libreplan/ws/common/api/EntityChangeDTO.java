@@ -0,0 +1,45 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.common.api;
+
+import javax.xml.bind.annotation.XmlAttribute;
+
+/**
+ * DTO for an entity created, modified or deleted since a synchronization
+ * token. Only the code is sent, the entity can be retrieved by code if it's
+ * not deleted.
+ */
+public class EntityChangeDTO {
+
+    @XmlAttribute
+    public String code;
+
+    @XmlAttribute
+    public boolean deleted;
+
+    public EntityChangeDTO() {
+    }
+
+    public EntityChangeDTO(String code, boolean deleted) {
+        this.code = code;
+        this.deleted = deleted;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.common.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * DTO for the entities created, modified or deleted since a synchronization
+ * token.
+ *
+ * If <code>fullSynchronizationRequired</code> is <code>true</code>, the token
+ * wasn't valid any more and the changes are unknown, so the client must
+ * retrieve all the entities again. In any case, <code>token</code> must be
+ * used to ask for the next changes.
+ */
+@XmlRootElement(name = "entity-change-list")
+public class EntityChangeListDTO {
+
+    @XmlAttribute
+    public String token;
+
+    @XmlAttribute(name = "full-synchronization-required")
+    public boolean fullSynchronizationRequired;
+
+    @XmlElement(name = "entity-change")
+    public List<EntityChangeDTO> changes = new ArrayList<EntityChangeDTO>();
+
+    public EntityChangeListDTO() {
+    }
+
+    public EntityChangeListDTO(String token,
+            boolean fullSynchronizationRequired, List<EntityChangeDTO> changes) {
+        this.token = token;
+        this.fullSynchronizationRequired = fullSynchronizationRequired;
+        this.changes = changes;
+    }
+
+}
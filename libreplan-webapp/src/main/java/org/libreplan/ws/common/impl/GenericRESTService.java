@@ -21,18 +21,34 @@
 
 package org.libreplan.ws.common.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
+import org.apache.commons.lang.StringUtils;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityHandler;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
+import org.libreplan.business.hibernate.notification.IIntegrationEntityChanges;
+import org.libreplan.business.hibernate.notification.IIntegrationEntityChanges.ChangesSince;
+import org.libreplan.business.hibernate.notification.IntegrationEntityChange;
+import org.libreplan.ws.common.api.EntityChangeDTO;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.api.IntegrationEntityDTO;
@@ -50,6 +66,9 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
     @Autowired
     protected IAdHocTransactionService transactionService;
 
+    @Autowired
+    private IIntegrationEntityChanges integrationEntityChanges;
+
     /**
      * It retrieves all entities.
      */
@@ -57,16 +76,177 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
         return toDTO(getIntegrationEntityDAO().findAll());
     }
 
+    /**
+     * It retrieves a page of the entities in the same order that
+     * {@link #findAll()}. If <code>offset</code> is negative or
+     * <code>limit</code> is not positive, it returns an empty list.
+     */
+    protected List<DTO> findAll(int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            return new ArrayList<DTO>();
+        }
+        return toDTO(getIntegrationEntityDAO().findAll(offset, limit));
+    }
+
+    /**
+     * It wraps within a {@link Response} all the entities written as the
+     * list DTO of class <code>listDTOClass</code>.
+     *
+     * Unlike {@link #findAll()}, the XML is written entity by entity when the
+     * response is sent. The entities are retrieved with a cursor on a new
+     * read-only transaction and evicted from the session after being
+     * written, so the memory used doesn't depend on the number of entities.
+     */
+    protected Response streamAll(final Class<?> listDTOClass) {
+        StreamingOutput output = new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                ListDTOStreamWriter writer = ListDTOStreamWriter.create(
+                        listDTOClass, outputStream);
+                writer.writeStart();
+                transactionService.runOnReadOnlyTransaction(writeAll(writer));
+                writer.writeEnd();
+            }
+
+        };
+        return Response.ok(output, MediaType.APPLICATION_XML_TYPE).build();
+    }
+
+    private IOnTransaction<Void> writeAll(final ListDTOStreamWriter writer) {
+        final IEntityHandler<E> writeEach = new IEntityHandler<E>() {
+
+            @Override
+            public void handle(E entity) {
+                try {
+                    writer.write(toDTO(entity));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        return new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                getIntegrationEntityDAO().scrollAll(writeEach);
+                return null;
+            }
+        };
+    }
+
+    /**
+     * It returns the codes of the entities created, modified or deleted since
+     * <code>token</code> was returned by a previous call, along with the
+     * token for the next call. If <code>token</code> is <code>null</code> or
+     * it's not valid any more, it asks for a full synchronization. It's also
+     * asked for if the owner of a modified entity couldn't be retrieved, as
+     * the affected entity is unknown.
+     *
+     * Only the modifications committed by this instance of the application
+     * are known, see {@link IIntegrationEntityChanges}.
+     *
+     * An entity is considered modified if it's modified itself or if
+     * {@link #getAffectedCode(IntegrationEntityChange)} says that the
+     * modification of another entity affects it.
+     */
+    protected EntityChangeListDTO getChangesSince(String token) {
+
+        ChangesSince changesSince = integrationEntityChanges.getChangesSince(
+            token, IntegrationEntity.class);
+        if (changesSince.isExpired()) {
+            return new EntityChangeListDTO(changesSince.getToken(), true,
+                new ArrayList<EntityChangeDTO>());
+        }
+
+        Set<String> codes = new LinkedHashSet<String>();
+        for (IntegrationEntityChange each : changesSince.getChanges()) {
+            String code = getAffectedCode(each);
+            if (code != null) {
+                codes.add(code);
+            }
+        }
+
+        Set<String> existingCodes = findByCodes(codes).keySet();
+        List<EntityChangeDTO> changes = new ArrayList<EntityChangeDTO>();
+        for (String each : codes) {
+            changes.add(new EntityChangeDTO(each, !existingCodes
+                .contains(toKey(each))));
+        }
+
+        return new EntityChangeListDTO(changesSince.getToken(), false,
+            changes);
+
+    }
+
+    /**
+     * It returns the code of the entity affected by <code>change</code> or
+     * <code>null</code> if it doesn't affect any entity of this service.
+     *
+     * If the modified entity is contained in another one, the affected
+     * entity is its owner, as given by
+     * {@link IntegrationEntity#getIntegrationOwner()}. Otherwise, it's the
+     * modified entity itself. The owner is kept with the change, so the
+     * deletions of contained entities are reported too.
+     */
+    protected String getAffectedCode(IntegrationEntityChange change) {
+        Class<?> entityClass = getIntegrationEntityDAO().getEntityClass();
+        if (change.hasOwner()) {
+            return entityClass.isAssignableFrom(change.getOwnerClass()) ? change
+                .getOwnerCode() : null;
+        }
+        if (entityClass.isAssignableFrom(change.getEntityClass())) {
+            return change.getCode();
+        }
+        return null;
+    }
+
     /**
      * It saves (inserts or updates) a list of entities. Each entity is
-     * saved in a separate transaction.
+     * saved in a separate transaction, unless {@link #getImportChunkSize()}
+     * is greater than one. In that case the entities are saved in chunks of
+     * that size, each one in a separate transaction, and only the chunks
+     * with some error are saved again entity by entity to report the
+     * constraint violations of each entity.
      */
     protected InstanceConstraintViolationsListDTO save(
         List<? extends DTO> entityDTOs) {
 
         List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
             new ArrayList<InstanceConstraintViolationsDTO>();
-        long numItem = 1;
+        int chunkSize = Math.max(1, getImportChunkSize());
+
+        for (int i = 0; i < entityDTOs.size(); i += chunkSize) {
+
+            List<? extends DTO> chunk = entityDTOs.subList(i,
+                Math.min(entityDTOs.size(), i + chunkSize));
+
+            if (chunk.size() == 1 || !saveOnOneTransaction(chunk)) {
+                saveOneByOne(chunk, i + 1, instanceConstraintViolationsList);
+            }
+
+        }
+
+        return new InstanceConstraintViolationsListDTO(
+            instanceConstraintViolationsList);
+
+    }
+
+    /**
+     * It returns the maximum number of entities saved in the same
+     * transaction by {@link #save(List)}.
+     *
+     * Default implementation returns 1, so each entity is saved in a
+     * separate transaction.
+     */
+    protected int getImportChunkSize() {
+        return 1;
+    }
+
+    private void saveOneByOne(List<? extends DTO> entityDTOs, long firstNumItem,
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList) {
+
+        long numItem = firstNumItem;
 
         for (DTO entityDTO : entityDTOs) {
 
@@ -101,9 +281,90 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
 
         }
 
-        return new InstanceConstraintViolationsListDTO(
-            instanceConstraintViolationsList);
+    }
+
+    /**
+     * It saves (inserts or updates) all the entity DTOs by using a new
+     * transaction. The existing entities are retrieved with a single query.
+     *
+     * @return <code>false</code> if some entity couldn't be saved. In that
+     *         case the transaction is rolled back, so none of them is saved
+     */
+    private boolean saveOnOneTransaction(final List<? extends DTO> entityDTOs) {
+
+        IOnTransaction<Void> save = new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+
+                IIntegrationEntityDAO<E> entityDAO =
+                    getIntegrationEntityDAO();
+                Map<String, E> entitiesByCode = findByCodes(entityDTOs);
+
+                for (DTO entityDTO : entityDTOs) {
+
+                    /* Insert or update? */
+                    E entity = entitiesByCode.get(toKey(entityDTO.code));
+                    if (entity != null) {
+                        updateEntity(entity, entityDTO);
+                    } else {
+                        entity = toEntity(entityDTO);
+                    }
+
+                    entity.validate();
+                    beforeSaving(entity);
+                    entityDAO.saveWithoutValidating(entity);
+                    afterSaving(entity);
+
+                    String key = toKey(entity.getCode());
+                    if (key != null) {
+                        entitiesByCode.put(key, entity);
+                    }
+
+                }
+
+                return null;
+
+            }
+
+        };
+
+        try {
+            transactionService.runOnAnotherTransaction(save);
+            return true;
+        } catch (RuntimeException e) {
+            /*
+             * ValidationException and RecoverableErrorException are runtime
+             * exceptions too. The caller saves the entities again one by one
+             * to report the errors of each one.
+             */
+            return false;
+        }
+
+    }
+
+    private Map<String, E> findByCodes(List<? extends DTO> entityDTOs) {
+
+        List<String> codes = new ArrayList<String>();
+        for (DTO each : entityDTOs) {
+            codes.add(each.code);
+        }
+        return findByCodes(codes);
+
+    }
+
+    private Map<String, E> findByCodes(Collection<String> codes) {
+
+        Map<String, E> result = new HashMap<String, E>();
+        for (E each : getIntegrationEntityDAO().findByCodes(codes)) {
+            result.put(toKey(each.getCode()), each);
+        }
+        return result;
+
+    }
 
+    private static String toKey(String code) {
+        return StringUtils.isBlank(code) ? null : code.trim().toLowerCase();
     }
 
     /**
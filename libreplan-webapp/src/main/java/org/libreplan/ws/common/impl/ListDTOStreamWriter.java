@@ -0,0 +1,191 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.common.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElements;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * It writes the XML of a list DTO (e.g. <code>OrderListDTO</code>) item by
+ * item, so the list doesn't need to be kept in memory. The XML written is the
+ * same that JAXB would write for the whole list DTO.
+ *
+ * The names of the list and of its items are taken from the JAXB annotations
+ * of the list DTO class.
+ */
+public class ListDTOStreamWriter {
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+
+    public static ListDTOStreamWriter create(Class<?> listDTOClass,
+            OutputStream output) throws IOException {
+        try {
+            return new ListDTOStreamWriter(listDTOClass, output);
+        } catch (JAXBException e) {
+            throw toIOException(e);
+        } catch (XMLStreamException e) {
+            throw toIOException(e);
+        }
+    }
+
+    private static JAXBContext getContext(Class<?> listDTOClass)
+            throws JAXBException {
+        JAXBContext result = contexts.get(listDTOClass);
+        if (result == null) {
+            result = JAXBContext.newInstance(listDTOClass);
+            contexts.put(listDTOClass, result);
+        }
+        return result;
+    }
+
+    private static IOException toIOException(Exception e) {
+        IOException result = new IOException(e.getMessage());
+        result.initCause(e);
+        return result;
+    }
+
+    private final QName listName;
+
+    private final Map<Class<?>, QName> itemNames = new HashMap<Class<?>, QName>();
+
+    private final Marshaller marshaller;
+
+    private final XMLStreamWriter writer;
+
+    private ListDTOStreamWriter(Class<?> listDTOClass, OutputStream output)
+            throws JAXBException, XMLStreamException {
+        XmlRootElement root = listDTOClass.getAnnotation(XmlRootElement.class);
+        Validate.notNull(root, listDTOClass.getName()
+                + " must be annotated with @XmlRootElement");
+        String namespace = getNamespace(listDTOClass);
+        this.listName = new QName(namespace, root.name());
+        for (Field each : listDTOClass.getFields()) {
+            addItemNames(namespace, each);
+        }
+        Validate.isTrue(!itemNames.isEmpty(), listDTOClass.getName()
+                + " must have a list annotated with @XmlElement");
+        this.marshaller = getContext(listDTOClass).createMarshaller();
+        this.marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(
+                output, ENCODING);
+    }
+
+    private String getNamespace(Class<?> listDTOClass) {
+        XmlSchema schema = listDTOClass.getPackage().getAnnotation(
+                XmlSchema.class);
+        return schema != null ? schema.namespace() : "";
+    }
+
+    private void addItemNames(String namespace, Field field) {
+        XmlElement element = field.getAnnotation(XmlElement.class);
+        if (element != null) {
+            itemNames.put(getListElementType(field), new QName(namespace,
+                    element.name()));
+        }
+        XmlElements elements = field.getAnnotation(XmlElements.class);
+        if (elements != null) {
+            for (XmlElement each : elements.value()) {
+                itemNames.put(each.type(), new QName(namespace, each.name()));
+            }
+        }
+    }
+
+    private Class<?> getListElementType(Field field) {
+        Type type = ((ParameterizedType) field.getGenericType())
+                .getActualTypeArguments()[0];
+        if (type instanceof WildcardType) {
+            type = ((WildcardType) type).getUpperBounds()[0];
+        }
+        return (Class<?>) type;
+    }
+
+    public void writeStart() throws IOException {
+        try {
+            writer.writeStartDocument(ENCODING, "1.0");
+            writer.setDefaultNamespace(listName.getNamespaceURI());
+            writer.writeStartElement(listName.getNamespaceURI(), listName
+                    .getLocalPart());
+            writer.writeDefaultNamespace(listName.getNamespaceURI());
+        } catch (XMLStreamException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void write(Object itemDTO) throws IOException {
+        QName name = getItemName(itemDTO.getClass());
+        try {
+            marshaller.marshal(new JAXBElement(name, itemDTO.getClass(),
+                    itemDTO), writer);
+            writer.flush();
+        } catch (JAXBException e) {
+            throw toIOException(e);
+        } catch (XMLStreamException e) {
+            throw toIOException(e);
+        }
+    }
+
+    private QName getItemName(Class<?> itemClass) {
+        for (Class<?> each = itemClass; each != null; each = each
+                .getSuperclass()) {
+            QName result = itemNames.get(each);
+            if (result != null) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException(itemClass.getName()
+                + " is not an item of " + listName);
+    }
+
+    public void writeEnd() throws IOException {
+        try {
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw toIOException(e);
+        }
+    }
+
+}
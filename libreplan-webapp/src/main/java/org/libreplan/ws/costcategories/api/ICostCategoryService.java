@@ -23,6 +23,7 @@ package org.libreplan.ws.costcategories.api;
 
 import javax.ws.rs.core.Response;
 
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -36,5 +37,11 @@ public interface ICostCategoryService {
 
     public CostCategoryListDTO getCostCotegories();
 
+    public CostCategoryListDTO getCostCotegories(int offset, int limit);
+
+    public Response streamCostCategories();
+
+    public EntityChangeListDTO getCostCategoryChanges(String token);
+
     Response getCostCategory(String code);
 }
\ No newline at end of file
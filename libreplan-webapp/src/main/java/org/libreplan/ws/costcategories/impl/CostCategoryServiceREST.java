@@ -27,12 +27,14 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.costcategories.daos.ICostCategoryDAO;
 import org.libreplan.business.costcategories.entities.CostCategory;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.impl.GenericRESTService;
 import org.libreplan.ws.costcategories.api.CostCategoryDTO;
@@ -64,6 +66,31 @@ public class CostCategoryServiceREST extends
         return new CostCategoryListDTO(findAll());
     }
 
+    @Override
+    @GET
+    @Path("/page/{offset}/{limit}/")
+    @Transactional(readOnly = true)
+    public CostCategoryListDTO getCostCotegories(@PathParam("offset") int offset,
+            @PathParam("limit") int limit) {
+        return new CostCategoryListDTO(findAll(offset, limit));
+    }
+
+    @Override
+    @GET
+    @Path("/stream/")
+    public Response streamCostCategories() {
+        return streamAll(CostCategoryListDTO.class);
+    }
+
+    @Override
+    @GET
+    @Path("/changes/")
+    @Transactional(readOnly = true)
+    public EntityChangeListDTO getCostCategoryChanges(
+            @QueryParam("token") String token) {
+        return getChangesSince(token);
+    }
+
     @Override
     @POST
     @Consumes("application/xml")
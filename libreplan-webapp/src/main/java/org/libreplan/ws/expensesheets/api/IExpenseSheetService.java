@@ -22,6 +22,7 @@ package org.libreplan.ws.expensesheets.api;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.expensesheet.entities.ExpenseSheet;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -33,6 +34,12 @@ public interface IExpenseSheetService {
 
     ExpenseSheetListDTO getExpenseSheets();
 
+    ExpenseSheetListDTO getExpenseSheets(int offset, int limit);
+
+    Response streamExpenseSheets();
+
+    EntityChangeListDTO getExpenseSheetChanges(String token);
+
     InstanceConstraintViolationsListDTO addExpenseSheets(
             ExpenseSheetListDTO expenseSheetListDTO);
 
@@ -25,6 +25,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
@@ -32,6 +33,7 @@ import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.expensesheet.daos.IExpenseSheetDAO;
 import org.libreplan.business.expensesheet.entities.ExpenseSheet;
 import org.libreplan.business.orders.daos.ISumExpensesDAO;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.impl.GenericRESTService;
 import org.libreplan.ws.common.impl.RecoverableErrorException;
@@ -113,4 +115,29 @@ public class ExpenseSheetServiceREST extends
     public ExpenseSheetListDTO getExpenseSheets() {
         return new ExpenseSheetListDTO(findAll());
     }
+
+    @Override
+    @GET
+    @Path("/page/{offset}/{limit}/")
+    @Transactional(readOnly = true)
+    public ExpenseSheetListDTO getExpenseSheets(@PathParam("offset") int offset,
+            @PathParam("limit") int limit) {
+        return new ExpenseSheetListDTO(findAll(offset, limit));
+    }
+
+    @Override
+    @GET
+    @Path("/stream/")
+    public Response streamExpenseSheets() {
+        return streamAll(ExpenseSheetListDTO.class);
+    }
+
+    @Override
+    @GET
+    @Path("/changes/")
+    @Transactional(readOnly = true)
+    public EntityChangeListDTO getExpenseSheetChanges(
+            @QueryParam("token") String token) {
+        return getChangesSince(token);
+    }
 }
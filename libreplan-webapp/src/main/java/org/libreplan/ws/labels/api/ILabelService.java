@@ -24,6 +24,7 @@ package org.libreplan.ws.labels.api;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.labels.entities.Label;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -35,6 +36,12 @@ public interface ILabelService {
 
     LabelTypeListDTO getLabelTypes();
 
+    LabelTypeListDTO getLabelTypes(int offset, int limit);
+
+    Response streamLabelTypes();
+
+    EntityChangeListDTO getLabelTypeChanges(String token);
+
     InstanceConstraintViolationsListDTO addLabelTypes(
             LabelTypeListDTO labelTypes);
 
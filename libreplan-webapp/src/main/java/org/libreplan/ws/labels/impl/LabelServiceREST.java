@@ -27,12 +27,14 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.labels.daos.ILabelTypeDAO;
 import org.libreplan.business.labels.entities.LabelType;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.impl.GenericRESTService;
 import org.libreplan.ws.common.impl.RecoverableErrorException;
@@ -64,6 +66,31 @@ public class LabelServiceREST extends
         return new LabelTypeListDTO(findAll());
     }
 
+    @Override
+    @GET
+    @Path("/page/{offset}/{limit}/")
+    @Transactional(readOnly = true)
+    public LabelTypeListDTO getLabelTypes(@PathParam("offset") int offset,
+            @PathParam("limit") int limit) {
+        return new LabelTypeListDTO(findAll(offset, limit));
+    }
+
+    @Override
+    @GET
+    @Path("/stream/")
+    public Response streamLabelTypes() {
+        return streamAll(LabelTypeListDTO.class);
+    }
+
+    @Override
+    @GET
+    @Path("/changes/")
+    @Transactional(readOnly = true)
+    public EntityChangeListDTO getLabelTypeChanges(
+            @QueryParam("token") String token) {
+        return getChangesSince(token);
+    }
+
     @Override
     @POST
     @Consumes("application/xml")
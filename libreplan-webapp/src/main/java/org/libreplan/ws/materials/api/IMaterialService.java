@@ -23,6 +23,7 @@ package org.libreplan.ws.materials.api;
 
 import javax.ws.rs.core.Response;
 
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -33,6 +34,12 @@ public interface IMaterialService {
 
     public MaterialCategoryListDTO getMaterials();
 
+    public MaterialCategoryListDTO getMaterials(int offset, int limit);
+
+    public Response streamMaterials();
+
+    public EntityChangeListDTO getMaterialChanges(String token);
+
     public InstanceConstraintViolationsListDTO addMaterials(
             MaterialCategoryListDTO materialCategoryListDTO);
 
@@ -27,12 +27,14 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.materials.daos.IMaterialCategoryDAO;
 import org.libreplan.business.materials.entities.MaterialCategory;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.impl.GenericRESTService;
 import org.libreplan.ws.materials.api.IMaterialService;
@@ -63,6 +65,31 @@ public class MaterialServiceREST extends
         return new MaterialCategoryListDTO(findAll());
     }
 
+    @Override
+    @GET
+    @Path("/page/{offset}/{limit}/")
+    @Transactional(readOnly = true)
+    public MaterialCategoryListDTO getMaterials(@PathParam("offset") int offset,
+            @PathParam("limit") int limit) {
+        return new MaterialCategoryListDTO(findAll(offset, limit));
+    }
+
+    @Override
+    @GET
+    @Path("/stream/")
+    public Response streamMaterials() {
+        return streamAll(MaterialCategoryListDTO.class);
+    }
+
+    @Override
+    @GET
+    @Path("/changes/")
+    @Transactional(readOnly = true)
+    public EntityChangeListDTO getMaterialChanges(
+            @QueryParam("token") String token) {
+        return getChangesSince(token);
+    }
+
     @Override
     @POST
     @Consumes("application/xml")
@@ -24,6 +24,7 @@ package org.libreplan.ws.orders.api;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -37,6 +38,12 @@ public interface IOrderElementService {
 
     OrderListDTO getOrders();
 
+    OrderListDTO getOrders(int offset, int limit);
+
+    Response streamOrders();
+
+    EntityChangeListDTO getOrderChanges(String token);
+
     Response getOrderElement(String code);
 
     Response removeOrderElement(String code);
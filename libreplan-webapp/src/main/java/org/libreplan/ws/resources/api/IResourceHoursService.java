@@ -34,6 +34,9 @@ public interface IResourceHoursService {
     ResourceWorkedHoursListDTO getHoursAllWorkersBetween(String startDate,
             String endDate);
 
+    ResourceWorkedHoursListDTO getHoursAllWorkersBetween(int offset,
+            int limit, String startDate, String endDate);
+
     ResourceWorkedHoursListDTO getHoursOfWorker(String resourceCode,
             String startDate, String endDate);
 
@@ -23,6 +23,7 @@ package org.libreplan.ws.resources.api;
 
 import javax.ws.rs.core.Response;
 
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -43,6 +44,12 @@ public interface IResourceService {
 
     public ResourceListDTO getResources();
 
+    public ResourceListDTO getResources(int offset, int limit);
+
+    public Response streamResources();
+
+    public EntityChangeListDTO getResourceChanges(String token);
+
     Response getResource(String code);
 
 }
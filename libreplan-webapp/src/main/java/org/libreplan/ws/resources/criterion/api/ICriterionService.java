@@ -23,6 +23,7 @@ package org.libreplan.ws.resources.criterion.api;
 
 import javax.ws.rs.core.Response;
 
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -34,6 +35,12 @@ public interface ICriterionService {
 
     public CriterionTypeListDTO getCriterionTypes();
 
+    public CriterionTypeListDTO getCriterionTypes(int offset, int limit);
+
+    public Response streamCriterionTypes();
+
+    public EntityChangeListDTO getCriterionTypeChanges(String token);
+
     public InstanceConstraintViolationsListDTO addCriterionTypes(
         CriterionTypeListDTO criterionTypes);
 
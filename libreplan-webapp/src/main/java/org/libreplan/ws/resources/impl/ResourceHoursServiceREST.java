@@ -25,16 +25,24 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 
+import org.joda.time.LocalDate;
 import org.libreplan.business.resources.daos.IWorkerDAO;
 import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.entities.IResourceWorkedEffortRollup;
 import org.libreplan.ws.resources.api.IResourceHoursService;
 import org.libreplan.ws.resources.api.ResourceWorkedHoursDTO;
 import org.libreplan.ws.resources.api.ResourceWorkedHoursListDTO;
@@ -58,6 +66,9 @@ public class ResourceHoursServiceREST implements IResourceHoursService {
     @Autowired
     private IWorkerDAO workerDAO;
 
+    @Autowired
+    private IResourceWorkedEffortRollup resourceWorkedEffortRollup;
+
     @Override
     @GET
     @Path("/{startDate}/{endDate}")
@@ -68,6 +79,28 @@ public class ResourceHoursServiceREST implements IResourceHoursService {
         return getHoursOfWorker(null, startDate, endDate);
     }
 
+    @Override
+    @GET
+    @Path("/page/{offset}/{limit}/{startDate}/{endDate}")
+    @Transactional(readOnly = true)
+    public ResourceWorkedHoursListDTO getHoursAllWorkersBetween(
+            @PathParam("offset") int offset, @PathParam("limit") int limit,
+            @PathParam("startDate") String startDate,
+            @PathParam("endDate") String endDate) {
+        Date startingDate = parse(startDate);
+        Date endingDate = parse(endDate);
+        List<Entry<String, EffortDuration>> efforts = new ArrayList<Entry<String, EffortDuration>>(
+                getEffortPerWorker(null, startingDate, endingDate).entrySet());
+        if (offset < 0 || limit <= 0 || offset >= efforts.size()) {
+            efforts = Collections.emptyList();
+        } else {
+            efforts = efforts.subList(offset,
+                    Math.min(efforts.size(), offset + limit));
+        }
+        return new ResourceWorkedHoursListDTO(toDTO(efforts), startingDate,
+                endingDate);
+    }
+
     @Override
     @GET
     @Path("/{resourceCode}/{startDate}/{endDate}")
@@ -76,34 +109,58 @@ public class ResourceHoursServiceREST implements IResourceHoursService {
             @PathParam("resourceCode") String resourceCode,
             @PathParam("startDate") String startDate,
             @PathParam("endDate") String endDate) {
-        List<ResourceWorkedHoursDTO> result = new ArrayList<ResourceWorkedHoursDTO>();
+        Date startingDate = parse(startDate);
+        Date endingDate = parse(endDate);
+        return new ResourceWorkedHoursListDTO(toDTO(getEffortPerWorker(
+                resourceCode, startingDate, endingDate).entrySet()),
+                startingDate, endingDate);
+    }
 
-        Date startingDate;
-        Date endingDate;
+    private static Date parse(String date) {
         try {
-            startingDate = SERVICE_DATE_FORMAT.parse(startDate);
-            endingDate = SERVICE_DATE_FORMAT.parse(endDate);
+            return SERVICE_DATE_FORMAT.parse(date);
         } catch (ParseException e) {
             throw new RuntimeException(e);
         }
+    }
 
+    /**
+     * It returns the worked effort of the workers with any effort between the
+     * dates, sorted by their codes. If <code>resourceCode</code> is
+     * <code>null</code> all the workers are included.
+     */
+    private SortedMap<String, EffortDuration> getEffortPerWorker(
+            String resourceCode, Date startingDate, Date endingDate) {
         List<String> workerCodes = null;
         if (resourceCode != null) {
             workerCodes = Arrays.asList(resourceCode);
         }
 
-        List<Object[]> hoursPerWorker = workerDAO
-                .getWorkingHoursGroupedPerWorker(workerCodes, startingDate,
-                        endingDate);
+        Map<Long, String> codesPerId = workerDAO.getCodesPerId(workerCodes);
+        Map<Long, EffortDuration> effortPerResource = resourceWorkedEffortRollup
+                .getWorkedEffortPerResource(
+                        resourceCode != null ? codesPerId.keySet() : null,
+                        LocalDate.fromDateFields(startingDate),
+                        LocalDate.fromDateFields(endingDate));
 
-        for (Object[] pair : hoursPerWorker) {
-            ResourceWorkedHoursDTO resourceWorkedHoursDTO = new ResourceWorkedHoursDTO(
-                    (String) pair[0], EffortDuration.seconds(
-                            ((Long) pair[1]).intValue()).toFormattedString());
-            result.add(resourceWorkedHoursDTO);
+        SortedMap<String, EffortDuration> result = new TreeMap<String, EffortDuration>();
+        for (Entry<Long, EffortDuration> each : effortPerResource.entrySet()) {
+            String code = codesPerId.get(each.getKey());
+            if (code != null) {
+                result.put(code, each.getValue());
+            }
         }
+        return result;
+    }
 
-        return new ResourceWorkedHoursListDTO(result, startingDate, endingDate);
+    private static List<ResourceWorkedHoursDTO> toDTO(
+            Collection<Entry<String, EffortDuration>> effortPerWorker) {
+        List<ResourceWorkedHoursDTO> result = new ArrayList<ResourceWorkedHoursDTO>();
+        for (Entry<String, EffortDuration> each : effortPerWorker) {
+            result.add(new ResourceWorkedHoursDTO(each.getKey(), each
+                    .getValue().toFormattedString()));
+        }
+        return result;
     }
 
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ package org.libreplan.ws.typeofworkhours.api;
 
 import javax.ws.rs.core.Response;
 
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -36,5 +37,11 @@ public interface ITypeOfWorkHoursService {
 
     public TypeOfWorkHoursListDTO getTypeOfWorkHours();
 
+    public TypeOfWorkHoursListDTO getTypeOfWorkHours(int offset, int limit);
+
+    public Response streamTypeOfWorkHours();
+
+    public EntityChangeListDTO getTypeOfWorkHoursChanges(String token);
+
     Response getTypeOfWorkHours(String code);
 }
\ No newline at end of file
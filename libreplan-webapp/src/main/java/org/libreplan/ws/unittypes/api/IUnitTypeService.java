@@ -23,12 +23,19 @@ package org.libreplan.ws.unittypes.api;
 
 import javax.ws.rs.core.Response;
 
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 public interface IUnitTypeService {
 
     public UnitTypeListDTO getUnitTypes();
 
+    public UnitTypeListDTO getUnitTypes(int offset, int limit);
+
+    public Response streamUnitTypes();
+
+    public EntityChangeListDTO getUnitTypeChanges(String token);
+
     public InstanceConstraintViolationsListDTO addUnitTypes(
             UnitTypeListDTO unitTypeListDTO);
 
@@ -23,6 +23,7 @@ package org.libreplan.ws.workreports.api;
 
 import javax.ws.rs.core.Response;
 
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 
 /**
@@ -34,6 +35,12 @@ public interface IWorkReportService {
 
     public WorkReportListDTO getWorkReports();
 
+    public WorkReportListDTO getWorkReports(int offset, int limit);
+
+    public Response streamWorkReports();
+
+    public EntityChangeListDTO getWorkReportChanges(String token);
+
     public InstanceConstraintViolationsListDTO addWorkReports(
             WorkReportListDTO workReportListDTO);
 
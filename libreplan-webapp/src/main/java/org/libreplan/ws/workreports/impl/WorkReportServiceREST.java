@@ -33,6 +33,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -45,6 +46,7 @@ import org.libreplan.business.workreports.daos.IWorkReportDAO;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
 import org.libreplan.business.workreports.entities.WorkReport;
 import org.libreplan.business.workreports.entities.WorkReportLine;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.impl.GenericRESTService;
 import org.libreplan.ws.workreports.api.IWorkReportService;
@@ -66,6 +68,8 @@ public class WorkReportServiceREST extends
         GenericRESTService<WorkReport, WorkReportDTO> implements
         IWorkReportService {
 
+    private static final int IMPORT_CHUNK_SIZE = 100;
+
     private Set<OrderElement> orderElements;
 
     @Autowired
@@ -84,6 +88,31 @@ public class WorkReportServiceREST extends
         return new WorkReportListDTO(findAll());
     }
 
+    @Override
+    @GET
+    @Path("/page/{offset}/{limit}/")
+    @Transactional(readOnly = true)
+    public WorkReportListDTO getWorkReports(@PathParam("offset") int offset,
+            @PathParam("limit") int limit) {
+        return new WorkReportListDTO(findAll(offset, limit));
+    }
+
+    @Override
+    @GET
+    @Path("/stream/")
+    public Response streamWorkReports() {
+        return streamAll(WorkReportListDTO.class);
+    }
+
+    @Override
+    @GET
+    @Path("/changes/")
+    @Transactional(readOnly = true)
+    public EntityChangeListDTO getWorkReportChanges(
+            @QueryParam("token") String token) {
+        return getChangesSince(token);
+    }
+
     @Override
     @POST
     @Consumes("application/xml")
@@ -92,6 +121,11 @@ public class WorkReportServiceREST extends
         return save(workReportListDTO.workReports);
     }
 
+    @Override
+    protected int getImportChunkSize() {
+        return IMPORT_CHUNK_SIZE;
+    }
+
     @Override
     protected WorkReport toEntity(WorkReportDTO entityDTO) {
         try {
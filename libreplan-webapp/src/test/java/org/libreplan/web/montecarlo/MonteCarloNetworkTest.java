@@ -0,0 +1,146 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Dependency.Type;
+import org.libreplan.web.montecarlo.MonteCarloNetwork.Result;
+import org.libreplan.web.montecarlo.MonteCarloSimulation.Histogram;
+import org.zkoss.ganttz.util.LongOperationFeedback;
+import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
+
+/**
+ * Tests for {@link MonteCarloNetwork}
+ */
+public class MonteCarloNetworkTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    private IDesktopUpdatesEmitter<Integer> noProgress() {
+        return LongOperationFeedback.doNothingEmitter();
+    }
+
+    private int fixedTask(MonteCarloNetwork network, int release, int days) {
+        return network.addTask(release, days, 100, days, 0, days);
+    }
+
+    @Test
+    public void aSequenceEndsAfterTheSumOfTheDurations() {
+        MonteCarloNetwork network = MonteCarloNetwork.create(START);
+        int first = fixedTask(network, 2, 5);
+        int second = fixedTask(network, 0, 3);
+        network.addDependency(first, second, Type.END_START);
+
+        Result result = network.run(100, 1L, 2, noProgress());
+        assertThat(result.getCompletion().getTimes(START.plusDays(10)),
+                equalTo(100));
+        assertThat(result.getCriticalityIndex(first), equalTo(1.0));
+        assertThat(result.getCriticalityIndex(second), equalTo(1.0));
+    }
+
+    @Test
+    public void theLongestBranchIsTheCriticalOne() {
+        MonteCarloNetwork network = MonteCarloNetwork.create(START);
+        int origin = fixedTask(network, 0, 1);
+        int longBranch = fixedTask(network, 0, 10);
+        int shortBranch = fixedTask(network, 0, 2);
+        int end = network.addFixed(0, 0);
+        network.addDependency(origin, longBranch, Type.END_START);
+        network.addDependency(origin, shortBranch, Type.END_START);
+        network.addDependency(longBranch, end, Type.END_START);
+        network.addDependency(shortBranch, end, Type.END_START);
+
+        Result result = network.run(100, 1L, 1, noProgress());
+        assertThat(result.getCompletion().getTimes(START.plusDays(11)),
+                equalTo(100));
+        assertThat(result.getCriticalityIndex(longBranch), equalTo(1.0));
+        assertThat(result.getCriticalityIndex(shortBranch), equalTo(0.0));
+    }
+
+    @Test
+    public void theDependencyTypesConstrainTheStartOrTheEnd() {
+        MonteCarloNetwork network = MonteCarloNetwork.create(START);
+        int origin = fixedTask(network, 0, 4);
+        int startStart = fixedTask(network, 0, 2);
+        int endEnd = fixedTask(network, 0, 7);
+        int afterEndEnd = fixedTask(network, 0, 1);
+        network.addDependency(origin, startStart, Type.START_START);
+        network.addDependency(startStart, endEnd, Type.END_END);
+        network.addDependency(endEnd, afterEndEnd, Type.END_START);
+
+        Result result = network.run(10, 1L, 1, noProgress());
+        assertThat(result.getCompletion().getTimes(START.plusDays(8)),
+                equalTo(10));
+    }
+
+    @Test
+    public void aLongerTaskWithEndEndCanMakeTheNetworkEndEarlier() {
+        MonteCarloNetwork network = MonteCarloNetwork.create(START);
+        int origin = fixedTask(network, 0, 10);
+        int endEnd = network.addTask(0, 10, 50, 1, 50, 1);
+        int afterStart = fixedTask(network, 0, 20);
+        network.addDependency(origin, endEnd, Type.END_END);
+        network.addDependency(endEnd, afterStart, Type.START_START);
+
+        Result result = network.run(1000, 3L, 4, noProgress());
+        Histogram completion = result.getCompletion();
+        assertThat(completion.getFirstDay(), equalTo(START.plusDays(20)));
+        assertThat(completion.getLastDay(), equalTo(START.plusDays(29)));
+        int endingEarly = completion.getTimes(START.plusDays(20));
+        int endingLate = completion.getTimes(START.plusDays(29));
+        assertTrue(endingEarly > 0);
+        assertTrue(endingLate > 0);
+        assertThat(endingEarly + endingLate, equalTo(1000));
+    }
+
+    @Test
+    public void theCriticalityIndexesFollowTheSampledDurations() {
+        MonteCarloNetwork network = MonteCarloNetwork.create(START);
+        int uncertain = network.addTask(0, 20, 50, 1, 50, 1);
+        int steady = fixedTask(network, 0, 10);
+
+        Result result = network.run(100000, 5L, 4, noProgress());
+        assertAround(0.5, result.getCriticalityIndex(uncertain));
+        assertAround(0.5, result.getCriticalityIndex(steady));
+        assertAround(0.5, result.getCompletion().getTimes(START.plusDays(20))
+                / 100000.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cyclesAreNotAllowed() {
+        MonteCarloNetwork network = MonteCarloNetwork.create(START);
+        int first = fixedTask(network, 0, 1);
+        int second = fixedTask(network, 0, 1);
+        network.addDependency(first, second, Type.END_START);
+        network.addDependency(second, first, Type.END_START);
+        network.run(10, 1L, 1, noProgress());
+    }
+
+    private void assertAround(double expected, double actual) {
+        assertTrue("expected around " + expected + " but was " + actual,
+                Math.abs(expected - actual) < 0.01);
+    }
+
+}
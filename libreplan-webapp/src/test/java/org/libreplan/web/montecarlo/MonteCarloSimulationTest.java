@@ -0,0 +1,102 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.web.montecarlo.MonteCarloSimulation.Histogram;
+import org.zkoss.ganttz.util.LongOperationFeedback;
+import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
+
+/**
+ * Tests for {@link MonteCarloSimulation}
+ */
+public class MonteCarloSimulationTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    private IDesktopUpdatesEmitter<Integer> noProgress() {
+        return LongOperationFeedback.doNothingEmitter();
+    }
+
+    private MonteCarloSimulation threeTasks() {
+        return MonteCarloSimulation.create(START)
+                .addTask(15, 30, 10, 50, 5)
+                .addTask(6, 30, 4, 50, 2)
+                .addTask(3, 30, 2, 50, 1);
+    }
+
+    @Test
+    public void ifOnlyOneDurationIsPossibleAllIterationsEndTheSameDay() {
+        Histogram histogram = MonteCarloSimulation.create(START)
+                .addTask(10, 100, 5, 0, 2).addTask(3, 0, 4, 100, 1)
+                .run(1000, 1L, 4, noProgress());
+        assertThat(histogram.getTimes(START.plusDays(14)), equalTo(1000));
+        assertThat(histogram.toProbabilities().get(START.plusDays(14)),
+                equalTo(new BigDecimal("1.00000000")));
+    }
+
+    @Test
+    public void allIterationsAreCounted() {
+        Histogram histogram = threeTasks().run(12345, 7L, 3, noProgress());
+        int total = 0;
+        for (LocalDate day = histogram.getFirstDay(); !day.isAfter(histogram
+                .getLastDay()); day = day.plusDays(1)) {
+            total += histogram.getTimes(day);
+        }
+        assertThat(total, equalTo(12345));
+        assertThat(histogram.getFirstDay(), equalTo(START.plusDays(8)));
+        assertThat(histogram.getLastDay(), equalTo(START.plusDays(24)));
+    }
+
+    @Test
+    public void theSameSeedAndWorkersGiveTheSameResult() {
+        Map<LocalDate, BigDecimal> first = threeTasks().run(10000, 42L, 4,
+                noProgress()).toProbabilities();
+        Map<LocalDate, BigDecimal> second = threeTasks().run(10000, 42L, 4,
+                noProgress()).toProbabilities();
+        assertThat(first, equalTo(second));
+    }
+
+    @Test
+    public void theDurationsAreChosenAccordingToTheirPercentages() {
+        int iterations = 100000;
+        Histogram histogram = MonteCarloSimulation.create(START)
+                .addTask(30, 30, 20, 50, 10)
+                .run(iterations, 3L, 2, noProgress());
+        assertAround(0.3, histogram.getTimes(START.plusDays(30)), iterations);
+        assertAround(0.5, histogram.getTimes(START.plusDays(20)), iterations);
+        assertAround(0.2, histogram.getTimes(START.plusDays(10)), iterations);
+    }
+
+    private void assertAround(double expected, int times, int iterations) {
+        double actual = ((double) times) / iterations;
+        assertTrue("expected around " + expected + " but was " + actual,
+                Math.abs(expected - actual) < 0.01);
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.Capacity;
+import org.libreplan.business.calendars.entities.CalendarData.Days;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Tests for {@link MonteCarloTask}
+ */
+public class MonteCarloTaskTest {
+
+    // it's a Monday
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private static MonteCarloTask taskWithWorkingWeekdays() {
+        BaseCalendar calendar = BaseCalendar.create();
+        for (Days each : Days.values()) {
+            calendar.setCapacityAt(each, Capacity.zero());
+        }
+        Capacity eightHours = Capacity.create(EffortDuration.hours(8))
+                .overAssignableWithoutLimit();
+        for (Days each : new Days[] { Days.MONDAY, Days.TUESDAY,
+                Days.WEDNESDAY, Days.THURSDAY, Days.FRIDAY }) {
+            calendar.setCapacityAt(each, eightHours);
+        }
+        Task task = createNiceMock(Task.class);
+        expect(task.getStartAsLocalDate()).andReturn(START).anyTimes();
+        expect(task.getCalendar()).andReturn(calendar).anyTimes();
+        expect(task.getWorkableDays()).andReturn(5).anyTimes();
+        replay(task);
+        return MonteCarloTask.create(task);
+    }
+
+    @Test
+    public void theDurationsSkipTheDaysWithoutWork() {
+        BigDecimal[] durations = MonteCarloTask.calculateRealDurationsFor(
+                taskWithWorkingWeekdays(), new BigDecimal(5), new BigDecimal(
+                        6), BigDecimal.ZERO, new BigDecimal("2.5"));
+        assertThat(durations[0], equalTo(BigDecimal.valueOf(5)));
+        assertThat(durations[1], equalTo(BigDecimal.valueOf(8)));
+        assertThat(durations[2], equalTo(BigDecimal.valueOf(0)));
+        assertThat(durations[3], equalTo(BigDecimal.valueOf(3)));
+    }
+
+    @Test
+    public void theDurationsCanSpanSeveralChunksOfCapacities() {
+        MonteCarloTask task = taskWithWorkingWeekdays();
+        assertThat(MonteCarloTask.calculateRealDurationFor(task,
+                new BigDecimal(100)), equalTo(BigDecimal.valueOf(138)));
+    }
+
+}
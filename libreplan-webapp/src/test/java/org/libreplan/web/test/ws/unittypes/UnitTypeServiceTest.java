@@ -21,6 +21,7 @@
 
 package org.libreplan.web.test.ws.unittypes;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.web.WebappGlobalNames.WEBAPP_SPRING_CONFIG_FILE;
@@ -189,6 +190,21 @@ public class UnitTypeServiceTest {
         });
     }
 
+    @Test
+    public void testGetUnitTypesPaginated() {
+        loadRequiredaData();
+        unitTypeService.addUnitTypes(createUnitTypeListDTO(new UnitTypeDTO(
+                "PageA", "page-measureA"), new UnitTypeDTO("PageB",
+                "page-measureB")));
+
+        List<UnitTypeDTO> all = unitTypeService.getUnitTypes().unitTypeDTOs;
+        List<UnitTypeDTO> page = unitTypeService.getUnitTypes(1, 1).unitTypeDTOs;
+
+        assertEquals(1, page.size());
+        assertEquals(all.get(1).code, page.get(0).code);
+        assertTrue(unitTypeService.getUnitTypes(0, 0).unitTypeDTOs.isEmpty());
+    }
+
     private UnitTypeListDTO createUnitTypeListDTO(UnitTypeDTO... unitTypeDTOs) {
 
         List<UnitTypeDTO> unitTypeList = new ArrayList<UnitTypeDTO>();
@@ -22,6 +22,7 @@
 package org.libreplan.web.test.ws.workreports;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
@@ -73,6 +74,7 @@ import org.libreplan.business.workreports.entities.WorkReportLabelTypeAssigment;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.libreplan.business.workreports.entities.WorkReportType;
 import org.libreplan.business.workreports.valueobjects.DescriptionField;
+import org.libreplan.ws.common.api.EntityChangeListDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.api.LabelReferenceDTO;
@@ -489,6 +491,25 @@ public class WorkReportServiceTest {
                 instanceConstraintViolationsList.size() == 0);
     }
 
+    @Test
+    @Transactional
+    public void importInvalidWorkReportAmongValidOnes() {
+        WorkReportDTO invalid = createWorkReportDTO(workReportTypeCode4);
+        invalid.descriptionValues.add(new DescriptionValueDTO(field1 + "X",
+                "incorrecto"));
+
+        WorkReportListDTO workReportListDTO = new WorkReportListDTO(Arrays
+                .asList(createWorkReportDTO(workReportTypeCode), invalid,
+                        createWorkReportDTO(workReportTypeCode)));
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList = workReportService
+                .addWorkReports(workReportListDTO).instanceConstraintViolationsList;
+
+        // Only the invalid one is reported, with its position in the list
+        assertThat(instanceConstraintViolationsList.size(), equalTo(1));
+        assertThat(instanceConstraintViolationsList.get(0).numItem,
+                equalTo(2L));
+    }
+
     @Test
     @NotTransactional
     public void importValidWorkReport() {
@@ -736,4 +757,37 @@ public class WorkReportServiceTest {
                         .size(), equalTo(0));
 
     }
+
+    @Test
+    @NotTransactional
+    public void theDeletionOfALineIsAChangeOfItsWorkReport() {
+        final WorkReportDTO workReportDTO = createWorkReportDTO(workReportTypeCode);
+        workReportDTO.workReportLines.add(createWorkReportLineDTO());
+        InstanceConstraintViolationsListDTO instanceConstraintViolationsListDTO = workReportService
+                .addWorkReports(new WorkReportListDTO(Arrays
+                        .asList(workReportDTO)));
+        assertThat(
+                instanceConstraintViolationsListDTO.instanceConstraintViolationsList
+                        .size(), equalTo(0));
+
+        String token = workReportService.getWorkReportChanges(null).token;
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+            @Override
+            public Void execute() {
+                WorkReport workReport = workReportDAO
+                        .findExistingEntityByCode(workReportDTO.code);
+                workReport.removeWorkReportLine(workReport
+                        .getWorkReportLines().iterator().next());
+                workReportDAO.save(workReport);
+                return null;
+            }
+        });
+
+        EntityChangeListDTO changes = workReportService
+                .getWorkReportChanges(token);
+        assertFalse(changes.fullSynchronizationRequired);
+        assertThat(changes.changes.size(), equalTo(1));
+        assertThat(changes.changes.get(0).code, equalTo(workReportDTO.code));
+        assertFalse(changes.changes.get(0).deleted);
+    }
 }
\ No newline at end of file